@@ -31,7 +31,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * This class represents and renders a Type 1 CharString.
+ * This class represents and renders a Type 1 CharString. The path is rendered on first use,
+ * which is synchronized, so that a char string may be shared by several threads.
  *
  * @author Villu Ruusmann
  * @author John Hewson
@@ -85,7 +86,7 @@ public class Type1CharString
      * Returns the bounds of the renderer path.
      * @return the bounds as Rectangle2D
      */
-    public Rectangle2D getBounds()
+    public synchronized Rectangle2D getBounds()
     {
         if (path == null)
         {
@@ -98,7 +99,7 @@ public class Type1CharString
      * Returns the advance width of the glyph.
      * @return the width
      */
-    public int getWidth()
+    public synchronized int getWidth()
     {
         if (path == null)
         {
@@ -111,7 +112,7 @@ public class Type1CharString
      * Returns the path of the character.
      * @return the path
      */
-    public GeneralPath getPath()
+    public synchronized GeneralPath getPath()
     {
         if (path == null)
         {
@@ -17,8 +17,8 @@
 package org.apache.fontbox.ttf;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A table in a true type font.
@@ -32,13 +32,31 @@ public class GlyphTable extends TTFTable
      */
     public static final String TAG = "glyf";
 
+    /**
+     * Default maximum number of glyphs which are kept after they have been read.
+     */
+    public static final int DEFAULT_MAX_CACHED_GLYPHS = 2000;
+
     private GlyphData[] glyphs;
 
-    // lazy table reading
+    // lazy table reading, the data stream is shared with the font's other tables, so that all
+    // reading is synchronized on the font
+    private TrueTypeFont font;
     private TTFDataStream data;
     private IndexToLocationTable loca;
     private int numGlyphs;
-    protected Map<Integer, GlyphData> cache = new ConcurrentHashMap<Integer, GlyphData>();
+    private int maxCachedGlyphs = DEFAULT_MAX_CACHED_GLYPHS;
+
+    // the most recently used glyphs; fonts are shared by all documents, so the cache is bounded
+    // to keep large CJK fonts from holding on to every glyph that has ever been drawn
+    protected Map<Integer, GlyphData> cache = new LinkedHashMap<Integer, GlyphData>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, GlyphData> eldest)
+        {
+            return size() > maxCachedGlyphs;
+        }
+    };
 
     /**
      * This will read the required data from the stream.
@@ -49,6 +67,7 @@ public class GlyphTable extends TTFTable
      */
     public void read(TrueTypeFont ttf, TTFDataStream data) throws IOException
     {
+        font = ttf;
         loca = ttf.getIndexToLocation();
         numGlyphs = ttf.getNumberOfGlyphs();
 
@@ -105,13 +124,16 @@ public class GlyphTable extends TTFTable
     /**
      * Returns all glyphs. This method can be very slow.
      */
-    public synchronized GlyphData[] getGlyphs() throws IOException
+    public GlyphData[] getGlyphs() throws IOException
     {
-        if (glyphs == null)
+        synchronized (font)
         {
-            readAll();
+            if (glyphs == null)
+            {
+                readAll();
+            }
+            return glyphs;
         }
-        return glyphs;
     }
 
     /**
@@ -122,6 +144,32 @@ public class GlyphTable extends TTFTable
         glyphs = glyphsValue;
     }
 
+    /**
+     * Sets the maximum number of glyphs which are kept after they have been read, see
+     * {@link #DEFAULT_MAX_CACHED_GLYPHS}. The least recently used glyphs are evicted first.
+     *
+     * @param maxCachedGlyphs the maximum number of glyphs, 0 to keep none
+     */
+    void setMaxCachedGlyphs(int maxCachedGlyphs)
+    {
+        synchronized (cache)
+        {
+            this.maxCachedGlyphs = Math.max(0, maxCachedGlyphs);
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of glyphs which are kept after they have been read.
+     */
+    int getCachedGlyphCount()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
     /**
      * Returns the data for the glyph with the given GID.
      *
@@ -135,12 +183,16 @@ public class GlyphTable extends TTFTable
             return null;
         }
 
-        if (cache.containsKey(gid))
+        synchronized (cache)
         {
-            return cache.get(gid);
+            GlyphData cached = cache.get(gid);
+            if (cached != null)
+            {
+                return cached;
+            }
         }
 
-        synchronized (this)
+        synchronized (font)
         {
             // save
             long currentPosition = data.getCurrentPosition();
@@ -165,6 +217,12 @@ public class GlyphTable extends TTFTable
                 {
                     glyph.getDescription().resolve();
                 }
+
+                // the glyph is complete and read-only from here on
+                synchronized (cache)
+                {
+                    cache.put(gid, glyph);
+                }
             }
 
             // restore
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.ttf;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A TTFDataStream which reads from a ByteBuffer, usually a file mapped into memory. Unlike
+ * {@link RAFDataStream}, reading a field doesn't need a system call, and unlike
+ * {@link MemoryTTFDataStream}, the font isn't copied onto the heap, so that large fonts such as
+ * CJK system fonts only take address space, and their pages are shared with other processes.
+ *
+ * The mapping of a file is released by the garbage collector, not by {@link #close()}.
+ */
+public class MappedTTFDataStream extends TTFDataStream
+{
+    private ByteBuffer buffer;
+    private int position;
+
+    /**
+     * Constructor, maps the given file into memory.
+     *
+     * @param file the font file
+     * @throws IOException if the file can't be mapped
+     */
+    public MappedTTFDataStream(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Font file too large: " + file);
+            }
+            // the mapping stays valid after the channel has been closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Constructor, reads the font from the remaining bytes of the given buffer. The buffer's
+     * position isn't changed, so that one buffer may be used by several streams.
+     *
+     * @param buffer the font data
+     */
+    public MappedTTFDataStream(ByteBuffer buffer)
+    {
+        this.buffer = buffer.slice();
+    }
+
+    /**
+     * Read an unsigned byte.
+     * @return An unsigned byte, or -1 at the end of the stream.
+     * @throws IOException If there is an error reading the data.
+     */
+    public int read() throws IOException
+    {
+        ByteBuffer buffer = getBuffer();
+        if (position >= buffer.limit())
+        {
+            return -1;
+        }
+        return buffer.get(position++) & 0xff;
+    }
+
+    /**
+     * Read a signed 64-bit integer.
+     * @return A signed 64-bit integer.
+     * @throws IOException If there is an error reading the data.
+     */
+    public long readLong() throws IOException
+    {
+        ByteBuffer buffer = checkAvailable(8);
+        long value = buffer.getLong(position);
+        position += 8;
+        return value;
+    }
+
+    /**
+     * Read an unsigned short.
+     * @return An unsigned short.
+     * @throws IOException If there is an error reading the data.
+     */
+    public int readUnsignedShort() throws IOException
+    {
+        ByteBuffer buffer = checkAvailable(2);
+        int value = buffer.getShort(position) & 0xffff;
+        position += 2;
+        return value;
+    }
+
+    /**
+     * Read a signed short.
+     * @return A signed short.
+     * @throws IOException If there is an error reading the data.
+     */
+    public short readSignedShort() throws IOException
+    {
+        ByteBuffer buffer = checkAvailable(2);
+        short value = buffer.getShort(position);
+        position += 2;
+        return value;
+    }
+
+    // returns the buffer if it holds the given number of bytes from the current position on
+    private ByteBuffer checkAvailable(int length) throws IOException
+    {
+        ByteBuffer buffer = getBuffer();
+        if (position < 0 || position + length > buffer.limit())
+        {
+            throw new EOFException();
+        }
+        return buffer;
+    }
+
+    private ByteBuffer getBuffer() throws IOException
+    {
+        if (buffer == null)
+        {
+            throw new IOException("The stream has been closed");
+        }
+        return buffer;
+    }
+
+    /**
+     * Releases the buffer. A mapped file is unmapped once the buffer has been garbage collected.
+     * Reading from a closed stream throws an IOException.
+     * @throws IOException If there is an error closing the resources.
+     */
+    public void close() throws IOException
+    {
+        buffer = null;
+    }
+
+    /**
+     * Seek into the datasource. Seeking beyond the end is allowed, subsequent reads will fail.
+     * @param pos The position to seek to.
+     * @throws IOException If there is an error seeking to that position.
+     */
+    public void seek(long pos) throws IOException
+    {
+        if (pos < 0)
+        {
+            throw new IOException("Negative seek offset: " + pos);
+        }
+        position = (int) Math.min(pos, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @see java.io.InputStream#read( byte[], int, int )
+     * @param b The buffer to write to.
+     * @param off The offset into the buffer.
+     * @param len The length into the buffer.
+     * @return The number of bytes read, or -1 at the end of the stream.
+     * @throws IOException If there is an error reading from the stream.
+     */
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        ByteBuffer buffer = getBuffer();
+        if (position >= buffer.limit())
+        {
+            return -1;
+        }
+        int amountRead = Math.min(len, buffer.limit() - position);
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(b, off, amountRead);
+        position += amountRead;
+        return amountRead;
+    }
+
+    /**
+     * Get the current position in the stream.
+     * @return The current position in the stream.
+     * @throws IOException If an error occurs while reading the stream.
+     */
+    public long getCurrentPosition() throws IOException
+    {
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream getOriginalData() throws IOException
+    {
+        final ByteBuffer data = getBuffer().duplicate();
+        data.position(0);
+        return new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                return data.hasRemaining() ? data.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                if (!data.hasRemaining())
+                {
+                    return -1;
+                }
+                int amountRead = Math.min(len, data.remaining());
+                data.get(b, off, amountRead);
+                return amountRead;
+            }
+        };
+    }
+}
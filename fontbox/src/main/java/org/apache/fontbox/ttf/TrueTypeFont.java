@@ -29,6 +29,10 @@ import org.apache.fontbox.util.BoundingBox;
 
 /**
  * A TrueType font file.
+ *
+ * A font is read-only once it has been parsed and may be shared by several threads. Tables
+ * which are parsed on demand are read while holding the font's lock, as all tables share one
+ * data stream.
  * 
  * @author Ben Litchfield
  */
@@ -37,10 +41,10 @@ public class TrueTypeFont implements Type1Equivalent
     private float version;
     private int numberOfGlyphs = -1;
     private int unitsPerEm = -1;
-    private int[] advanceWidths = null;
+    private volatile int[] advanceWidths = null;
     protected Map<String,TTFTable> tables = new HashMap<String,TTFTable>();
     private TTFDataStream data;
-    private Map<String, Integer> postScriptNames;
+    private volatile Map<String, Integer> postScriptNames;
     
     /**
      * Constructor.  Clients should use the TTFParser to create a new TrueTypeFont object.
@@ -342,6 +346,7 @@ public class TrueTypeFont implements Type1Equivalent
      */
     public int getAdvanceWidth(int gid) throws IOException
     {
+        int[] advanceWidths = this.advanceWidths;
         if (advanceWidths == null)
         {
             HorizontalMetricsTable hmtx = getHorizontalMetrics();
@@ -354,6 +359,7 @@ public class TrueTypeFont implements Type1Equivalent
                 // this should never happen
                 advanceWidths = new int[]{250};
             }
+            this.advanceWidths = advanceWidths;
         }
         if (advanceWidths.length > gid)
         {
@@ -384,18 +390,20 @@ public class TrueTypeFont implements Type1Equivalent
     {
         if (postScriptNames == null)
         {
-            postScriptNames = new HashMap<String, Integer>();
+            // the map is only published when it is complete
+            Map<String, Integer> names = new HashMap<String, Integer>();
             if (getPostScript() != null)
             {
-                String[] names = getPostScript().getGlyphNames();
-                if (names != null)
+                String[] glyphNames = getPostScript().getGlyphNames();
+                if (glyphNames != null)
                 {
-                    for (int i = 0; i < names.length; i++)
+                    for (int i = 0; i < glyphNames.length; i++)
                     {
-                        postScriptNames.put(names[i], i);
+                        names.put(glyphNames[i], i);
                     }
                 }
             }
+            postScriptNames = names;
         }
     }
 
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.ttf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link MappedTTFDataStream}.
+ */
+public class TestMappedTTFDataStream extends TestCase
+{
+    private final File testFile = new File("src/test/resources/ttf/testTrueType.ttf");
+
+    /**
+     * Tests that a mapped font reads the same as a font in memory.
+     */
+    public void testParse() throws IOException
+    {
+        TrueTypeFont mapped = new TTFParser(false, true).parse(new MappedTTFDataStream(testFile));
+        TrueTypeFont memory = new TTFParser().parse(new FileInputStream(testFile));
+        assertEquals(memory.getNaming().getPostScriptName(),
+                     mapped.getNaming().getPostScriptName());
+        assertEquals(memory.getNumberOfGlyphs(), mapped.getNumberOfGlyphs());
+        assertEquals(memory.getHeader().getCreated(), mapped.getHeader().getCreated());
+        for (int gid = 0; gid < memory.getNumberOfGlyphs(); gid++)
+        {
+            GlyphData expected = memory.getGlyph().getGlyph(gid);
+            GlyphData actual = mapped.getGlyph().getGlyph(gid);
+            assertEquals(expected == null, actual == null);
+            if (expected != null)
+            {
+                assertEquals(expected.getBoundingBox().toString(),
+                             actual.getBoundingBox().toString());
+            }
+        }
+
+        byte[] original = toByteArray(mapped.getOriginalData());
+        assertTrue(Arrays.equals(toByteArray(new FileInputStream(testFile)), original));
+        mapped.close();
+        memory.close();
+    }
+
+    /**
+     * Tests reading a buffer and the end of the stream.
+     */
+    public void testEOF() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 9, 1, 2, (byte) 0xff, (byte) 0xfe });
+        buffer.position(1);
+        MappedTTFDataStream stream = new MappedTTFDataStream(buffer);
+        assertEquals(1, buffer.position());
+        assertEquals(0x0102, stream.readUnsignedShort());
+        assertEquals(-2, stream.readSignedShort());
+        assertEquals(-1, stream.read());
+        try
+        {
+            stream.readUnsignedShort();
+            fail("EOF not detected!");
+        }
+        catch (EOFException e)
+        {
+            // expected
+        }
+
+        stream.seek(3);
+        assertEquals(0xfe, stream.read());
+        stream.seek(100);
+        assertEquals(100, stream.getCurrentPosition());
+        assertEquals(-1, stream.read(new byte[2], 0, 2));
+        stream.seek(0);
+        byte[] bytes = new byte[8];
+        assertEquals(4, stream.read(bytes, 0, 8));
+        assertEquals(2, bytes[1]);
+        stream.close();
+    }
+
+    /**
+     * Tests that reading from a closed stream throws an IOException.
+     */
+    public void testClosed() throws IOException
+    {
+        MappedTTFDataStream stream = new MappedTTFDataStream(ByteBuffer.wrap(new byte[16]));
+        stream.close();
+        for (int method = 0; method < 7; method++)
+        {
+            try
+            {
+                switch (method)
+                {
+                    case 0:
+                        stream.read();
+                        break;
+                    case 1:
+                        stream.readLong();
+                        break;
+                    case 2:
+                        stream.readUnsignedShort();
+                        break;
+                    case 3:
+                        stream.readSignedShort();
+                        break;
+                    case 4:
+                        stream.read(new byte[2], 0, 2);
+                        break;
+                    case 5:
+                        stream.getOriginalData();
+                        break;
+                    default:
+                        stream.readUnsignedInt();
+                        break;
+                }
+                fail("reading from a closed stream must fail");
+            }
+            catch (EOFException e)
+            {
+                fail("a closed stream isn't at its end");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    private static byte[] toByteArray(InputStream input) throws IOException
+    {
+        try
+        {
+            byte[] buffer = new byte[1024];
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int count;
+            while ((count = input.read(buffer)) != -1)
+            {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+}
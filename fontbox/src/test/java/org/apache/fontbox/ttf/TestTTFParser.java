@@ -17,7 +17,9 @@ package org.apache.fontbox.ttf;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.TimeZone;
 
 import junit.framework.TestCase;
@@ -55,4 +57,100 @@ public class TestTTFParser extends TestCase
         assertEquals(created, target);
     }
 
+    /**
+     * Tests that the glyphs which have been read are kept up to the maximum number only.
+     */
+    public void testGlyphCacheBound() throws IOException
+    {
+        TrueTypeFont font = new TTFParser(false, true).parse(
+                new File("src/test/resources/ttf/testTrueType.ttf"));
+        GlyphTable glyphTable = font.getGlyph();
+        glyphTable.setMaxCachedGlyphs(3);
+        GlyphData first = null;
+        int firstGid = -1;
+        for (int gid = 0; gid < font.getNumberOfGlyphs(); gid++)
+        {
+            GlyphData glyph = glyphTable.getGlyph(gid);
+            if (glyph != null && first == null)
+            {
+                first = glyph;
+                firstGid = gid;
+                assertSame(glyph, glyphTable.getGlyph(gid));
+            }
+            assertTrue(glyphTable.getCachedGlyphCount() <= 3);
+        }
+        assertTrue(font.getNumberOfGlyphs() > 3);
+        assertEquals(3, glyphTable.getCachedGlyphCount());
+        // the first glyph has been evicted, so it is read again
+        GlyphData again = glyphTable.getGlyph(firstGid);
+        assertNotSame(first, again);
+        assertEquals(first.getBoundingBox().toString(), again.getBoundingBox().toString());
+        font.close();
+    }
+
+    /**
+     * Tests that a font which is parsed on demand can be read by several threads at once.
+     */
+    public void testConcurrentAccess() throws Exception
+    {
+        final File testFile = new File("src/test/resources/ttf/testTrueType.ttf");
+        TrueTypeFont expected = new TTFParser().parse(testFile);
+        final int numGlyphs = expected.getNumberOfGlyphs();
+        final List<String> bounds = new ArrayList<String>();
+        for (int gid = 0; gid < numGlyphs; gid++)
+        {
+            GlyphData glyph = expected.getGlyph().getGlyph(gid);
+            bounds.add(glyph == null ? null : glyph.getBoundingBox().toString());
+        }
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        for (int iteration = 0; iteration < 20; iteration++)
+        {
+            final TrueTypeFont shared = new TTFParser(false, true).parse(testFile);
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++)
+            {
+                final boolean readTables = i % 2 == 1;
+                threads[i] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            // glyphs are read while other threads parse tables on demand
+                            for (int gid = 0; gid < numGlyphs; gid++)
+                            {
+                                if (readTables)
+                                {
+                                    shared.getCmap();
+                                    shared.getOS2Windows();
+                                    shared.nameToGID("space");
+                                }
+                                GlyphData glyph = shared.getGlyph().getGlyph(gid);
+                                assertEquals(bounds.get(gid), glyph == null ? null :
+                                             glyph.getBoundingBox().toString());
+                            }
+                        }
+                        catch (Throwable t)
+                        {
+                            synchronized (errors)
+                            {
+                                errors.add(t);
+                            }
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+            shared.close();
+        }
+        assertEquals(errors.toString(), 0, errors.size());
+        expected.close();
+    }
+
 }
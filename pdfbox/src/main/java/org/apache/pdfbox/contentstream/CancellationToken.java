@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+/**
+ * Stops the processing of content streams when it is cancelled, either explicitly from another
+ * thread or when its deadline has passed. A {@link PDFStreamEngine} checks the token before
+ * each operator and stops processing once it is cancelled.
+ */
+public final class CancellationToken
+{
+    private final boolean hasDeadline;
+    private final long deadline;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a token without a deadline, which is only cancelled by {@link #cancel()}.
+     */
+    public CancellationToken()
+    {
+        hasDeadline = false;
+        deadline = 0;
+    }
+
+    /**
+     * Creates a token which is cancelled when the given time has passed.
+     *
+     * @param timeoutMillis the time from now until the deadline, in milliseconds
+     */
+    public CancellationToken(long timeoutMillis)
+    {
+        hasDeadline = true;
+        deadline = System.nanoTime() + timeoutMillis * 1000000;
+    }
+
+    /**
+     * Cancels the token. This may be called from any thread.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Returns true if the token has been cancelled or its deadline has passed.
+     *
+     * @return true if processing should stop
+     */
+    public boolean isCancelled()
+    {
+        if (!cancelled && hasDeadline && System.nanoTime() - deadline >= 0)
+        {
+            cancelled = true;
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.util.Vector;
+
+/**
+ * Memo table for the per-code lookups of a font, i.e. Unicode and displacement. Single byte
+ * codes are stored in a flat array, larger codes (as used by CID fonts) in an open addressing
+ * hash table keyed by the primitive code.
+ *
+ * A memo table belongs to one {@link PDFStreamEngine}, so it isn't thread safe, and fonts which
+ * are shared by several documents or threads aren't modified. The font isn't referenced by the
+ * table, it is passed to each lookup instead.
+ */
+final class CodeCache
+{
+    private static final int SINGLE_BYTE_CODES = 256;
+    private static final int INITIAL_CAPACITY = 64; // must be a power of two
+
+    private final Entry[] singleByte = new Entry[SINGLE_BYTE_CODES];
+    private int[] keys;
+    private Entry[] values;
+    private int size;
+
+    // the custom glyph list the cached custom Unicode values were created with
+    private GlyphList customGlyphList;
+
+    /**
+     * Cached values for a single code.
+     */
+    private static final class Entry
+    {
+        String unicode;
+        boolean hasUnicode;
+        String customUnicode;
+        boolean hasCustomUnicode;
+        Vector displacement;
+    }
+
+    /**
+     * Returns the same as {@link PDFont#toUnicode(int)}, memoized.
+     *
+     * @param font the font this memo table belongs to
+     * @param code character code
+     * @return Unicode character(s)
+     */
+    String toUnicode(PDFont font, int code) throws IOException
+    {
+        Entry entry = get(code);
+        if (!entry.hasUnicode)
+        {
+            entry.unicode = font.toUnicode(code);
+            entry.hasUnicode = true;
+        }
+        return entry.unicode;
+    }
+
+    /**
+     * Returns the same as {@link PDFont#toUnicode(int, GlyphList)}, memoized. Only the values
+     * for the most recently used custom glyph list are kept.
+     *
+     * @param font the font this memo table belongs to
+     * @param code character code
+     * @param glyphList a custom glyph list to use instead of the Adobe Glyph List
+     * @return Unicode character(s)
+     */
+    String toUnicode(PDFont font, int code, GlyphList glyphList) throws IOException
+    {
+        useCustomGlyphList(glyphList);
+        Entry entry = get(code);
+        if (!entry.hasCustomUnicode)
+        {
+            entry.customUnicode = font.toUnicode(code, glyphList);
+            entry.hasCustomUnicode = true;
+        }
+        return entry.customUnicode;
+    }
+
+    /**
+     * Returns the same as {@link PDFont#getDisplacement(int)}, memoized.
+     *
+     * @param font the font this memo table belongs to
+     * @param code character code
+     * @return displacement vector
+     */
+    Vector getDisplacement(PDFont font, int code) throws IOException
+    {
+        Entry entry = get(code);
+        if (entry.displacement == null)
+        {
+            entry.displacement = font.getDisplacement(code);
+        }
+        return entry.displacement;
+    }
+
+    /**
+     * Returns the entry for the given code, creating it if necessary.
+     *
+     * @param code character code
+     */
+    private Entry get(int code)
+    {
+        if (code >= 0 && code < SINGLE_BYTE_CODES)
+        {
+            Entry entry = singleByte[code];
+            if (entry == null)
+            {
+                entry = new Entry();
+                singleByte[code] = entry;
+            }
+            return entry;
+        }
+
+        if (keys == null)
+        {
+            keys = new int[INITIAL_CAPACITY];
+            values = new Entry[INITIAL_CAPACITY];
+        }
+        int mask = keys.length - 1;
+        int i = mix(code) & mask;
+        while (values[i] != null)
+        {
+            if (keys[i] == code)
+            {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        Entry entry = new Entry();
+        keys[i] = code;
+        values[i] = entry;
+        if (++size * 2 > keys.length)
+        {
+            grow();
+        }
+        return entry;
+    }
+
+    /**
+     * Prepares the cached custom Unicode values for lookups with the given glyph list. If the
+     * glyph list differs from the one the custom values were created with, they are discarded.
+     *
+     * @param glyphList custom glyph list
+     */
+    private void useCustomGlyphList(GlyphList glyphList)
+    {
+        if (glyphList != customGlyphList)
+        {
+            customGlyphList = glyphList;
+            for (Entry entry : singleByte)
+            {
+                if (entry != null)
+                {
+                    entry.hasCustomUnicode = false;
+                    entry.customUnicode = null;
+                }
+            }
+            if (values != null)
+            {
+                for (Entry entry : values)
+                {
+                    if (entry != null)
+                    {
+                        entry.hasCustomUnicode = false;
+                        entry.customUnicode = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void grow()
+    {
+        int[] oldKeys = keys;
+        Entry[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Entry[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldValues[j] != null)
+            {
+                int i = mix(oldKeys[j]) & mask;
+                while (values[i] != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int mix(int code)
+    {
+        int h = code * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
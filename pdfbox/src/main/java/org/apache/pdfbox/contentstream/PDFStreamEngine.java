@@ -28,11 +28,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.WeakHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
@@ -74,6 +77,24 @@ public class PDFStreamEngine
     // skip malformed or otherwise unparseable input where possible
     private boolean forceParsing;
 
+    // skip content which can't contain any text
+    private boolean textOnly;
+    private final Map<COSStream, Long> textFreeLengths = new WeakHashMap<COSStream, Long>();
+    private long skippedOperators;
+    private long skippedBytes;
+    private int skippedForms;
+
+    // memoized per-code lookups of the fonts which have been shown
+    private final Map<PDFont, CodeCache> codeCaches = new WeakHashMap<PDFont, CodeCache>();
+
+    // records counts and times of operators, fonts etc. when set
+    private ProcessingProfile profile;
+
+    // stops processing when cancelled
+    private CancellationToken cancellationToken;
+    private boolean cancelled;
+    private long processedOperators;
+
     /**
      * Creates a new PDFStreamEngine.
      */
@@ -101,6 +122,128 @@ public class PDFStreamEngine
         forceParsing = forceParsingValue;
     }
 
+    /**
+     * Indicates if text only mode is activated.
+     *
+     * @return true if text only mode is active
+     */
+    public boolean isTextOnly()
+    {
+        return textOnly;
+    }
+
+    /**
+     * Enable/Disable text only mode. In text only mode, operators without a registered processor
+     * are dropped together with their operands, without calling
+     * {@link #processOperator(Operator, List)}, inline image data is skipped unless a processor
+     * for BI is registered, and form XObjects which can't show any text are not processed at
+     * all. This is intended for text extraction, where graphics operators don't matter. It is
+     * disabled by default.
+     *
+     * @param textOnlyValue true activates text only mode
+     */
+    public void setTextOnly(boolean textOnlyValue)
+    {
+        textOnly = textOnlyValue;
+    }
+
+    /**
+     * Returns the number of operators which have been skipped in text only mode.
+     *
+     * @return the number of skipped operators
+     */
+    public long getSkippedOperatorCount()
+    {
+        return skippedOperators;
+    }
+
+    /**
+     * Returns the number of content bytes which have been skipped in text only mode, i.e. inline
+     * image data and the decoded content of skipped form XObjects.
+     *
+     * @return the number of skipped bytes
+     */
+    public long getSkippedByteCount()
+    {
+        return skippedBytes;
+    }
+
+    /**
+     * Returns the number of form XObjects which have been skipped in text only mode.
+     *
+     * @return the number of skipped forms
+     */
+    public int getSkippedFormCount()
+    {
+        return skippedForms;
+    }
+
+    /**
+     * Returns the profile into which counts and times are recorded, or null.
+     *
+     * @return the profile, or null if profiling is disabled
+     */
+    public ProcessingProfile getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * Sets a profile into which the count and the elapsed time of each operator, XObject, font,
+     * image decode and shading are recorded. The default is null, which disables profiling.
+     *
+     * @param profile the profile, or null
+     */
+    public void setProfile(ProcessingProfile profile)
+    {
+        this.profile = profile;
+    }
+
+    /**
+     * Returns the token which stops processing when cancelled, or null.
+     *
+     * @return the cancellation token, or null
+     */
+    public CancellationToken getCancellationToken()
+    {
+        return cancellationToken;
+    }
+
+    /**
+     * Sets a token which is checked before each operator. Once it is cancelled, the remaining
+     * operators of the current stream and of all enclosing streams are skipped, and
+     * {@link #isCancelled()} returns true. The default is null, which means that processing
+     * can't be cancelled.
+     *
+     * @param cancellationToken the cancellation token, or null
+     */
+    public void setCancellationToken(CancellationToken cancellationToken)
+    {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Returns true if processing has been stopped by the cancellation token since the last call
+     * of {@link #initStream(PDRectangle)}.
+     *
+     * @return true if content has been skipped because of cancellation
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of operators which have been processed, not counting operators
+     * skipped in text only mode or because of cancellation.
+     *
+     * @return the number of processed operators
+     */
+    public long getProcessedOperatorCount()
+    {
+        return processedOperators;
+    }
+
     /**
      * Register a custom operator processor with the engine.
      * 
@@ -138,6 +281,7 @@ public class PDFStreamEngine
         textMatrix = null;
         textLineMatrix = null;
         streamResourcesStack.clear();
+        cancelled = false;
     }
 
     /**
@@ -163,9 +307,149 @@ public class PDFStreamEngine
      */
     public void showForm(PDFormXObject form) throws IOException
     {
+        if (textOnly)
+        {
+            long textFreeLength = getTextFreeLength(form.getCOSStream());
+            if (textFreeLength >= 0)
+            {
+                skippedForms++;
+                skippedBytes += textFreeLength;
+                return;
+            }
+        }
         processSubStream(form.getResources(), form.getCOSStream());
     }
 
+    /**
+     * Returns the decoded length of the given form content stream if it can't show any text,
+     * or -1 if it may. The result is remembered for each stream.
+     */
+    private long getTextFreeLength(COSStream stream) throws IOException
+    {
+        Long length = textFreeLengths.get(stream);
+        if (length == null)
+        {
+            length = -1L;
+            COSBase resources = stream.getDictionaryObject(COSName.RESOURCES);
+            if (resources == null)
+            {
+                // the resources are inherited, so all we can check is the content
+                length = scanTextFreeLength(stream, true);
+            }
+            else if (resources instanceof COSDictionary &&
+                     isEmpty(((COSDictionary) resources).getDictionaryObject(COSName.FONT)))
+            {
+                length = scanTextFreeLength(stream, hasFormXObjects((COSDictionary) resources));
+            }
+            // malformed resources are left to the processing of the form
+            textFreeLengths.put(stream, length);
+        }
+        return length;
+    }
+
+    private static boolean isEmpty(COSBase dictionary)
+    {
+        return !(dictionary instanceof COSDictionary) || ((COSDictionary) dictionary).size() == 0;
+    }
+
+    private static boolean hasFormXObjects(COSDictionary resources)
+    {
+        COSBase base = resources.getDictionaryObject(COSName.XOBJECT);
+        if (base instanceof COSDictionary)
+        {
+            COSDictionary xobjects = (COSDictionary) base;
+            for (COSName name : xobjects.keySet())
+            {
+                COSBase xobject = xobjects.getDictionaryObject(name);
+                if (!(xobject instanceof COSDictionary) ||
+                    !COSName.IMAGE.equals(((COSDictionary) xobject).getCOSName(COSName.SUBTYPE)))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans the decoded content of the given stream for operators which may show text and
+     * returns the number of bytes scanned if there are none, or -1 otherwise. This is a
+     * conservative byte-level check, so operator-like tokens within strings or inline image data
+     * also count as text operators.
+     *
+     * @param stream the content stream
+     * @param checkDo true if the Do operator is to be treated as showing text
+     */
+    private static long scanTextFreeLength(COSStream stream, boolean checkDo) throws IOException
+    {
+        InputStream in = stream.getUnfilteredStream();
+        try
+        {
+            byte[] buffer = new byte[4096];
+            long length = 0;
+            int tokenLength = 0;
+            int c0 = 0, c1 = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                for (int i = 0; i < read; i++)
+                {
+                    int c = buffer[i] & 0xff;
+                    if (isTokenDelimiter(c))
+                    {
+                        if (tokenLength == 2 && isTextOperator(c0, c1, checkDo))
+                        {
+                            return -1;
+                        }
+                        tokenLength = 0;
+                    }
+                    else
+                    {
+                        if (c == '\'' || c == '"')
+                        {
+                            return -1;
+                        }
+                        if (tokenLength == 0)
+                        {
+                            c0 = c;
+                        }
+                        else if (tokenLength == 1)
+                        {
+                            c1 = c;
+                        }
+                        tokenLength++;
+                    }
+                }
+                length += read;
+            }
+            return tokenLength == 2 && isTextOperator(c0, c1, checkDo) ? -1 : length;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static boolean isTokenDelimiter(int c)
+    {
+        switch (c)
+        {
+            case 0: case '\t': case '\n': case '\f': case '\r': case ' ':
+            case '(': case ')': case '<': case '>': case '[': case ']':
+            case '{': case '}': case '/': case '%':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTextOperator(int c0, int c1, boolean checkDo)
+    {
+        return c0 == 'B' && c1 == 'T' ||
+               c0 == 'T' && (c1 == 'j' || c1 == 'J') ||
+               checkDo && c0 == 'D' && c1 == 'o';
+    }
+
     /**
      * Shows a transparency group from the content stream.
      *
@@ -217,10 +501,12 @@ public class PDFStreamEngine
         subStreamMatrix = getGraphicsState().getCurrentTransformationMatrix();
         List<COSBase> arguments = new ArrayList<COSBase>();
         PDFStreamParser parser = new PDFStreamParser(cosStream, forceParsing);
+        // the data is needed by a subclass which processes inline images
+        parser.setSkipInlineImageData(textOnly && !operators.containsKey("BI"));
         try
         {
             Iterator<Object> iter = parser.getTokenIterator();
-            while (iter.hasNext())
+            while (!cancelled && iter.hasNext())
             {
                 Object next = iter.next();
                 if (LOG.isTraceEnabled())
@@ -233,8 +519,24 @@ public class PDFStreamEngine
                 }
                 else if (next instanceof Operator)
                 {
-                    processOperator((Operator) next, arguments);
-                    arguments = new ArrayList<COSBase>();
+                    Operator operator = (Operator) next;
+                    if (textOnly && !operators.containsKey(operator.getName()))
+                    {
+                        // drop the operator and reuse the operand list
+                        skippedOperators++;
+                        arguments.clear();
+                    }
+                    else if (cancellationToken != null && cancellationToken.isCancelled())
+                    {
+                        // the loops of the enclosing streams stop as well
+                        cancelled = true;
+                    }
+                    else
+                    {
+                        processOperator(operator, arguments);
+                        processedOperators++;
+                        arguments = new ArrayList<COSBase>();
+                    }
                 }
                 else
                 {
@@ -244,6 +546,7 @@ public class PDFStreamEngine
         }
         finally
         {
+            skippedBytes += parser.getSkippedImageBytes();
             parser.close();
         }
         subStreamMatrix = oldSubStreamMatrix;
@@ -337,7 +640,25 @@ public class PDFStreamEngine
     protected void applyTextAdjustment(float tx, float ty) throws IOException
     {
         // update the text matrix
-        textMatrix.concatenate(Matrix.getTranslatingInstance(tx, ty));
+        textMatrix.translate(tx, ty);
+    }
+
+    /**
+     * Returns the memo table of the per-code lookups of the given font. The table belongs to
+     * this engine, so that fonts which are shared by documents and threads aren't modified.
+     *
+     * @param font the font
+     * @return the memo table of the font
+     */
+    CodeCache getCodeCache(PDFont font)
+    {
+        CodeCache codeCache = codeCaches.get(font);
+        if (codeCache == null)
+        {
+            codeCache = new CodeCache();
+            codeCaches.put(font, codeCache);
+        }
+        return codeCache;
     }
 
     /**
@@ -363,6 +684,7 @@ public class PDFStreamEngine
         float fontSize = textState.getFontSize();
         float horizontalScaling = textState.getHorizontalScaling() / 100f;
         float charSpacing = textState.getCharacterSpacing();
+        boolean isVertical = font.isVertical();
 
         // put the text state parameters into matrix form
         Matrix parameters = new Matrix(
@@ -370,6 +692,13 @@ public class PDFStreamEngine
                 0, fontSize,                     // 0
                 0, textState.getRise());         // 1
 
+        // reused for the product of the parameters and the text matrix
+        Matrix parametersTimesTextMatrix = new Matrix();
+        CodeCache codeCache = getCodeCache(font);
+
+        long start = profile != null ? System.nanoTime() : 0;
+        int glyphs = 0;
+
         // read the stream until it is empty
         InputStream in = new ByteArrayInputStream(string);
         while (in.available() > 0)
@@ -378,7 +707,7 @@ public class PDFStreamEngine
             int before = in.available();
             int code = font.readCode(in);
             int codeLength = before - in.available();
-            String unicode = font.toUnicode(code);
+            String unicode = codeCache.toUnicode(font, code);
 
             // Word spacing shall be applied to every occurrence of the single-byte character code
             // 32 in a string when using a simple font or a composite font that defines code 32 as
@@ -391,11 +720,12 @@ public class PDFStreamEngine
 
             // text rendering matrix (text space -> device space)
             Matrix ctm = state.getCurrentTransformationMatrix();
-            Matrix textRenderingMatrix = parameters.multiply(textMatrix).multiply(ctm);
+            Matrix textRenderingMatrix =
+                    parameters.multiply(textMatrix, parametersTimesTextMatrix).multiply(ctm);
 
             // get glyph's position vector if this is vertical text
             // changes to vertical text should be tested with PDFBOX-2294 and PDFBOX-1422
-            if (font.isVertical())
+            if (isVertical)
             {
                 // position vector, in text space
                 Vector v = font.getPositionVector(code);
@@ -405,14 +735,15 @@ public class PDFStreamEngine
             }
 
             // get glyph's horizontal and vertical displacements, in text space
-            Vector w = font.getDisplacement(code);
+            Vector w = codeCache.getDisplacement(font, code);
 
             // process the decoded glyph
             showGlyph(textRenderingMatrix, font, code, unicode, w);
+            glyphs++;
 
             // calculate the combined displacements
             float tx, ty;
-            if (font.isVertical())
+            if (isVertical)
             {
                 tx = 0;
                 ty = w.getY() * fontSize + charSpacing + wordSpacing;
@@ -424,7 +755,12 @@ public class PDFStreamEngine
             }
 
             // update the text matrix
-            textMatrix.concatenate(Matrix.getTranslatingInstance(tx, ty));
+            textMatrix.translate(tx, ty);
+        }
+
+        if (profile != null)
+        {
+            profile.recordGlyphs(font.getName(), glyphs, System.nanoTime() - start);
         }
     }
 
@@ -479,7 +815,22 @@ public class PDFStreamEngine
         if (processor != null)
         {
             processor.setContext(this);
-            processor.process(operator, arguments);
+            if (profile == null)
+            {
+                processor.process(operator, arguments);
+            }
+            else
+            {
+                long start = System.nanoTime();
+                try
+                {
+                    processor.process(operator, arguments);
+                }
+                finally
+                {
+                    profile.recordOperator(name, System.nanoTime() - start);
+                }
+            }
         }
         else
         {
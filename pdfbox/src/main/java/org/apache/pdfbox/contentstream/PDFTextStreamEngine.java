@@ -210,7 +210,7 @@ public class PDFTextStreamEngine extends PDFStreamEngine
                 textRenderingMatrix.getXScale()  * ctm.getXScale();
 
         // use our additional glyph list for Unicode mapping
-        unicode = font.toUnicode(code, glyphList);
+        unicode = getCodeCache(font).toUnicode(font, code, glyphList);
 
         // when there is no Unicode mapping available, Acrobat simply coerces the character code
         // into Unicode, so we do the same. Subclasses of PDFStreamEngine don't necessarily want
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts and times of the work done while processing content streams, collected when the
+ * profile is set on a {@link PDFStreamEngine}. Operators, XObjects, fonts, image decodes and
+ * shadings are each recorded by name, with the number of occurrences and the elapsed time.
+ *
+ * Times are inclusive, i.e. the time of a Do operator contains the time of the operators of
+ * its form, and the time of a font contains the time of drawing its glyphs. A profile may be
+ * shared by several engines, also in different threads, to collect the totals of a document.
+ */
+public final class ProcessingProfile
+{
+    private final Map<String, Entry> operators = new TreeMap<String, Entry>();
+    private final Map<String, Entry> xobjects = new TreeMap<String, Entry>();
+    private final Map<String, Entry> fonts = new TreeMap<String, Entry>();
+    private final Map<String, Entry> images = new TreeMap<String, Entry>();
+    private final Map<String, Entry> shadings = new TreeMap<String, Entry>();
+
+    /**
+     * Count and elapsed time of one operator, XObject, font, kind of image or shading.
+     */
+    public static final class Entry
+    {
+        private long count;
+        private long nanos;
+
+        private Entry()
+        {
+        }
+
+        private Entry(Entry entry)
+        {
+            count = entry.count;
+            nanos = entry.nanos;
+        }
+
+        /**
+         * Returns the number of occurrences, or the number of glyphs for a font.
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Returns the elapsed time, in nanoseconds.
+         */
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "{count=" + count + ", nanos=" + nanos + "}";
+        }
+    }
+
+    /**
+     * Records an operator which has been processed.
+     *
+     * @param name the name of the operator
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordOperator(String name, long nanos)
+    {
+        record(operators, name, 1, nanos);
+    }
+
+    /**
+     * Records an XObject which has been drawn.
+     *
+     * @param name the resource name of the XObject
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordXObject(String name, long nanos)
+    {
+        record(xobjects, name, 1, nanos);
+    }
+
+    /**
+     * Records glyphs of a font which have been shown.
+     *
+     * @param name the name of the font
+     * @param glyphs the number of glyphs
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordGlyphs(String name, int glyphs, long nanos)
+    {
+        record(fonts, name, glyphs, nanos);
+    }
+
+    /**
+     * Records an image which has been decoded.
+     *
+     * @param name a description of the image
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordImage(String name, long nanos)
+    {
+        record(images, name, 1, nanos);
+    }
+
+    /**
+     * Records a shading which has been painted.
+     *
+     * @param name the resource name of the shading
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public void recordShading(String name, long nanos)
+    {
+        record(shadings, name, 1, nanos);
+    }
+
+    private synchronized void record(Map<String, Entry> entries, String name, int count,
+                                     long nanos)
+    {
+        if (name == null)
+        {
+            name = "";
+        }
+        Entry entry = entries.get(name);
+        if (entry == null)
+        {
+            entry = new Entry();
+            entries.put(name, entry);
+        }
+        entry.count += count;
+        entry.nanos += nanos;
+    }
+
+    /**
+     * Returns a snapshot of the operators, sorted by name.
+     */
+    public Map<String, Entry> getOperators()
+    {
+        return snapshot(operators);
+    }
+
+    /**
+     * Returns a snapshot of the XObjects, sorted by name.
+     */
+    public Map<String, Entry> getXObjects()
+    {
+        return snapshot(xobjects);
+    }
+
+    /**
+     * Returns a snapshot of the fonts, sorted by name. The count of a font is its number of
+     * glyphs.
+     */
+    public Map<String, Entry> getFonts()
+    {
+        return snapshot(fonts);
+    }
+
+    /**
+     * Returns a snapshot of the image decodes, sorted by the description of the image, which is
+     * its file suffix and its size.
+     */
+    public Map<String, Entry> getImages()
+    {
+        return snapshot(images);
+    }
+
+    /**
+     * Returns a snapshot of the shadings, sorted by name.
+     */
+    public Map<String, Entry> getShadings()
+    {
+        return snapshot(shadings);
+    }
+
+    private synchronized Map<String, Entry> snapshot(Map<String, Entry> entries)
+    {
+        Map<String, Entry> copy = new LinkedHashMap<String, Entry>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet())
+        {
+            copy.put(entry.getKey(), new Entry(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Discards everything which has been recorded.
+     */
+    public synchronized void clear()
+    {
+        operators.clear();
+        xobjects.clear();
+        fonts.clear();
+        images.clear();
+        shadings.clear();
+    }
+
+    /**
+     * Writes the profile as a JSON object with the members "operators", "xobjects", "fonts",
+     * "images" and "shadings", each of which maps names to objects with the members "count"
+     * and "nanos".
+     *
+     * @param writer the writer, which is not closed
+     * @throws IOException if the profile can't be written
+     */
+    public synchronized void writeJSON(Writer writer) throws IOException
+    {
+        writer.write('{');
+        writeJSON(writer, "operators", operators);
+        writer.write(',');
+        writeJSON(writer, "xobjects", xobjects);
+        writer.write(',');
+        writeJSON(writer, "fonts", fonts);
+        writer.write(',');
+        writeJSON(writer, "images", images);
+        writer.write(',');
+        writeJSON(writer, "shadings", shadings);
+        writer.write('}');
+    }
+
+    private static void writeJSON(Writer writer, String member, Map<String, Entry> entries)
+            throws IOException
+    {
+        writeString(writer, member);
+        writer.write(":{");
+        boolean first = true;
+        for (Map.Entry<String, Entry> entry : entries.entrySet())
+        {
+            if (!first)
+            {
+                writer.write(',');
+            }
+            first = false;
+            writeString(writer, entry.getKey());
+            writer.write(":{\"count\":" + entry.getValue().count + ",\"nanos\":" +
+                         entry.getValue().nanos + "}");
+        }
+        writer.write('}');
+    }
+
+    // writes a JSON string; names are taken from the PDF and may contain any character
+    private static void writeString(Writer writer, String value) throws IOException
+    {
+        writer.write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\b':
+                    writer.write("\\b");
+                    break;
+                case '\f':
+                    writer.write("\\f");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (Character.isHighSurrogate(c) && i + 1 < length &&
+                        Character.isLowSurrogate(value.charAt(i + 1)))
+                    {
+                        // a valid surrogate pair is written as it is
+                        writer.write(c);
+                        writer.write(value.charAt(++i));
+                    }
+                    else if (c < 0x20 || c == 0x7f || c == '\u2028' || c == '\u2029' ||
+                             c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+                    {
+                        // control characters, the line separators which JavaScript doesn't
+                        // allow in strings, and unpaired surrogates, which can't be encoded
+                        writeEscaped(writer, c);
+                    }
+                    else
+                    {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+        writer.write('"');
+    }
+
+    private static void writeEscaped(Writer writer, char c) throws IOException
+    {
+        writer.write("\\u");
+        for (int shift = 12; shift >= 0; shift -= 4)
+        {
+            writer.write(Character.forDigit((c >> shift) & 0xf, 16));
+        }
+    }
+
+    /**
+     * Returns the profile as a JSON object, see {@link #writeJSON(Writer)}.
+     */
+    public String toJSON()
+    {
+        StringWriter writer = new StringWriter();
+        try
+        {
+            writeJSON(writer);
+        }
+        catch (IOException e)
+        {
+            // a StringWriter doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return toJSON();
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.pdmodel.graphics.PDXObject;
 import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
 import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.contentstream.ProcessingProfile;
 import org.apache.pdfbox.contentstream.operator.Operator;
 
 /**
@@ -48,6 +49,25 @@ public final class DrawObject extends GraphicsOperatorProcessor
     public void process(Operator operator, List<COSBase> operands) throws IOException
     {
         COSName objectName = (COSName)operands.get(0);
+        ProcessingProfile profile = context.getProfile();
+        if (profile == null)
+        {
+            drawObject(objectName);
+            return;
+        }
+        long start = System.nanoTime();
+        try
+        {
+            drawObject(objectName);
+        }
+        finally
+        {
+            profile.recordXObject(objectName.getName(), System.nanoTime() - start);
+        }
+    }
+
+    private void drawObject(COSName objectName) throws IOException
+    {
         Map<String, PDXObject> xobjects = context.getResources().getXObjects();
         PDXObject xobject = xobjects.get(objectName.getName());
 
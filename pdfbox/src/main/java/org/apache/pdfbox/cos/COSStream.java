@@ -19,6 +19,7 @@ package org.apache.pdfbox.cos;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.InputStream;
@@ -28,6 +29,7 @@ import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.DecodeResult;
 import org.apache.pdfbox.filter.Filter;
 import org.apache.pdfbox.filter.FilterFactory;
@@ -67,6 +69,8 @@ public class COSStream extends COSDictionary implements Closeable
      */
     private RandomAccessFileOutputStream unFilteredStream;
     private DecodeResult decodeResult;
+    // the error of the last failed decoding, which is reported again when images are read
+    private IOException decodeException;
 
     /**
      * Constructor.  Creates a new stream with an empty dictionary.
@@ -249,6 +253,89 @@ public class COSStream extends COSDictionary implements Closeable
         return retval;
     }
 
+    /**
+     * This will get the logical content stream, decoded with the given options. If the stream
+     * has already been decoded in full, or the options don't ask for anything but the full data,
+     * this is the same as {@link #getUnfilteredStream()}, except that an exception is thrown if
+     * the stream couldn't be decoded before, instead of returning the data which was left.
+     * Otherwise the stream is decoded again in memory without being cached, with the options
+     * passed to the last filter.
+     *
+     * @param options the decode options, which the last filter may update
+     * @return the bytes of the logical (decoded) stream
+     *
+     * @throws IOException when decoding causes an exception
+     */
+    public InputStream getUnfilteredStream(DecodeOptions options) throws IOException
+    {
+        COSBase filters = getFilters();
+        if (unFilteredStream != null || options.getSubsampling() == 1 || filters == null)
+        {
+            InputStream input = getUnfilteredStream();
+            if (decodeException != null)
+            {
+                // don't return the partial or empty data left by the failed decoding
+                input.close();
+                throw new IOException("Stream could not be decoded", decodeException);
+            }
+            return input;
+        }
+
+        COSName[] filterNames;
+        if (filters instanceof COSName)
+        {
+            filterNames = new COSName[] { (COSName) filters };
+        }
+        else if (filters instanceof COSArray)
+        {
+            COSArray filterArray = (COSArray) filters;
+            filterNames = new COSName[filterArray.size()];
+            for (int i = 0; i < filterNames.length; i++)
+            {
+                filterNames[i] = (COSName) filterArray.get(i);
+            }
+        }
+        else
+        {
+            throw new IOException("Error: Unknown filter type:" + filters);
+        }
+
+        try
+        {
+            InputStream input = getFilteredStream();
+            byte[] data = null;
+            for (int i = 0; i < filterNames.length; i++)
+            {
+                Filter filter = FilterFactory.INSTANCE.getFilter(filterNames[i]);
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                try
+                {
+                    if (i == filterNames.length - 1)
+                    {
+                        filter.decode(input, output, this, i, options);
+                    }
+                    else
+                    {
+                        filter.decode(input, output, this, i);
+                    }
+                }
+                finally
+                {
+                    IOUtils.closeQuietly(input);
+                }
+                data = output.toByteArray();
+                input = new ByteArrayInputStream(data);
+            }
+            return new ByteArrayInputStream(data);
+        }
+        catch (IOException e)
+        {
+            // the full decoding is more lenient with broken streams
+            LOG.debug("Subsampled decoding failed, decoding the full stream", e);
+            return getUnfilteredStream(new DecodeOptions());
+        }
+    }
+
     /**
      * Returns the repaired stream parameters dictionary.
      *
@@ -287,29 +374,40 @@ public class COSStream extends COSDictionary implements Closeable
     {
 // FIXME: We shouldn't keep the same reference?
         unFilteredStream = filteredStream;
+        decodeException = null;
 
-        COSBase filters = getFilters();
-        if( filters == null )
-        {
-            //then do nothing
-            decodeResult = DecodeResult.DEFAULT;
-        }
-        else if( filters instanceof COSName )
-        {
-            doDecode( (COSName)filters, 0 );
-        }
-        else if( filters instanceof COSArray )
+        try
         {
-            COSArray filterArray = (COSArray)filters;
-            for( int i=0; i<filterArray.size(); i++ )
+            COSBase filters = getFilters();
+            if( filters == null )
             {
-                COSName filterName = (COSName)filterArray.get( i );
-                doDecode( filterName, i );
+                //then do nothing
+                decodeResult = DecodeResult.DEFAULT;
+            }
+            else if( filters instanceof COSName )
+            {
+                doDecode( (COSName)filters, 0 );
+            }
+            else if( filters instanceof COSArray )
+            {
+                COSArray filterArray = (COSArray)filters;
+                for( int i=0; i<filterArray.size(); i++ )
+                {
+                    COSName filterName = (COSName)filterArray.get( i );
+                    doDecode( filterName, i );
+                }
+            }
+            else
+            {
+                throw new IOException( "Error: Unknown filter type:" + filters );
             }
         }
-        else
+        catch (IOException e)
         {
-            throw new IOException( "Error: Unknown filter type:" + filters );
+            // remember the failure, as the stream is not decoded again
+            decodeResult = null;
+            decodeException = e;
+            throw e;
         }
     }
 
@@ -482,6 +580,7 @@ public class COSStream extends COSDictionary implements Closeable
     {
         IOUtils.closeQuietly(unFilteredStream);
         unFilteredStream = null;
+        decodeException = null;
         IOUtils.closeQuietly(filteredStream);
         filteredStream = new RandomAccessFileOutputStream( buffer );
         return new BufferedOutputStream( filteredStream, BUFFER_SIZE );
@@ -538,6 +637,7 @@ public class COSStream extends COSDictionary implements Closeable
         filteredStream = null;
         IOUtils.closeQuietly(unFilteredStream);
         unFilteredStream = new RandomAccessFileOutputStream( buffer );
+        decodeException = null;
         return new BufferedOutputStream( unFilteredStream, BUFFER_SIZE );
     }
     
@@ -31,6 +31,7 @@ import org.w3c.dom.Element;
 
 import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.stream.ImageInputStream;
@@ -48,6 +49,14 @@ final class DCTFilter extends Filter
     @Override
     public final DecodeResult decode(InputStream encoded, OutputStream decoded,
                                          COSDictionary parameters, int index) throws IOException
+    {
+        return decode(encoded, decoded, parameters, index, new DecodeOptions());
+    }
+
+    @Override
+    public final DecodeResult decode(InputStream encoded, OutputStream decoded,
+                                     COSDictionary parameters, int index, DecodeOptions options)
+            throws IOException
     {
         ImageReader reader = findImageReader("JPEG", "a suitable JAI I/O image filter is not installed");
         ImageInputStream iis = null;
@@ -56,20 +65,28 @@ final class DCTFilter extends Filter
             iis = ImageIO.createImageInputStream(encoded);
             reader.setInput(iis);
 
+            // let the reader skip rows and columns, if subsampled
+            ImageReadParam param = reader.getDefaultReadParam();
+            int subsampling = options.getSubsampling();
+            if (subsampling > 1)
+            {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+
             // get the raster using horrible JAI workarounds
             ImageIO.setUseCache(false);
             Raster raster;
             try
             {
                 // I'd like to use ImageReader#readRaster but it is buggy and can't read RGB correctly
-                BufferedImage image = reader.read(0);
+                BufferedImage image = reader.read(0, param);
                 raster = image.getRaster();
             }
             catch (IIOException e)
             {
                 // JAI can't read CMYK JPEGs using ImageReader#read or ImageIO.read but
                 // fortunately ImageReader#readRaster isn't buggy when reading 4-channel files
-                raster = reader.readRaster(0, null);
+                raster = reader.readRaster(0, param);
             }
 
             // special handling for 4-component images
@@ -106,6 +123,7 @@ final class DCTFilter extends Filter
 
             DataBufferByte dataBuffer = (DataBufferByte)raster.getDataBuffer();
             decoded.write(dataBuffer.getData());
+            options.setFilterSubsampled(true);
         }
         finally
         {
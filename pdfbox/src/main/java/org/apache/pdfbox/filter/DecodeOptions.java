@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+/**
+ * Options for decoding image streams. DCTDecode can read the image subsampled, i.e. only every
+ * n-th row and column. Other filters ignore these options and the caller has to do the
+ * subsampling itself, which can be checked with {@link #isFilterSubsampled()} after decoding.
+ */
+public final class DecodeOptions
+{
+    private final int subsampling;
+    private boolean filterSubsampled;
+
+    /**
+     * Creates decode options which read the full image.
+     */
+    public DecodeOptions()
+    {
+        this(1);
+    }
+
+    /**
+     * Creates decode options which read only every n-th row and column.
+     *
+     * @param subsampling the subsampling factor, 1 to read the full image
+     */
+    public DecodeOptions(int subsampling)
+    {
+        if (subsampling < 1)
+        {
+            throw new IllegalArgumentException("subsampling must be at least 1: " + subsampling);
+        }
+        this.subsampling = subsampling;
+    }
+
+    /**
+     * Returns the subsampling factor, 1 if the full image is read.
+     */
+    public int getSubsampling()
+    {
+        return subsampling;
+    }
+
+    /**
+     * Returns true if the filter has already applied the subsampling while decoding, i.e. the
+     * decoded data has the reduced dimensions.
+     */
+    public boolean isFilterSubsampled()
+    {
+        return filterSubsampled;
+    }
+
+    /**
+     * Sets whether the filter has applied the subsampling.
+     *
+     * @param filterSubsampled true if the decoded data is subsampled
+     */
+    void setFilterSubsampled(boolean filterSubsampled)
+    {
+        this.filterSubsampled = filterSubsampled;
+    }
+}
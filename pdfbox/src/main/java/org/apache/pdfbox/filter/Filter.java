@@ -56,6 +56,23 @@ public abstract class Filter
     public abstract DecodeResult decode(InputStream encoded, OutputStream decoded, COSDictionary parameters,
                             int index) throws IOException;
 
+    /**
+     * Decodes data, with the given decode options. Filters which can't make use of the options
+     * decode the full data, this is the default.
+     * @param encoded the encoded byte stream
+     * @param decoded the stream where decoded data will be written
+     * @param parameters the parameters used for decoding
+     * @param index the index to the filter being decoded
+     * @param options additional options for decoding
+     * @return repaired parameters dictionary, or the original parameters dictionary
+     * @throws IOException if the stream cannot be decoded
+     */
+    public DecodeResult decode(InputStream encoded, OutputStream decoded, COSDictionary parameters,
+                               int index, DecodeOptions options) throws IOException
+    {
+        return decode(encoded, decoded, parameters, index);
+    }
+
     /**
      * Encodes data.
      * @param input the byte stream to encode
@@ -15,15 +15,11 @@
  */
 package org.apache.pdfbox.filter;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -79,16 +75,10 @@ public class LZWFilter extends Filter
         }
         if (predictor > 1)
         {
-            int colors = Math.min(decodeParams.getInt(COSName.COLORS, 1), 32);
-            int bitsPerPixel = decodeParams.getInt(COSName.BITS_PER_COMPONENT, 8);
-            int columns = decodeParams.getInt(COSName.COLUMNS, 1);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            doLZWDecode(encoded, baos, earlyChange);
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bais, decoded);
-            decoded.flush();
-            baos.reset();
-            bais.reset();
+            // the predictor is reversed row by row while decoding
+            PredictorOutputStream predictorStream = Predictor.wrapPredictor(decodeParams, decoded);
+            doLZWDecode(encoded, predictorStream, earlyChange);
+            predictorStream.finish();
         }
         else
         {
@@ -99,56 +89,138 @@ public class LZWFilter extends Filter
 
     private void doLZWDecode(InputStream encoded, OutputStream decoded, int earlyChange) throws IOException
     {
-        ArrayList<byte[]> codeTable = null;
+        // the code table is a flat prefix/suffix table, each entry being its prefix entry plus
+        // one byte, so that adding a code doesn't need to copy any data
+        int[] prefix = new int[4096];
+        byte[] suffix = new byte[4096];
+        byte[] first = new byte[4096];
+        int[] length = new int[4096];
+        for (int i = 0; i < 256; i++)
+        {
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            length[i] = 1;
+        }
+        int tableSize = (int) EOD + 1;
         int chunk = 9;
-        MemoryCacheImageInputStream in = new MemoryCacheImageInputStream(encoded);
-        long nextCommand = 0;
-        long prevCommand = -1;
+        int prevCode = -1;
 
-        try
+        BitReader in = new BitReader(encoded);
+        byte[] buffer = new byte[8192];
+        int count = 0;
+        int code;
+        while ((code = in.readBits(chunk)) != EOD)
         {
-            while ((nextCommand = in.readBits(chunk)) != EOD)
+            if (code == -1)
+            {
+                LOG.warn("Premature EOF in LZW stream, EOD code missing");
+                break;
+            }
+            if (code == CLEAR_TABLE)
             {
-                if (nextCommand == CLEAR_TABLE)
+                chunk = 9;
+                tableSize = (int) EOD + 1;
+                prevCode = -1;
+                continue;
+            }
+
+            if (code >= tableSize)
+            {
+                // the code is the one about to be added: the previous string plus its first byte
+                // (a full table can't get here, as 12 bit codes are always below its size)
+                if (prevCode == -1)
                 {
-                    chunk = 9;
-                    codeTable = createCodeTable();
-                    prevCommand = -1;
+                    throw new IOException("Invalid LZW code " + code + " after clear table");
                 }
-                else
+                addCode(prefix, suffix, first, length, tableSize++, prevCode, first[prevCode]);
+                code = tableSize - 1;
+            }
+            else if (prevCode != -1 && tableSize < 4096)
+            {
+                addCode(prefix, suffix, first, length, tableSize++, prevCode, first[code]);
+            }
+            count = writeString(decoded, buffer, count, prefix, suffix, length, code);
+
+            chunk = calculateChunk(tableSize, earlyChange);
+            prevCode = code;
+        }
+        decoded.write(buffer, 0, count);
+        decoded.flush();
+    }
+
+    private static void addCode(int[] prefix, byte[] suffix, byte[] first, int[] length,
+                                int code, int prefixCode, byte lastByte)
+    {
+        prefix[code] = prefixCode;
+        suffix[code] = lastByte;
+        first[code] = first[prefixCode];
+        length[code] = length[prefixCode] + 1;
+    }
+
+    /**
+     * Writes the string of the given code into the buffer by walking the prefix chain backwards,
+     * flushing the buffer to the output first if there isn't enough room.
+     *
+     * @return the new number of bytes in the buffer
+     */
+    private static int writeString(OutputStream out, byte[] buffer, int count, int[] prefix,
+                                   byte[] suffix, int[] length, int code) throws IOException
+    {
+        int len = length[code];
+        if (count + len > buffer.length)
+        {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+        for (int i = count + len - 1, c = code; i >= count; i--)
+        {
+            buffer[i] = suffix[c];
+            c = prefix[c];
+        }
+        return count + len;
+    }
+
+    /**
+     * Reads codes of variable bit length, most significant bit first, from an input stream.
+     */
+    private static final class BitReader
+    {
+        private final InputStream in;
+        private final byte[] buffer = new byte[4096];
+        private int position;
+        private int limit;
+        private int bits;
+        private int bitCount;
+
+        BitReader(InputStream in)
+        {
+            this.in = in;
+        }
+
+        /**
+         * Returns the next code of the given length, or -1 if there aren't enough bits left.
+         */
+        int readBits(int n) throws IOException
+        {
+            while (bitCount < n)
+            {
+                if (position == limit)
                 {
-                    if (nextCommand < codeTable.size())
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0)
                     {
-                        byte[] data = codeTable.get((int) nextCommand);
-                        byte firstByte = data[0];
-                        decoded.write(data);
-                        if (prevCommand != -1)
-                        {
-                            data = codeTable.get((int) prevCommand);
-                            byte[] newData = Arrays.copyOf(data, data.length + 1);
-                            newData[data.length] = firstByte;
-                            codeTable.add(newData);
-                        }
+                        limit = 0;
+                        return -1;
                     }
-                    else
-                    {
-                        byte[] data = codeTable.get((int) prevCommand);
-                        byte[] newData = Arrays.copyOf(data, data.length + 1);
-                        newData[data.length] = data[0];
-                        decoded.write(newData);
-                        codeTable.add(newData);
-                    }
-                    
-                    chunk = calculateChunk(codeTable.size(), earlyChange);
-                    prevCommand = nextCommand;
                 }
+                bits = (bits << 8) | (buffer[position++] & 0xff);
+                bitCount += 8;
             }
+            bitCount -= n;
+            return (bits >>> bitCount) & ((1 << n) - 1);
         }
-        catch (EOFException ex)
-        {
-            LOG.warn("Premature EOF in LZW stream, EOD code missing");
-        }
-        decoded.flush();
     }
 
     /**
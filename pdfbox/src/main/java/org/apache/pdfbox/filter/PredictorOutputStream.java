@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which reverses PNG and TIFF predictors one row at a time, as data is written to
+ * it. Only the current and the previous row are kept in memory, so that the predictor stage can
+ * be chained directly after a decompressor without buffering the whole stream.
+ *
+ * Call {@link #finish()} after the last byte has been written, to flush an incomplete last row.
+ * This does not close the underlying stream.
+ */
+final class PredictorOutputStream extends FilterOutputStream
+{
+    private final int predictor;
+    private final int colors;
+    private final int bitsPerComponent;
+    private final int columns;
+    private final int bytesPerPixel;
+    private final int rowLength;
+
+    private byte[] currentRow;
+    private byte[] lastRow;
+    private int rowPredictor;   // predictor of the current row, -1 if not yet read
+    private int offset;         // number of bytes of the current row read so far
+
+    /**
+     * Creates a new predictor stream.
+     *
+     * @param out the stream to write the decoded rows to
+     * @param predictor the predictor, 2 for TIFF or 10 and above for PNG
+     * @param colors number of color components per sample
+     * @param bitsPerComponent number of bits per color component
+     * @param columns number of samples per row
+     */
+    PredictorOutputStream(OutputStream out, int predictor, int colors, int bitsPerComponent,
+                          int columns)
+    {
+        super(out);
+        this.predictor = predictor;
+        this.colors = colors;
+        this.bitsPerComponent = bitsPerComponent;
+        this.columns = columns;
+        int bitsPerPixel = colors * bitsPerComponent;
+        bytesPerPixel = (bitsPerPixel + 7) / 8;
+        rowLength = (columns * bitsPerPixel + 7) / 8;
+        currentRow = new byte[rowLength];
+        lastRow = new byte[rowLength];
+        rowPredictor = predictor >= 10 ? -1 : predictor;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        if (rowLength == 0)
+        {
+            // nothing to decode
+            return;
+        }
+        if (rowPredictor == -1)
+        {
+            // PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
+            rowPredictor = (b & 0xff) + 10; // add 10 to treat value 0 as 10, 1 as 11, ...
+            return;
+        }
+        currentRow[offset++] = (byte) b;
+        if (offset == rowLength)
+        {
+            writeRow();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            if (rowPredictor == -1 || rowLength == 0)
+            {
+                write(b[off++]);
+                len--;
+            }
+            else
+            {
+                int count = Math.min(len, rowLength - offset);
+                System.arraycopy(b, off, currentRow, offset, count);
+                offset += count;
+                off += count;
+                len -= count;
+                if (offset == rowLength)
+                {
+                    writeRow();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes and writes an incomplete last row, if any. The missing part of the row is taken
+     * from the previous row. This doesn't close the underlying stream.
+     *
+     * @throws IOException if the row can't be decoded or written
+     */
+    public void finish() throws IOException
+    {
+        boolean rowStarted = rowLength > 0 && (predictor >= 10 ? rowPredictor != -1 : offset > 0);
+        if (rowStarted)
+        {
+            System.arraycopy(lastRow, offset, currentRow, offset, rowLength - offset);
+            writeRow();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        finish();
+        super.close();
+    }
+
+    private void writeRow() throws IOException
+    {
+        decodeRow(rowPredictor);
+        out.write(currentRow, 0, rowLength);
+
+        // the decoded row becomes the previous row
+        byte[] swap = lastRow;
+        lastRow = currentRow;
+        currentRow = swap;
+        offset = 0;
+        rowPredictor = predictor >= 10 ? -1 : predictor;
+    }
+
+    // reverses the prediction as specified in the PNG-Specification 1.2 and the TIFF 6.0 spec
+    private void decodeRow(int rowPredictor) throws IOException
+    {
+        byte[] actline = currentRow;
+        byte[] lastline = lastRow;
+        switch (rowPredictor)
+        {
+            case 2: // PRED TIFF SUB
+                decodeTiffRow(actline);
+                break;
+            case 10: // PRED NONE
+                // do nothing
+                break;
+            case 11: // PRED SUB
+                for (int p = bytesPerPixel; p < rowLength; p++)
+                {
+                    actline[p] = (byte) (actline[p] + actline[p - bytesPerPixel]);
+                }
+                break;
+            case 12: // PRED UP
+                for (int p = 0; p < rowLength; p++)
+                {
+                    actline[p] = (byte) (actline[p] + lastline[p]);
+                }
+                break;
+            case 13: // PRED AVG
+                for (int p = 0; p < rowLength; p++)
+                {
+                    int left = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;
+                    int up = lastline[p] & 0xff;
+                    actline[p] = (byte) (actline[p] + ((left + up) >> 1));
+                }
+                break;
+            case 14: // PRED PAETH
+                for (int p = 0; p < rowLength; p++)
+                {
+                    int a = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0; // left
+                    int b = lastline[p] & 0xff; // upper
+                    int c = p - bytesPerPixel >= 0 ? lastline[p - bytesPerPixel] & 0xff : 0; // upperleft
+                    int value = a + b - c;
+                    int absa = Math.abs(value - a);
+                    int absb = Math.abs(value - b);
+                    int absc = Math.abs(value - c);
+
+                    if (absa <= absb && absa <= absc)
+                    {
+                        actline[p] = (byte) (actline[p] + a);
+                    }
+                    else if (absb <= absc)
+                    {
+                        actline[p] = (byte) (actline[p] + b);
+                    }
+                    else
+                    {
+                        actline[p] = (byte) (actline[p] + c);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // horizontal differencing: each component is the difference to the same component of the
+    // sample to its left
+    private void decodeTiffRow(byte[] actline) throws IOException
+    {
+        switch (bitsPerComponent)
+        {
+            case 8:
+                for (int p = bytesPerPixel; p < rowLength; p++)
+                {
+                    actline[p] = (byte) (actline[p] + actline[p - bytesPerPixel]);
+                }
+                break;
+            case 16:
+                for (int p = bytesPerPixel; p + 1 < rowLength; p += 2)
+                {
+                    int sub = ((actline[p] & 0xff) << 8) | (actline[p + 1] & 0xff);
+                    int left = ((actline[p - bytesPerPixel] & 0xff) << 8) |
+                                (actline[p - bytesPerPixel + 1] & 0xff);
+                    int sum = sub + left;
+                    actline[p] = (byte) (sum >> 8);
+                    actline[p + 1] = (byte) sum;
+                }
+                break;
+            case 1:
+            case 2:
+            case 4:
+                int mask = (1 << bitsPerComponent) - 1;
+                int samples = columns * colors;
+                for (int s = colors; s < samples; s++)
+                {
+                    int sub = getSample(actline, s, mask);
+                    int left = getSample(actline, s - colors, mask);
+                    setSample(actline, s, (sub + left) & mask, mask);
+                }
+                break;
+            default:
+                throw new IOException("TIFF-Predictor with " + bitsPerComponent
+                        + " bits per component not supported");
+        }
+    }
+
+    private int getSample(byte[] row, int index, int mask)
+    {
+        int bit = index * bitsPerComponent;
+        int shift = 8 - bitsPerComponent - (bit & 7);
+        return (row[bit >> 3] >> shift) & mask;
+    }
+
+    private void setSample(byte[] row, int index, int value, int mask)
+    {
+        int bit = index * bitsPerComponent;
+        int shift = 8 - bitsPerComponent - (bit & 7);
+        int b = row[bit >> 3] & ~(mask << shift);
+        row[bit >> 3] = (byte) (b | (value << shift));
+    }
+}
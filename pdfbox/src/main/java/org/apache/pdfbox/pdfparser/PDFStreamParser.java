@@ -54,6 +54,10 @@ public class PDFStreamParser extends BaseParser
     private final int MAX_BIN_CHAR_TEST_LENGTH = 10;
     private final byte[] binCharTestArr = new byte[MAX_BIN_CHAR_TEST_LENGTH];
 
+    // don't keep the data of inline images, e.g. when extracting text
+    private boolean skipInlineImageData;
+    private long skippedImageBytes;
+
     /**
      * Constructor that takes a stream to parse.
      *
@@ -121,6 +125,27 @@ public class PDFStreamParser extends BaseParser
        this( stream.getUnfilteredStream() );
     }
 
+    /**
+     * Sets whether the data of inline images is to be skipped. If set, the image data of the
+     * ID operator is read past but not kept, and an empty array is set instead.
+     *
+     * @param skip true if inline image data is to be skipped
+     */
+    public void setSkipInlineImageData(boolean skip)
+    {
+        skipInlineImageData = skip;
+    }
+
+    /**
+     * Returns the number of bytes of inline image data which have been skipped so far.
+     *
+     * @return the number of skipped bytes
+     */
+    public long getSkippedImageBytes()
+    {
+        return skippedImageBytes;
+    }
+
     /**
      * This will parse the tokens in the stream.  This will close the
      * stream when it is finished parsing.
@@ -384,7 +409,8 @@ public class PDFStreamParser extends BaseParser
                 {
                     throw new IOException( "Error: Expected operator 'ID' actual='" + id + "'" );
                 }
-                ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+                ByteArrayOutputStream imageData = skipInlineImageData ?
+                        null : new ByteArrayOutputStream();
                 if( isWhitespace() )
                 {
                     //pull off the whitespace character
@@ -402,14 +428,22 @@ public class PDFStreamParser extends BaseParser
                          hasNoFollowingBinData( pdfSource )) &&
                        !pdfSource.isEOF() )
                 {
-                    imageData.write( lastByte );
+                    if( imageData == null )
+                    {
+                        skippedImageBytes++;
+                    }
+                    else
+                    {
+                        imageData.write( lastByte );
+                    }
                     lastByte = currentByte;
                     currentByte = pdfSource.read();
                 }
                 // the EI operator isn't unread, as it won't be processed anyway
                 retval = Operator.getOperator("ID");
                 // save the image data to the operator, so that it can be accessed later
-                ((Operator)retval).setImageData( imageData.toByteArray() );
+                ((Operator)retval).setImageData( imageData == null ?
+                        new byte[0] : imageData.toByteArray() );
                 break;
             }
             case ']':
@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.filter.DecodeOptions;
 
 import org.apache.pdfbox.pdmodel.common.filespecification.PDFileSpecification;
 
@@ -96,6 +97,20 @@ public class PDMemoryStream extends PDStream
         return new ByteArrayInputStream( data );
     }
 
+    /**
+     * This will get a stream that can be read from. The data of a memory stream is already
+     * decoded, so the options are ignored.
+     *
+     * @param options the decode options
+     * @return An input stream that can be read from.
+     *
+     * @throws IOException If an IO error occurs during reading.
+     */
+    public InputStream createInputStream( DecodeOptions options ) throws IOException
+    {
+        return createInputStream();
+    }
+
     /**
      * This will get a stream with some filters applied but not others.  This is useful
      * when doing images, ie filters = [flate,dct], we want to remove flate but leave dct
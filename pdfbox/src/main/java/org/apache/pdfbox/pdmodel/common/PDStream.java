@@ -33,6 +33,7 @@ import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
 import org.apache.pdfbox.cos.COSStream;
 
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.filter.Filter;
 import org.apache.pdfbox.filter.FilterFactory;
 import org.apache.pdfbox.io.IOUtils;
@@ -231,6 +232,20 @@ public class PDStream implements COSObjectable
         return stream.getUnfilteredStream();
     }
 
+    /**
+     * This will get a stream that can be read from, decoded with the given options.
+     * 
+     * @param options the decode options, which filters may update
+     * @return An input stream that can be read from.
+     * 
+     * @throws IOException
+     *             If an IO error occurs during reading.
+     */
+    public InputStream createInputStream(DecodeOptions options) throws IOException
+    {
+        return stream.getUnfilteredStream(options);
+    }
+
     /**
      * This will get a stream with some filters applied but not others. This is
      * useful when doing images, ie filters = [flate,dct], we want to remove
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.pdmodel.common.function;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -278,6 +279,39 @@ public abstract class PDFunction implements COSObjectable
      * @throws IOException an IOExcpetion is thrown if something went wrong processing the function.  
      */
     public abstract float[] eval(float[] input) throws IOException;
+
+    /**
+     * Evaluates the function at several inputs, writing the results into the given array.
+     * The values of each input are stored consecutively in the input array, as are the values
+     * of each result in the output array. If the function returns fewer values than requested,
+     * the remaining values of that result are set to 0; surplus values are dropped, so that
+     * no value of an earlier call is left in a reused output array.
+     * <p>
+     * Function types override this to evaluate without allocating any objects per input.
+     *
+     * @param input the input values, numberOfInputs values for each input
+     * @param numberOfInputs the number of input values for each input
+     * @param output the array receiving the output values, numberOfOutputs values for each
+     * input
+     * @param numberOfOutputs the number of output values for each input
+     * @param count the number of inputs to evaluate
+     *
+     * @throws IOException if something went wrong processing the function.
+     */
+    public void evalBatch(float[] input, int numberOfInputs, float[] output, int numberOfOutputs,
+                          int count) throws IOException
+    {
+        float[] values = new float[numberOfInputs];
+        for (int i = 0; i < count; i++)
+        {
+            System.arraycopy(input, i * numberOfInputs, values, 0, numberOfInputs);
+            float[] result = eval(values);
+            int offset = i * numberOfOutputs;
+            int numberOfValues = Math.min(result.length, numberOfOutputs);
+            System.arraycopy(result, 0, output, offset, numberOfValues);
+            Arrays.fill(output, offset + numberOfValues, offset + numberOfOutputs, 0);
+        }
+    }
     
     /**
      * Returns all ranges for the output values as COSArray .
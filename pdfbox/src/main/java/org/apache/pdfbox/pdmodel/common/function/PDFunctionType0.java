@@ -64,6 +64,45 @@ public class PDFunctionType0 extends PDFunction
      * The samples of the function.
      */
     private int[][] samples = null;
+
+    // the samples as a flat table and the interpolation parameters, created on first use;
+    // they are immutable and volatile, so that functions may be shared by several threads
+    private volatile SampleTable sampleTable;
+    private volatile Parameters parameters;
+
+    /**
+     * The samples of all outputs for each grid point, with the first input dimension varying
+     * fastest, and the strides of the input dimensions in grid points.
+     */
+    private static final class SampleTable
+    {
+        private final float[] samples;
+        private final int[] strides;
+
+        SampleTable(float[] samples, int[] strides)
+        {
+            this.samples = samples;
+            this.strides = strides;
+        }
+    }
+
+    /**
+     * Domain min/max, encode min/max and the maximum sample index per input, decode min/max
+     * and range min/max per output, and the maximum sample value.
+     */
+    private static final class Parameters
+    {
+        private final float[] input;
+        private final float[] output;
+        private final float maxSample;
+
+        Parameters(float[] input, float[] output, float maxSample)
+        {
+            this.input = input;
+            this.output = output;
+            this.maxSample = maxSample;
+        }
+    }
     
     /**
      * Constructor.
@@ -178,6 +217,9 @@ public class PDFunctionType0 extends PDFunction
     public void setBitsPerSample(int bps)
     {
         getDictionary().setInt(COSName.BITS_PER_SAMPLE, bps);
+        samples = null;
+        sampleTable = null;
+        parameters = null;
     }
     
     /**
@@ -252,6 +294,7 @@ public class PDFunctionType0 extends PDFunction
     {
         encode = encodeValues;
         getDictionary().setItem(COSName.ENCODE, encodeValues);
+        parameters = null;
     }
 
     /**
@@ -281,139 +324,99 @@ public class PDFunctionType0 extends PDFunction
     {
         decode = decodeValues;
         getDictionary().setItem(COSName.DECODE, decodeValues);
+        parameters = null;
     }
     
     /**
-     * calculate array index (structure described in p.171 PDF spec 1.7) in
-     * multiple dimensions.
-     *
-     * @param vector with coordinates
-     * @return index in flat array
+     * Returns the sample table, created on first use.
      */
-    private int calcSampleIndex(int[] vector)
+    private SampleTable getSampleTable()
     {
-        // inspiration: http://stackoverflow.com/a/12113479/535646
-        // but used in reverse
-        float[] sizeValues = getSize().toFloatArray();
-        int index = 0;
-        int sizeProduct = 1;
-        int dimension = vector.length;
-        for (int i = dimension - 2; i >= 0; --i)
-        {
-            sizeProduct *= sizeValues[i];
-        }
-        for (int i = dimension - 1; i >= 0; --i)
+        SampleTable sampleTable = this.sampleTable;
+        if (sampleTable == null)
         {
-            index += sizeProduct * vector[i];
-            if (i - 1 >= 0)
+            int numberOfInputValues = getNumberOfInputParameters();
+            int numberOfOutputValues = getNumberOfOutputParameters();
+            COSArray sizes = getSize();
+
+            // strides of the input dimensions, in grid points
+            int[] strides = new int[sizes.size()];
+            int arraySize = 1;
+            for (int i = 0; i < strides.length; i++)
             {
-                sizeProduct /= sizeValues[i - 1];
+                strides[i] = arraySize;
+                if (i < numberOfInputValues)
+                {
+                    arraySize *= sizes.getInt(i);
+                }
             }
+
+            float[] table = new float[arraySize * numberOfOutputValues];
+            int bitsPerSample = getBitsPerSample();
+            try
+            {
+                // PDF spec 1.7 p.171:
+                // Each sample value is represented as a sequence of BitsPerSample bits.
+                // Successive values are adjacent in the bit stream;
+                // there is no padding at byte boundaries.
+                ImageInputStream mciis =
+                        new MemoryCacheImageInputStream(getPDStream().createInputStream());
+                for (int i = 0; i < table.length; i++)
+                {
+                    table[i] = (int) mciis.readBits(bitsPerSample);
+                }
+                mciis.close();
+            }
+            catch (IOException exception)
+            {
+                LOG.error("IOException while reading the sample values of this function.", exception);
+            }
+            sampleTable = new SampleTable(table, strides);
+            this.sampleTable = sampleTable;
         }
-        return index;
+        return sampleTable;
     }
 
     /**
-     * Inner class do to an interpolation in the Nth dimension by comparing the
-     * content size of N-1 dimensional objects. This is done with the help of
-     * recursive calls. To understand the algorithm without recursion, here is a
-     * <a
-     * href="http://harmoniccode.blogspot.de/2011/04/bilinear-color-interpolation.html">bilinear
-     * interpolation</a> and here's a <a
-     * href="https://en.wikipedia.org/wiki/Trilinear_interpolation">trilinear
-     * interpolation</a> (external links).
+     * Returns the per-input and per-output parameters of the interpolation, computed once.
      */
-    class Rinterpol
+    private Parameters getParameters()
     {
-        final float[] in; // coordinate that is to be interpolated
-        final int[] inPrev; // coordinate of the "ceil" point
-        final int[] inNext; // coordinate of the "floor" point
-        final int numberOfInputValues;
-        final int numberOfOutputValues = getNumberOfOutputParameters();
-
-        /**
-         * Constructor.
-         *
-         * @param input the input coordinates
-         * @param inputPrev coordinate of the "ceil" point
-         * @param inputNext coordinate of the "floor" point
-         *
-         */
-        Rinterpol(float[] input, int[] inputPrev, int[] inputNext)
-        {
-            in = input;
-            inPrev = inputPrev;
-            inNext = inputNext;
-            numberOfInputValues = input.length;
-        }
-
-        /**
-         * Calculate the interpolation.
-         *
-         * @return interpolated result sample
-         */
-        public float[] rinterpolate()
-        {
-            return rinterpol(new int[numberOfInputValues], 0);
-        }
-
-        /**
-         * Do a linear interpolation if the two coordinates can be known, or
-         * call itself recursively twice.
-         *
-         * @param coord coord partially set coordinate (not set from step
-         * upwards); gets fully filled in the last call ("leaf"), where it is
-         * used to get the correct sample
-         * @param step between 0 (first call) and dimension - 1
-         * @return interpolated result sample
-         */
-        private float[] rinterpol(int[] coord, int step)
+        Parameters parameters = this.parameters;
+        if (parameters == null)
         {
-            float[] resultSample = new float[numberOfOutputValues];
-            if (step == in.length - 1)
+            // domain min/max, encode min/max and the maximum sample index per input
+            int numberOfInputValues = getNumberOfInputParameters();
+            float[] sizeValues = getSize().toFloatArray();
+            float[] params = new float[numberOfInputValues * 5];
+            for (int i = 0; i < numberOfInputValues; i++)
             {
-                // leaf
-
-                if (inPrev[step] == inNext[step])
-                {
-                    coord[step] = inPrev[step];
-                    int[] tmpSample = getSamples()[calcSampleIndex(coord)];
-                    for (int i = 0; i < numberOfOutputValues; ++i)
-                    {
-                        resultSample[i] = tmpSample[i];
-                    }
-                    return resultSample;
-                }
-                coord[step] = inPrev[step];
-                int[] sample1 = getSamples()[calcSampleIndex(coord)];
-                coord[step] = inNext[step];
-                int[] sample2 = getSamples()[calcSampleIndex(coord)];
-                for (int i = 0; i < numberOfOutputValues; ++i)
-                {
-                    resultSample[i] = interpolate(in[step], inPrev[step], inNext[step], sample1[i], sample2[i]);
-                }
-                return resultSample;
+                PDRange domain = getDomainForInput(i);
+                PDRange encodeValues = getEncodeForParameter(i);
+                params[i * 5] = domain.getMin();
+                params[i * 5 + 1] = domain.getMax();
+                params[i * 5 + 2] = encodeValues.getMin();
+                params[i * 5 + 3] = encodeValues.getMax();
+                params[i * 5 + 4] = sizeValues[i] - 1;
             }
-            else
-            {
-                // branch
 
-                if (inPrev[step] == inNext[step])
-                {
-                    coord[step] = inPrev[step];
-                    return rinterpol(coord, step + 1);
-                }
-                coord[step] = inPrev[step];
-                float[] sample1 = rinterpol(coord, step + 1);
-                coord[step] = inNext[step];
-                float[] sample2 = rinterpol(coord, step + 1);
-                for (int i = 0; i < numberOfOutputValues; ++i)
-                {
-                    resultSample[i] = interpolate(in[step], inPrev[step], inNext[step], sample1[i], sample2[i]);
-                }
-                return resultSample;
+            // decode min/max and range min/max per output
+            int numberOfOutputValues = getNumberOfOutputParameters();
+            float[] outParams = new float[numberOfOutputValues * 4];
+            for (int i = 0; i < numberOfOutputValues; i++)
+            {
+                PDRange range = getRangeForOutput(i);
+                PDRange decodeValues = getDecodeForParameter(i);
+                outParams[i * 4] = decodeValues.getMin();
+                outParams[i * 4 + 1] = decodeValues.getMax();
+                outParams[i * 4 + 2] = range.getMin();
+                outParams[i * 4 + 3] = range.getMax();
             }
+            float maxSample = (float) (Math.pow(2, getBitsPerSample()) - 1.0);
+            parameters = new Parameters(params, outParams, maxSample);
+            this.parameters = parameters;
         }
+        return parameters;
     }
 
     /**
@@ -421,91 +424,161 @@ public class PDFunctionType0 extends PDFunction
     */
     @Override
     public float[] eval(float[] input) throws IOException
+    {
+        float[] outputValues = new float[getNumberOfOutputParameters()];
+        eval(input, 0, input.length, outputValues, 0);
+        return outputValues;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evalBatch(float[] input, int numberOfInputs, float[] output, int numberOfOutputs,
+                          int count) throws IOException
+    {
+        if (numberOfOutputs != getNumberOfOutputParameters())
+        {
+            super.evalBatch(input, numberOfInputs, output, numberOfOutputs, count);
+            return;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            eval(input, i * numberOfInputs, numberOfInputs, output, i * numberOfOutputs);
+        }
+    }
+
+    //
+    // WARNING: this method is performance sensitive, modify with care!
+    //
+    private void eval(float[] input, int inOffset, int numberOfInputValues,
+                      float[] output, int outOffset)
     {
         //This involves linear interpolation based on a set of sample points.
         //Theoretically it's not that difficult ... see section 3.9.1 of the PDF Reference.
-
-        float[] sizeValues = getSize().toFloatArray();
-        int bitsPerSample = getBitsPerSample();
-        float maxSample = (float) (Math.pow(2, bitsPerSample) - 1.0);
-        int numberOfInputValues = input.length;
+        Parameters parameters = getParameters();
+        float[] params = parameters.input;
+        float[] outputParameters = parameters.output;
+        SampleTable sampleTable = getSampleTable();
+        float[] table = sampleTable.samples;
+        int[] strides = sampleTable.strides;
         int numberOfOutputValues = getNumberOfOutputParameters();
 
-        int[] inputPrev = new int[numberOfInputValues];
-        int[] inputNext = new int[numberOfInputValues];
-
+        // map the inputs to the sample grid; for each input we need the offset of the grid
+        // point below it, the offset to the next grid point (0 if the input is on the last
+        // grid point) and the fraction between them
+        int base = 0;
+        int d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+        float f0 = 0, f1 = 0, f2 = 0, f3 = 0;
+        int[] deltas = null;
+        float[] fractions = null;
+        if (numberOfInputValues > 4)
+        {
+            deltas = new int[numberOfInputValues];
+            fractions = new float[numberOfInputValues];
+        }
         for (int i = 0; i < numberOfInputValues; i++)
         {
-            PDRange domain = getDomainForInput(i);
-            PDRange encodeValues = getEncodeForParameter(i);
-            input[i] = clipToRange(input[i], domain.getMin(), domain.getMax());
-            input[i] = interpolate(input[i], domain.getMin(), domain.getMax(), 
-                    encodeValues.getMin(), encodeValues.getMax());
-            input[i] = clipToRange(input[i], 0, sizeValues[i] - 1);
-            inputPrev[i] = (int) Math.floor(input[i]);
-            inputNext[i] = (int) Math.ceil(input[i]);
+            int p = i * 5;
+            float x = clipToRange(input[inOffset + i], params[p], params[p + 1]);
+            x = interpolate(x, params[p], params[p + 1], params[p + 2], params[p + 3]);
+            x = clipToRange(x, 0, params[p + 4]);
+            int prev = (int) Math.floor(x);
+            int next = (int) Math.ceil(x);
+            int delta = next == prev ? 0 : strides[i] * numberOfOutputValues;
+            float fraction = x - prev;
+            base += prev * strides[i] * numberOfOutputValues;
+            switch (i)
+            {
+                case 0:
+                    d0 = delta;
+                    f0 = fraction;
+                    break;
+                case 1:
+                    d1 = delta;
+                    f1 = fraction;
+                    break;
+                case 2:
+                    d2 = delta;
+                    f2 = fraction;
+                    break;
+                case 3:
+                    d3 = delta;
+                    f3 = fraction;
+                    break;
+                default:
+                    break;
+            }
+            if (deltas != null)
+            {
+                deltas[i] = delta;
+                fractions[i] = fraction;
+            }
         }
 
-        // old code for N=1 and N=2, don't delete in case one uses this for optimization
-//
-//        if (numberOfInputValues == 1)
-//        {
-//            int[] sample1 = getSamples()[calcSampleIndex(new int[]
-//            {
-//                inputPrev[0]
-//            })];
-//            int[] sample2 = getSamples()[calcSampleIndex(new int[]
-//            {
-//                inputNext[0]
-//            })];
-//            for (int i = 0; i < numberOfOutputValues; ++i)
-//            {
-//                outputValues[i] = inputPrev[0] == inputNext[0] ? sample1[i] : interpolate(input[0], inputPrev[0], inputNext[0], sample1[i], sample2[i]);
-//            }
-//            //TODO optimize so that sample is collected only when needed
-//        }
-//        if (numberOfInputValues == 2)
-//        {
-//            int[] sample1 = getSamples()[calcSampleIndex(new int[]
-//            {
-//                inputPrev[0], inputPrev[1]
-//            })];
-//            int[] sample2 = getSamples()[calcSampleIndex(new int[]
-//            {
-//                inputPrev[0], inputNext[1]
-//            })];
-//            int[] sample3 = getSamples()[calcSampleIndex(new int[]
-//            {
-//                inputNext[0], inputPrev[1]
-//            })];
-//            int[] sample4 = getSamples()[calcSampleIndex(new int[]
-//            {
-//                inputNext[0], inputNext[1]
-//            })];
-//
-//            for (int i = 0; i < numberOfOutputValues; ++i)
-//            {
-//                // bilinear color interpolation, see e.g.
-//                // http://harmoniccode.blogspot.de/2011/04/bilinear-color-interpolation.html
-//                // interpolate the color at top and bottom edges (x-axis)
-//                // then interpolate the color between these two results (y-axis)
-//                double lowerVal = inputPrev[0] == inputNext[0] ? sample1[i] : interpolate(input[0], inputPrev[0], inputNext[0], sample1[i], sample3[i]);
-//                double upperVal = inputPrev[0] == inputNext[0] ? sample2[i] : interpolate(input[0], inputPrev[0], inputNext[0], sample2[i], sample4[i]);
-//                outputValues[i] = (float) (inputPrev[1] == inputNext[1] ? lowerVal : interpolate(input[1], inputPrev[1], inputNext[1], (float) lowerVal, (float) upperVal));
-//                //TODO optimize so that sample is collected only when needed
-//            }
-//        }
-//        
-        float[] outputValues = new Rinterpol(input, inputPrev, inputNext).rinterpolate();
-
-        for (int i = 0; i < numberOfOutputValues; i++)
+        // multi-linear interpolation, innermost in the last dimension
+        for (int k = 0; k < numberOfOutputValues; k++)
         {
-            PDRange range = getRangeForOutput(i);
-            PDRange decodeValues = getDecodeForParameter(i);
-            outputValues[i] = interpolate(outputValues[i], 0, maxSample, decodeValues.getMin(), decodeValues.getMax());
-            outputValues[i] = clipToRange(outputValues[i], range.getMin(), range.getMax());
+            int s = base + k;
+            float value;
+            switch (numberOfInputValues)
+            {
+                case 1:
+                    value = lerp(table[s], table[s + d0], f0);
+                    break;
+                case 2:
+                    value = lerp(lerp(table[s], table[s + d1], f1),
+                                 lerp(table[s + d0], table[s + d0 + d1], f1), f0);
+                    break;
+                case 3:
+                    value = lerp(lerp3(table, s, d1, d2, f1, f2),
+                                 lerp3(table, s + d0, d1, d2, f1, f2), f0);
+                    break;
+                case 4:
+                    value = lerp(lerp(lerp3(table, s, d2, d3, f2, f3),
+                                      lerp3(table, s + d1, d2, d3, f2, f3), f1),
+                                 lerp(lerp3(table, s + d0, d2, d3, f2, f3),
+                                      lerp3(table, s + d0 + d1, d2, d3, f2, f3), f1), f0);
+                    break;
+                default:
+                    value = lerpN(table, s, 0, deltas, fractions);
+                    break;
+            }
+
+            int o = k * 4;
+            value = interpolate(value, 0, parameters.maxSample, outputParameters[o],
+                                outputParameters[o + 1]);
+            output[outOffset + k] = clipToRange(value, outputParameters[o + 2],
+                                                outputParameters[o + 3]);
         }
+    }
 
-        return outputValues;
+    // interpolation between two neighbouring samples, as interpolate() does for a unit step
+    private static float lerp(float sample1, float sample2, float fraction)
+    {
+        return sample1 + fraction * (sample2 - sample1);
+    }
+
+    // bilinear interpolation in the last two of the given dimensions
+    private static float lerp3(float[] table, int s, int da, int db, float fa, float fb)
+    {
+        return lerp(lerp(table[s], table[s + db], fb),
+                    lerp(table[s + da], table[s + da + db], fb), fa);
     }
+
+    // multi-linear interpolation in the dimensions from the given one on
+    private static float lerpN(float[] table, int s, int dim, int[] deltas, float[] fractions)
+    {
+        if (dim == deltas.length)
+        {
+            return table[s];
         }
+        float sample1 = lerpN(table, s, dim + 1, deltas, fractions);
+        if (deltas[dim] == 0)
+        {
+            return sample1;
+        }
+        float sample2 = lerpN(table, s + deltas[dim], dim + 1, deltas, fractions);
+        return lerp(sample1, sample2, fractions[dim]);
+    }
+}
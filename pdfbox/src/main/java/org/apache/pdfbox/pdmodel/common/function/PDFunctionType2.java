@@ -22,6 +22,7 @@ import org.apache.pdfbox.cos.COSFloat;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNumber;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * This class represents a Type 2 (exponential interpolation) function in a PDF
@@ -45,6 +46,11 @@ public class PDFunctionType2 extends PDFunction
      */
     private final float exponent;
 
+    // C0 followed by C1 as float values, and the range as min/max pairs, created on first use;
+    // they are volatile, so that functions may be shared by several threads
+    private volatile float[] coefficients;
+    private volatile float[] rangeBounds;
+
     /**
      * Constructor.
      *
@@ -94,18 +100,77 @@ public class PDFunctionType2 extends PDFunction
     @Override
     public float[] eval(float[] input) throws IOException
     {
-        // exponential interpolation
-        float xToN = (float) Math.pow(input[0], exponent); // x^exponent
-
         float[] result = new float[c0.size()];
-        for (int j = 0; j < result.length; j++)
+        eval(input[0], result, 0, result.length);
+        return clipToRange(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evalBatch(float[] input, int numberOfInputs, float[] output, int numberOfOutputs,
+                          int count) throws IOException
+    {
+        float[] range = getRangeBounds();
+        int numberOfValues = Math.min(c0.size(), numberOfOutputs);
+        if (range != null)
+        {
+            numberOfValues = Math.min(numberOfValues, range.length / 2);
+        }
+        for (int i = 0; i < count; i++)
         {
-            float C0j = ((COSNumber) c0.get(j)).floatValue();
-            float C1j = ((COSNumber) c1.get(j)).floatValue();
-            result[j] = C0j + xToN * (C1j - C0j);
+            int offset = i * numberOfOutputs;
+            eval(input[i * numberOfInputs], output, offset, numberOfValues);
+            Arrays.fill(output, offset + numberOfValues, offset + numberOfOutputs, 0);
+            if (range != null)
+            {
+                for (int j = 0; j < numberOfValues; j++)
+                {
+                    output[offset + j] = clipToRange(output[offset + j], range[2 * j],
+                                                     range[2 * j + 1]);
+                }
+            }
         }
+    }
 
-        return clipToRange(result);
+    // exponential interpolation of the first numberOfValues output values
+    private void eval(float x, float[] output, int offset, int numberOfValues)
+    {
+        float[] values = coefficients;
+        int n = c0.size();
+        if (values == null)
+        {
+            values = new float[n * 2];
+            for (int j = 0; j < n; j++)
+            {
+                values[j] = ((COSNumber) c0.get(j)).floatValue();
+                values[n + j] = ((COSNumber) c1.get(j)).floatValue();
+            }
+            coefficients = values;
+        }
+        float xToN = (float) Math.pow(x, exponent); // x^exponent
+        for (int j = 0; j < numberOfValues; j++)
+        {
+            output[offset + j] = values[j] + xToN * (values[n + j] - values[j]);
+        }
+    }
+
+    // the range as min/max pairs, or null if there is no range
+    private float[] getRangeBounds()
+    {
+        float[] bounds = rangeBounds;
+        if (bounds == null)
+        {
+            COSArray rangeValues = getRangeValues();
+            if (rangeValues == null)
+            {
+                return null;
+            }
+            bounds = rangeValues.toFloatArray();
+            rangeBounds = bounds;
+        }
+        return bounds;
     }
 
     /**
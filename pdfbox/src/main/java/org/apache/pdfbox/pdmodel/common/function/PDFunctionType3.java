@@ -22,6 +22,8 @@ import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.common.PDRange;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This class represents a Type 3 (stitching) function in a PDF document.
@@ -35,6 +37,29 @@ public class PDFunctionType3 extends PDFunction
     private COSArray functions = null;
     private COSArray encode = null;
     private COSArray bounds = null;
+
+    // the stitched functions with their partitions and the range, created on first use;
+    // they are volatile, so that functions may be shared by several threads
+    private volatile Stitching stitching = null;
+    private volatile float[] rangeBounds = null;
+
+    /**
+     * The stitched functions, which are created when they are first chosen, the partition
+     * bounds and the encode values.
+     */
+    private static final class Stitching
+    {
+        private final AtomicReferenceArray<PDFunction> functions;
+        private final float[] partitions;
+        private final float[] encodeBounds;
+
+        Stitching(int numberOfFunctions, float[] partitions, float[] encodeBounds)
+        {
+            this.functions = new AtomicReferenceArray<PDFunction>(numberOfFunctions);
+            this.partitions = partitions;
+            this.encodeBounds = encodeBounds;
+        }
+    }
     
     /**
      * Constructor.
@@ -62,52 +87,165 @@ public class PDFunctionType3 extends PDFunction
         //This function is known as a "stitching" function. Based on the input, it decides which child function to call.
         // All functions in the array are 1-value-input functions
         //See PDF Reference section 3.9.3.
-        PDFunction function = null;
-        float x = input[0];
-        PDRange domain = getDomainForInput(0);
+        float[] functionValues = new float[1];
+        PDFunction function = stitch(input[0], functionValues);
+        // calculate the output values using the chosen function
+        float[] functionResult = function.eval(functionValues);
+        // clip to range if available
+        return clipToRange(functionResult);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evalBatch(float[] input, int numberOfInputs, float[] output, int numberOfOutputs,
+                          int count) throws IOException
+    {
+        float[] functionValues = new float[1];
+        float[] functionResult = new float[numberOfOutputs];
+        float[] range = getRangeValues() == null ? null : getRangeBounds();
+        int numberOfValues = numberOfOutputs;
+        if (range != null)
+        {
+            numberOfValues = Math.min(numberOfValues, range.length / 2);
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int offset = i * numberOfOutputs;
+            PDFunction function = stitch(input[i * numberOfInputs], functionValues);
+            function.evalBatch(functionValues, 1, functionResult, numberOfOutputs, 1);
+            for (int j = 0; j < numberOfValues; j++)
+            {
+                output[offset + j] = range == null ? functionResult[j]
+                        : clipToRange(functionResult[j], range[2 * j], range[2 * j + 1]);
+            }
+            Arrays.fill(output, offset + numberOfValues, offset + numberOfOutputs, 0);
+        }
+    }
+
+    /**
+     * Chooses the function for the given input value and maps the input value to the domain of
+     * that function.
+     *
+     * @param x the input value
+     * @param functionValues the array receiving the mapped input value
+     * @return the chosen function
+     * @throws IOException if a function can't be created
+     */
+    private PDFunction stitch(float x, float[] functionValues) throws IOException
+    {
+        Stitching stitching = getStitching();
+        float[] partitionValues = stitching.partitions;
         // clip input value to domain
-        x = clipToRange(x, domain.getMin(), domain.getMax());
+        x = clipToRange(x, partitionValues[0], partitionValues[partitionValues.length - 1]);
 
-        COSArray functionsArray = getFunctions();
-        int numberOfFunctions = functionsArray.size();
+        PDFunction function = null;
         // This doesn't make sense but it may happen ...
-        if (numberOfFunctions == 1) 
+        if (stitching.functions.length() == 1)
         {
-            function = PDFunction.create(functionsArray.get(0));
-            PDRange encRange = getEncodeForParameter(0);
-            x = interpolate(x, domain.getMin(), domain.getMax(), encRange.getMin(), encRange.getMax());
+            function = getFunction(stitching, 0);
+            x = encode(stitching, x, partitionValues[0], partitionValues[1], 0);
         }
-        else 
+        else
         {
-            float[] boundsValues = getBounds().toFloatArray();
-            int boundsSize = boundsValues.length;
-            // create a combined array containing the domain and the bounds values
-            // domain.min, bounds[0], bounds[1], ...., bounds[boundsSize-1], domain.max
-            float[] partitionValues = new float[boundsSize+2];
+            // find the partition
             int partitionValuesSize = partitionValues.length;
-            partitionValues[0] = domain.getMin();
-            partitionValues[partitionValuesSize-1] = domain.getMax();
-            System.arraycopy(boundsValues, 0, partitionValues, 1, boundsSize);
-            // find the partition 
             for (int i=0; i < partitionValuesSize-1; i++)
             {
                 if ( x >= partitionValues[i] && 
                         (x < partitionValues[i+1] || (i == partitionValuesSize - 2 && x == partitionValues[i+1])))
                 {
-                    function = PDFunction.create(functionsArray.get(i));
-                    PDRange encRange = getEncodeForParameter(i);
-                    x = interpolate(x, partitionValues[i], partitionValues[i+1], encRange.getMin(), encRange.getMax());
+                    function = getFunction(stitching, i);
+                    x = encode(stitching, x, partitionValues[i], partitionValues[i+1], i);
                     break;
                 }
             }
         }
-        float[] functionValues = new float[]{x};
-        // calculate the output values using the chosen function
-        float[] functionResult = function.eval(functionValues);
-        // clip to range if available
-        return clipToRange(functionResult);
+        functionValues[0] = x;
+        return function;
     }
-    
+
+    private PDFunction getFunction(Stitching stitching, int n) throws IOException
+    {
+        PDFunction function = stitching.functions.get(n);
+        if (function == null)
+        {
+            // if two threads create the function at once, the first one is kept
+            stitching.functions.compareAndSet(n, null, PDFunction.create(getFunctions().get(n)));
+            function = stitching.functions.get(n);
+        }
+        return function;
+    }
+
+    // maps the input value from the given partition to the encode range of its function
+    private float encode(Stitching stitching, float x, float partitionMin, float partitionMax,
+                         int n)
+    {
+        float[] encodeValues = stitching.encodeBounds;
+        if (2 * n + 1 < encodeValues.length)
+        {
+            return interpolate(x, partitionMin, partitionMax,
+                               encodeValues[2 * n], encodeValues[2 * n + 1]);
+        }
+        PDRange encRange = getEncodeForParameter(n);
+        return interpolate(x, partitionMin, partitionMax, encRange.getMin(), encRange.getMax());
+    }
+
+    /**
+     * Returns the stitched functions with their partition and encode values, created on first
+     * use.
+     */
+    private Stitching getStitching()
+    {
+        Stitching stitching = this.stitching;
+        if (stitching == null)
+        {
+            COSArray functionsArray = getFunctions();
+            int numberOfFunctions = functionsArray.size();
+
+            // create a combined array containing the domain and the bounds values
+            // domain.min, bounds[0], bounds[1], ...., bounds[boundsSize-1], domain.max
+            PDRange domain = getDomainForInput(0);
+            float[] boundsValues = numberOfFunctions == 1 ? new float[0]
+                    : getBounds().toFloatArray();
+            int boundsSize = boundsValues.length;
+            float[] partitionValues = new float[boundsSize+2];
+            int partitionValuesSize = partitionValues.length;
+            partitionValues[0] = domain.getMin();
+            partitionValues[partitionValuesSize-1] = domain.getMax();
+            System.arraycopy(boundsValues, 0, partitionValues, 1, boundsSize);
+
+            // a missing encode range is only reported when its function is chosen
+            COSArray encodeArray = getEncode();
+            int numberOfRanges = encodeArray == null ? 0 :
+                    Math.min(numberOfFunctions, encodeArray.size() / 2);
+            float[] encodeValues = new float[numberOfRanges * 2];
+            for (int i = 0; i < numberOfRanges; i++)
+            {
+                PDRange encRange = getEncodeForParameter(i);
+                encodeValues[2 * i] = encRange.getMin();
+                encodeValues[2 * i + 1] = encRange.getMax();
+            }
+
+            stitching = new Stitching(numberOfFunctions, partitionValues, encodeValues);
+            this.stitching = stitching;
+        }
+        return stitching;
+    }
+
+    // the range as min/max pairs, created on first use
+    private float[] getRangeBounds()
+    {
+        float[] bounds = rangeBounds;
+        if (bounds == null)
+        {
+            bounds = getRangeValues().toFloatArray();
+            rangeBounds = bounds;
+        }
+        return bounds;
+    }
+
     /**
      * Returns all functions values as COSArray.
      * 
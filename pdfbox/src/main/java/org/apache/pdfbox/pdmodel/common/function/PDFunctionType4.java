@@ -18,17 +18,24 @@ package org.apache.pdfbox.pdmodel.common.function;
 
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.pdmodel.common.PDRange;
+import org.apache.pdfbox.pdmodel.common.function.type4.CompiledProcedure;
 import org.apache.pdfbox.pdmodel.common.function.type4.ExecutionContext;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequence;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequenceBuilder;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.apache.pdfbox.pdmodel.common.function.type4.Operators;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class represents a Type 4 (PostScript calculator) function in a PDF document.
  * <p>
  * See section 3.9.4 of the PDF 1.4 Reference.
+ * <p>
+ * The function is compiled once, see {@link CompiledProcedure}, and only interpreted if it
+ * can't be compiled.
  *
  * @version $Revision: 1.2 $
  */
@@ -39,6 +46,16 @@ public class PDFunctionType4 extends PDFunction
 
     private final InstructionSequence instructions;
 
+    // the compiled function, or null if it can only be interpreted
+    private final CompiledProcedure procedure;
+
+    // a stack kept for the next evaluation, taken by the evaluating thread
+    private final AtomicReference<OperandStack> freeStack = new AtomicReference<OperandStack>();
+
+    // domain and range as min/max pairs, created on first use and published when complete
+    private volatile float[] domainBounds;
+    private volatile float[] rangeBounds;
+
     /**
      * Constructor.
      *
@@ -50,6 +67,7 @@ public class PDFunctionType4 extends PDFunction
         super( functionStream );
         this.instructions = InstructionSequenceBuilder.parse(
                 getPDStream().getInputStreamAsString());
+        this.procedure = CompiledProcedure.compile(instructions);
     }
 
 
@@ -65,6 +83,86 @@ public class PDFunctionType4 extends PDFunction
     * {@inheritDoc}
     */
     public float[] eval(float[] input) throws IOException
+    {
+        if (procedure == null)
+        {
+            return interpret(input);
+        }
+
+        float[] outputValues = new float[getNumberOfOutputParameters()];
+        evalBatch(input, input.length, outputValues, outputValues.length, 1);
+        return outputValues;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evalBatch(float[] input, int numberOfInputs, float[] output, int numberOfOutputs,
+                          int count) throws IOException
+    {
+        if (procedure == null)
+        {
+            super.evalBatch(input, numberOfInputs, output, numberOfOutputs, count);
+            return;
+        }
+
+        OperandStack stack = freeStack.getAndSet(null);
+        if (stack == null)
+        {
+            stack = new OperandStack();
+        }
+        try
+        {
+            float[] domain = getDomainBounds();
+            float[] range = getRangeBounds();
+            int numberOfOutputValues = getNumberOfOutputParameters();
+            for (int n = 0; n < count; n++)
+            {
+                stack.clear();
+                int inOffset = n * numberOfInputs;
+                for (int i = 0; i < numberOfInputs; i++)
+                {
+                    if (2 * i + 1 < domain.length)
+                    {
+                        stack.push(clipToRange(input[inOffset + i], domain[2 * i],
+                                               domain[2 * i + 1]));
+                    }
+                    else
+                    {
+                        PDRange inputDomain = getDomainForInput(i);
+                        stack.push(clipToRange(input[inOffset + i], inputDomain.getMin(),
+                                               inputDomain.getMax()));
+                    }
+                }
+
+                procedure.execute(stack);
+
+                checkOutputCount(stack.size(), numberOfOutputValues);
+                int outOffset = n * numberOfOutputs;
+                if (numberOfOutputValues < numberOfOutputs)
+                {
+                    Arrays.fill(output, outOffset + numberOfOutputValues,
+                                outOffset + numberOfOutputs, 0);
+                }
+                for (int i = numberOfOutputValues - 1; i >= 0; i--)
+                {
+                    float value = clipToRange(stack.popReal(), range[2 * i], range[2 * i + 1]);
+                    if (i < numberOfOutputs)
+                    {
+                        output[outOffset + i] = value;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            freeStack.set(stack);
+        }
+    }
+
+    // evaluates the function with the interpreter
+    private float[] interpret(float[] input) throws IOException
     {
         //Setup the input values
         ExecutionContext context = new ExecutionContext(OPERATORS);
@@ -80,14 +178,7 @@ public class PDFunctionType4 extends PDFunction
 
         //Extract the output values
         int numberOfOutputValues = getNumberOfOutputParameters();
-        int numberOfActualOutputValues = context.getStack().size();
-        if (numberOfActualOutputValues < numberOfOutputValues)
-        {
-            throw new IllegalStateException("The type 4 function returned "
-                    + numberOfActualOutputValues
-                    + " values but the Range entry indicates that "
-                    + numberOfOutputValues + " values be returned.");
-        }
+        checkOutputCount(context.getStack().size(), numberOfOutputValues);
         float[] outputValues = new float[numberOfOutputValues];
         for (int i = numberOfOutputValues - 1; i >= 0; i--)
         {
@@ -99,4 +190,49 @@ public class PDFunctionType4 extends PDFunction
         //Return the resulting array
         return outputValues;
     }
+
+    private static void checkOutputCount(int numberOfActualOutputValues, int numberOfOutputValues)
+    {
+        if (numberOfActualOutputValues < numberOfOutputValues)
+        {
+            throw new IllegalStateException("The type 4 function returned "
+                    + numberOfActualOutputValues
+                    + " values but the Range entry indicates that "
+                    + numberOfOutputValues + " values be returned.");
+        }
+    }
+
+    private float[] getDomainBounds()
+    {
+        float[] bounds = domainBounds;
+        if (bounds == null)
+        {
+            bounds = new float[getNumberOfInputParameters() * 2];
+            for (int i = 0; i < bounds.length / 2; i++)
+            {
+                PDRange domain = getDomainForInput(i);
+                bounds[2 * i] = domain.getMin();
+                bounds[2 * i + 1] = domain.getMax();
+            }
+            domainBounds = bounds;
+        }
+        return bounds;
+    }
+
+    private float[] getRangeBounds()
+    {
+        float[] bounds = rangeBounds;
+        if (bounds == null)
+        {
+            bounds = new float[getNumberOfOutputParameters() * 2];
+            for (int i = 0; i < bounds.length / 2; i++)
+            {
+                PDRange range = getRangeForOutput(i);
+                bounds[2 * i] = range.getMin();
+                bounds[2 * i + 1] = range.getMax();
+            }
+            rangeBounds = bounds;
+        }
+        return bounds;
+    }
 }
@@ -0,0 +1,755 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.pdfbox.pdmodel.common.function.type4.OperandStack.BOOLEAN;
+import static org.apache.pdfbox.pdmodel.common.function.type4.OperandStack.INTEGER;
+import static org.apache.pdfbox.pdmodel.common.function.type4.OperandStack.REAL;
+
+/**
+ * Compiled versions of the PostScript calculator operators. They have exactly the semantics of
+ * the interpreted operators in {@link Operators}, including the handling of integers, but work
+ * on the primitive operands of an {@link OperandStack}.
+ */
+final class CompiledOperators
+{
+    private static final Map<String, Instruction> OPERATORS = new HashMap<String, Instruction>();
+
+    static
+    {
+        OPERATORS.put("abs", new Abs());
+        OPERATORS.put("add", new Add());
+        OPERATORS.put("atan", new Atan());
+        OPERATORS.put("ceiling", new Ceiling());
+        OPERATORS.put("cos", new Cos());
+        OPERATORS.put("cvi", new Cvi());
+        OPERATORS.put("cvr", new Cvr());
+        OPERATORS.put("div", new Div());
+        OPERATORS.put("exp", new Exp());
+        OPERATORS.put("floor", new Floor());
+        OPERATORS.put("idiv", new IDiv());
+        OPERATORS.put("ln", new Ln());
+        OPERATORS.put("log", new Log());
+        OPERATORS.put("mod", new Mod());
+        OPERATORS.put("mul", new Mul());
+        OPERATORS.put("neg", new Neg());
+        OPERATORS.put("round", new Round());
+        OPERATORS.put("sin", new Sin());
+        OPERATORS.put("sqrt", new Sqrt());
+        OPERATORS.put("sub", new Sub());
+        OPERATORS.put("truncate", new Truncate());
+
+        OPERATORS.put("and", new And());
+        OPERATORS.put("bitshift", new Bitshift());
+        OPERATORS.put("eq", new Eq());
+        OPERATORS.put("false", new Push(false));
+        OPERATORS.put("ge", new Ge());
+        OPERATORS.put("gt", new Gt());
+        OPERATORS.put("le", new Le());
+        OPERATORS.put("lt", new Lt());
+        OPERATORS.put("ne", new Ne());
+        OPERATORS.put("not", new Not());
+        OPERATORS.put("or", new Or());
+        OPERATORS.put("true", new Push(true));
+        OPERATORS.put("xor", new Xor());
+
+        OPERATORS.put("copy", new Copy());
+        OPERATORS.put("dup", new Dup());
+        OPERATORS.put("exch", new Exch());
+        OPERATORS.put("index", new Index());
+        OPERATORS.put("pop", new Pop());
+        OPERATORS.put("roll", new Roll());
+    }
+
+    private CompiledOperators()
+    {
+    }
+
+    /**
+     * Returns the compiled operator with the given name, or null if there is none. The
+     * conditional operators aren't included, as they are compiled together with their procs.
+     * @param name the operator name
+     * @return the compiled operator
+     */
+    static Instruction getOperator(String name)
+    {
+        return OPERATORS.get(name);
+    }
+
+    // operand values, as returned by Number.doubleValue()
+    private static double doubleAt(OperandStack stack, int i)
+    {
+        switch (stack.types[i])
+        {
+            case REAL:
+                return stack.reals[i];
+            case INTEGER:
+                return stack.ints[i];
+            default:
+                throw new ClassCastException("Operand must be a number");
+        }
+    }
+
+    private static void checkNumber(OperandStack stack, int i)
+    {
+        if (stack.types[i] == BOOLEAN)
+        {
+            throw new ClassCastException("Operand must be a number");
+        }
+    }
+
+    /**
+     * Pushes a constant.
+     */
+    static final class Push implements Instruction
+    {
+        private final byte type;
+        private final float real;
+        private final int value;
+
+        Push(float real)
+        {
+            this.type = REAL;
+            this.real = real;
+            this.value = 0;
+        }
+
+        Push(int value)
+        {
+            this.type = INTEGER;
+            this.real = 0;
+            this.value = value;
+        }
+
+        Push(boolean value)
+        {
+            this.type = BOOLEAN;
+            this.real = 0;
+            this.value = value ? 1 : 0;
+        }
+
+        public void execute(OperandStack stack)
+        {
+            int size = stack.size;
+            stack.ensureCapacity(size + 1);
+            stack.reals[size] = real;
+            stack.ints[size] = value;
+            stack.types[size] = type;
+            stack.size = size + 1;
+        }
+    }
+
+    /**
+     * Executes a proc if the condition is true.
+     */
+    static final class If implements Instruction
+    {
+        private final CompiledProcedure proc;
+
+        If(CompiledProcedure proc)
+        {
+            this.proc = proc;
+        }
+
+        public void execute(OperandStack stack)
+        {
+            if (stack.popBoolean())
+            {
+                proc.execute(stack);
+            }
+        }
+    }
+
+    /**
+     * Executes one of two procs, depending on the condition.
+     */
+    static final class IfElse implements Instruction
+    {
+        private final CompiledProcedure proc1;
+        private final CompiledProcedure proc2;
+
+        IfElse(CompiledProcedure proc1, CompiledProcedure proc2)
+        {
+            this.proc1 = proc1;
+            this.proc2 = proc2;
+        }
+
+        public void execute(OperandStack stack)
+        {
+            if (stack.popBoolean())
+            {
+                proc1.execute(stack);
+            }
+            else
+            {
+                proc2.execute(stack);
+            }
+        }
+    }
+
+    static final class Abs implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            checkNumber(stack, i);
+            stack.reals[i] = Math.abs(stack.reals[i]);
+            stack.ints[i] = Math.abs(stack.ints[i]);
+        }
+    }
+
+    static final class Add implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int b = stack.pop();
+            int a = stack.pop();
+            if (stack.types[a] == INTEGER && stack.types[b] == INTEGER)
+            {
+                long sum = (long) stack.ints[a] + stack.ints[b];
+                if (sum < Integer.MIN_VALUE || sum > Integer.MAX_VALUE)
+                {
+                    stack.push((float) sum);
+                }
+                else
+                {
+                    stack.pushInt((int) sum);
+                }
+            }
+            else
+            {
+                stack.push(stack.realAt(a) + stack.realAt(b));
+            }
+        }
+    }
+
+    static final class Atan implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float den = stack.popReal();
+            float num = stack.popReal();
+            float atan = (float) Math.atan2(num, den);
+            atan = (float) Math.toDegrees(atan) % 360;
+            if (atan < 0)
+            {
+                atan = atan + 360;
+            }
+            stack.push(atan);
+        }
+    }
+
+    static final class Ceiling implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            checkNumber(stack, i);
+            if (stack.types[i] == REAL)
+            {
+                stack.reals[i] = (float) Math.ceil(stack.reals[i]);
+            }
+        }
+    }
+
+    static final class Cos implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float angle = stack.popReal();
+            stack.push((float) Math.cos(Math.toRadians(angle)));
+        }
+    }
+
+    static final class Cvi implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            stack.pushInt(stack.popIntValue());
+        }
+    }
+
+    static final class Cvr implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            stack.push(stack.popReal());
+        }
+    }
+
+    static final class Div implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float num2 = stack.popReal();
+            float num1 = stack.popReal();
+            stack.push(num1 / num2);
+        }
+    }
+
+    static final class Exp implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int exp = stack.pop();
+            int base = stack.pop();
+            stack.push((float) Math.pow(doubleAt(stack, base), doubleAt(stack, exp)));
+        }
+    }
+
+    static final class Floor implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            checkNumber(stack, i);
+            if (stack.types[i] == REAL)
+            {
+                stack.reals[i] = (float) Math.floor(stack.reals[i]);
+            }
+        }
+    }
+
+    static final class IDiv implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int num2 = stack.popInt();
+            int num1 = stack.popInt();
+            stack.pushInt(num1 / num2);
+        }
+    }
+
+    static final class Ln implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.pop();
+            stack.push((float) Math.log(doubleAt(stack, i)));
+        }
+    }
+
+    static final class Log implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.pop();
+            stack.push((float) Math.log10(doubleAt(stack, i)));
+        }
+    }
+
+    static final class Mod implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int int2 = stack.popInt();
+            int int1 = stack.popInt();
+            stack.pushInt(int1 % int2);
+        }
+    }
+
+    static final class Mul implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int b = stack.pop();
+            int a = stack.pop();
+            if (stack.types[a] == INTEGER && stack.types[b] == INTEGER)
+            {
+                long result = (long) stack.ints[a] * stack.ints[b];
+                if (result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE)
+                {
+                    stack.pushInt((int) result);
+                }
+                else
+                {
+                    stack.push((float) result);
+                }
+            }
+            else
+            {
+                stack.push((float) (doubleAt(stack, a) * doubleAt(stack, b)));
+            }
+        }
+    }
+
+    static final class Neg implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            checkNumber(stack, i);
+            if (stack.types[i] == REAL)
+            {
+                stack.reals[i] = -stack.reals[i];
+            }
+            else if (stack.ints[i] == Integer.MIN_VALUE)
+            {
+                stack.reals[i] = -(float) stack.ints[i];
+                stack.types[i] = REAL;
+            }
+            else
+            {
+                stack.ints[i] = -stack.ints[i];
+            }
+        }
+    }
+
+    static final class Round implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            checkNumber(stack, i);
+            if (stack.types[i] == REAL)
+            {
+                stack.reals[i] = (float) Math.round((double) stack.reals[i]);
+            }
+        }
+    }
+
+    static final class Sin implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float angle = stack.popReal();
+            stack.push((float) Math.sin(Math.toRadians(angle)));
+        }
+    }
+
+    static final class Sqrt implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float num = stack.popReal();
+            if (num < 0)
+            {
+                throw new IllegalArgumentException("argument must be nonnegative");
+            }
+            stack.push((float) Math.sqrt(num));
+        }
+    }
+
+    static final class Sub implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int b = stack.pop();
+            int a = stack.pop();
+            if (stack.types[a] == INTEGER && stack.types[b] == INTEGER)
+            {
+                long result = (long) stack.ints[a] - stack.ints[b];
+                if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE)
+                {
+                    stack.push((float) result);
+                }
+                else
+                {
+                    stack.pushInt((int) result);
+                }
+            }
+            else
+            {
+                stack.push(stack.realAt(a) - stack.realAt(b));
+            }
+        }
+    }
+
+    static final class Truncate implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            checkNumber(stack, i);
+            if (stack.types[i] == REAL)
+            {
+                stack.reals[i] = (int) stack.reals[i];
+            }
+        }
+    }
+
+    private abstract static class AbstractLogicalOperator implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int b = stack.pop();
+            int a = stack.pop();
+            byte type = stack.types[a];
+            if (type != stack.types[b] || type == REAL)
+            {
+                throw new ClassCastException("Operands must be bool/bool or int/int");
+            }
+            int result = apply(stack.ints[a], stack.ints[b]);
+            if (type == BOOLEAN)
+            {
+                stack.pushBoolean(result != 0);
+            }
+            else
+            {
+                stack.pushInt(result);
+            }
+        }
+
+        // booleans are 0 and 1, so the bitwise operators work for them, too
+        protected abstract int apply(int int1, int int2);
+    }
+
+    static final class And extends AbstractLogicalOperator
+    {
+        @Override
+        protected int apply(int int1, int int2)
+        {
+            return int1 & int2;
+        }
+    }
+
+    static final class Or extends AbstractLogicalOperator
+    {
+        @Override
+        protected int apply(int int1, int int2)
+        {
+            return int1 | int2;
+        }
+    }
+
+    static final class Xor extends AbstractLogicalOperator
+    {
+        @Override
+        protected int apply(int int1, int int2)
+        {
+            return int1 ^ int2;
+        }
+    }
+
+    static final class Bitshift implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int shift = stack.popInt();
+            int int1 = stack.popInt();
+            if (shift < 0)
+            {
+                stack.pushInt(int1 >> Math.abs(shift));
+            }
+            else
+            {
+                stack.pushInt(int1 << shift);
+            }
+        }
+    }
+
+    static final class Not implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(0);
+            switch (stack.types[i])
+            {
+                case BOOLEAN:
+                    stack.ints[i] ^= 1;
+                    break;
+                case INTEGER:
+                    stack.ints[i] = -stack.ints[i];
+                    break;
+                default:
+                    throw new ClassCastException("Operand must be bool or int");
+            }
+        }
+    }
+
+    static class Eq implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int b = stack.pop();
+            int a = stack.pop();
+            boolean result;
+            if (stack.isNumber(a) && stack.isNumber(b))
+            {
+                result = stack.realAt(a) == stack.realAt(b);
+            }
+            else
+            {
+                // booleans are only equal to booleans
+                result = stack.types[a] == stack.types[b] && stack.ints[a] == stack.ints[b];
+            }
+            stack.pushBoolean(result != isNegated());
+        }
+
+        protected boolean isNegated()
+        {
+            return false;
+        }
+    }
+
+    static final class Ne extends Eq
+    {
+        @Override
+        protected boolean isNegated()
+        {
+            return true;
+        }
+    }
+
+    static final class Ge implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float num2 = stack.popReal();
+            float num1 = stack.popReal();
+            stack.pushBoolean(num1 >= num2);
+        }
+    }
+
+    static final class Gt implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float num2 = stack.popReal();
+            float num1 = stack.popReal();
+            stack.pushBoolean(num1 > num2);
+        }
+    }
+
+    static final class Le implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float num2 = stack.popReal();
+            float num1 = stack.popReal();
+            stack.pushBoolean(num1 <= num2);
+        }
+    }
+
+    static final class Lt implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            float num2 = stack.popReal();
+            float num1 = stack.popReal();
+            stack.pushBoolean(num1 < num2);
+        }
+    }
+
+    static final class Copy implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int n = stack.popIntValue();
+            if (n > 0)
+            {
+                int size = stack.size;
+                if (n > size)
+                {
+                    throw new IndexOutOfBoundsException("copy: " + n);
+                }
+                stack.ensureCapacity(size + n);
+                for (int i = size - n; i < size; i++)
+                {
+                    stack.pushCopy(i);
+                }
+            }
+        }
+    }
+
+    static final class Dup implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            stack.pushCopy(stack.peek(0));
+        }
+    }
+
+    static final class Exch implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int i = stack.peek(1);
+            stack.reverse(i, i + 2);
+        }
+    }
+
+    static final class Index implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int n = stack.popIntValue();
+            if (n < 0)
+            {
+                throw new IllegalArgumentException("rangecheck: " + n);
+            }
+            if (n >= stack.size)
+            {
+                throw new IndexOutOfBoundsException("index: " + n);
+            }
+            stack.pushCopy(stack.size - n - 1);
+        }
+    }
+
+    static final class Pop implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            stack.pop();
+        }
+    }
+
+    static final class Roll implements Instruction
+    {
+        public void execute(OperandStack stack)
+        {
+            int j = stack.popIntValue();
+            int n = stack.popIntValue();
+            if (j == 0)
+            {
+                return; //Nothing to do
+            }
+            if (n < 0)
+            {
+                throw new IllegalArgumentException("rangecheck: " + n);
+            }
+
+            // the top of the stack is split into a lower block and an upper block, which swap
+            // places; the sizes are those of the interpreted operator, also when |j| > n
+            int lower;
+            int upper;
+            if (j < 0)
+            {
+                lower = -j;
+                upper = Math.max(n + j, 0);
+            }
+            else
+            {
+                lower = Math.max(n - j, 0);
+                upper = j;
+            }
+            int end = stack.size;
+            int start = end - lower - upper;
+            if (start < 0)
+            {
+                throw new java.util.EmptyStackException();
+            }
+            // swap the blocks by three reversals
+            stack.reverse(start, end);
+            stack.reverse(start, start + upper);
+            stack.reverse(start + upper, end);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.List;
+
+/**
+ * A PostScript calculator procedure compiled into a tree of instructions. Operators are resolved
+ * once, procs are bound to the conditional operators which execute them, and all operands are
+ * kept unboxed in an {@link OperandStack}, so that execution doesn't allocate any objects.
+ *
+ * A compiled procedure has no state of its own and can be shared by several threads, each of
+ * them using its own stack.
+ */
+public final class CompiledProcedure
+{
+    private final Instruction[] instructions;
+
+    private CompiledProcedure(Instruction[] instructions)
+    {
+        this.instructions = instructions;
+    }
+
+    /**
+     * Compiles a parsed type 4 function. Returns null if the function uses anything which can't
+     * be compiled, such as unknown operators or procs which aren't operands of if or ifelse, in
+     * which case the function has to be interpreted.
+     *
+     * @param sequence the parsed function
+     * @return the compiled function, or null
+     */
+    public static CompiledProcedure compile(InstructionSequence sequence)
+    {
+        List<Object> items = sequence.getInstructions();
+        if (items.size() == 1 && items.get(0) instanceof InstructionSequence)
+        {
+            // the usual case, a single proc which the interpreter executes after pushing it
+            items = ((InstructionSequence) items.get(0)).getInstructions();
+        }
+        return compile(items);
+    }
+
+    private static CompiledProcedure compile(List<Object> items)
+    {
+        Instruction[] instructions = new Instruction[items.size()];
+        int count = 0;
+        for (int i = 0; i < items.size(); i++)
+        {
+            Object item = items.get(i);
+            Instruction instruction;
+            if (item instanceof String)
+            {
+                instruction = CompiledOperators.getOperator((String) item);
+            }
+            else if (item instanceof Integer)
+            {
+                instruction = new CompiledOperators.Push((Integer) item);
+            }
+            else if (item instanceof Float)
+            {
+                instruction = new CompiledOperators.Push((Float) item);
+            }
+            else if (item instanceof Boolean)
+            {
+                instruction = new CompiledOperators.Push((Boolean) item);
+            }
+            else if (isOperator(items, i + 1, "if"))
+            {
+                instruction = compileIf(item);
+                i++;
+            }
+            else if (isOperator(items, i + 2, "ifelse") &&
+                     item instanceof InstructionSequence &&
+                     items.get(i + 1) instanceof InstructionSequence)
+            {
+                instruction = compileIfElse(item, items.get(i + 1));
+                i += 2;
+            }
+            else
+            {
+                instruction = null;
+            }
+
+            if (instruction == null)
+            {
+                return null;
+            }
+            instructions[count++] = instruction;
+        }
+
+        Instruction[] compiled = new Instruction[count];
+        System.arraycopy(instructions, 0, compiled, 0, count);
+        return new CompiledProcedure(compiled);
+    }
+
+    private static Instruction compileIf(Object item)
+    {
+        if (!(item instanceof InstructionSequence))
+        {
+            return null;
+        }
+        CompiledProcedure proc = compile(((InstructionSequence) item).getInstructions());
+        return proc == null ? null : new CompiledOperators.If(proc);
+    }
+
+    private static Instruction compileIfElse(Object item1, Object item2)
+    {
+        CompiledProcedure proc1 = compile(((InstructionSequence) item1).getInstructions());
+        CompiledProcedure proc2 = compile(((InstructionSequence) item2).getInstructions());
+        if (proc1 == null || proc2 == null)
+        {
+            return null;
+        }
+        return new CompiledOperators.IfElse(proc1, proc2);
+    }
+
+    private static boolean isOperator(List<Object> items, int index, String name)
+    {
+        return index < items.size() && name.equals(items.get(index));
+    }
+
+    /**
+     * Executes the procedure.
+     * @param stack the operand stack, holding the input values
+     */
+    public void execute(OperandStack stack)
+    {
+        for (Instruction instruction : instructions)
+        {
+            instruction.execute(stack);
+        }
+    }
+}
@@ -74,6 +74,15 @@ public class InstructionSequence
         this.instructions.add(child);
     }
 
+    /**
+     * Returns the instructions, i.e. names, numbers, booleans and procs.
+     * @return the instructions
+     */
+    List<Object> getInstructions()
+    {
+        return instructions;
+    }
+
     /**
      * Executes the instruction sequence.
      * @param context the execution context
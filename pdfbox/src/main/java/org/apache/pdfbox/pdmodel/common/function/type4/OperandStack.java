@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.EmptyStackException;
+
+/**
+ * Operand stack of a {@link CompiledProcedure}. Reals, integers and booleans are kept in
+ * primitive arrays along with their type, so that executing a procedure doesn't box any values.
+ * A stack may be reused for any number of executions, but not by several threads at once.
+ */
+public final class OperandStack
+{
+    static final byte REAL = 0;
+    static final byte INTEGER = 1;
+    static final byte BOOLEAN = 2;
+
+    // the PostScript calculator allows 100 operands, but the stack grows if needed
+    private static final int INITIAL_CAPACITY = 100;
+
+    // reals are stored in reals[], integers and booleans (as 0 and 1) in ints[]
+    float[] reals = new float[INITIAL_CAPACITY];
+    int[] ints = new int[INITIAL_CAPACITY];
+    byte[] types = new byte[INITIAL_CAPACITY];
+    int size;
+
+    /**
+     * Returns the number of operands on the stack.
+     * @return the stack size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all operands.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Pushes a real value.
+     * @param value the value
+     */
+    public void push(float value)
+    {
+        ensureCapacity(size + 1);
+        reals[size] = value;
+        types[size++] = REAL;
+    }
+
+    /**
+     * Pops a number from the stack and returns it as a real value. If the value is not of a
+     * numeric type, a ClassCastException is thrown.
+     * @return the real value
+     */
+    public float popReal()
+    {
+        int i = pop();
+        switch (types[i])
+        {
+            case REAL:
+                return reals[i];
+            case INTEGER:
+                return ints[i];
+            default:
+                throw new ClassCastException("Operand must be a number");
+        }
+    }
+
+    void pushInt(int value)
+    {
+        ensureCapacity(size + 1);
+        ints[size] = value;
+        types[size++] = INTEGER;
+    }
+
+    void pushBoolean(boolean value)
+    {
+        ensureCapacity(size + 1);
+        ints[size] = value ? 1 : 0;
+        types[size++] = BOOLEAN;
+    }
+
+    /**
+     * Pops a value of type int from the stack. If the value is not of type int, a
+     * ClassCastException is thrown.
+     */
+    int popInt()
+    {
+        int i = pop();
+        if (types[i] != INTEGER)
+        {
+            throw new ClassCastException("Operand must be an integer");
+        }
+        return ints[i];
+    }
+
+    /**
+     * Pops a number from the stack and returns it as an int value, truncating reals.
+     */
+    int popIntValue()
+    {
+        int i = pop();
+        switch (types[i])
+        {
+            case REAL:
+                return (int) reals[i];
+            case INTEGER:
+                return ints[i];
+            default:
+                throw new ClassCastException("Operand must be a number");
+        }
+    }
+
+    /**
+     * Pops a boolean value. If the value is not of type boolean, a ClassCastException is thrown.
+     */
+    boolean popBoolean()
+    {
+        int i = pop();
+        if (types[i] != BOOLEAN)
+        {
+            throw new ClassCastException("Operand must be a boolean");
+        }
+        return ints[i] != 0;
+    }
+
+    /**
+     * Removes the top operand and returns its index, which remains valid until the next push.
+     */
+    int pop()
+    {
+        if (size == 0)
+        {
+            throw new EmptyStackException();
+        }
+        return --size;
+    }
+
+    /**
+     * Returns the index of the operand n positions below the top of the stack.
+     */
+    int peek(int n)
+    {
+        if (n >= size)
+        {
+            throw new EmptyStackException();
+        }
+        return size - 1 - n;
+    }
+
+    /**
+     * Returns true if the operand at the given index is a number.
+     */
+    boolean isNumber(int i)
+    {
+        return types[i] != BOOLEAN;
+    }
+
+    /**
+     * Returns the operand at the given index as a real value, which must be a number.
+     */
+    float realAt(int i)
+    {
+        switch (types[i])
+        {
+            case REAL:
+                return reals[i];
+            case INTEGER:
+                return ints[i];
+            default:
+                throw new ClassCastException("Operand must be a number");
+        }
+    }
+
+    /**
+     * Pushes a copy of the operand at the given index.
+     */
+    void pushCopy(int i)
+    {
+        ensureCapacity(size + 1);
+        reals[size] = reals[i];
+        ints[size] = ints[i];
+        types[size++] = types[i];
+    }
+
+    /**
+     * Reverses the order of the operands in the range [from, to).
+     */
+    void reverse(int from, int to)
+    {
+        for (int i = from, j = to - 1; i < j; i++, j--)
+        {
+            float real = reals[i];
+            reals[i] = reals[j];
+            reals[j] = real;
+            int value = ints[i];
+            ints[i] = ints[j];
+            ints[j] = value;
+            byte type = types[i];
+            types[i] = types[j];
+            types[j] = type;
+        }
+    }
+
+    void ensureCapacity(int capacity)
+    {
+        if (capacity > types.length)
+        {
+            int length = Math.max(capacity, types.length * 2);
+            float[] newReals = new float[length];
+            int[] newInts = new int[length];
+            byte[] newTypes = new byte[length];
+            System.arraycopy(reals, 0, newReals, 0, size);
+            System.arraycopy(ints, 0, newInts, 0, size);
+            System.arraycopy(types, 0, newTypes, 0, size);
+            reals = newReals;
+            ints = newInts;
+            types = newTypes;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.pdfbox.util.BoundedLRUCache;
+
+/**
+ * Optional process-wide cache of parsed embedded font programs, keyed by a SHA-256 digest of the
+ * decoded program. When it is enabled, documents which embed the same font program, e.g. the
+ * same subset in thousands of generated documents, share one parsed font together with its
+ * glyph caches instead of parsing the program again. Parsed fonts are read-only, so that they
+ * may be used by several documents and threads at once.
+ *
+ * The cache is bounded by the total size of the cached font programs, which is a measure of the
+ * memory taken by the parsed fonts. The least recently used fonts are evicted first.
+ */
+public final class EmbeddedFontCache
+{
+    private EmbeddedFontCache() {}
+
+    /** default maximum total size of the cached font programs, in bytes */
+    public static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+    private static volatile boolean enabled;
+
+    // the fonts, sized by the length of their programs, guarded by the class lock
+    private static final BoundedLRUCache<String, Object> fonts =
+            new BoundedLRUCache<String, Object>(DEFAULT_MAX_BYTES);
+
+    /**
+     * Parses a font program, see {@link EmbeddedFontCache#load(String, byte[], Loader)}.
+     *
+     * @param <T> the parsed font
+     */
+    abstract static class Loader<T>
+    {
+        abstract T load(byte[] program) throws IOException;
+    }
+
+    /**
+     * Enables or disables the cache. It is disabled by default. Disabling the cache doesn't
+     * discard its fonts, see {@link #clear()}.
+     *
+     * @param enabled true to enable the cache
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        EmbeddedFontCache.enabled = enabled;
+    }
+
+    /**
+     * Returns true if the cache is enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Sets the maximum total size of the cached font programs, in bytes. Fonts are evicted
+     * immediately if the cache is larger.
+     *
+     * @param maxBytes the maximum size in bytes
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public static synchronized void setMaxBytes(long maxBytes)
+    {
+        fonts.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the maximum total size of the cached font programs, in bytes.
+     */
+    public static synchronized long getMaxBytes()
+    {
+        return fonts.getMaxBytes();
+    }
+
+    /**
+     * Returns the total size of the cached font programs, in bytes.
+     */
+    public static synchronized long getBytes()
+    {
+        return fonts.getByteCount();
+    }
+
+    /**
+     * Returns the number of cached fonts.
+     */
+    public static synchronized int getFontCount()
+    {
+        return fonts.size();
+    }
+
+    /**
+     * Returns the number of font programs which have been found in the cache.
+     */
+    public static synchronized long getHitCount()
+    {
+        return fonts.getHitCount();
+    }
+
+    /**
+     * Returns the number of font programs which have been parsed while the cache was enabled.
+     */
+    public static synchronized long getMissCount()
+    {
+        return fonts.getMissCount();
+    }
+
+    /**
+     * Returns the number of fonts which have been evicted to stay within the maximum size.
+     */
+    public static synchronized long getEvictionCount()
+    {
+        return fonts.getEvictionCount();
+    }
+
+    /**
+     * Discards all cached fonts and resets the statistics.
+     */
+    public static synchronized void clear()
+    {
+        fonts.clear();
+        fonts.resetStatistics();
+    }
+
+    /**
+     * Returns the parsed font for the given program, from the cache if it is enabled. The
+     * program is parsed outside of the cache's lock; if two threads parse the same program at
+     * once, the font of the first one is kept.
+     *
+     * @param format the format of the program and how it is parsed, which is part of the key
+     * @param program the decoded font program, may be null
+     * @param loader parses the program
+     * @return the parsed font
+     * @throws IOException if the program can't be parsed
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T load(String format, byte[] program, Loader<T> loader) throws IOException
+    {
+        if (!enabled || program == null)
+        {
+            return loader.load(program);
+        }
+
+        String key = format + ':' + program.length + ':' + digest(program);
+        synchronized (EmbeddedFontCache.class)
+        {
+            Object cached = fonts.get(key);
+            if (cached != null)
+            {
+                return (T) cached;
+            }
+        }
+
+        T font = loader.load(program);
+        if (font == null)
+        {
+            return null;
+        }
+        synchronized (EmbeddedFontCache.class)
+        {
+            // a program which is larger than the whole cache isn't kept
+            Object cached = fonts.putIfAbsent(key, font, program.length);
+            if (cached != null)
+            {
+                return (T) cached;
+            }
+        }
+        return font;
+    }
+
+    private static String digest(byte[] program)
+    {
+        MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+        byte[] hash = md.digest(program);
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash)
+        {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdmodel.font;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -53,6 +54,19 @@ public final class ExternalFonts
         private static final FontProvider INSTANCE = new FileSystemFontProvider();
     }
 
+    /**
+     * System property with the maximum number of loaded system fonts of each format which the
+     * default font provider keeps for reuse by all documents, default 32.
+     */
+    public static final String PROP_LOADED_FONTS = "org.apache.pdfbox.loadedSystemFonts";
+
+    /**
+     * System property with the directory in which the default font provider keeps an index of
+     * the system fonts, so that only new or changed font files have to be parsed in the next run
+     * of the JVM. No index is kept unless this is set.
+     */
+    public static final String PROP_FONT_INDEX_DIR = "org.apache.pdfbox.fontIndexDir";
+
     private static final Log log = LogFactory.getLog(ExternalFonts.class);
     private static FontProvider fontProvider;
 
@@ -100,6 +114,21 @@ public final class ExternalFonts
         ExternalFonts.fontProvider = fontProvider;
     }
 
+    /**
+     * Scans the local system for fonts and creates or updates the font index in the given
+     * directory, see {@link #PROP_FONT_INDEX_DIR}. Calling this at deploy time, with the property
+     * set to the same directory at runtime, spares the first document which needs a system font
+     * from parsing all of them.
+     *
+     * @param dir the directory of the index, which is created if necessary
+     * @return the number of font files in the index
+     * @throws IOException if the index can't be written
+     */
+    public static int buildFontIndex(File dir) throws IOException
+    {
+        return FileSystemFontProvider.buildIndex(dir);
+    }
+
     /**
      * Gets the font service provider. Defaults to using FileSystemFontProvider.
      */
@@ -20,6 +20,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.fontbox.cff.CFFFont;
 import org.apache.fontbox.cff.CFFParser;
+import org.apache.fontbox.ttf.MappedTTFDataStream;
 import org.apache.fontbox.ttf.NamingTable;
 import org.apache.fontbox.ttf.TTFParser;
 import org.apache.fontbox.ttf.TrueTypeFont;
@@ -27,17 +28,28 @@ import org.apache.fontbox.type1.Type1Font;
 import org.apache.fontbox.util.autodetect.FontFileFinder;
 import org.apache.pdfbox.io.IOUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
- * External font provider which searches for fonts on the local filesystem.
+ * External font provider which searches for fonts on the local filesystem. The names of the
+ * font files may be kept in an index on disk, so that only new or changed files have to be
+ * parsed when the provider is created again, e.g. in the next run of the JVM.
  *
  * @author John Hewson
  */
@@ -45,77 +57,361 @@ final class FileSystemFontProvider implements FontProvider
 {
     private static final Log LOG = LogFactory.getLog(FileSystemFontProvider.class);
 
+    // the font index, indexes with another header are ignored
+    private static final String INDEX_FILE_NAME = ".pdfbox.fontindex";
+    private static final String INDEX_HEADER = "PDFBox font index 1";
+    private static final String INDEX_ENCODING = "UTF-8";
+
+    private static final int DEFAULT_LOADED_FONTS = 32;
+
     // cache of font files on the system (populated in constructor)
     private final Map<String, File> ttfFontFiles = new HashMap<String, File>();
     private final Map<String, File> cffFontFiles = new HashMap<String, File>();
     private final Map<String, File> type1FontFiles =  new HashMap<String, File>();
 
-    // cache of loaded fonts which are in use (populated on-the-fly)
-    private final Map<String, TrueTypeFont> ttfFonts = new HashMap<String, TrueTypeFont>();
-    private final Map<String, CFFFont> cffFonts = new HashMap<String, CFFFont>();
-    private final Map<String, Type1Font> type1Fonts = new HashMap<String, Type1Font>();
+    // caches of loaded fonts which are in use (populated on-the-fly), shared by all documents
+    private final FontCache<String, TrueTypeFont> ttfFonts;
+    private final FontCache<String, CFFFont> cffFonts;
+    private final FontCache<String, Type1Font> type1Fonts;
+
+    // the number of font files found, which is the number of entries of the index
+    private final int fileCount;
+
+    // false if the index had to be updated but couldn't be written
+    private final boolean indexCurrent;
 
     /**
-     * Constructor.
+     * Information about a font file, as kept in the font index.
+     */
+    private static final class FontFileInfo
+    {
+        // "TTF", "OTF" or "PFB", or null if the file couldn't be read
+        private final String format;
+        private final String postScriptName;
+        private final String family;
+        private final String style;
+        private final long length;
+        private final long lastModified;
+        private final File file;
+
+        FontFileInfo(String format, String postScriptName, String family, String style,
+                     File file)
+        {
+            this(format, postScriptName, family, style, file.length(), file.lastModified(), file);
+        }
+
+        FontFileInfo(String format, String postScriptName, String family, String style,
+                     long length, long lastModified, File file)
+        {
+            this.format = format;
+            this.postScriptName = postScriptName;
+            this.family = family;
+            this.style = style;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.file = file;
+        }
+
+        /**
+         * Returns true if the file has not been changed since it was indexed.
+         */
+        boolean isCurrent(File current)
+        {
+            return length == current.length() && lastModified == current.lastModified();
+        }
+    }
+
+    /**
+     * Constructor, uses the font index in the directory given by the system property
+     * {@link ExternalFonts#PROP_FONT_INDEX_DIR}, if it is set.
      */
     FileSystemFontProvider()
     {
+        this(new FontFileFinder().find(), getIndexFile(),
+             Integer.getInteger(ExternalFonts.PROP_LOADED_FONTS, DEFAULT_LOADED_FONTS));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param fonts the font files
+     * @param indexFile the font index, which is created or updated if necessary, may be null
+     * @param loadedFonts the maximum number of loaded fonts to keep of each format
+     */
+    FileSystemFontProvider(List<URI> fonts, File indexFile, int loadedFonts)
+    {
+        ttfFonts = new FontCache<String, TrueTypeFont>(loadedFonts);
+        cffFonts = new FontCache<String, CFFFont>(loadedFonts);
+        type1Fonts = new FontCache<String, Type1Font>(loadedFonts);
+
         if (LOG.isTraceEnabled())
         {
             LOG.trace("Will search the local system for fonts");
         }
 
-        int count = 0;
-        FontFileFinder fontFileFinder = new FontFileFinder();
-        List<URI> fonts = fontFileFinder.find();
+        Map<String, FontFileInfo> index = new HashMap<String, FontFileInfo>();
+        if (indexFile != null && indexFile.exists())
+        {
+            readIndex(indexFile, index);
+        }
+
+        // only files which are new or have changed since they were indexed are parsed
+        List<FontFileInfo> infos = new ArrayList<FontFileInfo>();
+        Set<File> files = new HashSet<File>();
+        int parsed = 0;
         for (URI font : fonts)
         {
-            count++;
-            File fontFile = new File(font);
-            try
+            File fontFile = new File(font).getAbsoluteFile();
+            String path = fontFile.getPath().toLowerCase();
+            if (!path.endsWith(".ttf") && !path.endsWith(".otf") && !path.endsWith(".pfb") ||
+                !files.add(fontFile))
             {
-                if (fontFile.getPath().toLowerCase().endsWith(".ttf") ||
-                    fontFile.getPath().toLowerCase().endsWith(".otf"))
-                {
-                    addOpenTypeFont(fontFile);
-                }
-                else if (fontFile.getPath().toLowerCase().endsWith(".pfb"))
+                continue;
+            }
+
+            FontFileInfo info = index.get(fontFile.getPath());
+            if (info == null || !info.isCurrent(fontFile))
+            {
+                info = parseFont(fontFile);
+                parsed++;
+            }
+            infos.add(info);
+            addFont(info);
+        }
+
+        // also rewrite the index if files have been removed
+        fileCount = infos.size();
+        if (indexFile != null && (parsed > 0 || infos.size() != index.size() ||
+                                  !indexFile.exists()))
+        {
+            indexCurrent = writeIndex(indexFile, infos);
+        }
+        else
+        {
+            indexCurrent = true;
+        }
+
+        if (LOG.isTraceEnabled())
+        {
+            LOG.trace("Found " + infos.size() + " fonts on the local system, parsed " + parsed);
+        }
+    }
+
+    /**
+     * Returns the file of the font index, or null if no index is to be kept. Writing an index is
+     * opt-in, so that nothing is written to the user's files unless asked for.
+     */
+    static File getIndexFile()
+    {
+        String dir = System.getProperty(ExternalFonts.PROP_FONT_INDEX_DIR);
+        return dir == null || dir.length() == 0 ? null : getIndexFile(new File(dir));
+    }
+
+    /**
+     * Returns the file of the font index in the given directory.
+     */
+    static File getIndexFile(File dir)
+    {
+        return new File(dir, INDEX_FILE_NAME);
+    }
+
+    /**
+     * Scans the local system for fonts and creates or updates the font index in the given
+     * directory.
+     *
+     * @param dir the directory of the index, which is created if necessary
+     * @return the number of entries of the index
+     * @throws IOException if the index can't be written
+     */
+    static int buildIndex(File dir) throws IOException
+    {
+        if (!dir.isDirectory() && !dir.mkdirs())
+        {
+            throw new IOException("Could not create directory " + dir);
+        }
+        FileSystemFontProvider provider = new FileSystemFontProvider(new FontFileFinder().find(),
+                getIndexFile(dir), DEFAULT_LOADED_FONTS);
+        if (!provider.indexCurrent)
+        {
+            throw new IOException("Could not write font index " + getIndexFile(dir));
+        }
+        return provider.fileCount;
+    }
+
+    /**
+     * Reads the font index, which has a header line followed by one line per font file with the
+     * tab-separated fields format, PostScript name, family, style, length, last modified time
+     * and path. An index which can't be read is ignored, as all fonts can be parsed again.
+     */
+    private static void readIndex(File indexFile, Map<String, FontFileInfo> index)
+    {
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+                                                              INDEX_ENCODING));
+            if (!INDEX_HEADER.equals(reader.readLine()))
+            {
+                LOG.warn("Ignoring font index of another version " + indexFile);
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                String[] fields = line.split("\t", 7);
+                if (fields.length != 7)
                 {
-                    addType1Font(fontFile);
+                    throw new IOException("Invalid line in font index: " + line);
                 }
+                File file = new File(fields[6]);
+                index.put(file.getPath(), new FontFileInfo(toValue(fields[0]),
+                        toValue(fields[1]), toValue(fields[2]), toValue(fields[3]),
+                        Long.parseLong(fields[4]), Long.parseLong(fields[5]), file));
             }
-            catch (IOException e)
+        }
+        catch (NumberFormatException e)
+        {
+            LOG.warn("Ignoring invalid font index " + indexFile, e);
+            index.clear();
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Ignoring invalid font index " + indexFile, e);
+            index.clear();
+        }
+        finally
+        {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Writes the font index. It is written to a temporary file first, so that other processes
+     * never read a partial index.
+     *
+     * @return true if the index has been written
+     */
+    private static boolean writeIndex(File indexFile, List<FontFileInfo> infos)
+    {
+        File tempFile = null;
+        Writer writer = null;
+        try
+        {
+            File dir = indexFile.getAbsoluteFile().getParentFile();
+            tempFile = File.createTempFile(INDEX_FILE_NAME, ".tmp", dir);
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile),
+                                                               INDEX_ENCODING));
+            writer.write(INDEX_HEADER);
+            writer.write('\n');
+            for (FontFileInfo info : infos)
             {
-                LOG.error("Error parsing font " + fontFile.getPath(), e);
+                writer.write(toField(info.format) + '\t' + toField(info.postScriptName) + '\t' +
+                             toField(info.family) + '\t' + toField(info.style) + '\t' +
+                             info.length + '\t' + info.lastModified + '\t' +
+                             info.file.getPath() + '\n');
             }
+            writer.close();
+            writer = null;
+
+            // renameTo doesn't replace an existing file on all platforms
+            if (!tempFile.renameTo(indexFile) &&
+                (!indexFile.delete() || !tempFile.renameTo(indexFile)))
+            {
+                throw new IOException("Could not replace " + indexFile);
+            }
+            tempFile = null;
+            return true;
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not write font index " + indexFile, e);
+            return false;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(writer);
+            if (tempFile != null)
+            {
+                tempFile.delete();
+            }
+        }
+    }
+
+    // names may contain anything, but the fields of the index are separated by tabs and lines
+    private static String toField(String value)
+    {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static String toValue(String field)
+    {
+        return field.length() == 0 ? null : field;
+    }
+
+    /**
+     * Adds an indexed font to the file cache.
+     */
+    private void addFont(FontFileInfo info)
+    {
+        if (info.format == null || info.postScriptName == null)
+        {
+            return;
+        }
+        if (info.format.equals("TTF"))
+        {
+            ttfFontFiles.put(info.postScriptName, info.file);
+        }
+        else if (info.format.equals("OTF"))
+        {
+            cffFontFiles.put(info.postScriptName, info.file);
+        }
+        else if (info.format.equals("PFB"))
+        {
+            type1FontFiles.put(info.postScriptName, info.file);
         }
 
         if (LOG.isTraceEnabled())
         {
-            LOG.trace("Found " + count + " fonts on the local system");
+            LOG.trace(info.format + ": '" + info.postScriptName + "' / '" + info.family +
+                    "' / '" + info.style + "'");
         }
     }
 
     /**
-     * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
+     * Parses a font file for the font index. Files which can't be parsed are indexed too, so
+     * that they aren't parsed again as long as they don't change.
      */
-    private void addOpenTypeFont(File otfFile) throws IOException
+    private FontFileInfo parseFont(File fontFile)
     {
-        TTFParser ttfParser = new TTFParser(false, true);
-        TrueTypeFont ttf = null;
         try
         {
-            ttf = ttfParser.parse(otfFile);
+            if (fontFile.getPath().toLowerCase().endsWith(".pfb"))
+            {
+                return parseType1Font(fontFile);
+            }
+            else
+            {
+                return parseOpenTypeFont(fontFile);
+            }
         }
         catch (NullPointerException e) // TTF parser is buggy
         {
-            LOG.error("Could not load font file: " + otfFile, e);
+            LOG.error("Could not load font file: " + fontFile, e);
         }
         catch (IOException e)
         {
-            LOG.error("Could not load font file: " + otfFile, e);
+            LOG.error("Could not load font file: " + fontFile, e);
         }
+        return new FontFileInfo(null, null, null, null, fontFile);
+    }
 
+    /**
+     * Parses an OTF or TTF font. To reduce memory, the parsed font is not cached.
+     */
+    private FontFileInfo parseOpenTypeFont(File otfFile) throws IOException
+    {
+        TTFParser ttfParser = new TTFParser(false, true);
+        TrueTypeFont ttf = ttfParser.parse(otfFile);
         try
         {
             // check for 'name' table
@@ -124,64 +420,36 @@ final class FileSystemFontProvider implements FontProvider
             {
                 LOG.warn("Missing 'name' table in font " + otfFile);
             }
+            else if (nameTable.getPostScriptName() == null)
+            {
+                LOG.warn("Missing 'name' entry for PostScript name in font " + otfFile);
+            }
             else
             {
-                // read PostScript name, if any
-                if (nameTable.getPostScriptName() != null)
-                {
-                    String psName = nameTable.getPostScriptName();
-
-                    String format;
-                    if (ttf.getTableMap().get("CFF ") != null)
-                    {
-                        format = "OTF";
-                        cffFontFiles.put(psName, otfFile);
-                    }
-                    else
-                    {
-                        format = "TTF";
-                        ttfFontFiles.put(psName, otfFile);
-                    }
-
-                    if (LOG.isTraceEnabled())
-                    {
-                        LOG.trace(format +": '" + psName + "' / '" + nameTable.getFontFamily() +
-                                "' / '" + nameTable.getFontSubFamily() + "'");
-                    }
-                }
-                else
-                {
-                    LOG.warn("Missing 'name' entry for PostScript name in font " + otfFile);
-                }
+                String format = ttf.getTableMap().get("CFF ") != null ? "OTF" : "TTF";
+                return new FontFileInfo(format, nameTable.getPostScriptName(),
+                                        nameTable.getFontFamily(), nameTable.getFontSubFamily(),
+                                        otfFile);
             }
+            return new FontFileInfo(null, null, null, null, otfFile);
         }
         finally
         {
-            if (ttf != null)
-            {
-                ttf.close();
-            }
+            ttf.close();
         }
     }
 
     /**
-     * Adds a Type 1 font to the file cache. To reduce memory, the parsed font is not cached.
+     * Parses a Type 1 font. To reduce memory, the parsed font is not cached.
      */
-    private void addType1Font(File pfbFile) throws IOException
+    private FontFileInfo parseType1Font(File pfbFile) throws IOException
     {
         InputStream input = new FileInputStream(pfbFile);
         try
         {
             Type1Font type1 = Type1Font.createWithPFB(input);
-
-            String psName = type1.getFontName();
-            type1FontFiles.put(psName, pfbFile);
-
-            if (LOG.isTraceEnabled())
-            {
-                LOG.trace("PFB: '" + psName + "' / '" + type1.getFamilyName() + "' / '" +
-                        type1.getWeight() + "'");
-            }
+            return new FontFileInfo("PFB", type1.getFontName(), type1.getFamilyName(),
+                                    type1.getWeight(), pfbFile);
         }
         finally
         {
@@ -190,7 +458,7 @@ final class FileSystemFontProvider implements FontProvider
     }
 
     @Override
-    public synchronized TrueTypeFont getTrueTypeFont(String postScriptName)
+    public TrueTypeFont getTrueTypeFont(String postScriptName)
     {
         TrueTypeFont ttf = ttfFonts.get(postScriptName);
         if (ttf != null)
@@ -204,14 +472,20 @@ final class FileSystemFontProvider implements FontProvider
             TTFParser ttfParser = new TTFParser(false, true);
             try
             {
-                ttf = ttfParser.parse(file);
-
-                ttfFonts.put(postScriptName, ttf);
+                // fonts in use are mapped, so that large fonts don't take heap space
+                ttf = ttfParser.parse(new MappedTTFDataStream(file));
                 if (LOG.isDebugEnabled())
                 {
                     LOG.debug("Loaded " + postScriptName + " from " + file);
                 }
-                return ttf;
+
+                TrueTypeFont cached = ttfFonts.put(postScriptName, ttf);
+                if (cached != ttf)
+                {
+                    // another thread has loaded the font at the same time
+                    ttf.close();
+                }
+                return cached;
             }
             catch (NullPointerException e) // TTF parser is buggy
             {
@@ -226,7 +500,7 @@ final class FileSystemFontProvider implements FontProvider
     }
 
     @Override
-    public synchronized CFFFont getCFFFont(String postScriptName)
+    public CFFFont getCFFFont(String postScriptName)
     {
         CFFFont cff = cffFonts.get(postScriptName);
         if (cff != null)
@@ -244,12 +518,11 @@ final class FileSystemFontProvider implements FontProvider
                 byte[] bytes = IOUtils.toByteArray(input);
                 CFFParser cffParser = new CFFParser();
                 cff = cffParser.parse(bytes).get(0);
-                cffFonts.put(postScriptName, cff);
                 if (LOG.isDebugEnabled())
                 {
                     LOG.debug("Loaded " + postScriptName + " from " + file);
                 }
-                return cff;
+                return cffFonts.put(postScriptName, cff);
             }
             catch (IOException e)
             {
@@ -264,7 +537,7 @@ final class FileSystemFontProvider implements FontProvider
     }
 
     @Override
-    public synchronized Type1Font getType1Font(String postScriptName)
+    public Type1Font getType1Font(String postScriptName)
     {
         Type1Font type1 = type1Fonts.get(postScriptName);
         if (type1 != null)
@@ -280,12 +553,11 @@ final class FileSystemFontProvider implements FontProvider
             {
                 input = new FileInputStream(file);
                 type1 = Type1Font.createWithPFB(input);
-                type1Fonts.put(postScriptName, type1);
                 if (LOG.isDebugEnabled())
                 {
                     LOG.debug("Loaded " + postScriptName + " from " + file);
                 }
-                return type1;
+                return type1Fonts.put(postScriptName, type1);
             }
             catch (IOException e)
             {
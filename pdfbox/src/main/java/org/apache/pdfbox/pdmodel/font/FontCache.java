@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of loaded fonts, which evicts the least recently used font when it is full.
+ * It may be used by several threads. Fonts are loaded outside of the cache's lock, so that
+ * different fonts can be loaded concurrently; if two threads load the same font, the first one
+ * which is put into the cache is kept.
+ *
+ * Evicted fonts aren't closed, as documents may still be using them. They are released by the
+ * garbage collector once they are no longer in use.
+ *
+ * @param <K> the key, e.g. the PostScript name of the font
+ * @param <V> the loaded font
+ */
+final class FontCache<K, V>
+{
+    private final int maxSize;
+    private final Map<K, V> fonts;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize the maximum number of fonts to keep
+     */
+    FontCache(int maxSize)
+    {
+        this.maxSize = Math.max(1, maxSize);
+        fonts = new LinkedHashMap<K, V>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                if (size() > FontCache.this.maxSize)
+                {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the font with the given key, or null if it isn't in the cache.
+     */
+    synchronized V get(K key)
+    {
+        V font = fonts.get(key);
+        if (font != null)
+        {
+            hits++;
+        }
+        else
+        {
+            misses++;
+        }
+        return font;
+    }
+
+    /**
+     * Adds a font which has been loaded, unless another thread has added one with the same key
+     * in the meantime.
+     *
+     * @return the font in the cache, which is to be used instead of the given one
+     */
+    synchronized V put(K key, V font)
+    {
+        V cached = fonts.get(key);
+        if (cached != null)
+        {
+            return cached;
+        }
+        fonts.put(key, font);
+        return font;
+    }
+
+    /**
+     * Returns the maximum number of fonts in the cache.
+     */
+    int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of fonts in the cache.
+     */
+    synchronized int size()
+    {
+        return fonts.size();
+    }
+
+    /**
+     * Returns the number of lookups which found a font.
+     */
+    synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups which didn't find a font.
+     */
+    synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of fonts which were evicted because the cache was full.
+     */
+    synchronized long getEvictionCount()
+    {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "size=" + fonts.size() + "/" + maxSize + ", hits=" + hits + ", misses=" + misses +
+                ", evictions=" + evictions;
+    }
+}
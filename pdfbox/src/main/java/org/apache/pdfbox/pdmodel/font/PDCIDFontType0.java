@@ -27,7 +27,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.fontbox.cff.CFFCIDFont;
 import org.apache.fontbox.cff.CFFFont;
-import org.apache.fontbox.cff.CFFParser;
 import org.apache.fontbox.cff.CFFType1Font;
 import org.apache.fontbox.cff.Type2CharString;
 import org.apache.fontbox.util.BoundingBox;
@@ -80,8 +79,7 @@ public class PDCIDFontType0 extends PDCIDFont
         if (bytes != null)
         {
             // embedded
-            CFFParser cffParser = new CFFParser();
-            CFFFont cffFont = cffParser.parse(bytes).get(0);
+            CFFFont cffFont = EmbeddedFontCache.load("CFF", bytes, PDType1CFont.CFF_LOADER);
             if (cffFont instanceof CFFCIDFont)
             {
                 cidFont = (CFFCIDFont)cffFont;
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdmodel.font;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -26,7 +27,6 @@ import org.apache.fontbox.ttf.CmapSubtable;
 import org.apache.fontbox.ttf.CmapTable;
 import org.apache.fontbox.ttf.OTFParser;
 import org.apache.fontbox.ttf.OpenTypeFont;
-import org.apache.fontbox.ttf.TTFParser;
 import org.apache.fontbox.ttf.TrueTypeFont;
 import org.apache.fontbox.util.BoundingBox;
 import org.apache.pdfbox.cos.COSBase;
@@ -54,6 +54,18 @@ public class PDCIDFontType2 extends PDCIDFont
     private final boolean isEmbedded;
     private Matrix fontMatrix;
 
+    // parses embedded OpenType fonts
+    private static final EmbeddedFontCache.Loader<OpenTypeFont> OTF_LOADER =
+            new EmbeddedFontCache.Loader<OpenTypeFont>()
+    {
+        @Override
+        OpenTypeFont load(byte[] program) throws IOException
+        {
+            OTFParser otfParser = new OTFParser(true);
+            return otfParser.parse(new ByteArrayInputStream(program));
+        }
+    };
+
     /**
      * Constructor.
      * 
@@ -72,8 +84,8 @@ public class PDCIDFontType2 extends PDCIDFont
             try
             {
                 // embedded
-                TTFParser ttfParser = new TTFParser(true);
-                ttf = ttfParser.parse(ff2Stream.createInputStream());
+                byte[] bytes = IOUtils.toByteArray(ff2Stream.createInputStream());
+                ttf = EmbeddedFontCache.load("TTF", bytes, PDTrueTypeFont.TTF_LOADER);
                 isEmbedded = true;
             }
             catch (NullPointerException e) // TTF parser is buggy
@@ -90,8 +102,8 @@ public class PDCIDFontType2 extends PDCIDFont
             try
             {
                 // embedded
-                OTFParser otfParser = new OTFParser(true);
-                OpenTypeFont otf = otfParser.parse(ff3Stream.createInputStream());
+                byte[] bytes = IOUtils.toByteArray(ff3Stream.createInputStream());
+                OpenTypeFont otf = EmbeddedFontCache.load("OTF", bytes, OTF_LOADER);
                 ttf = otf;
                 isEmbedded = true;
 
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdmodel.font;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -33,6 +34,7 @@ import org.apache.fontbox.ttf.TrueTypeFont;
 import org.apache.fontbox.util.BoundingBox;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.font.encoding.Encoding;
 import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
 import org.apache.pdfbox.pdmodel.font.encoding.MacOSRomanEncoding;
@@ -99,6 +101,18 @@ public class PDTrueTypeFont extends PDSimpleFont
     private final TrueTypeFont ttf;
     private final boolean isEmbedded;
 
+    // parses embedded TrueType fonts
+    static final EmbeddedFontCache.Loader<TrueTypeFont> TTF_LOADER =
+            new EmbeddedFontCache.Loader<TrueTypeFont>()
+    {
+        @Override
+        TrueTypeFont load(byte[] program) throws IOException
+        {
+            TTFParser ttfParser = new TTFParser(true);
+            return ttfParser.parse(new ByteArrayInputStream(program));
+        }
+    };
+
     /**
      * Creates a new TrueType font from a Font dictionary.
      *
@@ -118,8 +132,8 @@ public class PDTrueTypeFont extends PDSimpleFont
                 try
                 {
                     // embedded
-                    TTFParser ttfParser = new TTFParser(true);
-                    ttfFont = ttfParser.parse(ff2Stream.createInputStream());
+                    byte[] bytes = IOUtils.toByteArray(ff2Stream.createInputStream());
+                    ttfFont = EmbeddedFontCache.load("TTF", bytes, TTF_LOADER);
                 }
                 catch (NullPointerException e) // TTF parser is buggy
                 {
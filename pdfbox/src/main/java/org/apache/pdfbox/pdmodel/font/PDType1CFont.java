@@ -28,6 +28,7 @@ import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.fontbox.cff.CFFFont;
 import org.apache.fontbox.cff.CFFParser;
 import org.apache.fontbox.cff.CFFType1Font;
 import org.apache.fontbox.ttf.Type1Equivalent;
@@ -61,6 +62,18 @@ public class PDType1CFont extends PDSimpleFont implements PDType1Equivalent
     private final Type1Equivalent type1Equivalent; // embedded or system font for rendering
     private final boolean isEmbedded;
 
+    // parses embedded CFF fonts
+    static final EmbeddedFontCache.Loader<CFFFont> CFF_LOADER =
+            new EmbeddedFontCache.Loader<CFFFont>()
+    {
+        @Override
+        CFFFont load(byte[] program) throws IOException
+        {
+            CFFParser cffParser = new CFFParser();
+            return cffParser.parse(program).get(0);
+        }
+    };
+
     /**
      * Constructor.
      * 
@@ -83,8 +96,7 @@ public class PDType1CFont extends PDSimpleFont implements PDType1Equivalent
         }
 
         // note: this could be an OpenType file, fortunately CFFParser can handle that
-        CFFParser cffParser = new CFFParser();
-        cffFont = (CFFType1Font)cffParser.parse(bytes).get(0);
+        cffFont = (CFFType1Font)EmbeddedFontCache.load("CFF", bytes, CFF_LOADER);
 
         if (cffFont != null)
         {
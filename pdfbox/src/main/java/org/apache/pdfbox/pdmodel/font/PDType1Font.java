@@ -148,18 +148,27 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
                 try
                 {
                     COSStream stream = fontFile.getStream();
-                    int length1 = stream.getInt(COSName.LENGTH1);
-                    int length2 = stream.getInt(COSName.LENGTH2);
+                    final int length1 = stream.getInt(COSName.LENGTH1);
+                    final int length2 = stream.getInt(COSName.LENGTH2);
 
-                    // repair Length1 if necessary
                     byte[] bytes = fontFile.getByteArray();
-                    length1 = repairLength1(bytes, length1);
+                    t1 = EmbeddedFontCache.load("PFB:" + length1 + ":" + length2, bytes,
+                            new EmbeddedFontCache.Loader<Type1Font>()
+                    {
+                        @Override
+                        Type1Font load(byte[] program) throws IOException
+                        {
+                            // repair Length1 if necessary
+                            int repairedLength1 = repairLength1(program, length1);
 
-                    // the PFB embedded as two segments back-to-back
-                    byte[] segment1 = Arrays.copyOfRange(bytes, 0, length1);
-                    byte[] segment2 = Arrays.copyOfRange(bytes, length1, length1 + length2);
+                            // the PFB embedded as two segments back-to-back
+                            byte[] segment1 = Arrays.copyOfRange(program, 0, repairedLength1);
+                            byte[] segment2 = Arrays.copyOfRange(program, repairedLength1,
+                                                                 repairedLength1 + length2);
 
-                    t1 =  Type1Font.createWithSegments(segment1, segment2);
+                            return Type1Font.createWithSegments(segment1, segment2);
+                        }
+                    });
                 }
                 catch (DamagedFontException e)
                 {
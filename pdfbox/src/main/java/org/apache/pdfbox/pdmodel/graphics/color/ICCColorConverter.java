@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Converts colors from an ICC profile to sRGB, reusing the expensive parts of the conversion.
+ *
+ * Creating the color transform of a profile costs milliseconds, which AWT repeats for every
+ * new {@link ColorConvertOp}. The converter therefore keeps a pool of ops whose transforms have
+ * been created already, and remembers the most recent single color conversions. Converters are
+ * shared process-wide by the SHA-256 digest of their profile data, so that documents which embed
+ * the same profile, or the same document opened several times, use the same transforms. A
+ * collision resistant digest is needed, as a crafted profile must not be able to replace the
+ * converter of another profile for all later documents.
+ *
+ * Instances are thread safe. The AWT color space and its profile are shared, so they are never
+ * handed out, as a caller could change the profile of all documents with it.
+ */
+final class ICCColorConverter
+{
+    // maximum number of converters kept for embedded profiles
+    private static final int MAX_CACHED_PROFILES = 32;
+
+    // number of remembered single color conversions, must be a power of two
+    private static final int MEMO_SIZE = 1024;
+
+    private static final Map<ByteBuffer, ICCColorConverter> CONVERTERS =
+            new LinkedHashMap<ByteBuffer, ICCColorConverter>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ICCColorConverter> eldest)
+        {
+            return size() > MAX_CACHED_PROFILES;
+        }
+    };
+
+    private final ICC_ColorSpace colorSpace;
+    private final Queue<ColorConvertOp> ops = new ConcurrentLinkedQueue<ColorConvertOp>();
+    private final Memo[] memo = new Memo[MEMO_SIZE];
+
+    // a single remembered conversion, immutable so that it can be shared between threads
+    private static final class Memo
+    {
+        private final float[] value;
+        private final float[] rgb;
+
+        private Memo(float[] value, float[] rgb)
+        {
+            this.value = value;
+            this.rgb = rgb;
+        }
+    }
+
+    /**
+     * Returns the shared converter for the given ICC profile data, creating it if necessary.
+     *
+     * @param profileData the ICC profile
+     * @return the converter
+     * @throws IllegalArgumentException if the profile is invalid
+     * @throws java.awt.color.CMMException if the profile can't be used for conversions
+     */
+    static ICCColorConverter getInstance(byte[] profileData)
+    {
+        ByteBuffer key = ByteBuffer.wrap(digest(profileData));
+        synchronized (CONVERTERS)
+        {
+            ICCColorConverter converter = CONVERTERS.get(key);
+            if (converter != null)
+            {
+                return converter;
+            }
+        }
+
+        // the profile is parsed and its transform is created without holding the lock, so that
+        // threads which open other profiles don't have to wait
+        ICC_Profile profile = ICC_Profile.getInstance(profileData);
+        ICCColorConverter converter = new ICCColorConverter(new ICC_ColorSpace(profile));
+        synchronized (CONVERTERS)
+        {
+            // another thread may have created a converter for the same profile meanwhile
+            ICCColorConverter cached = CONVERTERS.get(key);
+            if (cached != null)
+            {
+                return cached;
+            }
+            CONVERTERS.put(key, converter);
+        }
+        return converter;
+    }
+
+    /**
+     * Creates a converter for the given color space, which isn't shared.
+     *
+     * @param colorSpace an ICC color space
+     */
+    ICCColorConverter(ICC_ColorSpace colorSpace)
+    {
+        this.colorSpace = colorSpace;
+
+        // the transform is created lazily by AWT, which isn't thread safe, so we perform an
+        // initial color conversion before the converter is shared, see PDFBOX-2184
+        colorSpace.toRGB(new float[colorSpace.getNumComponents()]);
+    }
+
+    /**
+     * Returns the type of the color space in the ICC profile, see
+     * {@link ICC_Profile#getColorSpaceType()}.
+     */
+    int getColorSpaceType()
+    {
+        return colorSpace.getProfile().getColorSpaceType();
+    }
+
+    /**
+     * Returns the minimum value of the given component in the profile's color space.
+     */
+    float getMinValue(int component)
+    {
+        return colorSpace.getMinValue(component);
+    }
+
+    /**
+     * Returns the maximum value of the given component in the profile's color space.
+     */
+    float getMaxValue(int component)
+    {
+        return colorSpace.getMaxValue(component);
+    }
+
+    /**
+     * Converts a single color value to sRGB.
+     *
+     * @param value the color components
+     * @return the sRGB components in the range 0..1
+     */
+    float[] toRGB(float[] value)
+    {
+        int hash = 1;
+        for (float component : value)
+        {
+            hash = 31 * hash + Float.floatToIntBits(component);
+        }
+        int slot = (hash ^ hash >>> 16) & (MEMO_SIZE - 1);
+
+        Memo entry = memo[slot];
+        if (entry != null && Arrays.equals(entry.value, value))
+        {
+            return entry.rgb.clone();
+        }
+
+        // WARNING: toRGB is very slow when used with LUT-based ICC profiles
+        float[] rgb = colorSpace.toRGB(value);
+        memo[slot] = new Memo(value.clone(), rgb.clone());
+        return rgb;
+    }
+
+    /**
+     * Converts a raster in the profile's color space to an sRGB image.
+     *
+     * @param raster the raster to convert
+     * @return an image of type {@link BufferedImage#TYPE_INT_RGB}
+     */
+    BufferedImage toRGBImage(WritableRaster raster)
+    {
+        // an op keeps the transform of the last conversion, but it mustn't be used by several
+        // threads at once, so every thread takes its own op from the pool
+        ColorConvertOp op = ops.poll();
+        if (op == null)
+        {
+            op = new ColorConvertOp(null);
+        }
+        try
+        {
+            return PDColorSpace.toRGBImageAWT(raster, colorSpace, op);
+        }
+        finally
+        {
+            ops.offer(op);
+        }
+    }
+
+    private static byte[] digest(byte[] data)
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen, every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -220,6 +220,14 @@ public abstract class PDColorSpace implements COSObjectable
      * @return an (A)RGB buffered image
      */
     protected BufferedImage toRGBImageAWT(WritableRaster raster, ColorSpace colorSpace)
+    {
+        return toRGBImageAWT(raster, colorSpace, new ColorConvertOp(null));
+    }
+
+    // converts the raster with the given op, which may keep the transform of an earlier
+    // conversion with the same color space
+    static BufferedImage toRGBImageAWT(WritableRaster raster, ColorSpace colorSpace,
+                                       ColorConvertOp op)
     {
         //
         // WARNING: this method is performance sensitive, modify with care!
@@ -232,7 +240,6 @@ public abstract class PDColorSpace implements COSObjectable
         BufferedImage src = new BufferedImage(colorModel, raster, false, null);
         BufferedImage dest = new BufferedImage(raster.getWidth(), raster.getHeight(),
                                                BufferedImage.TYPE_INT_RGB);
-        ColorConvertOp op = new ColorConvertOp(null);
         op.filter(src, dest);
         return dest;
     }
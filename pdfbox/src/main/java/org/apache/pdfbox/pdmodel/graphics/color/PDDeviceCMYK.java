@@ -52,6 +52,7 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
 
     private final PDColor initialColor = new PDColor(new float[] { 0, 0, 0, 1 }, this);
     private final ICC_ColorSpace awtColorSpace;
+    private final ICCColorConverter converter;
 
     protected PDDeviceCMYK() throws IOException
     {
@@ -64,9 +65,10 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
         awtColorSpace = new ICC_ColorSpace(iccProfile);
 
         // there is a JVM bug which results in a CMMException which appears to be a race
-        // condition caused by lazy initialization of the color transform, so we perform
-        // an initial color conversion while we're still in a static context, see PDFBOX-2184
-        awtColorSpace.toRGB(new float[] { 0, 0, 0, 0 });
+        // condition caused by lazy initialization of the color transform, so the converter
+        // performs an initial color conversion while we're still in a static context,
+        // see PDFBOX-2184
+        converter = new ICCColorConverter(awtColorSpace);
     }
 
     protected ICC_Profile getICCProfile() throws IOException
@@ -118,12 +120,12 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
     @Override
     public float[] toRGB(float[] value)
     {
-        return awtColorSpace.toRGB(value);
+        return converter.toRGB(value);
     }
 
     @Override
     public BufferedImage toRGBImage(WritableRaster raster) throws IOException
     {
-        return toRGBImageAWT(raster, awtColorSpace);
+        return converter.toRGBImage(raster);
     }
 }
@@ -28,9 +28,11 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +47,13 @@ import java.util.Map;
  */
 public class PDDeviceN extends PDSpecialColorSpace
 {
+    // colors of up to this many colorants are converted through a lookup table
+    private static final int MAX_LOOKUP_COLORANTS = 2;
+
+    // colors of up to this many colorants are remembered by their packed samples
+    private static final int MAX_MEMO_COLORANTS = 4;
+    private static final int MAX_MEMO_SIZE = 1 << 16;
+
     // array indexes
     private static final int COLORANT_NAMES = 1;
     private static final int ALTERNATE_CS = 2;
@@ -63,6 +72,9 @@ public class PDDeviceN extends PDSpecialColorSpace
     private PDColorSpace processColorSpace;
     private PDSeparation[] spotColorSpaces;
 
+    // tint transform lookup table, created on first use
+    private int[] rgbLookup;
+
     /**
      * Creates a new DeviceN color space.
      */
@@ -225,27 +237,13 @@ public class PDDeviceN extends PDSpecialColorSpace
             WritableRaster componentRaster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE,
                 width, height, componentColorSpace.getNumberOfComponents(), new Point(0, 0));
 
-            int[] samples = new int[numColorants];
-            int[] componentSamples = new int[componentColorSpace.getNumberOfComponents()];
-            boolean isProcessColorant = colorantToComponent[c] >= 0;
-            int componentIndex = colorantToComponent[c];
+            // process colors go to their component, spot colors to the only component
+            int componentBand = colorantToComponent[c] >= 0 ? colorantToComponent[c] : 0;
+            int[] samples = new int[width];
             for (int y = 0; y < height; y++)
             {
-                for (int x = 0; x < width; x++)
-                {
-                    raster.getPixel(x, y, samples);
-                    if (isProcessColorant)
-                    {
-                        // process color
-                        componentSamples[componentIndex] = samples[c];
-                    }
-                    else
-                    {
-                        // spot color
-                        componentSamples[0] = samples[c];
-                    }
-                    componentRaster.setPixel(x, y, componentSamples);
-                }
+                raster.getSamples(0, y, width, 1, c, samples);
+                componentRaster.setSamples(0, y, width, 1, componentBand, samples);
             }
 
             // convert single-component raster to RGB
@@ -253,22 +251,20 @@ public class PDDeviceN extends PDSpecialColorSpace
             WritableRaster rgbComponentRaster = rgbComponentImage.getRaster();
 
             // combine the RGB component with the RGB composite raster
-            int[] rgbChannel = new int[3];
-            int[] rgbComposite = new int[3];
+            int[] rgbChannel = new int[width * 3];
+            int[] rgbComposite = new int[width * 3];
             for (int y = 0; y < height; y++)
             {
-                for (int x = 0; x < width; x++)
-                {
-                    rgbComponentRaster.getPixel(x, y, rgbChannel);
-                    rgbRaster.getPixel(x, y, rgbComposite);
-
-                    // multiply (blend mode)
-                    rgbChannel[0] = rgbChannel[0] * rgbComposite[0] >> 8;
-                    rgbChannel[1] = rgbChannel[1] * rgbComposite[1] >> 8;
-                    rgbChannel[2] = rgbChannel[2] * rgbComposite[2] >> 8;
+                rgbComponentRaster.getPixels(0, y, width, 1, rgbChannel);
+                rgbRaster.getPixels(0, y, width, 1, rgbComposite);
 
-                    rgbRaster.setPixel(x, y, rgbChannel);
+                // multiply (blend mode)
+                for (int i = 0; i < rgbChannel.length; i++)
+                {
+                    rgbChannel[i] = rgbChannel[i] * rgbComposite[i] >> 8;
                 }
+
+                rgbRaster.setPixels(0, y, width, 1, rgbChannel);
             }
         }
 
@@ -282,45 +278,201 @@ public class PDDeviceN extends PDSpecialColorSpace
     {
         int width = raster.getWidth();
         int height = raster.getHeight();
+        int numSrcComponents = getColorantNames().size();
+        long numPixels = (long) width * height;
+
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+
+        // evaluating the tint transform for every pixel is expensive, so images with more
+        // pixels than there are possible colors are converted through a lookup table, and
+        // images with more colorants are converted once per distinct color
+        if (raster.getNumBands() == numSrcComponents)
+        {
+            if (numSrcComponents <= MAX_LOOKUP_COLORANTS &&
+                numPixels >= 1 << 8 * numSrcComponents)
+            {
+                toRGBWithLookup(raster, numSrcComponents, rgb);
+                return rgbImage;
+            }
+            if (numSrcComponents > MAX_LOOKUP_COLORANTS && numSrcComponents <= MAX_MEMO_COLORANTS)
+            {
+                toRGBWithMemo(raster, numSrcComponents, rgb);
+                return rgbImage;
+            }
+            toRGBByRow(raster, numSrcComponents, rgb);
+            return rgbImage;
+        }
 
         // use the tint transform to convert the sample into
         // the alternate color space (this is usually 1:many)
-        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        WritableRaster rgbRaster = rgbImage.getRaster();
-        int[] rgb = new int[3];
-        int numSrcComponents = getColorantNames().size();
         float[] src = new float[numSrcComponents];
-        for (int y = 0; y < height; y++)
+        float[] alt = new float[alternateColorSpace.getNumberOfComponents()];
+        for (int y = 0, offset = 0; y < height; y++)
         {
-            for (int x = 0; x < width; x++)
+            for (int x = 0; x < width; x++, offset++)
             {
                 raster.getPixel(x, y, src);
+                rgb[offset] = evalRGB(src, alt);
+            }
+        }
+        return rgbImage;
+    }
 
-                int[] intSrc = new int[numSrcComponents];
-                raster.getPixel(x, y, intSrc);
+    // converts the raster by evaluating the tint transform for each row at once
+    private void toRGBByRow(WritableRaster raster, int numSrcComponents, int[] rgb)
+            throws IOException
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int numAltComponents = alternateColorSpace.getNumberOfComponents();
+        float[] src = new float[width * numSrcComponents];
+        float[] alt = new float[width * numAltComponents];
+        float[] altColor = new float[numAltComponents];
+        for (int y = 0, offset = 0; y < height; y++)
+        {
+            raster.getPixels(0, y, width, 1, src);
+            // scale to 0..1
+            for (int i = 0; i < src.length; i++)
+            {
+                src[i] = src[i] / 255;
+            }
+            tintTransform.evalBatch(src, numSrcComponents, alt, numAltComponents, width);
+            for (int x = 0; x < width; x++, offset++)
+            {
+                System.arraycopy(alt, x * numAltComponents, altColor, 0, numAltComponents);
+                rgb[offset] = toPackedRGB(altColor);
+            }
+        }
+    }
 
-                // scale to 0..1
+    // converts 8-bit samples to a packed RGB value via the tint transform, the samples are
+    // scaled to 0..1 in place and the alternate color is written to alt
+    private int evalRGB(float[] src, float[] alt) throws IOException
+    {
+        // scale to 0..1
+        for (int s = 0; s < src.length; s++)
+        {
+            src[s] = src[s] / 255;
+        }
+
+        // convert to alternate color space via tint transform
+        tintTransform.evalBatch(src, src.length, alt, alt.length, 1);
+        return toPackedRGB(alt);
+    }
+
+    // converts a color in the alternate color space to a packed RGB value
+    private int toPackedRGB(float[] alt) throws IOException
+    {
+        // convert from alternate color space to RGB
+        float[] rgbFloat = alternateColorSpace.toRGB(alt);
+
+        // scale to 0..255
+        return ((int) (rgbFloat[0] * 255f) & 0xff) << 16 |
+               ((int) (rgbFloat[1] * 255f) & 0xff) << 8 |
+               ((int) (rgbFloat[2] * 255f) & 0xff);
+    }
+
+    // converts the raster through a table holding the RGB value of every combination of
+    // samples, which is exact
+    private void toRGBWithLookup(WritableRaster raster, int numSrcComponents, int[] rgb)
+            throws IOException
+    {
+        if (rgbLookup == null)
+        {
+            int[] lookup = new int[1 << 8 * numSrcComponents];
+            int numAltComponents = alternateColorSpace.getNumberOfComponents();
+            float[] src = new float[lookup.length * numSrcComponents];
+            for (int i = 0, j = 0; i < lookup.length; i++)
+            {
                 for (int s = 0; s < numSrcComponents; s++)
                 {
-                    src[s] = src[s] / 255;
+                    // scale to 0..1
+                    src[j++] = (float) (i >> 8 * (numSrcComponents - 1 - s) & 0xff) / 255;
                 }
+            }
+            float[] alt = new float[lookup.length * numAltComponents];
+            tintTransform.evalBatch(src, numSrcComponents, alt, numAltComponents, lookup.length);
+            float[] altColor = new float[numAltComponents];
+            for (int i = 0; i < lookup.length; i++)
+            {
+                System.arraycopy(alt, i * numAltComponents, altColor, 0, numAltComponents);
+                lookup[i] = toPackedRGB(altColor);
+            }
+            rgbLookup = lookup;
+        }
 
-                // convert to alternate color space via tint transform
-                float[] result = tintTransform.eval(src);
-                
-                // convert from alternate color space to RGB
-                float[] rgbFloat = alternateColorSpace.toRGB(result);
-                
-                for (int s = 0; s < 3; s++)
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int[] samples = new int[width * numSrcComponents];
+        for (int y = 0, offset = 0; y < height; y++)
+        {
+            raster.getPixels(0, y, width, 1, samples);
+            for (int x = 0, i = 0; x < width; x++, offset++)
+            {
+                int index = 0;
+                for (int s = 0; s < numSrcComponents; s++)
                 {
-                    // scale to 0..255
-                    rgb[s] = (int) (rgbFloat[s] * 255f);
-                }                
+                    index = index << 8 | Math.min(Math.max(samples[i++], 0), 255);
+                }
+                rgb[offset] = rgbLookup[index];
+            }
+        }
+    }
 
-                rgbRaster.setPixel(x, y, rgb);
+    // converts the raster through a hash table of the colors seen so far, keyed by the packed
+    // samples, so that the tint transform is evaluated only once per distinct color
+    private void toRGBWithMemo(WritableRaster raster, int numSrcComponents, int[] rgb)
+            throws IOException
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        long numPixels = (long) width * height;
+        int capacity = Integer.highestOneBit((int) Math.min(numPixels, MAX_MEMO_SIZE)) * 4;
+        int mask = capacity - 1;
+        int[] keys = new int[capacity];
+        int[] values = new int[capacity];
+        Arrays.fill(values, -1);
+        int size = 0;
+
+        int[] samples = new int[width * numSrcComponents];
+        float[] src = new float[numSrcComponents];
+        float[] alt = new float[alternateColorSpace.getNumberOfComponents()];
+        for (int y = 0, offset = 0; y < height; y++)
+        {
+            raster.getPixels(0, y, width, 1, samples);
+            for (int x = 0, i = 0; x < width; x++, offset++)
+            {
+                int key = 0;
+                for (int s = 0; s < numSrcComponents; s++)
+                {
+                    key = key << 8 | Math.min(Math.max(samples[i++], 0), 255);
+                }
+                int h = key * 0x9E3779B9;
+                int slot = (h ^ h >>> 16) & mask;
+                while (values[slot] != -1 && keys[slot] != key)
+                {
+                    slot = slot + 1 & mask;
+                }
+                if (values[slot] != -1)
+                {
+                    rgb[offset] = values[slot];
+                    continue;
+                }
+                for (int s = 0; s < numSrcComponents; s++)
+                {
+                    src[s] = key >> 8 * (numSrcComponents - 1 - s) & 0xff;
+                }
+                int value = evalRGB(src, alt);
+                rgb[offset] = value;
+                if (size < MAX_MEMO_SIZE && size * 2 < capacity)
+                {
+                    keys[slot] = key;
+                    values[slot] = value;
+                    size++;
+                }
             }
         }
-        return rgbImage;
     }
 
     @Override
@@ -467,6 +619,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     {
         COSArray namesArray = COSArrayList.convertStringListToCOSNameCOSArray(names);
         array.set(COLORANT_NAMES, namesArray);
+        rgbLookup = null;
     }
 
     /**
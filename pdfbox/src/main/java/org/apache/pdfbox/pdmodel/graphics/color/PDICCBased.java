@@ -30,10 +30,8 @@ import org.apache.pdfbox.pdmodel.common.COSArrayList;
 import org.apache.pdfbox.pdmodel.common.PDRange;
 import org.apache.pdfbox.pdmodel.common.PDStream;
 
-import java.awt.Color;
 import java.awt.color.CMMException;
-import java.awt.color.ICC_ColorSpace;
-import java.awt.color.ICC_Profile;
+import java.awt.color.ColorSpace;
 import java.awt.color.ProfileDataException;
 import java.awt.image.BufferedImage;
 
@@ -57,9 +55,9 @@ public final class PDICCBased extends PDCIEBasedColorSpace
 
     private PDStream stream;
     private int numberOfComponents = -1;
-    private ICC_Profile iccProfile;
     private PDColorSpace alternateColorSpace;
-    private ICC_ColorSpace awtColorSpace;
+    // shared by all color spaces with the same profile data, null if the profile is invalid
+    private ICCColorConverter converter;
     private PDColor initialColor;
 
     /**
@@ -106,8 +104,10 @@ public final class PDICCBased extends PDCIEBasedColorSpace
         try
         {
             profile = stream.createInputStream();
-            iccProfile = ICC_Profile.getInstance(profile);
-            awtColorSpace = new ICC_ColorSpace(iccProfile);
+
+            // the converter, along with its color transforms, is shared by all color spaces
+            // with the same profile data
+            converter = ICCColorConverter.getInstance(IOUtils.toByteArray(profile));
 
             // set initial colour
             float[] initial = new float[getNumberOfComponents()];
@@ -117,9 +117,9 @@ public final class PDICCBased extends PDCIEBasedColorSpace
             }
             initialColor = new PDColor(initial, this);
 
-            // create a color in order to trigger a ProfileDataException
+            // convert a color in order to trigger a ProfileDataException
             // or CMMException due to invalid profiles, see PDFBOX-1295 and PDFBOX-1740
-            new Color(awtColorSpace, new float[getNumberOfComponents()], 1f);
+            converter.toRGB(new float[getNumberOfComponents()]);
         }
         catch (RuntimeException e)
         {
@@ -128,7 +128,7 @@ public final class PDICCBased extends PDCIEBasedColorSpace
                 e instanceof IllegalArgumentException)
             {
                 // fall back to alternateColorSpace color space
-                awtColorSpace = null;
+                converter = null;
                 alternateColorSpace = getAlternateColorSpace();
                 LOG.error("Can't read embedded ICC profile, using alternate color space: " + alternateColorSpace.getName());
                 initialColor = alternateColorSpace.getInitialColor();
@@ -147,10 +147,9 @@ public final class PDICCBased extends PDCIEBasedColorSpace
     @Override
     public float[] toRGB(float[] value) throws IOException
     {
-        if (awtColorSpace != null)
+        if (converter != null)
         {
-            // WARNING: toRGB is very slow when used with LUT-based ICC profiles
-            return awtColorSpace.toRGB(value);
+            return converter.toRGB(value);
         }
         else
         {
@@ -161,9 +160,9 @@ public final class PDICCBased extends PDCIEBasedColorSpace
     @Override
     public BufferedImage toRGBImage(WritableRaster raster) throws IOException
     {
-        if (awtColorSpace != null)
+        if (converter != null)
         {
-            return toRGBImageAWT(raster, awtColorSpace);
+            return converter.toRGBImage(raster);
         }
         else
         {
@@ -184,14 +183,14 @@ public final class PDICCBased extends PDCIEBasedColorSpace
     @Override
     public float[] getDefaultDecode(int bitsPerComponent)
     {
-        if (awtColorSpace != null)
+        if (converter != null)
         {
             int n = getNumberOfComponents();
             float[] decode = new float[n * 2];
             for (int i = 0; i < n; i++)
             {
-                decode[i * 2] = awtColorSpace.getMinValue(i);
-                decode[i * 2 + 1] = awtColorSpace.getMaxValue(i);
+                decode[i * 2] = converter.getMinValue(i);
+                decode[i * 2 + 1] = converter.getMaxValue(i);
             }
             return decode;
         }
@@ -293,7 +292,20 @@ public final class PDICCBased extends PDCIEBasedColorSpace
      */
     public int getColorSpaceType()
     {
-        return iccProfile.getColorSpaceType();
+        if (converter != null)
+        {
+            return converter.getColorSpaceType();
+        }
+        // the profile can't be used, so it is the type of the alternate color space
+        switch (alternateColorSpace.getNumberOfComponents())
+        {
+            case 1:
+                return ColorSpace.TYPE_GRAY;
+            case 4:
+                return ColorSpace.TYPE_CMYK;
+            default:
+                return ColorSpace.TYPE_RGB;
+        }
     }
 
     /**
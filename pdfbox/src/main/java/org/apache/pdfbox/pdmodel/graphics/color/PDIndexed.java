@@ -19,6 +19,7 @@ package org.apache.pdfbox.pdmodel.graphics.color;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
@@ -51,6 +52,7 @@ public final class PDIndexed extends PDSpecialColorSpace
     private float[][] colorTable;
     private int actualMaxIndex;
     private int[][] rgbColorTable;
+    private int[] rgbLookup;
 
     /**
      * Creates a new Indexed color space.
@@ -129,11 +131,14 @@ public final class PDIndexed extends PDSpecialColorSpace
 
         // build an RGB lookup table from the raster
         rgbColorTable = new int[actualMaxIndex + 1][3];
+        rgbLookup = new int[actualMaxIndex + 1];
         int[] nil = null;
 
         for (int i = 0, n = actualMaxIndex; i <= n; i++)
         {
-            rgbColorTable[i] = rgbRaster.getPixel(i, 0, nil);
+            int[] rgb = rgbRaster.getPixel(i, 0, nil);
+            rgbColorTable[i] = rgb;
+            rgbLookup[i] = (rgb[0] & 0xff) << 16 | (rgb[1] & 0xff) << 8 | rgb[2] & 0xff;
         }
     }
 
@@ -169,18 +174,17 @@ public final class PDIndexed extends PDSpecialColorSpace
         int height = raster.getHeight();
 
         BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        WritableRaster rgbRaster = rgbImage.getRaster();
+        int[] rgb = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
 
-        int[] src = new int[1];
-        for (int y = 0; y < height; y++)
+        // look up whole rows, writing the packed values directly into the image
+        int[] src = new int[width];
+        for (int y = 0, offset = 0; y < height; y++)
         {
-            for (int x = 0; x < width; x++)
+            raster.getSamples(0, y, width, 1, 0, src);
+            for (int x = 0; x < width; x++, offset++)
             {
-                raster.getPixel(x, y, src);
-
-                // lookup
-                int index = Math.min(src[0], actualMaxIndex);
-                rgbRaster.setPixel(x, y, rgbColorTable[index]);
+                int index = Math.min(Math.max(src[x], 0), actualMaxIndex);
+                rgb[offset] = rgbLookup[index];
             }
         }
 
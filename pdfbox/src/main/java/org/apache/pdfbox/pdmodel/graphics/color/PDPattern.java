@@ -154,9 +154,10 @@ public final class PDPattern extends PDSpecialColorSpace
             Matrix patternMatrix = shadingPattern.getMatrix();
             if (patternMatrix == null)
             {
-                return shading.toPaint(substreamMatrix);
+                return shading.toPaint(substreamMatrix, renderer.getShadingCache());
             }
-            return shading.toPaint(patternMatrix.multiply(substreamMatrix));
+            return shading.toPaint(patternMatrix.multiply(substreamMatrix),
+                    renderer.getShadingCache());
         }
     }
 
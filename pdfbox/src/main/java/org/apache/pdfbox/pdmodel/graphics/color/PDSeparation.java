@@ -19,11 +19,10 @@ package org.apache.pdfbox.pdmodel.graphics.color;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -52,6 +51,9 @@ public class PDSeparation extends PDSpecialColorSpace
     private PDColorSpace alternateColorSpace = null;
     private PDFunction tintTransform = null;
 
+    // lookup table from tints to packed RGB, created on first use
+    private int[] rgbLookup;
+
     /**
      * Creates a new Separation color space.
      */
@@ -110,38 +112,64 @@ public class PDSeparation extends PDSpecialColorSpace
     @Override
     public BufferedImage toRGBImage(WritableRaster raster) throws IOException
     {
-        // use the tint transform to convert the sample into
-        // the alternate color space (this is usually 1:many)
-        WritableRaster altRaster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE,
-                raster.getWidth(), raster.getHeight(),
-                alternateColorSpace.getNumberOfComponents(),
-                new Point(0, 0));
-
-        int numAltComponents = alternateColorSpace.getNumberOfComponents();
+        // the samples are 8-bit tints, so every pixel is looked up in the RGB table
+        int[] lookup = getRGBLookup();
         int width = raster.getWidth();
         int height = raster.getHeight();
-        float[] samples = new float[1];
 
-        Map<Integer, int[]> calculatedValues = new HashMap<Integer, int[]>();
-        Integer hash;
-        for (int y = 0; y < height; y++)
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+        int[] tints = new int[width];
+        for (int y = 0, offset = 0; y < height; y++)
         {
-            for (int x = 0; x < width; x++)
+            raster.getSamples(0, y, width, 1, 0, tints);
+            for (int x = 0; x < width; x++, offset++)
             {
-                raster.getPixel(x, y, samples);
-                int alt[] = calculatedValues.get(hash = Float.floatToIntBits(samples[0]));
-                if (alt == null)
-                {
-                    alt = new int[numAltComponents];
-                    tintTransform(samples, alt);
-                    calculatedValues.put(hash, alt);
-                }                
-                altRaster.setPixel(x, y, alt);
+                rgb[offset] = lookup[Math.min(Math.max(tints[x], 0), 255)];
             }
         }
+        return rgbImage;
+    }
+
+    // returns the lookup table from 8-bit tints to packed RGB values, which is created by
+    // converting all 256 tints to the alternate color space and that to RGB, once
+    private int[] getRGBLookup() throws IOException
+    {
+        if (rgbLookup == null)
+        {
+            // use the tint transform to convert the sample into
+            // the alternate color space (this is usually 1:many)
+            int numAltComponents = alternateColorSpace.getNumberOfComponents();
+            WritableRaster altRaster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 256, 1,
+                    numAltComponents, new Point(0, 0));
+            float[] samples = new float[256];
+            for (int i = 0; i < 256; i++)
+            {
+                samples[i] = i / 255f; // 0..1
+            }
+            float[] altColors = new float[256 * numAltComponents];
+            tintTransform.evalBatch(samples, 1, altColors, numAltComponents, 256);
+            int[] alt = new int[numAltComponents];
+            for (int i = 0; i < 256; i++)
+            {
+                for (int s = 0; s < numAltComponents; s++)
+                {
+                    // scale to 0..255
+                    alt[s] = (int) (altColors[i * numAltComponents + s] * 255);
+                }
+                altRaster.setPixel(i, 0, alt);
+            }
 
-        // convert the alternate color space to RGB
-        return alternateColorSpace.toRGBImage(altRaster);
+            // convert the alternate color space to RGB
+            BufferedImage rgbImage = alternateColorSpace.toRGBImage(altRaster);
+            int[] lookup = new int[256];
+            for (int i = 0; i < 256; i++)
+            {
+                lookup[i] = rgbImage.getRGB(i, 0) & 0xffffff;
+            }
+            rgbLookup = lookup;
+        }
+        return rgbLookup;
     }
 
     protected void tintTransform(float samples[], int alt[]) throws IOException
@@ -181,6 +209,7 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace colorSpace)
     {
         alternateColorSpace = colorSpace;
+        rgbLookup = null;
         COSBase space = null;
         if (colorSpace != null)
         {
@@ -196,6 +225,7 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setTintTransform(PDFunction tint)
     {
         tintTransform = tint;
+        rgbLookup = null;
         array.set(TINT_TRANSFORM, tint);
     }
 
@@ -22,6 +22,7 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSFloat;
 import org.apache.pdfbox.cos.COSName;
@@ -128,16 +129,17 @@ public final class PDFormXObject extends PDXObject
     /**
      * This will get the resources at this page and not look up the hierarchy.
      * This attribute is inheritable, and findResources() should probably used.
-     * This will return null if no resources are available at this level.
+     * This will return null if no resources are available at this level, or if the entry isn't
+     * a dictionary.
      * @return The resources at this level in the hierarchy.
      */
     public PDResources getResources()
     {
         PDResources retval = null;
-        COSDictionary resources = (COSDictionary) getCOSStream().getDictionaryObject(COSName.RESOURCES);
-        if (resources != null)
+        COSBase resources = getCOSStream().getDictionaryObject(COSName.RESOURCES);
+        if (resources instanceof COSDictionary)
         {
-            retval = new PDResources(resources);
+            retval = new PDResources((COSDictionary) resources);
             // check for a possible recursion
             if (name != null)
             {
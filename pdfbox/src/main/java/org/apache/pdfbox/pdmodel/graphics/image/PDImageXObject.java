@@ -53,6 +53,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     private static final Log LOG = LogFactory.getLog(PDImageXObject.class);
 
     private BufferedImage cachedImage;
+    private int cachedSubsampling;
     private PDColorSpace colorSpace;
     private Map<String, PDColorSpace> colorSpaces;  // from current resource dictionary
 
@@ -112,7 +113,19 @@ public final class PDImageXObject extends PDXObject implements PDImage
      */
     public PDImageXObject(PDStream stream, Map<String, PDColorSpace> colorSpaces) throws IOException
     {
-        this(stream, colorSpaces, stream.getStream().getDecodeResult());
+        this(stream, colorSpaces, getDecodeResult(stream));
+    }
+
+    // only the JPX filter repairs the stream parameters, other streams don't need to be
+    // decoded before their data is read, which may then be subsampled
+    private static DecodeResult getDecodeResult(PDStream stream) throws IOException
+    {
+        List<COSName> filters = stream.getFilters();
+        if (filters != null && filters.contains(COSName.JPX_DECODE))
+        {
+            return stream.getStream().getDecodeResult();
+        }
+        return DecodeResult.DEFAULT;
     }
 
     // repairs parameters using decode result
@@ -179,19 +192,36 @@ public final class PDImageXObject extends PDXObject implements PDImage
     @Override
     public BufferedImage getImage() throws IOException
     {
-        if (cachedImage != null)
+        return getImage(1);
+    }
+
+    /**
+     * Returns the content of this image as an AWT buffered image with an (A)RGB color space,
+     * reading only every n-th row and column. This is much cheaper for large images which are
+     * drawn at a small size. The returned image has the dimensions of this image divided by the
+     * subsampling factor, rounded up. Masks are subsampled by the same factor.
+     * The image most recently returned is cached for the lifetime of this XObject, together
+     * with its subsampling factor.
+     * @param subsampling the subsampling factor, 1 for the full image
+     * @return content of this image as a buffered image.
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage getImage(int subsampling) throws IOException
+    {
+        if (cachedImage != null && cachedSubsampling == subsampling)
         {
             return cachedImage;
         }
 
         // get image as RGB
-        BufferedImage image = SampledImageReader.getRGBImage(this, getColorKeyMask());
+        BufferedImage image = SampledImageReader.getRGBImage(this, subsampling,
+                getColorKeyMask());
 
         // soft mask (overrides explicit mask)
         PDImageXObject softMask = getSoftMask();
         if (softMask != null)
         {
-            image = applyMask(image, softMask.getOpaqueImage(), true);
+            image = applyMask(image, softMask.getOpaqueImage(subsampling), true);
         }
         else
         {
@@ -199,11 +229,12 @@ public final class PDImageXObject extends PDXObject implements PDImage
             PDImageXObject mask = getMask();
             if (mask != null)
             {
-                image = applyMask(image, mask.getOpaqueImage(), false);
+                image = applyMask(image, mask.getOpaqueImage(subsampling), false);
             }
         }
 
         cachedImage = image;
+        cachedSubsampling = subsampling;
         return image;
     }
 
@@ -229,7 +260,19 @@ public final class PDImageXObject extends PDXObject implements PDImage
      */
     public BufferedImage getOpaqueImage() throws IOException
     {
-        return SampledImageReader.getRGBImage(this, null);
+        return getOpaqueImage(1);
+    }
+
+    /**
+     * Returns an RGB buffered image containing the opaque image stream without any masks applied,
+     * reading only every n-th row and column.
+     * @param subsampling the subsampling factor, 1 for the full image
+     * @return the image without any masks applied
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage getOpaqueImage(int subsampling) throws IOException
+    {
+        return SampledImageReader.getRGBImage(this, subsampling, null);
     }
 
     // explicit mask: RGB + Binary -> ARGB
@@ -265,6 +265,20 @@ public final class PDInlineImage implements PDImage
         return SampledImageReader.getRGBImage(this, getColorKeyMask());
     }
 
+    /**
+     * Returns the content of this image as an AWT buffered image with an (A)RGB color space,
+     * reading only every n-th row and column. This is much cheaper for large images which are
+     * drawn at a small size. The returned image has the dimensions of this image divided by the
+     * subsampling factor, rounded up.
+     * @param subsampling the subsampling factor, 1 for the full image
+     * @return content of this image as a buffered image.
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage getImage(int subsampling) throws IOException
+    {
+        return SampledImageReader.getRGBImage(this, subsampling, getColorKeyMask());
+    }
+
     @Override
     public BufferedImage getStencilImage(Paint paint) throws IOException
     {
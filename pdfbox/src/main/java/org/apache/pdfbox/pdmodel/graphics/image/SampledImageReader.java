@@ -24,6 +24,7 @@ import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -35,9 +36,8 @@ import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
 
-import javax.imageio.stream.ImageInputStream;
-import javax.imageio.stream.MemoryCacheImageInputStream;
 import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.filter.DecodeOptions;
 import org.apache.pdfbox.pdmodel.common.PDMemoryStream;
 
 /**
@@ -48,6 +48,9 @@ final class SampledImageReader
 {
     private static final Log LOG = LogFactory.getLog(SampledImageReader.class);
 
+    // maximum depth for which samples are decoded with lookup tables
+    private static final int MAX_LUT_BITS = 16;
+
     /**
      * Returns an ARGB image filled with the given paint and using the given image as a mask.
      * @param paint the paint to fill the visible portions of the image with
@@ -107,6 +110,25 @@ final class SampledImageReader
      * @throws IOException if the image cannot be read
      */
     public static BufferedImage getRGBImage(PDImage pdImage, COSArray colorKey) throws IOException
+    {
+        return getRGBImage(pdImage, 1, colorKey);
+    }
+
+    /**
+     * Returns the content of the given image as an AWT buffered image with an RGB color space,
+     * reading only every n-th row and column. The returned image has the dimensions of the
+     * image divided by the subsampling factor, rounded up. If the image filter supports it, the
+     * subsampling is already applied while decoding the stream.
+     * If a color key mask is provided then an ARGB image is returned instead.
+     * This method never returns null.
+     * @param pdImage the image to read
+     * @param subsampling the subsampling factor, 1 to read the full image
+     * @param colorKey an optional color key mask
+     * @return content of this image as an RGB buffered image
+     * @throws IOException if the image cannot be read
+     */
+    public static BufferedImage getRGBImage(PDImage pdImage, int subsampling, COSArray colorKey)
+            throws IOException
     {
         if (pdImage.getStream() instanceof PDMemoryStream)
         {
@@ -124,256 +146,346 @@ final class SampledImageReader
         // get parameters, they must be valid or have been repaired
         final PDColorSpace colorSpace = pdImage.getColorSpace();
         final int numComponents = colorSpace.getNumberOfComponents();
-        final int width = pdImage.getWidth();
-        final int height = pdImage.getHeight();
         final int bitsPerComponent = pdImage.getBitsPerComponent();
         final float[] decode = getDecodeArray(pdImage);
 
-        //
-        // An AWT raster must use 8/16/32 bits per component. Images with < 8bpc
-        // will be unpacked into a byte-backed raster. Images with 16bpc will be reduced
-        // in depth to 8bpc as they will be drawn to TYPE_INT_RGB images anyway. All code
-        // in PDColorSpace#toRGBImage expects and 8-bit range, i.e. 0-255.
-        //
-        WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, width, height,
-                numComponents, new Point(0, 0));
-
-        // convert image, faster path for non-decoded, non-colormasked 8-bit images
-        final float[] defaultDecode = pdImage.getColorSpace().getDefaultDecode(8);
-        if (bitsPerComponent == 8 && Arrays.equals(decode, defaultDecode) && colorKey == null)
-        {
-            return from8bit(pdImage, raster);
-        }
-        else if (bitsPerComponent == 1 && colorKey == null)
+        // subsampling can't go below a single row or column
+        subsampling = Math.max(1, Math.min(subsampling,
+                Math.min(pdImage.getWidth(), pdImage.getHeight())));
+        final int width = (pdImage.getWidth() + subsampling - 1) / subsampling;
+        final int height = (pdImage.getHeight() + subsampling - 1) / subsampling;
+
+        InputStream input = null;
+        try
         {
-            return from1Bit(pdImage, raster);
+            DecodeOptions options = new DecodeOptions(subsampling);
+            input = pdImage.getStream().createInputStream(options);
+
+            // the rows and columns which the filter didn't skip are skipped while reading
+            final int step = options.isFilterSubsampled() ? 1 : subsampling;
+
+            //
+            // An AWT raster must use 8/16/32 bits per component. Images with < 8bpc
+            // will be unpacked into a byte-backed raster. Images with 16bpc will be reduced
+            // in depth to 8bpc as they will be drawn to TYPE_INT_RGB images anyway. All code
+            // in PDColorSpace#toRGBImage expects and 8-bit range, i.e. 0-255.
+            //
+            WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, width, height,
+                    numComponents, new Point(0, 0));
+
+            // convert image, faster path for non-decoded, non-colormasked 8-bit images
+            final float[] defaultDecode = pdImage.getColorSpace().getDefaultDecode(8);
+            if (step == 1 && bitsPerComponent == 8 && Arrays.equals(decode, defaultDecode) &&
+                colorKey == null)
+            {
+                return from8bit(pdImage, input, raster);
+            }
+            else if (step == 1 && bitsPerComponent == 1 && numComponents == 1 && colorKey == null)
+            {
+                return from1Bit(pdImage, input, raster);
+            }
+            else
+            {
+                return fromAny(pdImage, input, raster, colorKey, step);
+            }
         }
-        else
+        finally
         {
-            return fromAny(pdImage, raster, colorKey);
+            IOUtils.closeQuietly(input);
         }
     }
     
-    private static BufferedImage from1Bit(PDImage pdImage, WritableRaster raster)
-            throws IOException
+    private static BufferedImage from1Bit(PDImage pdImage, InputStream iis,
+                                          WritableRaster raster) throws IOException
     {
         final PDColorSpace colorSpace = pdImage.getColorSpace();
-        final int width = pdImage.getWidth();
-        final int height = pdImage.getHeight();
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
         final float[] decode = getDecodeArray(pdImage);
         byte[] output = ((DataBufferByte) raster.getDataBuffer()).getData();
 
         // read bit stream
-        InputStream iis = null;
-        try
-        {
-            // create stream
-            iis = pdImage.getStream().createInputStream();
-            final boolean isIndexed = colorSpace instanceof PDIndexed;
+        final boolean isIndexed = colorSpace instanceof PDIndexed;
 
-            int rowLen = width / 8;
-            if (width % 8 > 0)
-            {
-                rowLen++;
-            }
+        int rowLen = width / 8;
+        if (width % 8 > 0)
+        {
+            rowLen++;
+        }
 
-            // read stream
-            byte value0;
-            byte value1;
-            if (isIndexed || decode[0] < decode[1])
-            {
-                value0 = 0;
-                value1 = (byte) 255;
-            }
-            else
-            {
-                value0 = (byte) 255;
-                value1 = 0;
-            }
-            byte[] buff = new byte[rowLen];
-            int idx = 0;
-            for (int y = 0; y < height; y++)
+        // read stream
+        byte value0;
+        byte value1;
+        if (isIndexed || decode[0] < decode[1])
+        {
+            value0 = 0;
+            value1 = (byte) 255;
+        }
+        else
+        {
+            value0 = (byte) 255;
+            value1 = 0;
+        }
+        byte[] buff = new byte[rowLen];
+        int idx = 0;
+        for (int y = 0; y < height; y++)
+        {
+            int x = 0;
+            iis.read(buff);
+            for (int r = 0; r < rowLen; r++)
             {
-                int x = 0;
-                iis.read(buff);
-                for (int r = 0; r < rowLen; r++)
+                int value = buff[r];
+                int mask = 128;
+                for (int i = 0; i < 8; i++)
                 {
-                    int value = buff[r];
-                    int mask = 128;
-                    for (int i = 0; i < 8; i++)
+                    int bit = value & mask;
+                    mask >>= 1;
+                    output[idx++] = bit == 0 ? value0 : value1;
+                    x++;
+                    if (x == width)
                     {
-                        int bit = value & mask;
-                        mask >>= 1;
-                        output[idx++] = bit == 0 ? value0 : value1;
-                        x++;
-                        if (x == width)
-                        {
-                            break;
-                        }
+                        break;
                     }
                 }
             }
+        }
 
-            // use the color space to convert the image to RGB
-            BufferedImage rgbImage = colorSpace.toRGBImage(raster);
+        // use the color space to convert the image to RGB
+        BufferedImage rgbImage = colorSpace.toRGBImage(raster);
 
-            return rgbImage;
-        }
-        finally
-        {
-            if (iis != null)
-            {
-                iis.close();
-            }
-        }
+        return rgbImage;
     }
 
     // faster, 8-bit non-decoded, non-colormasked image conversion
-    private static BufferedImage from8bit(PDImage pdImage, WritableRaster raster)
-            throws IOException
+    private static BufferedImage from8bit(PDImage pdImage, InputStream input,
+                                          WritableRaster raster) throws IOException
     {
-        InputStream input = pdImage.getStream().createInputStream();
-        try
-        {
-            // get the raster's underlying byte buffer
-            byte[][] banks = ((DataBufferByte) raster.getDataBuffer()).getBankData();
-            byte[] source = IOUtils.toByteArray(input);
+        // get the raster's underlying byte buffer
+        byte[][] banks = ((DataBufferByte) raster.getDataBuffer()).getBankData();
+        byte[] source = IOUtils.toByteArray(input);
 
-            final int width = pdImage.getWidth();
-            final int height = pdImage.getHeight();
-            final int numComponents = pdImage.getColorSpace().getNumberOfComponents();
-            int max = width * height;
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
+        final int numComponents = pdImage.getColorSpace().getNumberOfComponents();
+        int max = width * height;
 
-            for (int c = 0; c < numComponents; c++)
+        for (int c = 0; c < numComponents; c++)
+        {
+            int sourceOffset = c;
+            for (int i = 0; i < max; i++)
             {
-                int sourceOffset = c;
-                for (int i = 0; i < max; i++)
-                {
-                    banks[c][i] = source[sourceOffset];
-                    sourceOffset += numComponents;
-                }
+                banks[c][i] = source[sourceOffset];
+                sourceOffset += numComponents;
             }
-
-            // use the color space to convert the image to RGB
-            return pdImage.getColorSpace().toRGBImage(raster);
-        }
-        finally
-        {
-            IOUtils.closeQuietly(input);
         }
+
+        // use the color space to convert the image to RGB
+        return pdImage.getColorSpace().toRGBImage(raster);
     }    
     
-    // slower, general-purpose image conversion from any image format
-    private static BufferedImage fromAny(PDImage pdImage, WritableRaster raster, COSArray colorKey)
-            throws IOException
+    // general-purpose image conversion from any image format, unpacks one row at a time and
+    // decodes the samples with a lookup table per component. Only every step-th row and column
+    // of the stream is read into the raster.
+    private static BufferedImage fromAny(PDImage pdImage, InputStream input, WritableRaster raster,
+                                         COSArray colorKey, int step) throws IOException
     {
         final PDColorSpace colorSpace = pdImage.getColorSpace();
         final int numComponents = colorSpace.getNumberOfComponents();
-        final int width = pdImage.getWidth();
-        final int height = pdImage.getHeight();
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
         final int bitsPerComponent = pdImage.getBitsPerComponent();
         final float[] decode = getDecodeArray(pdImage);
+        final boolean isIndexed = colorSpace instanceof PDIndexed;
 
-        // read bit stream
-        ImageInputStream iis = null;
-        try
+        // the raster is banded, one byte per sample and component
+        byte[][] banks = ((DataBufferByte) raster.getDataBuffer()).getBankData();
+
+        // lookup tables from the raw sample value to the decoded byte, if the depth allows it
+        byte[][] luts = null;
+        if (bitsPerComponent <= MAX_LUT_BITS)
         {
-            // create stream
-            iis = new MemoryCacheImageInputStream(pdImage.getStream().createInputStream());
-            final float sampleMax = (float)Math.pow(2, bitsPerComponent) - 1f;
-            final boolean isIndexed = colorSpace instanceof PDIndexed;
-
-            // init color key mask
-            float[] colorKeyRanges = null;
-            BufferedImage colorKeyMask = null;
-            if (colorKey != null)
+            luts = new byte[numComponents][];
+            for (int c = 0; c < numComponents; c++)
             {
-                colorKeyRanges = colorKey.toFloatArray();
-                colorKeyMask = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+                luts[c] = createDecodeTable(decode, c, bitsPerComponent, isIndexed);
             }
+        }
+        final float sampleMax = (float)Math.pow(2, bitsPerComponent) - 1f;
 
-            // calculate row padding
-            int padding = 0;
-            if (width * numComponents * bitsPerComponent % 8 > 0)
+        // init color key mask
+        float[] colorKeyRanges = null;
+        BufferedImage colorKeyMask = null;
+        byte[] alpha = null;
+        if (colorKey != null)
+        {
+            colorKeyRanges = colorKey.toFloatArray();
+            colorKeyMask = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            alpha = ((DataBufferByte) colorKeyMask.getRaster().getDataBuffer()).getData();
+        }
+
+        // read stream, rows are padded to the nearest byte
+        final int sourceWidth = step == 1 ? width : pdImage.getWidth();
+        final int samplesPerRow = sourceWidth * numComponents;
+        final int pixelStep = step * numComponents;
+        byte[] row = new byte[(int) (((long) samplesPerRow * bitsPerComponent + 7) / 8)];
+        int[] samples = new int[samplesPerRow];
+        int idx = 0;
+        for (int y = 0; y < height; y++)
+        {
+            if (IOUtils.populateBuffer(input, row) < row.length)
             {
-                padding = 8 - (width * numComponents * bitsPerComponent % 8);
+                throw new EOFException("Image data ends in row " + y * step);
             }
+            unpackRow(row, bitsPerComponent, samples, samplesPerRow);
 
-            // read stream
-            byte[] srcColorValues = new byte[numComponents];
-            byte[] alpha = new byte[1];
-            for (int y = 0; y < height; y++)
+            for (int x = 0, pixel = 0; x < width; x++, idx++, pixel += pixelStep)
             {
-                for (int x = 0; x < width; x++)
+                boolean isMasked = true;
+                for (int c = 0, s = pixel; c < numComponents; c++, s++)
                 {
-                    boolean isMasked = true;
-                    for (int c = 0; c < numComponents; c++)
+                    int value = samples[s];
+
+                    // color key mask requires values before they are decoded
+                    if (colorKeyRanges != null)
                     {
-                        int value = (int)iis.readBits(bitsPerComponent);
+                        isMasked &= value >= colorKeyRanges[c * 2] &&
+                                    value <= colorKeyRanges[c * 2 + 1];
+                    }
 
-                        // color key mask requires values before they are decoded
-                        if (colorKeyRanges != null)
-                        {
-                            isMasked &= value >= colorKeyRanges[c * 2] &&
-                                        value <= colorKeyRanges[c * 2 + 1];
-                        }
+                    if (luts != null)
+                    {
+                        banks[c][idx] = luts[c][value];
+                    }
+                    else
+                    {
+                        banks[c][idx] = decodeSample(value, decode[c * 2], decode[c * 2 + 1],
+                                sampleMax, isIndexed);
+                    }
+                }
 
-                        // decode array
-                        final float dMin = decode[c * 2];
-                        final float dMax = decode[(c * 2) + 1];
+                // set alpha channel in color key mask, if any
+                if (alpha != null)
+                {
+                    alpha[idx] = (byte)(isMasked ? 255 : 0);
+                }
+            }
 
-                        // interpolate to domain
-                        float output = dMin + (value * ((dMax - dMin) / sampleMax));
+            // skip the rows in between, the last row read needs no skipping
+            if (y < height - 1)
+            {
+                for (int i = 1; i < step; i++)
+                {
+                    IOUtils.populateBuffer(input, row);
+                }
+            }
+        }
 
-                        if (isIndexed)
-                        {
-                            // indexed color spaces get the raw value, because the TYPE_BYTE
-                            // below cannot be reversed by the color space without it having
-                            // knowledge of the number of bits per component
-                            srcColorValues[c] = (byte)Math.round(output);
-                        }
-                        else
-                        {
-                            // interpolate to TYPE_BYTE
-                            int outputByte = Math.round(((output - Math.min(dMin, dMax)) /
-                                    Math.abs(dMax - dMin)) * 255f);
+        // use the color space to convert the image to RGB
+        BufferedImage rgbImage = colorSpace.toRGBImage(raster);
 
-                            srcColorValues[c] = (byte)outputByte;
-                        }
-                    }
-                    raster.setDataElements(x, y, srcColorValues);
+        // apply color mask, if any
+        if (colorKeyMask != null)
+        {
+            return applyColorKeyMask(rgbImage, colorKeyMask);
+        }
+        else
+        {
+            return rgbImage;
+        }
+    }
 
-                    // set alpha channel in color key mask, if any
-                    if (colorKeyMask != null)
+    // unpacks the first count samples of a byte aligned row of the given depth
+    static void unpackRow(byte[] row, int bitsPerComponent, int[] samples, int count)
+    {
+        switch (bitsPerComponent)
+        {
+            case 8:
+                for (int i = 0; i < count; i++)
+                {
+                    samples[i] = row[i] & 0xff;
+                }
+                break;
+            case 16:
+                for (int i = 0, p = 0; i < count; i++, p += 2)
+                {
+                    samples[i] = ((row[p] & 0xff) << 8) | (row[p + 1] & 0xff);
+                }
+                break;
+            case 4:
+                for (int i = 0; i < count; i++)
+                {
+                    int b = row[i >> 1];
+                    samples[i] = (i & 1) == 0 ? (b >> 4) & 0x0f : b & 0x0f;
+                }
+                break;
+            case 2:
+                for (int i = 0; i < count; i++)
+                {
+                    samples[i] = (row[i >> 2] >> (6 - ((i & 3) << 1))) & 0x03;
+                }
+                break;
+            case 1:
+                for (int i = 0; i < count; i++)
+                {
+                    samples[i] = (row[i >> 3] >> (7 - (i & 7))) & 0x01;
+                }
+                break;
+            default:
+                // any other depth, collect the bits in an accumulator
+                long mask = (1L << bitsPerComponent) - 1;
+                long buffer = 0;
+                int bits = 0;
+                int p = 0;
+                for (int i = 0; i < count; i++)
+                {
+                    while (bits < bitsPerComponent)
                     {
-                        alpha[0] = (byte)(isMasked ? 255 : 0);
-                        colorKeyMask.getRaster().setDataElements(x, y, alpha);
+                        buffer = (buffer << 8) | (row[p++] & 0xff);
+                        bits += 8;
                     }
+                    bits -= bitsPerComponent;
+                    samples[i] = (int) ((buffer >> bits) & mask);
                 }
+                break;
+        }
+    }
 
-                // rows are padded to the nearest byte
-                iis.readBits(padding);
-            }
+    // creates the lookup table from raw sample values of a component to decoded bytes
+    static byte[] createDecodeTable(float[] decode, int component, int bitsPerComponent,
+                                    boolean isIndexed)
+    {
+        final float sampleMax = (float)Math.pow(2, bitsPerComponent) - 1f;
+        final float dMin = decode[component * 2];
+        final float dMax = decode[component * 2 + 1];
+        byte[] lut = new byte[1 << bitsPerComponent];
+        for (int value = 0; value < lut.length; value++)
+        {
+            lut[value] = decodeSample(value, dMin, dMax, sampleMax, isIndexed);
+        }
+        return lut;
+    }
 
-            // use the color space to convert the image to RGB
-            BufferedImage rgbImage = colorSpace.toRGBImage(raster);
+    // applies the decode array to a single raw sample value
+    private static byte decodeSample(int value, float dMin, float dMax, float sampleMax,
+                                     boolean isIndexed)
+    {
+        // interpolate to domain
+        float output = dMin + (value * ((dMax - dMin) / sampleMax));
 
-            // apply color mask, if any
-            if (colorKeyMask != null)
-            {
-                return applyColorKeyMask(rgbImage, colorKeyMask);
-            }
-            else
-            {
-                return rgbImage;
-            }
+        if (isIndexed)
+        {
+            // indexed color spaces get the raw value, because the TYPE_BYTE
+            // below cannot be reversed by the color space without it having
+            // knowledge of the number of bits per component
+            return (byte)Math.round(output);
         }
-        finally
+        else
         {
-            if (iis != null)
-            {
-                iis.close();
-            }
+            // interpolate to TYPE_BYTE
+            int outputByte = Math.round(((output - Math.min(dMin, dMax)) /
+                    Math.abs(dMax - dMin)) * 255f);
+
+            return (byte)outputByte;
         }
     }
 
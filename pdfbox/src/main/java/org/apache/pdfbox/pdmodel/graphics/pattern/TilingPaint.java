@@ -37,6 +37,7 @@ import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.rendering.PageDrawer;
+import org.apache.pdfbox.rendering.TilingPatternCache;
 import org.apache.pdfbox.rendering.TilingPatternDrawer;
 import org.apache.pdfbox.util.Matrix;
 
@@ -139,6 +140,14 @@ public class TilingPaint extends TexturePaint
     private static BufferedImage getImage(PDFRenderer renderer, PDTilingPattern pattern,
             PDColorSpace colorSpace, PDColor color, Matrix matrix, AffineTransform xform) throws IOException
     {
+        // the same cell is often used by many fills
+        TilingPatternCache cache = renderer.getTilingPatternCache();
+        BufferedImage cached = cache.getImage(pattern, colorSpace, color, matrix, xform);
+        if (cached != null)
+        {
+            return cached;
+        }
+
         ColorSpace outputCS = ColorSpace.getInstance(ColorSpace.CS_sRGB);
         ColorModel cm = new ComponentColorModel(outputCS, true, false,
                 Transparency.TRANSLUCENT, DataBuffer.TYPE_BYTE);
@@ -154,10 +163,10 @@ public class TilingPaint extends TexturePaint
         WritableRaster raster = cm.createCompatibleWritableRaster(rasterWidth, rasterHeight);
         BufferedImage image = new BufferedImage(cm, raster, false, null);
 
-        matrix = matrix.clone();
-        Point2D p = getTransformedPoint(pattern, matrix);
-        matrix.setValue(2, 0, matrix.getValue(2, 0) - (float) p.getX()); // tx
-        matrix.setValue(2, 1, matrix.getValue(2, 1) - (float) p.getY()); // ty
+        Matrix cellMatrix = matrix.clone();
+        Point2D p = getTransformedPoint(pattern, cellMatrix);
+        cellMatrix.setValue(2, 0, cellMatrix.getValue(2, 0) - (float) p.getX()); // tx
+        cellMatrix.setValue(2, 1, cellMatrix.getValue(2, 1) - (float) p.getY()); // ty
 
         // TODO: need to make it easy to use a custom TilingPatternDrawer
         PageDrawer drawer = new TilingPatternDrawer(renderer);
@@ -170,9 +179,10 @@ public class TilingPaint extends TexturePaint
                 -xform.getShearX(), xform.getScaleY(),
                 0, 0);
         graphics.transform(at);
-        drawer.drawTilingPattern(graphics, pattern, pdRect, matrix, colorSpace, color);
+        drawer.drawTilingPattern(graphics, pattern, pdRect, cellMatrix, colorSpace, color);
         graphics.dispose();
 
+        cache.putImage(pattern, colorSpace, color, matrix, xform, image);
         return image;
     }
 
@@ -72,7 +72,24 @@ public class AxialShadingContext extends ShadingContext implements PaintContext
     public AxialShadingContext(PDShadingType2 shading, ColorModel colorModel, AffineTransform xform,
             Matrix ctm, Rectangle dBounds) throws IOException
     {
-        super(shading, colorModel, xform, ctm, dBounds);
+        this(shading, colorModel, xform, ctm, dBounds, null);
+    }
+
+    /**
+     * Constructor creates an instance to be used for fill operations, which shares its color
+     * table with other contexts of the same shading and transformations.
+     *
+     * @param shading the shading type to be used
+     * @param colorModel the color model to be used
+     * @param xform transformation for user to device space
+     * @param ctm the transformation matrix
+     * @param dBounds device bounds
+     * @param cache cache of shading data, or null
+     */
+    public AxialShadingContext(PDShadingType2 shading, ColorModel colorModel, AffineTransform xform,
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
+    {
+        super(shading, colorModel, xform, ctm, dBounds, cache);
         this.axialShadingType = shading;
         coords = shading.getCoords().toFloatArray();
 
@@ -126,7 +143,13 @@ public class AxialShadingContext extends ShadingContext implements PaintContext
             background = bg.toFloatArray();
             rgbBackground = convertToRGB(background);
         }
-        colorTable = calcColorTable();
+        int[] table = (int[]) getCachedValue("colorTable", false);
+        if (table == null)
+        {
+            table = calcColorTable();
+            putCachedValue("colorTable", false, table, 4L * table.length);
+        }
+        colorTable = table;
     }
 
     /**
@@ -152,18 +175,18 @@ public class AxialShadingContext extends ShadingContext implements PaintContext
         }
         else
         {
-            for (int i = 0; i <= axialLength; i++)
+            float[] input = new float[map.length];
+            for (int i = 0; i < map.length; i++)
             {
-                float t = domain[0] + d1d0 * i / (float) axialLength;
-                try
-                {
-                    float[] values = axialShadingType.evalFunction(t);
-                    map[i] = convertToRGB(values);
-                }
-                catch (IOException exception)
-                {
-                    LOG.error("error while processing a function", exception);
-                }
+                input[i] = domain[0] + d1d0 * i / (float) axialLength;
+            }
+            try
+            {
+                evalFunctionToRGB(input, 1, map, map.length);
+            }
+            catch (IOException exception)
+            {
+                LOG.error("error while processing a function", exception);
             }
         }
         return map;
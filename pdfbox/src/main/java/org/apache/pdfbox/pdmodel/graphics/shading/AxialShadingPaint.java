@@ -40,17 +40,20 @@ public class AxialShadingPaint implements Paint
 
     private PDShadingType2 shading;
     private Matrix ctm;
+    private ShadingCache cache;
 
     /**
      * Constructor.
      *
      * @param shadingType2 the shading resources
      * @param ctm current transformation matrix
+     * @param cache cache of shading data, or null
      */
-    AxialShadingPaint(PDShadingType2 shadingType2, Matrix ctm)
+    AxialShadingPaint(PDShadingType2 shadingType2, Matrix ctm, ShadingCache cache)
     {
         shading = shadingType2;
         this.ctm = ctm;
+        this.cache = cache;
     }
 
     @Override
@@ -66,7 +69,7 @@ public class AxialShadingPaint implements Paint
     {
         try
         {
-            return new AxialShadingContext(shading, cm, xform, ctm, deviceBounds);
+            return new AxialShadingContext(shading, cm, xform, ctm, deviceBounds, cache);
         }
         catch (IOException ex)
         {
@@ -17,7 +17,6 @@
 package org.apache.pdfbox.pdmodel.graphics.shading;
 
 import java.awt.PaintContext;
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
@@ -26,7 +25,6 @@ import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import javax.imageio.stream.ImageInputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -56,7 +54,7 @@ abstract class GouraudShadingContext extends TriangleBasedShadingContext impleme
     protected float[] background;
     protected int rgbBackground;
 
-    protected HashMap<Point, Integer> pixelTable;
+    protected int[] pixelTable;
 
     /**
      * Constructor creates an instance to be used for fill operations.
@@ -65,12 +63,14 @@ abstract class GouraudShadingContext extends TriangleBasedShadingContext impleme
      * @param colorModel the color model to be used
      * @param xform transformation for user to device space
      * @param ctm current transformation matrix
+     * @param dBounds device bounds
+     * @param cache cache of shading data, or null
      * @throws IOException if something went wrong
      */
     protected GouraudShadingContext(PDShading shading, ColorModel colorModel, AffineTransform xform,
-            Matrix ctm, Rectangle dBounds) throws IOException
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
     {
-        super(shading, colorModel, xform, ctm, dBounds);
+        super(shading, colorModel, xform, ctm, dBounds, cache);
         triangleList = new ArrayList<ShadedTriangle>();
         LOG.debug("Background: " + shading.getBackground());
         COSArray bg = shading.getBackground();
@@ -117,11 +117,32 @@ abstract class GouraudShadingContext extends TriangleBasedShadingContext impleme
         return new Vertex(tmp, colorComponentTab);
     }
 
-    protected HashMap<Point, Integer> calcPixelTable()
+    /**
+     * Get the triangles which an earlier context of the same shading and transformations has
+     * stored in the shading cache.
+     *
+     * @return the triangles, which must not be changed, or null
+     */
+    @SuppressWarnings("unchecked")
+    protected ArrayList<ShadedTriangle> getCachedTriangleList()
+    {
+        return (ArrayList<ShadedTriangle>) getCachedValue("triangles", false);
+    }
+
+    /**
+     * Store the triangles of this context in the shading cache.
+     */
+    protected void putCachedTriangleList()
     {
-        HashMap<Point, Integer> map = new HashMap<Point, Integer>();
-        super.calcPixelTable(triangleList, map);
-        return map;
+        putCachedValue("triangles", false, triangleList, TRIANGLE_SIZE * triangleList.size());
+    }
+
+    @Override
+    protected int[] calcPixelTable()
+    {
+        int[] table = createPixelTable();
+        super.calcPixelTable(triangleList, table);
+        return table;
     }
 
     @Override
@@ -179,13 +200,8 @@ abstract class GouraudShadingContext extends TriangleBasedShadingContext impleme
                             continue;
                         }
                     }
-                    Point p = new Point(currentX, currentY);
-                    int value;
-                    if (pixelTable.containsKey(p))
-                    {
-                        value = pixelTable.get(p);
-                    }
-                    else
+                    int value = getPixel(pixelTable, currentX, currentY);
+                    if (value == 0)
                     {
                         if (background != null)
                         {
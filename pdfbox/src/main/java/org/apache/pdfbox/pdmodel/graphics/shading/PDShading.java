@@ -444,6 +444,63 @@ public abstract class PDShading implements COSObjectable
         return returnValues;
     }
 
+    /**
+     * Convert several input values using the functions of the shading dictionary, see
+     * {@link PDFunction#evalBatch(float[], int, float[], int, int)}.
+     *
+     * @param input the input values, numberOfInputs values for each input
+     * @param numberOfInputs the number of input values for each input
+     * @param output the array receiving the output values, numberOfOutputs values for each
+     * input
+     * @param numberOfOutputs the number of output values for each input
+     * @param count the number of inputs
+     * @throws IOException thrown if something went wrong
+     */
+    public void evalFunction(float[] input, int numberOfInputs, float[] output,
+                             int numberOfOutputs, int count) throws IOException
+    {
+        PDFunction[] functions = getFunctionsArray();
+        int numberOfFunctions = functions.length;
+        if (numberOfFunctions == 1)
+        {
+            functions[0].evalBatch(input, numberOfInputs, output, numberOfOutputs, count);
+        }
+        else
+        {
+            // one function for each colour component
+            float[] values = new float[count];
+            for (int i = 0; i < numberOfFunctions && i < numberOfOutputs; i++)
+            {
+                functions[i].evalBatch(input, numberOfInputs, values, 1, count);
+                for (int j = 0; j < count; j++)
+                {
+                    output[j * numberOfOutputs + i] = values[j];
+                }
+            }
+            // components without a function
+            for (int i = numberOfFunctions; i < numberOfOutputs; i++)
+            {
+                for (int j = 0; j < count; j++)
+                {
+                    output[j * numberOfOutputs + i] = 0;
+                }
+            }
+        }
+        // adjust out of range values to the nearest valid value, see above
+        int length = count * numberOfOutputs;
+        for (int i = 0; i < length; ++i)
+        {
+            if (output[i] < 0)
+            {
+                output[i] = 0;
+            }
+            else if (output[i] > 1)
+            {
+                output[i] = 1;
+            }
+        }
+    }
+
     /**
      * Returns an AWT paint which corresponds to this shading
      *
@@ -451,4 +508,18 @@ public abstract class PDShading implements COSObjectable
      * @return an AWT Paint instance
      */
     public abstract Paint toPaint(Matrix matrix);
+
+    /**
+     * Returns an AWT paint which corresponds to this shading, and which shares the data it
+     * computes before painting with other paints of this shading through the given cache.
+     * Shadings without such data ignore the cache.
+     *
+     * @param matrix the pattern matrix
+     * @param cache the shading cache, or null
+     * @return an AWT Paint instance
+     */
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return toPaint(matrix);
+    }
 }
@@ -147,6 +147,12 @@ public class PDShadingType2 extends PDShading
     @Override
     public Paint toPaint(Matrix matrix)
     {
-        return new AxialShadingPaint(this, matrix);
+        return toPaint(matrix, null);
+    }
+
+    @Override
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return new AxialShadingPaint(this, matrix, cache);
     }
 }
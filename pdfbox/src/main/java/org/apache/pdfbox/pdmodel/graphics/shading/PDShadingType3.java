@@ -45,6 +45,12 @@ public class PDShadingType3 extends PDShadingType2
     @Override
     public Paint toPaint(Matrix matrix)
     {
-        return new RadialShadingPaint(this, matrix);
+        return toPaint(matrix, null);
+    }
+
+    @Override
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return new RadialShadingPaint(this, matrix, cache);
     }
 }
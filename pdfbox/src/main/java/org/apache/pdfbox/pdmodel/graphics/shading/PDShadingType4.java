@@ -67,6 +67,12 @@ public class PDShadingType4 extends PDTriangleBasedShadingType
     @Override
     public Paint toPaint(Matrix matrix)
     {
-        return new Type4ShadingPaint(this, matrix);
+        return toPaint(matrix, null);
+    }
+
+    @Override
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return new Type4ShadingPaint(this, matrix, cache);
     }
 }
@@ -67,6 +67,12 @@ public class PDShadingType5 extends PDTriangleBasedShadingType
     @Override
     public Paint toPaint(Matrix matrix)
     {
-        return new Type5ShadingPaint(this, matrix);
+        return toPaint(matrix, null);
+    }
+
+    @Override
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return new Type5ShadingPaint(this, matrix, cache);
     }
 }
@@ -46,6 +46,12 @@ public class PDShadingType6 extends PDShadingType4
     @Override
     public Paint toPaint(Matrix matrix)
     {
-        return new Type6ShadingPaint(this, matrix);
+        return toPaint(matrix, null);
+    }
+
+    @Override
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return new Type6ShadingPaint(this, matrix, cache);
     }
 }
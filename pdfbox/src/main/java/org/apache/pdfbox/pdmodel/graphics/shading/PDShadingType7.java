@@ -46,6 +46,12 @@ public class PDShadingType7 extends PDShadingType6
     @Override
     public Paint toPaint(Matrix matrix)
     {
-        return new Type7ShadingPaint(this, matrix);
+        return toPaint(matrix, null);
+    }
+
+    @Override
+    public Paint toPaint(Matrix matrix, ShadingCache cache)
+    {
+        return new Type7ShadingPaint(this, matrix, cache);
     }
 }
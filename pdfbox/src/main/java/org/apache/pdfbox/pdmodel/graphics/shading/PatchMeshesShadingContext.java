@@ -16,7 +16,6 @@
 package org.apache.pdfbox.pdmodel.graphics.shading;
 
 import java.awt.PaintContext;
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
@@ -26,7 +25,6 @@ import java.awt.image.WritableRaster;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.MemoryCacheImageInputStream;
 import org.apache.commons.logging.Log;
@@ -54,7 +52,7 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext imp
     // the following fields are not intialized in this abstract class
     protected ArrayList<Patch> patchList; // patch list
     protected int bitsPerFlag; // bits per flag
-    protected HashMap<Point, Integer> pixelTable;
+    protected int[] pixelTable;
 
     /**
      * Constructor creates an instance to be used for fill operations.
@@ -64,12 +62,13 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext imp
      * @param xform transformation for user to device space
      * @param ctm current transformation matrix
      * @param dBounds device bounds
+     * @param cache cache of shading data, or null
      * @throws IOException if something went wrong
      */
     protected PatchMeshesShadingContext(PDShading shading, ColorModel colorModel, AffineTransform xform,
-            Matrix ctm, Rectangle dBounds) throws IOException
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
     {
-        super(shading, colorModel, xform, ctm, dBounds);
+        super(shading, colorModel, xform, ctm, dBounds, cache);
         patchMeshesShadingType = shading;
         bitsPerFlag = ((PDShadingType6) shading).getBitsPerFlag();
         patchList = new ArrayList<Patch>();
@@ -261,19 +260,45 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext imp
     }
 
     /**
-     * Calculate every point and its color and store them in a Hash table.
+     * Get the patches which an earlier context of the same shading and transformations has
+     * stored in the shading cache.
      *
-     * @return a Hash table which contains all the points' positions and colors
-     * of one image
+     * @return the patches, which must not be changed, or null
      */
-    protected HashMap<Point, Integer> calcPixelTable()
+    @SuppressWarnings("unchecked")
+    protected ArrayList<Patch> getCachedPatchList()
     {
-        HashMap<Point, Integer> map = new HashMap<Point, Integer>();
+        return (ArrayList<Patch>) getCachedValue("patches", false);
+    }
+
+    /**
+     * Store the patches of this context in the shading cache.
+     */
+    protected void putCachedPatchList()
+    {
+        long size = 0;
+        for (Patch patch : patchList)
+        {
+            size += PATCH_SIZE + TRIANGLE_SIZE * patch.listOfTriangles.size();
+        }
+        putCachedValue("patches", false, patchList, size);
+    }
+
+    /**
+     * Calculate every point and its color and store them in a pixel table.
+     *
+     * @return a pixel table which contains the colors of all the points of one
+     * image
+     */
+    @Override
+    protected int[] calcPixelTable()
+    {
+        int[] table = createPixelTable();
         for (Patch it : patchList)
         {
-            super.calcPixelTable(it.listOfTriangles, map);
+            super.calcPixelTable(it.listOfTriangles, table);
         }
-        return map;
+        return table;
     }
 
     @Override
@@ -317,13 +342,8 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext imp
                             continue;
                         }
                     }
-                    Point p = new Point(x + col, y + row);
-                    int value;
-                    if (pixelTable.containsKey(p))
-                    {
-                        value = pixelTable.get(p);
-                    }
-                    else
+                    int value = getPixel(pixelTable, currentX, currentY);
+                    if (value == 0)
                     {
                         if (background != null)
                         {
@@ -75,7 +75,24 @@ public class RadialShadingContext extends ShadingContext implements PaintContext
     public RadialShadingContext(PDShadingType3 shading, ColorModel colorModel, AffineTransform xform,
             Matrix ctm, Rectangle dBounds) throws IOException
     {
-        super(shading, colorModel, xform, ctm, dBounds);
+        this(shading, colorModel, xform, ctm, dBounds, null);
+    }
+
+    /**
+     * Constructor creates an instance to be used for fill operations, which shares its color
+     * table with other contexts of the same shading and transformations.
+     *
+     * @param shading the shading type to be used
+     * @param colorModel the color model to be used
+     * @param xform transformation for user to device space
+     * @param ctm the transformation matrix
+     * @param dBounds device bounds
+     * @param cache cache of shading data, or null
+     */
+    public RadialShadingContext(PDShadingType3 shading, ColorModel colorModel, AffineTransform xform,
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
+    {
+        super(shading, colorModel, xform, ctm, dBounds, cache);
         this.radialShadingType = shading;
         coords = shading.getCoords().toFloatArray();
 
@@ -146,7 +163,13 @@ public class RadialShadingContext extends ShadingContext implements PaintContext
             rgbBackground = convertToRGB(background);
         }
         longestDistance = getLongestDis();
-        colorTable = calcColorTable();
+        int[] table = (int[]) getCachedValue("colorTable", false);
+        if (table == null)
+        {
+            table = calcColorTable();
+            putCachedValue("colorTable", false, table, 4L * table.length);
+        }
+        colorTable = table;
     }
 
     // get the longest distance of two points which are located on these two circles
@@ -198,18 +221,18 @@ public class RadialShadingContext extends ShadingContext implements PaintContext
         }
         else
         {
-            for (int i = 0; i <= longestDistance; i++)
+            float[] input = new float[map.length];
+            for (int i = 0; i < map.length; i++)
             {
-                float t = domain[0] + d1d0 * i / (float) longestDistance;
-                try
-                {
-                    float[] values = radialShadingType.evalFunction(t);
-                    map[i] = convertToRGB(values);
-                }
-                catch (IOException exception)
-                {
-                    LOG.error("error while processing a function", exception);
-                }
+                input[i] = domain[0] + d1d0 * i / (float) longestDistance;
+            }
+            try
+            {
+                evalFunctionToRGB(input, 1, map, map.length);
+            }
+            catch (IOException exception)
+            {
+                LOG.error("error while processing a function", exception);
             }
         }
         return map;
@@ -40,17 +40,20 @@ public class RadialShadingPaint implements Paint
 
     private PDShadingType3 shading;
     private Matrix ctm;
+    private ShadingCache cache;
 
     /**
      * Constructor.
      *
      * @param shading the shading resources
      * @param ctm current transformation matrix
+     * @param cache cache of shading data, or null
      */
-    RadialShadingPaint(PDShadingType3 shading, Matrix ctm)
+    RadialShadingPaint(PDShadingType3 shading, Matrix ctm, ShadingCache cache)
     {
         this.shading = shading;
         this.ctm = ctm;
+        this.cache = cache;
     }
 
     @Override
@@ -65,7 +68,7 @@ public class RadialShadingPaint implements Paint
     {
         try
         {
-            return new RadialShadingContext(shading, cm, xform, ctm, deviceBounds);
+            return new RadialShadingContext(shading, cm, xform, ctm, deviceBounds, cache);
         }
         catch (IOException ex)
         {
@@ -48,6 +48,9 @@ class ShadedTriangle
     private final double v1;
     private final double v2;
 
+    // the change of the barycentric weights from one pixel to the next one in a row
+    private final double[] weightSteps;
+
     /**
      * Constructor.
      *
@@ -88,6 +91,13 @@ class ShadedTriangle
         v0 = edgeEquationValue(p[0], p[1], p[2]);
         v1 = edgeEquationValue(p[1], p[2], p[0]);
         v2 = edgeEquationValue(p[2], p[0], p[1]);
+
+        // the weights are the areas of the sub-triangles, which grow linearly within the
+        // triangle, with the sign of the corner on their side
+        weightSteps = new double[] {
+            Math.signum(signedArea(p[0], p[1], p[2])) * (p[2].getY() - p[1].getY()) / 2 / area,
+            Math.signum(signedArea(p[1], p[2], p[0])) * (p[0].getY() - p[2].getY()) / 2 / area,
+            Math.signum(signedArea(p[2], p[0], p[1])) * (p[1].getY() - p[0].getY()) / 2 / area };
     }
 
     /**
@@ -163,12 +173,18 @@ class ShadedTriangle
             Point tp = new Point((int) Math.round(p.getX()), (int) Math.round(p.getY()));
             return line.linePoints.contains(tp);
         }
+        return contains(p.getX(), p.getY());
+    }
+
+    // whether a point is contained in this normal triangle
+    private boolean contains(double x, double y)
+    {
 
         /*
          the following code judges whether a point is contained in a normal triangle, 
          taking the on edge case as contained
          */
-        double pv0 = edgeEquationValue(p, corner[1], corner[2]);
+        double pv0 = edgeEquationValue(x, y, corner[1], corner[2]);
         /*
          if corner[0] and point p are on different sides of line from corner[1] to corner[2], 
          p is outside of the triangle
@@ -177,7 +193,7 @@ class ShadedTriangle
         {
             return false;
         }
-        double pv1 = edgeEquationValue(p, corner[2], corner[0]);
+        double pv1 = edgeEquationValue(x, y, corner[2], corner[0]);
         /*
          if vertex corner[1] and point p are on different sides of line from corner[2] to corner[0], 
          p is outside of the triangle
@@ -186,7 +202,7 @@ class ShadedTriangle
         {
             return false;
         }
-        double pv2 = edgeEquationValue(p, corner[0], corner[1]);
+        double pv2 = edgeEquationValue(x, y, corner[0], corner[1]);
         /*
          only left one case:
          if corner[1] and point p are on different sides of line from corner[2] to corner[0], 
@@ -211,15 +227,128 @@ class ShadedTriangle
      */
     private double edgeEquationValue(Point2D p, Point2D p1, Point2D p2)
     {
-        return (p2.getY() - p1.getY()) * (p.getX() - p1.getX())
-                - (p2.getX() - p1.getX()) * (p.getY() - p1.getY());
+        return edgeEquationValue(p.getX(), p.getY(), p1, p2);
+    }
+
+    private double edgeEquationValue(double x, double y, Point2D p1, Point2D p2)
+    {
+        return (p2.getY() - p1.getY()) * (x - p1.getX())
+                - (p2.getX() - p1.getX()) * (y - p1.getY());
+    }
+
+    /**
+     * Whether the pixels of this triangle can be found row by row with
+     * {@link #calcSpan(int, int, int, int[])}, which is the case for normal triangles with a
+     * non-zero area.
+     *
+     * @return true if the triangle can be scan converted
+     */
+    public boolean isScanConvertible()
+    {
+        return degree == 3 && v0 != 0 && v1 != 0 && v2 != 0;
+    }
+
+    /**
+     * Calculate the pixels of a row which are contained in this triangle, as
+     * {@link #contains(Point2D)} determines them. Only for triangles which are scan
+     * convertible.
+     *
+     * @param y the row
+     * @param minX the first pixel of the row to consider
+     * @param maxX the last pixel of the row to consider
+     * @param span the array receiving the first and the last contained pixel, the first is
+     * greater than the last if the row contains none
+     */
+    public void calcSpan(int y, int minX, int maxX, int[] span)
+    {
+        // intersect the row with the half-planes of the three edges
+        double lower = Double.NEGATIVE_INFINITY;
+        double upper = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < 3; i++)
+        {
+            Point2D p1 = corner[(i + 1) % 3];
+            Point2D p2 = corner[(i + 2) % 3];
+            double v = i == 0 ? v0 : i == 1 ? v1 : v2;
+            // the edge equation is a * x + b, which must have the sign of v or be 0
+            double a = p2.getY() - p1.getY();
+            double b = -a * p1.getX() - (p2.getX() - p1.getX()) * (y - p1.getY());
+            if (a == 0)
+            {
+                if (b * v < 0)
+                {
+                    span[0] = minX;
+                    span[1] = minX - 1;
+                    return;
+                }
+            }
+            else if (a * v > 0)
+            {
+                lower = Math.max(lower, -b / a);
+            }
+            else
+            {
+                upper = Math.min(upper, -b / a);
+            }
+        }
+        if (lower > upper + 1)
+        {
+            span[0] = minX;
+            span[1] = minX - 1;
+            return;
+        }
+
+        // allow for rounding errors, then settle the ends with the exact test
+        int first = (int) Math.max(minX, Math.ceil(Math.max(lower, minX - 1.0)) - 1);
+        int last = (int) Math.min(maxX, Math.floor(Math.min(upper, maxX + 1.0)) + 1);
+        while (first <= last && !contains(first, y))
+        {
+            first++;
+        }
+        while (last >= first && !contains(last, y))
+        {
+            last--;
+        }
+        span[0] = first;
+        span[1] = last;
+    }
+
+    /**
+     * Calculate the barycentric weights of a pixel, as used by {@link #calcColor(Point2D)}.
+     * The weights of the next pixel in the row are obtained by adding the weight steps.
+     *
+     * @param x the pixel's x coordinate
+     * @param y the pixel's y coordinate
+     * @param weights the array receiving the 3 weights
+     */
+    public void calcWeights(double x, double y, double[] weights)
+    {
+        Point2D p = new Point2D.Double(x, y);
+        weights[0] = getArea(p, corner[1], corner[2]) / area;
+        weights[1] = getArea(p, corner[2], corner[0]) / area;
+        weights[2] = getArea(p, corner[0], corner[1]) / area;
+    }
+
+    /**
+     * Returns the change of the barycentric weights from one pixel to the next one in a row.
+     *
+     * @return the 3 weight steps
+     */
+    public double[] getWeightSteps()
+    {
+        return weightSteps;
     }
 
     // calcuate the area of a triangle
     private double getArea(Point2D a, Point2D b, Point2D c)
     {
-        return Math.abs((c.getX() - b.getX()) * (c.getY() - a.getY())
-                - (c.getX() - a.getX()) * (c.getY() - b.getY())) / 2.0;
+        return Math.abs(signedArea(a, b, c)) / 2.0;
+    }
+
+    // twice the area of a triangle, signed by its orientation
+    private double signedArea(Point2D a, Point2D b, Point2D c)
+    {
+        return (c.getX() - b.getX()) * (c.getY() - a.getY())
+                - (c.getX() - a.getX()) * (c.getY() - b.getY());
     }
 
     /**
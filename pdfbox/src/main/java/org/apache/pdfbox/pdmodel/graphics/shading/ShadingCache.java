@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.util.BoundedLRUCache;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Cache of the data which shading contexts compute before they can paint, so that a shading
+ * which is painted again with the same transformation, such as a background gradient on every
+ * page, doesn't have to be prepared from scratch. It holds the color tables of axial and radial
+ * shadings, the triangles and patches of mesh shadings, and the pixel tables which mesh
+ * shadings are rasterized into.
+ *
+ * Values are keyed by the identity of the shading dictionary, the current transformation
+ * matrix, the device transformation and, for pixel tables, the device bounds. The shading is
+ * expected not to change while it is cached. The most recently used values are held up to a
+ * byte budget.
+ */
+public final class ShadingCache
+{
+    /** The default budget of cached data, in bytes. */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final BoundedLRUCache<Key, Object> entries;
+
+    /**
+     * Creates a new shading cache with the default budget.
+     */
+    public ShadingCache()
+    {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new shading cache.
+     *
+     * @param maxBytes budget of cached data in bytes, 0 to disable caching
+     */
+    public ShadingCache(long maxBytes)
+    {
+        entries = new BoundedLRUCache<Key, Object>(maxBytes);
+    }
+
+    synchronized Object get(Key key)
+    {
+        return entries.get(key);
+    }
+
+    synchronized void put(Key key, Object value, long size)
+    {
+        entries.put(key, value, size);
+    }
+
+    /**
+     * Returns the budget of cached data, in bytes.
+     */
+    public synchronized long getMaxBytes()
+    {
+        return entries.getMaxBytes();
+    }
+
+    /**
+     * Sets the budget of cached data, evicting the least recently used values if needed.
+     *
+     * @param maxBytes the budget in bytes, 0 to disable caching
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        entries.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the estimated size of the cached data, in bytes.
+     */
+    public synchronized long getByteCount()
+    {
+        return entries.getByteCount();
+    }
+
+    /**
+     * Returns the number of cached values.
+     */
+    public synchronized int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups which found a cached value.
+     */
+    public synchronized long getHitCount()
+    {
+        return entries.getHitCount();
+    }
+
+    /**
+     * Returns the number of lookups which had to compute the value.
+     */
+    public synchronized long getMissCount()
+    {
+        return entries.getMissCount();
+    }
+
+    /**
+     * Returns the number of values which were evicted from the budget.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return entries.getEvictionCount();
+    }
+
+    /**
+     * Removes all values from the cache. The statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "ShadingCache{" + entries + "}";
+    }
+
+    /**
+     * Cache key, the identity of the shading dictionary, the kind of the value, both
+     * transformations and optionally the device bounds.
+     */
+    static final class Key
+    {
+        private final COSDictionary dictionary;
+        private final String kind;
+        private final double[] transform = new double[12];
+        private final Rectangle bounds;
+
+        Key(COSDictionary dictionary, String kind, Matrix ctm, AffineTransform xform,
+                Rectangle bounds)
+        {
+            this.dictionary = dictionary;
+            this.kind = kind;
+            double[] matrix = new double[6];
+            if (ctm != null)
+            {
+                ctm.createAffineTransform().getMatrix(matrix);
+                System.arraycopy(matrix, 0, transform, 0, 6);
+            }
+            xform.getMatrix(matrix);
+            System.arraycopy(matrix, 0, transform, 6, 6);
+            this.bounds = bounds == null ? null : new Rectangle(bounds);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return dictionary == other.dictionary && kind.equals(other.kind) &&
+                    Arrays.equals(transform, other.transform) &&
+                    (bounds == null ? other.bounds == null : bounds.equals(other.bounds));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = System.identityHashCode(dictionary) * 31 + kind.hashCode();
+            hash = hash * 31 + Arrays.hashCode(transform);
+            return bounds == null ? hash : hash * 31 + bounds.hashCode();
+        }
+    }
+}
@@ -46,10 +46,34 @@ public abstract class ShadingContext
     protected float minBBoxX, minBBoxY, maxBBoxX, maxBBoxY;
     protected ColorModel outputColorModel;
 
+    private final ShadingCache cache;
+    private final AffineTransform xform;
+    private final Matrix ctm;
+
     public ShadingContext(PDShading shading, ColorModel cm, AffineTransform xform,
             Matrix ctm, Rectangle dBounds) throws IOException
+    {
+        this(shading, cm, xform, ctm, dBounds, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param shading the shading to be painted
+     * @param cm the color model requested by the graphics
+     * @param xform transformation for user to device space
+     * @param ctm the transformation matrix
+     * @param dBounds device bounds
+     * @param cache cache of data computed by earlier contexts, or null
+     * @throws IOException if the shading can't be read
+     */
+    public ShadingContext(PDShading shading, ColorModel cm, AffineTransform xform,
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
     {
         this.shading = shading;
+        this.cache = cache;
+        this.xform = xform;
+        this.ctm = ctm;
         deviceBounds = dBounds;
         shadingColorSpace = shading.getColorSpace();
 
@@ -89,8 +113,77 @@ public abstract class ShadingContext
         }
     }
 
+    /**
+     * Returns a value which a context of the same shading with the same transformations has
+     * stored in the shading cache.
+     *
+     * @param kind the kind of the value
+     * @param withBounds whether the value depends on the device bounds too
+     * @return the cached value, or null if there is none or no cache
+     */
+    protected Object getCachedValue(String kind, boolean withBounds)
+    {
+        if (cache == null)
+        {
+            return null;
+        }
+        return cache.get(createCacheKey(kind, withBounds));
+    }
+
+    /**
+     * Stores a value in the shading cache, if there is one. The value must not be changed
+     * afterwards, as it is shared with other contexts.
+     *
+     * @param kind the kind of the value
+     * @param withBounds whether the value depends on the device bounds too
+     * @param value the value
+     * @param size the estimated size of the value, in bytes
+     */
+    protected void putCachedValue(String kind, boolean withBounds, Object value, long size)
+    {
+        if (cache != null)
+        {
+            cache.put(createCacheKey(kind, withBounds), value, size);
+        }
+    }
+
+    private ShadingCache.Key createCacheKey(String kind, boolean withBounds)
+    {
+        return new ShadingCache.Key(shading.getCOSDictionary(), kind, ctm, xform,
+                withBounds ? deviceBounds : null);
+    }
+
     // convert color to RGB color values encoded into an integer.
     protected int convertToRGB(float[] values)
+    {
+        return colorToRGB(values);
+    }
+
+    /**
+     * Evaluates the shading function at several inputs and converts the resulting colors to
+     * RGB values encoded into integers.
+     *
+     * @param input the input values, numberOfInputs values for each input
+     * @param numberOfInputs the number of input values for each input
+     * @param rgb the array receiving the RGB values
+     * @param count the number of inputs
+     * @throws IOException if something went wrong processing the function
+     */
+    protected void evalFunctionToRGB(float[] input, int numberOfInputs, int[] rgb, int count)
+            throws IOException
+    {
+        int numberOfComponents = shadingColorSpace.getNumberOfComponents();
+        float[] output = new float[count * numberOfComponents];
+        shading.evalFunction(input, numberOfInputs, output, numberOfComponents, count);
+        float[] values = new float[numberOfComponents];
+        for (int i = 0; i < count; i++)
+        {
+            System.arraycopy(output, i * numberOfComponents, values, 0, numberOfComponents);
+            rgb[i] = colorToRGB(values);
+        }
+    }
+
+    private int colorToRGB(float[] values)
     {
         float[] rgbValues;
         int normRGBValues = 0;
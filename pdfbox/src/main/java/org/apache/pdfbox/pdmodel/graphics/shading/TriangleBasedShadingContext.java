@@ -22,7 +22,6 @@ import java.awt.geom.Point2D;
 import java.awt.image.ColorModel;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.util.Matrix;
@@ -55,11 +54,18 @@ abstract class TriangleBasedShadingContext extends ShadingContext
 
     final protected boolean hasFunction;
 
+    // estimated memory size of a triangle and of a patch without its triangles, in bytes
+    protected static final long TRIANGLE_SIZE = 400;
+    protected static final long PATCH_SIZE = 300;
+
+    // the output of the shading function, reused for each pixel
+    private float[] functionOutput;
+
     public TriangleBasedShadingContext(PDShading shading, ColorModel cm,
-            AffineTransform xform, Matrix ctm, Rectangle dBounds)
+            AffineTransform xform, Matrix ctm, Rectangle dBounds, ShadingCache cache)
             throws IOException
     {
-        super(shading, cm, xform, ctm, dBounds);
+        super(shading, cm, xform, ctm, dBounds, cache);
         PDTriangleBasedShadingType triangleBasedShadingType = (PDTriangleBasedShadingType) shading;
         hasFunction = shading.getFunction() != null;
         bitsPerCoordinate = triangleBasedShadingType.getBitsPerCoordinate();
@@ -70,10 +76,80 @@ abstract class TriangleBasedShadingContext extends ShadingContext
         LOG.debug("numberOfColorComponents: " + numberOfColorComponents);
     }
 
-    // get the points from the triangles, calculate their color and add 
-    // point-color mappings to the map
-    protected void calcPixelTable(ArrayList<ShadedTriangle> triangleList, HashMap<Point, Integer> map)
+    /**
+     * Create the pixel table, which covers the device bounds including their right and bottom
+     * edges. It holds the colors of the pixels covered by the shading as RGB values encoded
+     * into integers with the alpha bits set, and 0 for the pixels which aren't covered.
+     *
+     * @return a new, empty pixel table
+     */
+    protected int[] createPixelTable()
+    {
+        return new int[(deviceBounds.width + 1) * (deviceBounds.height + 1)];
+    }
+
+    /**
+     * Calculate the pixel table of the shading.
+     *
+     * @return the pixel table
+     */
+    protected abstract int[] calcPixelTable();
+
+    /**
+     * Get the pixel table from the shading cache, or calculate it and store it in the cache.
+     *
+     * @return the pixel table, which must not be changed
+     */
+    protected int[] getPixelTable()
+    {
+        int[] table = (int[]) getCachedValue("pixelTable", true);
+        if (table == null)
+        {
+            table = calcPixelTable();
+            putCachedValue("pixelTable", true, table, 4L * table.length);
+        }
+        return table;
+    }
+
+    /**
+     * Get the color of a pixel from the pixel table.
+     *
+     * @param pixelTable the pixel table
+     * @param x the x coordinate of the pixel in device space
+     * @param y the y coordinate of the pixel in device space
+     * @return the color encoded into an integer with the alpha bits set, or 0 if the pixel isn't
+     * covered by the shading
+     */
+    protected int getPixel(int[] pixelTable, int x, int y)
     {
+        int col = x - deviceBounds.x;
+        int row = y - deviceBounds.y;
+        if (col < 0 || row < 0 || col > deviceBounds.width || row > deviceBounds.height)
+        {
+            return 0;
+        }
+        return pixelTable[row * (deviceBounds.width + 1) + col];
+    }
+
+    private void setPixel(int[] pixelTable, int x, int y, int rgb)
+    {
+        int col = x - deviceBounds.x;
+        int row = y - deviceBounds.y;
+        if (col >= 0 && row >= 0 && col <= deviceBounds.width && row <= deviceBounds.height)
+        {
+            pixelTable[row * (deviceBounds.width + 1) + col] = rgb | 0xff000000;
+        }
+    }
+
+    // get the points from the triangles, calculate their color and store them
+    // in the pixel table
+    protected void calcPixelTable(ArrayList<ShadedTriangle> triangleList, int[] pixelTable)
+    {
+        int maxSpan = deviceBounds.width + 1;
+        int[] span = new int[2];
+        double[] weights = new double[3];
+        float[] colors = new float[0];
+        int[] rgb = new int[maxSpan];
         for (ShadedTriangle tri : triangleList)
         {
             int degree = tri.getDeg();
@@ -82,16 +158,18 @@ abstract class TriangleBasedShadingContext extends ShadingContext
                 Line line = tri.getLine();
                 for (Point p : line.linePoints)
                 {
-                    map.put(p, convertToRGB(line.calcColor(p)));
+                    setPixel(pixelTable, p.x, p.y, convertToRGB(line.calcColor(p)));
                 }
+                continue;
             }
-            else
+
+            int[] boundary = tri.getBoundary();
+            boundary[0] = Math.max(boundary[0], deviceBounds.x);
+            boundary[1] = Math.min(boundary[1], deviceBounds.x + deviceBounds.width);
+            boundary[2] = Math.max(boundary[2], deviceBounds.y);
+            boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
+            if (!tri.isScanConvertible())
             {
-                int[] boundary = tri.getBoundary();
-                boundary[0] = Math.max(boundary[0], deviceBounds.x);
-                boundary[1] = Math.min(boundary[1], deviceBounds.x + deviceBounds.width);
-                boundary[2] = Math.max(boundary[2], deviceBounds.y);
-                boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
                 for (int x = boundary[0]; x <= boundary[1]; x++)
                 {
                     for (int y = boundary[2]; y <= boundary[3]; y++)
@@ -99,12 +177,78 @@ abstract class TriangleBasedShadingContext extends ShadingContext
                         Point p = new Point(x, y);
                         if (tri.contains(p))
                         {
-                            map.put(p, convertToRGB(tri.calcColor(p)));
+                            setPixel(pixelTable, x, y, convertToRGB(tri.calcColor(p)));
                         }
                     }
                 }
+                continue;
+            }
+
+            // walk the rows of the triangle, interpolating the colors along each row
+            float[][] color = tri.color;
+            int numberOfComponents = color[0].length;
+            if (colors.length < maxSpan * numberOfComponents)
+            {
+                colors = new float[maxSpan * numberOfComponents];
+            }
+            double[] steps = tri.getWeightSteps();
+            for (int y = boundary[2]; y <= boundary[3]; y++)
+            {
+                tri.calcSpan(y, boundary[0], boundary[1], span);
+                int count = span[1] - span[0] + 1;
+                if (count <= 0)
+                {
+                    continue;
+                }
+                tri.calcWeights(span[0], y, weights);
+                double w0 = weights[0];
+                double w1 = weights[1];
+                double w2 = weights[2];
+                for (int k = 0, index = 0; k < count; k++)
+                {
+                    float aw = (float) w0;
+                    float bw = (float) w1;
+                    float cw = (float) w2;
+                    for (int i = 0; i < numberOfComponents; i++)
+                    {
+                        // barycentric interpolation
+                        colors[index++] = color[0][i] * aw + color[1][i] * bw + color[2][i] * cw;
+                    }
+                    w0 += steps[0];
+                    w1 += steps[1];
+                    w2 += steps[2];
+                }
+                convertToRGB(colors, numberOfComponents, rgb, count);
+                for (int k = 0; k < count; k++)
+                {
+                    setPixel(pixelTable, span[0] + k, y, rgb[k]);
+                }
+            }
+        }
+    }
+
+    // convert the colors of several pixels to RGB values, evaluating the function for all
+    // of them at once
+    private void convertToRGB(float[] colors, int numberOfComponents, int[] rgb, int count)
+    {
+        if (hasFunction)
+        {
+            try
+            {
+                evalFunctionToRGB(colors, numberOfComponents, rgb, count);
+                return;
+            }
+            catch (IOException exception)
+            {
+                LOG.error("error while processing a function", exception);
             }
         }
+        float[] values = new float[numberOfComponents];
+        for (int k = 0; k < count; k++)
+        {
+            System.arraycopy(colors, k * numberOfComponents, values, 0, numberOfComponents);
+            rgb[k] = super.convertToRGB(values);
+        }
     }
 
     // transform a point from source space to device space
@@ -127,7 +271,13 @@ abstract class TriangleBasedShadingContext extends ShadingContext
         {
             try
             {
-                values = shading.evalFunction(values);
+                int numberOfComponents = shadingColorSpace.getNumberOfComponents();
+                if (functionOutput == null)
+                {
+                    functionOutput = new float[numberOfComponents];
+                }
+                shading.evalFunction(values, 1, functionOutput, numberOfComponents, 1);
+                values = functionOutput;
             }
             catch (IOException exception)
             {
@@ -122,6 +122,13 @@ class Type1ShadingContext extends ShadingContext implements PaintContext
     {
         WritableRaster raster = getColorModel().createCompatibleWritableRaster(w, h);
         int[] data = new int[w * h * 4];
+        int numberOfComponents = shadingColorSpace != null
+                ? shadingColorSpace.getNumberOfComponents() : 3;
+        // the function is evaluated for all pixels of a row within the domain at once
+        float[] input = new float[w * 2];
+        float[] output = new float[w * numberOfComponents];
+        int[] columns = new int[w];
+        float[] values = new float[numberOfComponents];
         for (int j = 0; j < h; j++)
         {
             int currentY = y + j;
@@ -132,6 +139,7 @@ class Type1ShadingContext extends ShadingContext implements PaintContext
                     continue;
                 }
             }
+            int count = 0;
             for (int i = 0; i < w; i++)
             {
                 int currentX = x + i;
@@ -142,62 +150,65 @@ class Type1ShadingContext extends ShadingContext implements PaintContext
                         continue;
                     }
                 }
-                int index = (j * w + i) * 4;
-                boolean useBackground = false;
-                float[] values = new float[]
-                {
-                    x + i, y + j
-                };
-                rat.transform(values, 0, values, 0, 1);
-                if (values[0] < domain[0] || values[0] > domain[1] || values[1] < domain[2] || values[1] > domain[3])
+                input[count * 2] = x + i;
+                input[count * 2 + 1] = y + j;
+                rat.transform(input, count * 2, input, count * 2, 1);
+                float u = input[count * 2];
+                float v = input[count * 2 + 1];
+                if (u < domain[0] || u > domain[1] || v < domain[2] || v > domain[3])
                 {
                     if (background != null)
                     {
-                        useBackground = true;
-                    }
-                    else
-                    {
-                        continue;
-                    }
-                }
-                // evaluate function
-                if (useBackground)
-                {
-                    values = background;
-                }
-                else
-                {
-                    try
-                    {
-                        values = type1ShadingType.evalFunction(values);
-                    }
-                    catch (IOException exception)
-                    {
-                        LOG.error("error while processing a function", exception);
-                    }
-                }
-                // convert color values from shading color space to RGB
-                if (shadingColorSpace != null)
-                {
-                    try
-                    {
-                        values = shadingColorSpace.toRGB(values);
-                    }
-                    catch (IOException exception)
-                    {
-                        LOG.error("error processing color space", exception);
+                        setPixel(data, (j * w + i) * 4, background);
                     }
+                    continue;
                 }
-                data[index] = (int) (values[0] * 255);
-                data[index + 1] = (int) (values[1] * 255);
-                data[index + 2] = (int) (values[2] * 255);
-                data[index + 3] = 255;
+                columns[count++] = i;
+            }
+            if (count == 0)
+            {
+                continue;
+            }
+            // evaluate function
+            try
+            {
+                type1ShadingType.evalFunction(input, 2, output, numberOfComponents, count);
+            }
+            catch (IOException exception)
+            {
+                LOG.error("error while processing a function", exception);
+                continue;
+            }
+            for (int k = 0; k < count; k++)
+            {
+                System.arraycopy(output, k * numberOfComponents, values, 0, numberOfComponents);
+                setPixel(data, (j * w + columns[k]) * 4, values);
             }
         }
         raster.setPixels(0, 0, w, h, data);
         return raster;
     }
 
+    // convert color values from shading color space to RGB and store them as an opaque pixel
+    private void setPixel(int[] data, int index, float[] values)
+    {
+        if (shadingColorSpace != null)
+        {
+            try
+            {
+                values = shadingColorSpace.toRGB(values);
+            }
+            catch (IOException exception)
+            {
+                LOG.error("error processing color space", exception);
+            }
+        }
+        data[index] = (int) (values[0] * 255);
+        data[index + 1] = (int) (values[1] * 255);
+        data[index + 2] = (int) (values[2] * 255);
+        data[index + 3] = 255;
+    }
+
     public float[] getDomain()
     {
         return domain;
@@ -50,17 +50,23 @@ class Type4ShadingContext extends GouraudShadingContext
      * @param cm the color model to be used
      * @param xform transformation for user to device space
      * @param ctm current transformation matrix
+     * @param cache cache of shading data, or null
      */
     public Type4ShadingContext(PDShadingType4 shading, ColorModel cm, AffineTransform xform,
-            Matrix ctm, Rectangle dBounds) throws IOException
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
     {
-        super(shading, cm, xform, ctm, dBounds);
+        super(shading, cm, xform, ctm, dBounds, cache);
         LOG.debug("Type4ShadingContext");
 
         bitsPerFlag = shading.getBitsPerFlag();
         LOG.debug("bitsPerFlag: " + bitsPerFlag); //TODO handle cases where bitperflag isn't 8
-        triangleList = getTriangleList(xform, ctm);
-        pixelTable = calcPixelTable();
+        triangleList = getCachedTriangleList();
+        if (triangleList == null)
+        {
+            triangleList = getTriangleList(xform, ctm);
+            putCachedTriangleList();
+        }
+        pixelTable = getPixelTable();
     }
 
     private ArrayList<ShadedTriangle> getTriangleList(AffineTransform xform, Matrix ctm) throws IOException
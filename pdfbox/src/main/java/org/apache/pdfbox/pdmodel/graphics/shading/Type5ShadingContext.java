@@ -49,17 +49,23 @@ class Type5ShadingContext extends GouraudShadingContext
      * @param cm the color model to be used
      * @param xform transformation for user to device space
      * @param ctm current transformation matrix
+     * @param cache cache of shading data, or null
      * @throws IOException if something went wrong
      */
     public Type5ShadingContext(PDShadingType5 shading, ColorModel cm, AffineTransform xform,
-            Matrix ctm, Rectangle dBounds) throws IOException
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
     {
-        super(shading, cm, xform, ctm, dBounds);
+        super(shading, cm, xform, ctm, dBounds, cache);
 
         LOG.debug("Type5ShadingContext");
 
-        triangleList = getTriangleList(xform, ctm);
-        pixelTable = calcPixelTable();
+        triangleList = getCachedTriangleList();
+        if (triangleList == null)
+        {
+            triangleList = getTriangleList(xform, ctm);
+            putCachedTriangleList();
+        }
+        pixelTable = getPixelTable();
     }
 
     private ArrayList<ShadedTriangle> getTriangleList(AffineTransform xform, Matrix ctm) throws IOException
@@ -38,17 +38,20 @@ class Type5ShadingPaint implements Paint
 
     private PDShadingType5 shading;
     private Matrix ctm;
+    private ShadingCache cache;
 
     /**
      * Constructor.
      *
      * @param shading the shading resources
      * @param ctm current transformation matrix
+     * @param cache cache of shading data, or null
      */
-    Type5ShadingPaint(PDShadingType5 shading, Matrix ctm)
+    Type5ShadingPaint(PDShadingType5 shading, Matrix ctm, ShadingCache cache)
     {
         this.shading = shading;
         this.ctm = ctm;
+        this.cache = cache;
     }
 
     @Override
@@ -63,7 +66,7 @@ class Type5ShadingPaint implements Paint
     {
         try
         {
-            return new Type5ShadingContext(shading, cm, xform, ctm, deviceBounds);
+            return new Type5ShadingContext(shading, cm, xform, ctm, deviceBounds, cache);
         }
         catch (IOException ex)
         {
@@ -39,17 +39,20 @@ class Type6ShadingPaint implements Paint
 
     private final PDShadingType6 shading;
     private final Matrix ctm;
+    private final ShadingCache cache;
 
     /**
      * Constructor.
      *
      * @param shading the shading resources
      * @param ctm current transformation matrix
+     * @param cache cache of shading data, or null
      */
-    public Type6ShadingPaint(PDShadingType6 shading, Matrix ctm)
+    public Type6ShadingPaint(PDShadingType6 shading, Matrix ctm, ShadingCache cache)
     {
         this.shading = shading;
         this.ctm = ctm;
+        this.cache = cache;
     }
 
     @Override
@@ -64,7 +67,7 @@ class Type6ShadingPaint implements Paint
     {
         try
         {
-            return new Type6ShadingContext(shading, cm, xform, ctm, deviceBounds);
+            return new Type6ShadingContext(shading, cm, xform, ctm, deviceBounds, cache);
         }
         catch (IOException ex)
         {
@@ -42,14 +42,20 @@ class Type7ShadingContext extends PatchMeshesShadingContext
      * @param xform transformation for user to device space
      * @param ctm current transformation matrix
      * @param dBounds device bounds
+     * @param cache cache of shading data, or null
      * @throws IOException if something went wrong
      */
     public Type7ShadingContext(PDShadingType7 shading, ColorModel colorModel, AffineTransform xform,
-            Matrix ctm, Rectangle dBounds) throws IOException
+            Matrix ctm, Rectangle dBounds, ShadingCache cache) throws IOException
     {
-        super(shading, colorModel, xform, ctm, dBounds);
-        patchList = getTensorPatchList(xform, ctm);
-        pixelTable = calcPixelTable();
+        super(shading, colorModel, xform, ctm, dBounds, cache);
+        patchList = getCachedPatchList();
+        if (patchList == null)
+        {
+            patchList = getTensorPatchList(xform, ctm);
+            putCachedPatchList();
+        }
+        pixelTable = getPixelTable();
     }
 
     // get the patch list which forms the type 7 shading image from data stream
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.BoundedLRUCache;
+
+/**
+ * Document-wide cache of decoded and color converted images, so that an image which is drawn
+ * on many pages, such as a logo, is decoded only once. Images are keyed by the identity of their
+ * COS stream and the subsampling factor they were read with.
+ *
+ * The most recently used images are held strongly up to a byte budget. Images which are evicted
+ * from the budget are kept softly reachable, so they can still be used until the garbage
+ * collector needs the memory.
+ */
+public final class ImageCache
+{
+    /** The default budget of strongly cached image data, in bytes. */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final Map<Key, SoftEntry> softImages = new HashMap<Key, SoftEntry>();
+    private final ReferenceQueue<BufferedImage> queue = new ReferenceQueue<BufferedImage>();
+    private final BoundedLRUCache<Key, BufferedImage> images;
+
+    // lookups which missed the budget but found a softly reachable image
+    private long softHitCount;
+
+    /**
+     * Creates a new image cache with the default budget.
+     */
+    public ImageCache()
+    {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new image cache.
+     *
+     * @param maxBytes budget of strongly cached image data in bytes, 0 to keep images softly
+     * reachable only
+     */
+    public ImageCache(long maxBytes)
+    {
+        images = new BoundedLRUCache<Key, BufferedImage>(maxBytes)
+        {
+            @Override
+            protected void evicted(Key key, BufferedImage image)
+            {
+                softImages.put(key, new SoftEntry(key, image, queue));
+            }
+        };
+    }
+
+    /**
+     * Returns the image for the given XObject, decoding it if it isn't in the cache.
+     *
+     * @param image the image XObject
+     * @param subsampling the subsampling factor, 1 for the full image
+     * @return the decoded image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage getImage(PDImageXObject image, int subsampling) throws IOException
+    {
+        Key key = new Key(image.getCOSStream(), subsampling);
+        BufferedImage cached = get(key);
+        if (cached != null)
+        {
+            return cached;
+        }
+        BufferedImage decoded = image.getImage(subsampling);
+        put(key, decoded);
+        return decoded;
+    }
+
+    private synchronized BufferedImage get(Key key)
+    {
+        BufferedImage image = images.get(key);
+        if (image != null)
+        {
+            return image;
+        }
+
+        // revive a softly reachable image, if the garbage collector hasn't cleared it yet
+        expungeClearedEntries();
+        SoftEntry entry = softImages.remove(key);
+        if (entry != null)
+        {
+            image = entry.get();
+            if (image != null)
+            {
+                softHitCount++;
+                put(key, image);
+                return image;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void put(Key key, BufferedImage image)
+    {
+        // images evicted from the budget are moved to the soft cache by the LRU cache
+        if (!images.put(key, image, getByteCount(image)))
+        {
+            // too large for the budget, but may still be reused
+            softImages.put(key, new SoftEntry(key, image, queue));
+        }
+    }
+
+    // removes soft entries whose images have been collected
+    private void expungeClearedEntries()
+    {
+        SoftEntry entry;
+        while ((entry = (SoftEntry) queue.poll()) != null)
+        {
+            if (softImages.get(entry.key) == entry)
+            {
+                softImages.remove(entry.key);
+            }
+        }
+    }
+
+    /**
+     * Returns the budget of strongly cached image data, in bytes.
+     */
+    public synchronized long getMaxBytes()
+    {
+        return images.getMaxBytes();
+    }
+
+    /**
+     * Sets the budget of strongly cached image data. Images beyond the budget are only kept
+     * softly reachable.
+     *
+     * @param maxBytes the budget in bytes, 0 to keep images softly reachable only
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        images.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the size of the strongly cached image data, in bytes.
+     */
+    public synchronized long getByteCount()
+    {
+        return images.getByteCount();
+    }
+
+    /**
+     * Returns the number of strongly cached images.
+     */
+    public synchronized int getImageCount()
+    {
+        return images.size();
+    }
+
+    /**
+     * Returns the number of lookups which found a cached image, including those which found a
+     * softly reachable one.
+     */
+    public synchronized long getHitCount()
+    {
+        return images.getHitCount() + softHitCount;
+    }
+
+    /**
+     * Returns the number of lookups which found an image that had been evicted from the budget,
+     * but not yet been garbage collected.
+     */
+    public synchronized long getSoftHitCount()
+    {
+        return softHitCount;
+    }
+
+    /**
+     * Returns the number of lookups which had to decode the image.
+     */
+    public synchronized long getMissCount()
+    {
+        // the soft hits are misses of the LRU cache
+        return images.getMissCount() - softHitCount;
+    }
+
+    /**
+     * Returns the number of images which were evicted from the budget.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return images.getEvictionCount();
+    }
+
+    /**
+     * Removes all images from the cache. The statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        images.clear();
+        softImages.clear();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "ImageCache{images=" + images.size() + ", bytes=" + images.getByteCount() +
+                ", maxBytes=" + images.getMaxBytes() + ", hits=" + getHitCount() +
+                ", softHits=" + softHitCount + ", misses=" + getMissCount() + ", evictions=" +
+                images.getEvictionCount() + "}";
+    }
+
+    // size of the image data in memory
+    static long getByteCount(BufferedImage image)
+    {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() *
+                DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Cache key, the identity of the image stream and the subsampling factor.
+     */
+    private static final class Key
+    {
+        private final COSStream stream;
+        private final int subsampling;
+
+        Key(COSStream stream, int subsampling)
+        {
+            this.stream = stream;
+            this.subsampling = subsampling;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return stream == other.stream && subsampling == other.subsampling;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(stream) * 31 + subsampling;
+        }
+    }
+
+    /**
+     * Soft reference to an evicted image, which remembers its key.
+     */
+    private static final class SoftEntry extends SoftReference<BufferedImage>
+    {
+        private final Key key;
+
+        SoftEntry(Key key, BufferedImage image, ReferenceQueue<BufferedImage> queue)
+        {
+            super(image, queue);
+            this.key = key;
+        }
+    }
+}
@@ -57,6 +57,19 @@ public enum ImageType
         {
             return BufferedImage.TYPE_INT_ARGB;
         }
+    },
+
+    /**
+     * Red, Green, Blue, stored as interleaved bytes in the order blue, green, red. This looks the
+     * same as {@link #RGB}, but takes three bytes per pixel instead of four, and is the layout
+     * which image writers such as the TIFF and JPEG writers encode without converting each pixel.
+     */
+    BGR {
+        @Override
+        int toBufferedImageType()
+        {
+            return BufferedImage.TYPE_3BYTE_BGR;
+        }
     };
 
     abstract int toBufferedImageType();
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.pdfbox.util.BoundedLRUCache;
+
+/**
+ * Pool of the offscreen images which transparency groups and soft masks are rendered into, so
+ * that a page with many groups doesn't allocate a new image for each of them. Released images
+ * are kept up to a byte budget and handed out again, cleared, for groups of the same or a
+ * somewhat smaller size.
+ */
+public final class OffscreenImagePool
+{
+    /** The default budget of idle images, in bytes. */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    // an idle image is only used for groups which cover at least this part of it
+    private static final int MAX_AREA_RATIO = 4;
+
+    // the idle images, by their identity, in the order they were released
+    private final BoundedLRUCache<BufferedImage, BufferedImage> idleImages;
+    // the pooled images of the subimages which have been handed out, some of which are kept
+    // by soft masks and never released
+    private final Map<BufferedImage, BufferedImage> parents =
+            new WeakHashMap<BufferedImage, BufferedImage>();
+
+    private long allocationCount;
+    private long allocatedBytes;
+    private long reuseCount;
+    private long reusedBytes;
+
+    /**
+     * Creates a new pool with the default budget.
+     */
+    public OffscreenImagePool()
+    {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxBytes budget of idle images in bytes, 0 to disable pooling
+     */
+    public OffscreenImagePool(long maxBytes)
+    {
+        idleImages = new BoundedLRUCache<BufferedImage, BufferedImage>(maxBytes);
+    }
+
+    /**
+     * Returns a fully transparent ARGB image of the given size, which is either a pooled image
+     * or a new one. It may be a subimage of a larger pooled image.
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return a cleared image
+     */
+    public synchronized BufferedImage acquire(int width, int height)
+    {
+        long area = (long) width * height;
+        BufferedImage pooled = null;
+        long bestArea = Long.MAX_VALUE;
+        for (BufferedImage idle : idleImages.values())
+        {
+            long idleArea = (long) idle.getWidth() * idle.getHeight();
+            if (idle.getWidth() >= width && idle.getHeight() >= height &&
+                idleArea <= area * MAX_AREA_RATIO && idleArea < bestArea)
+            {
+                pooled = idle;
+                bestArea = idleArea;
+            }
+        }
+        if (pooled == null)
+        {
+            allocationCount++;
+            allocatedBytes += area * 4;
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        idleImages.remove(pooled);
+        reuseCount++;
+        reusedBytes += area * 4;
+        clear(pooled, width, height);
+        if (pooled.getWidth() == width && pooled.getHeight() == height)
+        {
+            return pooled;
+        }
+        BufferedImage image = pooled.getSubimage(0, 0, width, height);
+        parents.put(image, pooled);
+        return image;
+    }
+
+    /**
+     * Returns an image to the pool. It must have been acquired from this pool and must not be
+     * used afterwards.
+     *
+     * @param image the image
+     */
+    public synchronized void release(BufferedImage image)
+    {
+        BufferedImage pooled = parents.remove(image);
+        if (pooled == null)
+        {
+            pooled = image;
+        }
+        // the images which were released first are dropped if the budget is exceeded
+        idleImages.put(pooled, pooled, (long) pooled.getWidth() * pooled.getHeight() * 4);
+    }
+
+    // clears the upper left part of the image which is handed out
+    private static void clear(BufferedImage image, int width, int height)
+    {
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int stride = image.getWidth();
+        if (width == stride)
+        {
+            Arrays.fill(data, 0, width * height, 0);
+        }
+        else
+        {
+            for (int y = 0; y < height; y++)
+            {
+                Arrays.fill(data, y * stride, y * stride + width, 0);
+            }
+        }
+    }
+
+    /**
+     * Returns the budget of idle images, in bytes.
+     */
+    public synchronized long getMaxBytes()
+    {
+        return idleImages.getMaxBytes();
+    }
+
+    /**
+     * Sets the budget of idle images, dropping the images which were released first if needed.
+     *
+     * @param maxBytes the budget in bytes, 0 to disable pooling
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        idleImages.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the size of the idle images, in bytes.
+     */
+    public synchronized long getIdleByteCount()
+    {
+        return idleImages.getByteCount();
+    }
+
+    /**
+     * Returns the number of idle images.
+     */
+    public synchronized int getIdleImageCount()
+    {
+        return idleImages.size();
+    }
+
+    /**
+     * Returns the number of images which had to be allocated.
+     */
+    public synchronized long getAllocationCount()
+    {
+        return allocationCount;
+    }
+
+    /**
+     * Returns the size of the images which had to be allocated, in bytes.
+     */
+    public synchronized long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the number of images which were handed out again.
+     */
+    public synchronized long getReuseCount()
+    {
+        return reuseCount;
+    }
+
+    /**
+     * Returns the size of the image data which was handed out again, in bytes.
+     */
+    public synchronized long getReusedBytes()
+    {
+        return reusedBytes;
+    }
+
+    /**
+     * Drops all idle images. The statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        idleImages.clear();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "OffscreenImagePool{idleImages=" + idleImages.size() + ", idleBytes=" +
+                idleImages.getByteCount() + ", maxBytes=" + idleImages.getMaxBytes() +
+                ", allocations=" + allocationCount +
+                ", allocatedBytes=" + allocatedBytes + ", reuses=" + reuseCount +
+                ", reusedBytes=" + reusedBytes + "}";
+    }
+}
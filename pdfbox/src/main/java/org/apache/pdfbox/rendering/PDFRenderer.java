@@ -19,11 +19,15 @@ package org.apache.pdfbox.rendering;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.io.IOException;
 
+import org.apache.pdfbox.contentstream.CancellationToken;
+import org.apache.pdfbox.contentstream.ProcessingProfile;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.shading.ShadingCache;
 
 /**
  * Renders a PDF document to an AWT BufferedImage.
@@ -38,6 +42,14 @@ public class PDFRenderer
     // TODO keep rendering state such as caches here
 
     private boolean clearResourcesAutomatically;
+    private boolean subsamplingAllowed;
+    private boolean inPlaceGroupsAllowed;
+    private boolean bitonalFastPathAllowed;
+    private final ImageCache imageCache = new ImageCache();
+    private final ShadingCache shadingCache = new ShadingCache();
+    private final TilingPatternCache tilingPatternCache = new TilingPatternCache();
+    private final OffscreenImagePool offscreenImagePool = new OffscreenImagePool();
+    private ProcessingProfile profile;
 
     /**
      * Creates a new PDFRenderer.
@@ -59,6 +71,139 @@ public class PDFRenderer
         this.clearResourcesAutomatically = clearResourcesAutomatically;
     }
 
+    /**
+     * Returns the cache of decoded images, which is shared by all pages rendered by this
+     * renderer. Its budget can be changed and its statistics read.
+     * @return the image cache
+     */
+    public ImageCache getImageCache()
+    {
+        return imageCache;
+    }
+
+    /**
+     * Returns the cache of color tables and rasterized meshes of shadings, which is shared by
+     * all pages rendered by this renderer. Its budget can be changed and its statistics read.
+     * @return the shading cache
+     */
+    public ShadingCache getShadingCache()
+    {
+        return shadingCache;
+    }
+
+    /**
+     * Returns the cache of rendered tiling pattern cells, which is shared by all pages rendered
+     * by this renderer. Its budget can be changed and its statistics read.
+     * @return the tiling pattern cache
+     */
+    public TilingPatternCache getTilingPatternCache()
+    {
+        return tilingPatternCache;
+    }
+
+    /**
+     * Returns the pool of offscreen images which transparency groups and soft masks are rendered
+     * into, which is shared by all pages rendered by this renderer. Its budget can be changed
+     * and its statistics read.
+     * @return the offscreen image pool
+     */
+    public OffscreenImagePool getOffscreenImagePool()
+    {
+        return offscreenImagePool;
+    }
+
+    /**
+     * Returns the profile into which rendering is recorded, or null.
+     * @return the profile, or null if profiling is disabled
+     */
+    public ProcessingProfile getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * Sets a profile into which the count and the elapsed time of each operator, XObject, font,
+     * image decode and shading of the pages rendered afterwards are recorded, see
+     * {@link org.apache.pdfbox.contentstream.PDFStreamEngine#setProfile(ProcessingProfile)}. Use a new profile per page to get
+     * the results of single pages. The default is null, which disables profiling.
+     * @param profile the profile, or null
+     */
+    public void setProfile(ProcessingProfile profile)
+    {
+        this.profile = profile;
+    }
+
+    /**
+     * Returns true if images which are drawn smaller than their own resolution may be read
+     * subsampled, see {@link #setSubsamplingAllowed(boolean)}.
+     * @return true if subsampling of images is allowed
+     */
+    public boolean isSubsamplingAllowed()
+    {
+        return subsamplingAllowed;
+    }
+
+    /**
+     * Sets whether images which are drawn smaller than their own resolution may be read
+     * subsampled, i.e. with only every n-th row and column decoded. This makes rendering
+     * thumbnails of scanned documents much faster, at a slight loss of quality because fewer
+     * image pixels are averaged into each device pixel. The default is false.
+     * @param subsamplingAllowed true to allow subsampling of images
+     */
+    public void setSubsamplingAllowed(boolean subsamplingAllowed)
+    {
+        this.subsamplingAllowed = subsamplingAllowed;
+    }
+
+    /**
+     * Returns true if transparency groups may be drawn directly onto the page, see
+     * {@link #setInPlaceGroupsAllowed(boolean)}.
+     * @return true if groups may be drawn in place
+     */
+    public boolean isInPlaceGroupsAllowed()
+    {
+        return inPlaceGroupsAllowed;
+    }
+
+    /**
+     * Sets whether isolated, non-knockout transparency groups which are painted with full
+     * opacity, normal blending and no soft mask may be drawn directly onto the page, like forms
+     * which aren't groups, instead of being rendered into an offscreen image first. Groups whose
+     * resources, or the resources of the forms in them, contain a graphics state with another
+     * blend mode than Normal are always rendered offscreen, because their content must be
+     * blended against the group's transparent backdrop instead of the page. This saves an image
+     * per group, but the result may differ slightly at the antialiased edges of the group's
+     * content. The default is false.
+     * @param inPlaceGroupsAllowed true to allow drawing groups in place
+     */
+    public void setInPlaceGroupsAllowed(boolean inPlaceGroupsAllowed)
+    {
+        this.inPlaceGroupsAllowed = inPlaceGroupsAllowed;
+    }
+
+    /**
+     * Returns true if black and white images may be rendered on the fast path, see
+     * {@link #setBitonalFastPathAllowed(boolean)}.
+     * @return true if the bitonal fast path is allowed
+     */
+    public boolean isBitonalFastPathAllowed()
+    {
+        return bitonalFastPathAllowed;
+    }
+
+    /**
+     * Sets whether images of type {@link ImageType#BINARY} may be rendered on a fast path: the
+     * page is drawn without antialiasing and with nearest-neighbour interpolation of images
+     * into a gray image, which is then thresholded into black and white. This is several times
+     * faster for pages with images, but edges and pixels close to mid gray may come out
+     * differently. The default is false.
+     * @param bitonalFastPathAllowed true to allow the bitonal fast path
+     */
+    public void setBitonalFastPathAllowed(boolean bitonalFastPathAllowed)
+    {
+        this.bitonalFastPathAllowed = bitonalFastPathAllowed;
+    }
+
     /**
      * Returns the given page as an RGB image at 72 DPI
      * @param pageIndex the zero-based index of the page to be converted.
@@ -119,9 +264,58 @@ public class PDFRenderer
      */
     public BufferedImage renderImage(int pageIndex, float scale, ImageType imageType)
             throws IOException
+    {
+        return renderPass(document.getPage(pageIndex), scale, imageType, null, false).getImage();
+    }
+
+    /**
+     * Returns the given page as an RGB or ARGB image at the given scale, rendering only until
+     * the given token is cancelled. The result tells whether the image is complete, and if not,
+     * what has been left out.
+     *
+     * In two-pass mode, the page is first rendered without images and shadings, which usually
+     * take longest, and then again completely. If the token is cancelled during the second pass,
+     * the image of the first pass is returned. The second pass is skipped if the page has no
+     * images or shadings.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param imageType the type of image to return
+     * @param token the token which stops rendering, may be null
+     * @param twoPass true to render the page without images and shadings first
+     * @return the rendered page image and what has been left out of it
+     * @throws IOException if the PDF cannot be read
+     */
+    public RenderingResult renderImage(int pageIndex, float scale, ImageType imageType,
+                                       CancellationToken token, boolean twoPass)
+            throws IOException
     {
         PDPage page = document.getPage(pageIndex);
+        if (!twoPass)
+        {
+            return renderPass(page, scale, imageType, token, false);
+        }
 
+        RenderingResult draft = renderPass(page, scale, imageType, token, true);
+        if (draft.isTruncated() || draft.isComplete())
+        {
+            return draft;
+        }
+        RenderingResult result = renderPass(page, scale, imageType, token, false);
+        if (!result.isTruncated())
+        {
+            return result;
+        }
+        // the first pass shows more than a second pass which has been stopped halfway
+        return new RenderingResult(draft.getImage(), true, false, draft.getOmittedImageCount(),
+                                   draft.getOmittedShadingCount(),
+                                   draft.getProcessedOperatorCount());
+    }
+
+    // renders a page into a new image, leaving out images and shadings for a draft
+    private RenderingResult renderPass(PDPage page, float scale, ImageType imageType,
+                                       CancellationToken token, boolean draft) throws IOException
+    {
         PDRectangle cropBox = page.findCropBox();
         float widthPt = cropBox.getWidth();
         float heightPt = cropBox.getHeight();
@@ -129,6 +323,11 @@ public class PDFRenderer
         int heightPx = Math.round(heightPt * scale);
         int rotationAngle = page.findRotation();
 
+        // Java2D is much slower drawing into 1-bit images than into gray ones
+        boolean bitonal = imageType == ImageType.BINARY && bitonalFastPathAllowed;
+        int bufferedImageType = bitonal ? BufferedImage.TYPE_BYTE_GRAY
+                                        : imageType.toBufferedImageType();
+
         // normalize the rotation angle
         if (rotationAngle < 0)
         {
@@ -143,11 +342,11 @@ public class PDFRenderer
         BufferedImage image;
         if (rotationAngle == 90 || rotationAngle == 270)
         {
-            image = new BufferedImage(heightPx, widthPx, imageType.toBufferedImageType());
+            image = new BufferedImage(heightPx, widthPx, bufferedImageType);
         }
         else
         {
-            image = new BufferedImage(widthPx, heightPx, imageType.toBufferedImageType());
+            image = new BufferedImage(widthPx, heightPx, bufferedImageType);
         }
 
         // use a transparent background if the imageType supports alpha
@@ -157,10 +356,47 @@ public class PDFRenderer
             g.setBackground(Color.WHITE);
         }
 
-        renderPage(page, g, image.getWidth(), image.getHeight(), scale, scale);
+        PageDrawer drawer = renderPage(page, g, image.getWidth(), image.getHeight(), scale, scale,
+                                       token, draft, bitonal);
         g.dispose();
 
-        return image;
+        if (bitonal)
+        {
+            image = threshold(image);
+        }
+
+        return new RenderingResult(image, drawer.isCancelled(), drawer.isCancelled(),
+                                   drawer.getOmittedImageCount(),
+                                   drawer.getOmittedShadingCount(),
+                                   drawer.getProcessedOperatorCount());
+    }
+
+    // packs a gray image into a black and white one, gray levels of 128 and above become white
+    private static BufferedImage threshold(BufferedImage gray)
+    {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] src = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        byte[] dst = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) / 8;
+        for (int y = 0; y < height; y++)
+        {
+            int srcOffset = y * width;
+            int dstOffset = y * stride;
+            for (int x = 0; x < width; x += 8)
+            {
+                // the first pixel is in the most significant bit, 1 is white
+                int bits = 0;
+                int count = Math.min(8, width - x);
+                for (int i = 0; i < count; i++)
+                {
+                    bits |= ((src[srcOffset + x + i] & 0x80) >> 7) << (7 - i);
+                }
+                dst[dstOffset + (x >> 3)] = (byte) bits;
+            }
+        }
+        return binary;
     }
 
     /**
@@ -187,13 +423,15 @@ public class PDFRenderer
         PDPage page = document.getPage(pageIndex);
         // TODO need width/wight calculations? should these be in PageDrawer?
         PDRectangle cropBox = page.findCropBox();
-        renderPage(page, graphics, (int)cropBox.getWidth(), (int)cropBox.getHeight(), scale, scale);
+        renderPage(page, graphics, (int)cropBox.getWidth(), (int)cropBox.getHeight(), scale, scale,
+                   null, false, false);
     }
 
     // renders a page to the given graphics
     // TODO need to be able to override this
-    private void renderPage(PDPage page, Graphics2D graphics, int width, int height, float scaleX,
-                            float scaleY) throws IOException
+    private PageDrawer renderPage(PDPage page, Graphics2D graphics, int width, int height,
+                                  float scaleX, float scaleY, CancellationToken token,
+                                  boolean draft, boolean bitonal) throws IOException
     {
         graphics.clearRect(0, 0, width, height);
 
@@ -225,11 +463,15 @@ public class PDFRenderer
 
         // TODO: need to make it easy to use a custom PageDrawer and TilingPatternDrawer
         PageDrawer drawer = new PageDrawer(this, page);
+        drawer.setCancellationToken(token);
+        drawer.setDraft(draft);
+        drawer.setBitonal(bitonal);
         drawer.drawPage(graphics, cropBox);
 
         if (clearResourcesAutomatically)
         {
             page.clearCache();
         }
+        return drawer;
     }
 }
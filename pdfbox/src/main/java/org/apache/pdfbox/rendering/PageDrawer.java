@@ -35,15 +35,23 @@ import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.font.PDCIDFontType0;
 import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
 import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
 import org.apache.pdfbox.rendering.font.CIDType0Glyph2D;
 import org.apache.pdfbox.rendering.font.Glyph2D;
@@ -65,6 +73,7 @@ import org.apache.pdfbox.pdmodel.graphics.blend.SoftMaskPaint;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDGroup;
 import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
 import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
 import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
@@ -73,6 +82,7 @@ import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
 import org.apache.pdfbox.util.Matrix;
 import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.ProcessingProfile;
 import org.apache.pdfbox.util.Vector;
 
 /**
@@ -103,6 +113,14 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     private Area textClippingArea;
 
     private final Map<PDFont, Glyph2D> fontGlyph2D = new HashMap<PDFont, Glyph2D>();
+
+    // leave out images and shadings
+    private boolean draft;
+    private int omittedImages;
+    private int omittedShadings;
+
+    // draw for black and white output
+    private boolean bitonal;
     
     /**
      * Default constructor, loads properties from file.
@@ -115,6 +133,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     {
         super(page);
         this.renderer = renderer;
+        setProfile(renderer.getProfile());
     }
 
     /**
@@ -127,6 +146,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     {
         super(null);
         this.renderer = renderer;
+        setProfile(renderer.getProfile());
     }
 
     /**
@@ -137,11 +157,79 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         return renderer;
     }
 
+    /**
+     * Returns true if images and shadings are left out, see {@link #setDraft(boolean)}.
+     * @return true if this is a draft
+     */
+    public boolean isDraft()
+    {
+        return draft;
+    }
+
+    /**
+     * Sets whether images and shadings are left out, so that all other content of a page can be
+     * shown quickly. Shading patterns used as fills are still painted. The default is false.
+     * @param draft true to leave out images and shadings
+     */
+    public void setDraft(boolean draft)
+    {
+        this.draft = draft;
+    }
+
+    /**
+     * Returns true if the page is drawn for black and white output, see
+     * {@link #setBitonal(boolean)}.
+     * @return true if drawing for black and white output
+     */
+    public boolean isBitonal()
+    {
+        return bitonal;
+    }
+
+    /**
+     * Sets whether the page is drawn for black and white output, i.e. without antialiasing and
+     * with nearest-neighbour interpolation of images, as the shades of gray which these produce
+     * are lost when the output is thresholded anyway. The default is false.
+     * @param bitonal true to draw for black and white output
+     */
+    public void setBitonal(boolean bitonal)
+    {
+        this.bitonal = bitonal;
+    }
+
+    /**
+     * Returns the number of images which have been left out in draft mode.
+     * @return the number of omitted images
+     */
+    public int getOmittedImageCount()
+    {
+        return omittedImages;
+    }
+
+    /**
+     * Returns the number of shadings which have been left out in draft mode.
+     * @return the number of omitted shadings
+     */
+    public int getOmittedShadingCount()
+    {
+        return omittedShadings;
+    }
+
     /**
      * Sets high-quality rendering hints on the current Graphics2D.
      */
     private void setRenderingHints()
     {
+        if (bitonal)
+        {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                      RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                                      RenderingHints.VALUE_RENDER_SPEED);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                      RenderingHints.VALUE_ANTIALIAS_OFF);
+            return;
+        }
         graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
                                   RenderingHints.VALUE_INTERPOLATION_BICUBIC);
         graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
@@ -561,11 +649,14 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         COSName subtype = softMask.getSubType();
         if (COSName.ALPHA.equals(subtype))
         {
+            // the raster shares the group's image, which can't be released
             return transparencyGroup.getAlphaRaster();
         }
         else if (COSName.LUMINOSITY.equals(subtype))
         {
-            return transparencyGroup.getLuminosityRaster();
+            Raster raster = transparencyGroup.getLuminosityRaster();
+            transparencyGroup.release();
+            return raster;
         }
         else
         {
@@ -805,8 +896,15 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     @Override
     public void drawImage(PDImage pdImage) throws IOException
     {
+        if (draft)
+        {
+            omittedImages++;
+            return;
+        }
         Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
         AffineTransform at = ctm.createAffineTransform();
+        ProcessingProfile profile = getProfile();
+        long start = profile != null ? System.nanoTime() : 0;
 
         if (pdImage.isStencil())
         {
@@ -815,6 +913,10 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             PDColor color = getGraphicsState().getNonStrokingColor();
             BufferedImage image = pdImage.getStencilImage(
                     colorSpace.toPaint(renderer, color, getSubStreamMatrix(), xform));
+            if (profile != null)
+            {
+                profile.recordImage(describeImage(pdImage), System.nanoTime() - start);
+            }
 
             // draw the image
             drawBufferedImage(image, at);
@@ -835,8 +937,27 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 }
             }
 
-            // draw the image
-            drawBufferedImage(pdImage.getImage(), at);
+            // draw the image, skipping rows and columns which wouldn't be visible anyway
+            int subsampling = renderer.isSubsamplingAllowed() ? getSubsampling(pdImage, at) : 1;
+            BufferedImage image;
+            if (pdImage instanceof PDImageXObject)
+            {
+                // XObjects are shared between pages, inline images are not
+                image = renderer.getImageCache().getImage((PDImageXObject) pdImage, subsampling);
+            }
+            else if (pdImage instanceof PDInlineImage)
+            {
+                image = ((PDInlineImage) pdImage).getImage(subsampling);
+            }
+            else
+            {
+                image = pdImage.getImage();
+            }
+            if (profile != null)
+            {
+                profile.recordImage(describeImage(pdImage), System.nanoTime() - start);
+            }
+            drawBufferedImage(image, at);
 
             if (!pdImage.getInterpolate())
             {
@@ -847,6 +968,30 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
     }
 
+    // images are profiled by kind and size, as their resource names aren't known here
+    private static String describeImage(PDImage pdImage)
+    {
+        String kind = pdImage.isStencil() ? "stencil" : pdImage.getSuffix();
+        return kind + " " + pdImage.getWidth() + "x" + pdImage.getHeight();
+    }
+
+    // returns the number of image pixels per device pixel in the less reduced direction,
+    // so that the subsampled image still has at least the resolution of the device
+    private int getSubsampling(PDImage pdImage, AffineTransform at)
+    {
+        AffineTransform deviceTransform = graphics.getTransform();
+        deviceTransform.concatenate(at);
+        double deviceWidth = Math.hypot(deviceTransform.getScaleX(), deviceTransform.getShearY());
+        double deviceHeight = Math.hypot(deviceTransform.getShearX(), deviceTransform.getScaleY());
+        double scale = Math.min(pdImage.getWidth() / deviceWidth,
+                                pdImage.getHeight() / deviceHeight);
+        if (Double.isNaN(scale) || scale < 2)
+        {
+            return 1;
+        }
+        return (int) Math.min(scale, Integer.MAX_VALUE);
+    }
+
     public void drawBufferedImage(BufferedImage image, AffineTransform at) throws IOException
     {
         graphics.setComposite(getGraphicsState().getNonStrokingJavaComposite());
@@ -879,22 +1024,155 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     @Override
     public void shadingFill(COSName shadingName) throws IOException
     {
+        if (draft)
+        {
+            omittedShadings++;
+            return;
+        }
+        ProcessingProfile profile = getProfile();
+        long start = profile != null ? System.nanoTime() : 0;
         PDShading shading = getResources().getShadings().get(shadingName.getName());
         Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
-        Paint paint = shading.toPaint(ctm);
+        Paint paint = shading.toPaint(ctm, renderer.getShadingCache());
 
         graphics.setComposite(getGraphicsState().getNonStrokingJavaComposite());
         graphics.setPaint(paint);
         graphics.setClip(null);
         lastClip = null;
         graphics.fill(getGraphicsState().getCurrentClippingPath());
+        if (profile != null)
+        {
+            profile.recordShading(shadingName.getName(), System.nanoTime() - start);
+        }
     }
 
     @Override
     public void showTransparencyGroup(PDFormXObject form) throws IOException
     {
+        if (renderer.isInPlaceGroupsAllowed() && isInPlaceGroup(form))
+        {
+            showGroupInPlace(form);
+            return;
+        }
         TransparencyGroup group = createTransparencyGroup(form);
-        group.draw();
+        try
+        {
+            group.draw();
+        }
+        finally
+        {
+            group.release();
+        }
+    }
+
+    // true if drawing the group directly gives the same result, except for rounding at the
+    // antialiased edges; content with another blend mode than Normal must be blended against the
+    // group's transparent backdrop, not against the page, so such groups are never drawn in place
+    private boolean isInPlaceGroup(PDFormXObject form)
+    {
+        PDGraphicsState state = getGraphicsState();
+        PDGroup group = form.getGroup();
+        if (!group.isIsolated() || group.isKnockout() || form.getBBox() == null ||
+            state.getSoftMask() != null || state.getBlendMode() != BlendMode.NORMAL ||
+            state.getAlphaConstants() != 1 || state.getNonStrokeAlphaConstants() != 1)
+        {
+            return false;
+        }
+        PDResources resources = form.getResources();
+        if (resources == null)
+        {
+            resources = getResources();
+        }
+        return resources == null ||
+               !usesBlendModes(resources.getCOSDictionary(), new HashSet<COSDictionary>());
+    }
+
+    // true if an ExtGState of the resources, or of the forms in them, has a blend mode other
+    // than Normal or Compatible
+    private static boolean usesBlendModes(COSDictionary resources, Set<COSDictionary> visited)
+    {
+        if (!visited.add(resources))
+        {
+            return false;
+        }
+        COSBase states = resources.getDictionaryObject(COSName.EXT_G_STATE);
+        if (states instanceof COSDictionary)
+        {
+            for (COSBase state : ((COSDictionary) states).getValues())
+            {
+                if (state instanceof COSObject)
+                {
+                    state = ((COSObject) state).getObject();
+                }
+                if (state instanceof COSDictionary &&
+                    !isNormalBlendMode(((COSDictionary) state).getDictionaryObject(COSName.BM)))
+                {
+                    return true;
+                }
+            }
+        }
+        COSBase xobjects = resources.getDictionaryObject(COSName.XOBJECT);
+        if (xobjects instanceof COSDictionary)
+        {
+            for (COSBase xobject : ((COSDictionary) xobjects).getValues())
+            {
+                if (xobject instanceof COSObject)
+                {
+                    xobject = ((COSObject) xobject).getObject();
+                }
+                if (xobject instanceof COSStream &&
+                    COSName.FORM.equals(((COSStream) xobject).getCOSName(COSName.SUBTYPE)))
+                {
+                    COSBase formResources =
+                            ((COSStream) xobject).getDictionaryObject(COSName.RESOURCES);
+                    if (formResources instanceof COSDictionary &&
+                        usesBlendModes((COSDictionary) formResources, visited))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // true if the BM entry of an ExtGState is missing or names only Normal or Compatible
+    private static boolean isNormalBlendMode(COSBase blendMode)
+    {
+        if (blendMode instanceof COSArray)
+        {
+            for (COSBase name : (COSArray) blendMode)
+            {
+                if (!isNormalBlendMode(name))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return blendMode == null || COSName.NORMAL.equals(blendMode) ||
+               COSName.COMPATIBLE.equals(blendMode);
+    }
+
+    // draws a group like a form which isn't a group
+    private void showGroupInPlace(PDFormXObject form) throws IOException
+    {
+        saveGraphicsState();
+        try
+        {
+            Matrix matrix = form.getMatrix();
+            if (matrix != null)
+            {
+                Matrix xCTM = matrix.multiply(getGraphicsState().getCurrentTransformationMatrix());
+                getGraphicsState().setCurrentTransformationMatrix(xCTM);
+            }
+            getGraphicsState().intersectClippingPath(transformedPDRectanglePath(form.getBBox()));
+            showForm(form);
+        }
+        finally
+        {
+            restoreGraphicsState();
+        }
     }
 
     private TransparencyGroup createTransparencyGroup(PDFormXObject form) throws IOException
@@ -972,7 +1250,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
 
             width = maxX - minX;
             height = maxY - minY;
-            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB); // FIXME - color space
+            // FIXME - color space
+            image = renderer.getOffscreenImagePool().acquire(width, height);
             Graphics2D g = image.createGraphics();
             g.translate(-minX, -minY);
             g.transform(at);
@@ -1032,6 +1311,14 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             }
         }
 
+        /**
+         * Returns the image to the pool. Neither it nor the group must be used afterwards.
+         */
+        public void release()
+        {
+            renderer.getOffscreenImagePool().release(image);
+        }
+
         public Raster getAlphaRaster()
         {
             return image.getAlphaRaster().createTranslatedChild(minX, minY);
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The image of a page rendered with a cancellation token, together with what has been left out
+ * of it, see
+ * {@link PDFRenderer#renderImage(int, float, ImageType,
+ * org.apache.pdfbox.contentstream.CancellationToken, boolean)}.
+ */
+public final class RenderingResult
+{
+    private final BufferedImage image;
+    private final boolean cancelled;
+    private final boolean truncated;
+    private final int omittedImages;
+    private final int omittedShadings;
+    private final long processedOperators;
+
+    RenderingResult(BufferedImage image, boolean cancelled, boolean truncated, int omittedImages,
+                    int omittedShadings, long processedOperators)
+    {
+        this.image = image;
+        this.cancelled = cancelled;
+        this.truncated = truncated;
+        this.omittedImages = omittedImages;
+        this.omittedShadings = omittedShadings;
+        this.processedOperators = processedOperators;
+    }
+
+    /**
+     * Returns the rendered image, which may be incomplete.
+     */
+    public BufferedImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Returns true if the image shows all content of the page.
+     */
+    public boolean isComplete()
+    {
+        return !truncated && omittedImages == 0 && omittedShadings == 0;
+    }
+
+    /**
+     * Returns true if the token has been cancelled before the page was completely rendered.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Returns true if the image lacks all content after the operator at which rendering was
+     * cancelled, including the annotations.
+     */
+    public boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * Returns the number of images which have been left out by the first pass of two-pass
+     * rendering.
+     */
+    public int getOmittedImageCount()
+    {
+        return omittedImages;
+    }
+
+    /**
+     * Returns the number of shadings which have been left out by the first pass of two-pass
+     * rendering.
+     */
+    public int getOmittedShadingCount()
+    {
+        return omittedShadings;
+    }
+
+    /**
+     * Returns the number of operators which have been processed for the image.
+     */
+    public long getProcessedOperatorCount()
+    {
+        return processedOperators;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RenderingResult{complete=" + isComplete() + ", cancelled=" + cancelled +
+                ", truncated=" + truncated + ", omittedImages=" + omittedImages +
+                ", omittedShadings=" + omittedShadings + ", processedOperators=" +
+                processedOperators + "}";
+    }
+}
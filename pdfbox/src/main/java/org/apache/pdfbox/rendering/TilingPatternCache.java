@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
+import org.apache.pdfbox.util.BoundedLRUCache;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Cache of rendered tiling pattern cells, so that a pattern which is used by many fills, such
+ * as the hatching of a CAD drawing, is rendered only once. Cells are keyed by the identity of
+ * the pattern stream, the pattern matrix, the scale and rotation of the device transformation
+ * and, for uncolored patterns, the color they are painted in.
+ *
+ * The most recently used cells are held up to a byte budget.
+ */
+public final class TilingPatternCache
+{
+    /** The default budget of cached cells, in bytes. */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final BoundedLRUCache<Key, BufferedImage> images;
+
+    /**
+     * Creates a new tiling pattern cache with the default budget.
+     */
+    public TilingPatternCache()
+    {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new tiling pattern cache.
+     *
+     * @param maxBytes budget of cached cells in bytes, 0 to disable caching
+     */
+    public TilingPatternCache(long maxBytes)
+    {
+        images = new BoundedLRUCache<Key, BufferedImage>(maxBytes);
+    }
+
+    /**
+     * Returns a cell which has been rendered before with the same parameters.
+     *
+     * @param pattern the tiling pattern
+     * @param colorSpace the color space of an uncolored pattern, or null
+     * @param color the color of an uncolored pattern, or null
+     * @param matrix the pattern matrix, concatenated with the substream matrix
+     * @param xform the device transformation
+     * @return the rendered cell, which must not be changed, or null
+     */
+    public synchronized BufferedImage getImage(PDTilingPattern pattern, PDColorSpace colorSpace,
+            PDColor color, Matrix matrix, AffineTransform xform)
+    {
+        return images.get(new Key(pattern, colorSpace, color, matrix, xform));
+    }
+
+    /**
+     * Stores a rendered cell. It must not be changed afterwards, as it is shared by all fills
+     * with the pattern.
+     *
+     * @param pattern the tiling pattern
+     * @param colorSpace the color space of an uncolored pattern, or null
+     * @param color the color of an uncolored pattern, or null
+     * @param matrix the pattern matrix, concatenated with the substream matrix
+     * @param xform the device transformation
+     * @param image the rendered cell
+     */
+    public synchronized void putImage(PDTilingPattern pattern, PDColorSpace colorSpace,
+            PDColor color, Matrix matrix, AffineTransform xform, BufferedImage image)
+    {
+        images.put(new Key(pattern, colorSpace, color, matrix, xform), image,
+                ImageCache.getByteCount(image));
+    }
+
+    /**
+     * Returns the budget of cached cells, in bytes.
+     */
+    public synchronized long getMaxBytes()
+    {
+        return images.getMaxBytes();
+    }
+
+    /**
+     * Sets the budget of cached cells, evicting the least recently used cells if needed.
+     *
+     * @param maxBytes the budget in bytes, 0 to disable caching
+     */
+    public synchronized void setMaxBytes(long maxBytes)
+    {
+        images.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the size of the cached cells, in bytes.
+     */
+    public synchronized long getByteCount()
+    {
+        return images.getByteCount();
+    }
+
+    /**
+     * Returns the number of cached cells.
+     */
+    public synchronized int getImageCount()
+    {
+        return images.size();
+    }
+
+    /**
+     * Returns the number of lookups which found a cached cell.
+     */
+    public synchronized long getHitCount()
+    {
+        return images.getHitCount();
+    }
+
+    /**
+     * Returns the number of lookups after which the cell had to be rendered.
+     */
+    public synchronized long getMissCount()
+    {
+        return images.getMissCount();
+    }
+
+    /**
+     * Returns the number of cells which were evicted from the budget.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return images.getEvictionCount();
+    }
+
+    /**
+     * Removes all cells from the cache. The statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        images.clear();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "TilingPatternCache{" + images + "}";
+    }
+
+    /**
+     * Cache key. The translation of the device transformation isn't part of it, as cells are
+     * rendered without it.
+     */
+    private static final class Key
+    {
+        private final COSBase pattern;
+        private final Object colorSpace;
+        private final float[] components;
+        private final float[] matrix = new float[6];
+        private final double[] scale = new double[4];
+
+        Key(PDTilingPattern pattern, PDColorSpace colorSpace, PDColor color, Matrix matrix,
+                AffineTransform xform)
+        {
+            this.pattern = pattern.getCOSObject();
+            if (colorSpace == null || colorSpace.getCOSObject() == null)
+            {
+                this.colorSpace = colorSpace;
+            }
+            else
+            {
+                this.colorSpace = colorSpace.getCOSObject();
+            }
+            components = color == null ? null : color.getComponents().clone();
+            this.matrix[0] = matrix.getValue(0, 0);
+            this.matrix[1] = matrix.getValue(0, 1);
+            this.matrix[2] = matrix.getValue(1, 0);
+            this.matrix[3] = matrix.getValue(1, 1);
+            this.matrix[4] = matrix.getValue(2, 0);
+            this.matrix[5] = matrix.getValue(2, 1);
+            scale[0] = xform.getScaleX();
+            scale[1] = xform.getShearY();
+            scale[2] = xform.getShearX();
+            scale[3] = xform.getScaleY();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return pattern == other.pattern && colorSpace == other.colorSpace &&
+                    Arrays.equals(components, other.components) &&
+                    Arrays.equals(matrix, other.matrix) && Arrays.equals(scale, other.scale);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = System.identityHashCode(pattern) * 31 + System.identityHashCode(colorSpace);
+            hash = hash * 31 + Arrays.hashCode(components);
+            hash = hash * 31 + Arrays.hashCode(matrix);
+            return hash * 31 + Arrays.hashCode(scale);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map which holds its most recently used values up to a byte budget. Each value is put with
+ * its size, and the least recently used values are evicted when the sizes add up to more than
+ * the budget. A value which is larger than the whole budget isn't kept.
+ *
+ * This class is not thread safe, the caches which use it synchronize access themselves.
+ *
+ * @param <K> the key
+ * @param <V> the cached value
+ */
+public class BoundedLRUCache<K, V>
+{
+    private final LinkedHashMap<K, Entry<V>> entries =
+            new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+    private long maxBytes;
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes the budget in bytes, 0 to keep no values
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public BoundedLRUCache(long maxBytes)
+    {
+        setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Returns the value for the given key and marks it as the most recently used one.
+     *
+     * @param key the key
+     * @return the value, or null if it isn't in the cache
+     */
+    public V get(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null)
+        {
+            hitCount++;
+            return entry.value;
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Adds a value, replacing the value with the same key, and evicts the least recently used
+     * values until the budget is met.
+     *
+     * @param key the key
+     * @param value the value
+     * @param size the size of the value in bytes
+     * @return false if the value is larger than the budget and hasn't been added
+     */
+    public boolean put(K key, V value, long size)
+    {
+        if (size > maxBytes)
+        {
+            return false;
+        }
+        Entry<V> old = entries.put(key, new Entry<V>(value, size));
+        if (old != null)
+        {
+            bytes -= old.size;
+        }
+        bytes += size;
+        evict();
+        return true;
+    }
+
+    /**
+     * Adds a value unless there is already one with the same key. Unlike {@link #get(Object)},
+     * looking up the existing value doesn't count as a hit.
+     *
+     * @param key the key
+     * @param value the value
+     * @param size the size of the value in bytes
+     * @return the existing value, or null if the value has been added or is larger than the
+     * budget
+     */
+    public V putIfAbsent(K key, V value, long size)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null)
+        {
+            return entry.value;
+        }
+        put(key, value, size);
+        return null;
+    }
+
+    /**
+     * Removes the value with the given key. This doesn't count as an eviction.
+     *
+     * @param key the key
+     * @return the removed value, or null if it wasn't in the cache
+     */
+    public V remove(K key)
+    {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        bytes -= entry.size;
+        return entry.value;
+    }
+
+    /**
+     * Returns the values from the least to the most recently used one. The collection is a
+     * read-only view, iterating it doesn't change the order.
+     */
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                final Iterator<Entry<V>> it = entries.values().iterator();
+                return new Iterator<V>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public V next()
+                    {
+                        return it.next().value;
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return entries.size();
+            }
+        };
+    }
+
+    // removes the least recently used values until the budget is met
+    private void evict()
+    {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext())
+        {
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            it.remove();
+            bytes -= eldest.getValue().size;
+            evictionCount++;
+            evicted(eldest.getKey(), eldest.getValue().value);
+        }
+    }
+
+    /**
+     * Called after a value has been evicted to meet the budget. Does nothing by default.
+     *
+     * @param key the key of the evicted value
+     * @param value the evicted value
+     */
+    protected void evicted(K key, V value)
+    {
+    }
+
+    /**
+     * Returns the budget, in bytes.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the budget, evicting the least recently used values if needed.
+     *
+     * @param maxBytes the budget in bytes, 0 to keep no values
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public void setMaxBytes(long maxBytes)
+    {
+        if (maxBytes < 0)
+        {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * Returns the total size of the cached values, in bytes.
+     */
+    public long getByteCount()
+    {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of cached values.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups which found a value.
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups which didn't find a value.
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of values which were evicted to meet the budget.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Removes all values. The statistics are kept.
+     */
+    public void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Sets the hit, miss and eviction counts to 0.
+     */
+    public void resetStatistics()
+    {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "entries=" + entries.size() + ", bytes=" + bytes + ", maxBytes=" + maxBytes +
+                ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount;
+    }
+
+    /**
+     * Cached value with its size.
+     */
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long size;
+
+        Entry(V value, long size)
+        {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
@@ -198,8 +198,21 @@ public class Matrix implements Cloneable
      */
     public void translate(Vector vector)
     {
-        Matrix m = Matrix.getTranslatingInstance(vector.getX(), vector.getY());
-        concatenate(m);
+        translate(vector.getX(), vector.getY());
+    }
+
+    /**
+     * Translates this matrix by the given amount, in place. This is the same as concatenating a
+     * translating instance, without creating one.
+     *
+     * @param tx x-translation
+     * @param ty y-translation
+     */
+    public void translate(float tx, float ty)
+    {
+        single[6] = tx * single[0] + ty * single[3] + single[6];
+        single[7] = tx * single[1] + ty * single[4] + single[7];
+        single[8] = tx * single[2] + ty * single[5] + single[8];
     }
 
     /**
@@ -172,7 +172,8 @@ public class PDFTextStripper extends PDFTextStreamEngine
     private boolean inParagraph;
 
     /**
-     * Instantiate a new PDFTextStripper object.
+     * Instantiate a new PDFTextStripper object. Text extraction may be sped up with
+     * {@link #setTextOnly(boolean)}, unless a subclass needs to see all operators.
      *
      * @throws IOException If there is an error loading the properties.
      */
@@ -785,6 +786,21 @@ public class PDFTextStripper extends PDFTextStreamEngine
      */
     @Override
     protected void processTextPosition(TextPosition text)
+    {
+        if (isShownCharacter(text))
+        {
+            addCharacter(text);
+        }
+    }
+
+    /**
+     * Returns true if the given text is to be shown, i.e. it is not a duplicate of text which has
+     * already been processed at the same position on this page. If duplicate overlapping text is
+     * to be suppressed, the position of shown text is remembered.
+     *
+     * @param text The text to check.
+     */
+    boolean isShownCharacter(TextPosition text)
     {
         boolean showCharacter = true;
         if (suppressDuplicateOverlappingText)
@@ -836,110 +852,117 @@ public class PDFTextStripper extends PDFTextStreamEngine
                 showCharacter = true;
             }
         }
-        if (showCharacter)
+        return showCharacter;
+    }
+
+    /**
+     * Adds the given text to the list of characters of the article it belongs to.
+     *
+     * @param text The text to add.
+     */
+    void addCharacter(TextPosition text)
+    {
+        // if we are showing the character then we need to determine which article it belongs to
+        int foundArticleDivisionIndex = -1;
+        int notFoundButFirstLeftAndAboveArticleDivisionIndex = -1;
+        int notFoundButFirstLeftArticleDivisionIndex = -1;
+        int notFoundButFirstAboveArticleDivisionIndex = -1;
+        float x = text.getX();
+        float y = text.getY();
+        if (shouldSeparateByBeads)
         {
-            // if we are showing the character then we need to determine which article it belongs to
-            int foundArticleDivisionIndex = -1;
-            int notFoundButFirstLeftAndAboveArticleDivisionIndex = -1;
-            int notFoundButFirstLeftArticleDivisionIndex = -1;
-            int notFoundButFirstAboveArticleDivisionIndex = -1;
-            float x = text.getX();
-            float y = text.getY();
-            if (shouldSeparateByBeads)
+            for (int i = 0; i < pageArticles.size() && foundArticleDivisionIndex == -1; i++)
             {
-                for (int i = 0; i < pageArticles.size() && foundArticleDivisionIndex == -1; i++)
+                PDThreadBead bead = pageArticles.get(i);
+                if (bead != null)
                 {
-                    PDThreadBead bead = pageArticles.get(i);
-                    if (bead != null)
+                    PDRectangle rect = bead.getRectangle();
+                    if (rect.contains(x, y))
                     {
-                        PDRectangle rect = bead.getRectangle();
-                        if (rect.contains(x, y))
-                        {
-                            foundArticleDivisionIndex = i * 2 + 1;
-                        }
-                        else if ((x < rect.getLowerLeftX() ||
-                                y < rect.getUpperRightY()) &&
-                                notFoundButFirstLeftAndAboveArticleDivisionIndex == -1)
-                        {
-                            notFoundButFirstLeftAndAboveArticleDivisionIndex = i * 2;
-                        }
-                        else if (x < rect.getLowerLeftX() &&
-                                notFoundButFirstLeftArticleDivisionIndex == -1)
-                        {
-                            notFoundButFirstLeftArticleDivisionIndex = i * 2;
-                        }
-                        else if (y < rect.getUpperRightY() &&
-                                notFoundButFirstAboveArticleDivisionIndex == -1)
-                        {
-                            notFoundButFirstAboveArticleDivisionIndex = i * 2;
-                        }
+                        foundArticleDivisionIndex = i * 2 + 1;
                     }
-                    else
+                    else if ((x < rect.getLowerLeftX() ||
+                            y < rect.getUpperRightY()) &&
+                            notFoundButFirstLeftAndAboveArticleDivisionIndex == -1)
                     {
-                        foundArticleDivisionIndex = 0;
+                        notFoundButFirstLeftAndAboveArticleDivisionIndex = i * 2;
+                    }
+                    else if (x < rect.getLowerLeftX() &&
+                            notFoundButFirstLeftArticleDivisionIndex == -1)
+                    {
+                        notFoundButFirstLeftArticleDivisionIndex = i * 2;
+                    }
+                    else if (y < rect.getUpperRightY() &&
+                            notFoundButFirstAboveArticleDivisionIndex == -1)
+                    {
+                        notFoundButFirstAboveArticleDivisionIndex = i * 2;
                     }
                 }
+                else
+                {
+                    foundArticleDivisionIndex = 0;
+                }
             }
-            else
-            {
-                foundArticleDivisionIndex = 0;
-            }
-            int articleDivisionIndex;
-            if (foundArticleDivisionIndex != -1)
-            {
-                articleDivisionIndex = foundArticleDivisionIndex;
-            }
-            else if (notFoundButFirstLeftAndAboveArticleDivisionIndex != -1)
-            {
-                articleDivisionIndex = notFoundButFirstLeftAndAboveArticleDivisionIndex;
-            }
-            else if (notFoundButFirstLeftArticleDivisionIndex != -1)
-            {
-                articleDivisionIndex = notFoundButFirstLeftArticleDivisionIndex;
-            }
-            else if (notFoundButFirstAboveArticleDivisionIndex != -1)
-            {
-                articleDivisionIndex = notFoundButFirstAboveArticleDivisionIndex;
-            }
-            else
-            {
-                articleDivisionIndex = charactersByArticle.size() - 1;
-            }
+        }
+        else
+        {
+            foundArticleDivisionIndex = 0;
+        }
+        int articleDivisionIndex;
+        if (foundArticleDivisionIndex != -1)
+        {
+            articleDivisionIndex = foundArticleDivisionIndex;
+        }
+        else if (notFoundButFirstLeftAndAboveArticleDivisionIndex != -1)
+        {
+            articleDivisionIndex = notFoundButFirstLeftAndAboveArticleDivisionIndex;
+        }
+        else if (notFoundButFirstLeftArticleDivisionIndex != -1)
+        {
+            articleDivisionIndex = notFoundButFirstLeftArticleDivisionIndex;
+        }
+        else if (notFoundButFirstAboveArticleDivisionIndex != -1)
+        {
+            articleDivisionIndex = notFoundButFirstAboveArticleDivisionIndex;
+        }
+        else
+        {
+            articleDivisionIndex = charactersByArticle.size() - 1;
+        }
 
-            List<TextPosition> textList = charactersByArticle.get(articleDivisionIndex);
+        List<TextPosition> textList = charactersByArticle.get(articleDivisionIndex);
 
-            // In the wild, some PDF encoded documents put diacritics (accents on
-            // top of characters) into a separate Tj element.  When displaying them
-            // graphically, the two chunks get overlayed.  With text output though,
-            // we need to do the overlay. This code recombines the diacritic with
-            // its associated character if the two are consecutive.
-            if (textList.isEmpty())
+        // In the wild, some PDF encoded documents put diacritics (accents on
+        // top of characters) into a separate Tj element.  When displaying them
+        // graphically, the two chunks get overlayed.  With text output though,
+        // we need to do the overlay. This code recombines the diacritic with
+        // its associated character if the two are consecutive.
+        if (textList.isEmpty())
+        {
+            textList.add(text);
+        }
+        else
+        {
+            // test if we overlap the previous entry.
+            // Note that we are making an assumption that we need to only look back
+            // one TextPosition to find what we are overlapping.
+            // This may not always be true. */
+            TextPosition previousTextPosition = textList.get(textList.size() - 1);
+            if (text.isDiacritic() && previousTextPosition.contains(text))
+            {
+                previousTextPosition.mergeDiacritic(text);
+            }
+            // If the previous TextPosition was the diacritic, merge it into this
+            // one and remove it from the list.
+            else if (previousTextPosition.isDiacritic() && text.contains(previousTextPosition))
             {
+                text.mergeDiacritic(previousTextPosition);
+                textList.remove(textList.size()-1);
                 textList.add(text);
             }
             else
             {
-                // test if we overlap the previous entry.
-                // Note that we are making an assumption that we need to only look back
-                // one TextPosition to find what we are overlapping.
-                // This may not always be true. */
-                TextPosition previousTextPosition = textList.get(textList.size() - 1);
-                if (text.isDiacritic() && previousTextPosition.contains(text))
-                {
-                    previousTextPosition.mergeDiacritic(text);
-                }
-                // If the previous TextPosition was the diacritic, merge it into this
-                // one and remove it from the list.
-                else if (previousTextPosition.isDiacritic() && text.contains(previousTextPosition))
-                {
-                    text.mergeDiacritic(previousTextPosition);
-                    textList.remove(textList.size()-1);
-                    textList.add(text);
-                }
-                else
-                {
-                    textList.add(text);
-                }
+                textList.add(text);
             }
         }
     }
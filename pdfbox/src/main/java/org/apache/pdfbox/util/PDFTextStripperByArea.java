@@ -20,6 +20,7 @@ import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -44,6 +45,10 @@ public class PDFTextStripperByArea extends PDFTextStripper
     private Map<String,Vector<ArrayList<TextPosition>>> regionCharacterList =
         new HashMap<String,Vector<ArrayList<TextPosition>>>();
     private Map<String,StringWriter> regionText = new HashMap<String,StringWriter>();
+    private Map<String,List<TextRun>> regionRuns = new HashMap<String,List<TextRun>>();
+    private RegionIndex regionIndex;
+    private final List<String> hits = new ArrayList<String>();
+    private List<TextRun> currentRuns;
 
     /**
      * Constructor.
@@ -64,6 +69,19 @@ public class PDFTextStripperByArea extends PDFTextStripper
     {
         regions.add( regionName );
         regionArea.put( regionName, rect );
+        regionIndex = null;
+    }
+
+    /**
+     * Delete a region to group text by. If the region does not exist, this method does nothing.
+     *
+     * @param regionName The name of the region to delete.
+     */
+    public void removeRegion(String regionName)
+    {
+        regions.remove(regionName);
+        regionArea.remove(regionName);
+        regionIndex = null;
     }
 
     /**
@@ -88,6 +106,19 @@ public class PDFTextStripperByArea extends PDFTextStripper
         return text.toString();
     }
 
+    /**
+     * Get the text runs for the region, this should be called after extractRegions(). Each run
+     * holds a piece of text as it was written to the region text, together with the text
+     * positions it was built from, in output order.
+     *
+     * @param regionName The name of the region to get the runs from.
+     * @return The runs that were identified in that region.
+     */
+    public List<TextRun> getTextRunsForRegion(String regionName)
+    {
+        return regionRuns.get(regionName);
+    }
+
     /**
      * Process the page to extract the region text.
      *
@@ -108,6 +139,7 @@ public class PDFTextStripperByArea extends PDFTextStripper
             regionCharactersByArticle.add( new ArrayList<TextPosition>() );
             regionCharacterList.put( regionName, regionCharactersByArticle );
             regionText.put( regionName, new StringWriter() );
+            regionRuns.put( regionName, new ArrayList<TextRun>() );
         }
 
         PDStream contentStream = page.getContents();
@@ -125,15 +157,20 @@ public class PDFTextStripperByArea extends PDFTextStripper
     @Override
     protected void processTextPosition( TextPosition text )
     {
-        Iterator<String> regionIter = regionArea.keySet().iterator();
-        while( regionIter.hasNext() )
+        if (regionIndex == null)
         {
-            String region = regionIter.next();
-            Rectangle2D rect = regionArea.get( region );
-            if( rect.contains( text.getX(), text.getY() ) )
+            regionIndex = new RegionIndex(regionArea);
+        }
+        hits.clear();
+        regionIndex.findRegions( text.getX(), text.getY(), hits );
+        // duplicate overlapping text is detected once per page, not once per region,
+        // so that overlapping regions all get the same characters
+        if( !hits.isEmpty() && isShownCharacter( text ) )
+        {
+            for (String region : hits)
             {
                 charactersByArticle = (Vector)regionCharacterList.get( region );
-                super.processTextPosition( text );
+                addCharacter( text );
             }
         }
     }
@@ -152,7 +189,61 @@ public class PDFTextStripperByArea extends PDFTextStripper
             String region = regionIter.next();
             charactersByArticle = (Vector)regionCharacterList.get( region );
             output = regionText.get( region );
+            currentRuns = regionRuns.get( region );
             super.writePage();
         }
+        currentRuns = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) throws IOException
+    {
+        if (currentRuns != null)
+        {
+            currentRuns.add(new TextRun(text, textPositions));
+        }
+        super.writeString(text, textPositions);
+    }
+
+    /**
+     * A piece of text within a region, as written to the region text, together with the
+     * text positions it was built from.
+     */
+    public static final class TextRun
+    {
+        private final String text;
+        private final List<TextPosition> textPositions;
+
+        TextRun(String text, List<TextPosition> textPositions)
+        {
+            this.text = text;
+            this.textPositions = Collections.unmodifiableList(textPositions);
+        }
+
+        /**
+         * Returns the text of this run.
+         */
+        public String getText()
+        {
+            return text;
+        }
+
+        /**
+         * Returns the text positions of this run. Note that the number of entries may differ
+         * from the number of characters in the text due to normalization.
+         */
+        public List<TextPosition> getTextPositions()
+        {
+            return textPositions;
+        }
+
+        @Override
+        public String toString()
+        {
+            return text;
+        }
     }
 }
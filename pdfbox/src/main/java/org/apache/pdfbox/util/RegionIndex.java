@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A static interval tree over the vertical extent of a set of named rectangles. Point queries
+ * visit only those regions whose y-range may contain the point, so the cost of matching a glyph
+ * is logarithmic in the number of regions plus the number of hits.
+ *
+ * The tree is stored implicitly in arrays sorted by the minimum y of each region, each node
+ * being the middle element of its sub-range and carrying the maximum y of its subtree.
+ */
+final class RegionIndex
+{
+    private final String[] names;
+    private final Rectangle2D[] rects;
+    private final double[] minY;
+    private final double[] subtreeMaxY;
+
+    /**
+     * Builds an index over the given regions.
+     *
+     * @param regions map of region names to their areas
+     */
+    RegionIndex(Map<String, Rectangle2D> regions)
+    {
+        int size = regions.size();
+        List<Map.Entry<String, Rectangle2D>> entries =
+                new ArrayList<Map.Entry<String, Rectangle2D>>(regions.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Rectangle2D>>()
+        {
+            @Override
+            public int compare(Map.Entry<String, Rectangle2D> e1, Map.Entry<String, Rectangle2D> e2)
+            {
+                return Double.compare(e1.getValue().getMinY(), e2.getValue().getMinY());
+            }
+        });
+
+        names = new String[size];
+        rects = new Rectangle2D[size];
+        minY = new double[size];
+        subtreeMaxY = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            names[i] = entries.get(i).getKey();
+            rects[i] = entries.get(i).getValue();
+            minY[i] = rects[i].getMinY();
+        }
+        buildMaxY(0, size);
+    }
+
+    /**
+     * Computes the subtree maximum of the node for the range [lo, hi) and returns it.
+     */
+    private double buildMaxY(int lo, int hi)
+    {
+        if (lo >= hi)
+        {
+            return Double.NEGATIVE_INFINITY;
+        }
+        int mid = (lo + hi) >>> 1;
+        double max = rects[mid].getMaxY();
+        max = Math.max(max, buildMaxY(lo, mid));
+        max = Math.max(max, buildMaxY(mid + 1, hi));
+        subtreeMaxY[mid] = max;
+        return max;
+    }
+
+    /**
+     * Returns the number of indexed regions.
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Adds the name of every region which contains the given point to the given list. A region
+     * contains a point following the rules of {@link Rectangle2D#contains(double, double)}.
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param result the list to which matching region names are added
+     */
+    void findRegions(double x, double y, List<String> result)
+    {
+        find(0, names.length, x, y, result);
+    }
+
+    private void find(int lo, int hi, double x, double y, List<String> result)
+    {
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (subtreeMaxY[mid] < y)
+            {
+                // no region in this subtree extends as far as y
+                return;
+            }
+            find(lo, mid, x, y, result);
+            if (minY[mid] > y)
+            {
+                // this node and its right subtree all start after y
+                return;
+            }
+            if (rects[mid].contains(x, y))
+            {
+                result.add(names[mid]);
+            }
+            lo = mid + 1;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.util.Vector;
+
+/**
+ * Tests the per-code memo table of the fonts shown by a {@link PDFStreamEngine}.
+ */
+public class TestCodeCache extends TestCase
+{
+    /**
+     * Tests that memoized lookups return the same as the font, for single byte codes and for
+     * enough larger codes to grow the hash table.
+     */
+    public void testLookups() throws IOException
+    {
+        PDFont font = createFont();
+        CodeCache cache = new CodeCache();
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int code = 0; code < 400; code++)
+            {
+                assertEquals(font.toUnicode(code), cache.toUnicode(font, code));
+                Vector expected = font.getDisplacement(code);
+                Vector displacement = cache.getDisplacement(font, code);
+                assertEquals(expected.getX(), displacement.getX(), 0);
+                assertEquals(expected.getY(), displacement.getY(), 0);
+            }
+        }
+        // the second pass is served from the memo
+        assertSame(cache.getDisplacement(font, 65), cache.getDisplacement(font, 65));
+        assertSame(cache.getDisplacement(font, 500), cache.getDisplacement(font, 500));
+    }
+
+    /**
+     * Tests that the custom Unicode values are discarded when another glyph list is used.
+     */
+    public void testCustomGlyphList() throws IOException
+    {
+        PDFont font = createFont();
+        CodeCache cache = new CodeCache();
+        GlyphList glyphList = GlyphList.getAdobeGlyphList();
+        // maps the glyph "A" to a Greek capital alpha
+        GlyphList otherGlyphList = new GlyphList(glyphList,
+                new ByteArrayInputStream("A;0391\n".getBytes("US-ASCII")));
+
+        assertEquals("A", cache.toUnicode(font, 65, glyphList));
+        assertEquals("\u0391", cache.toUnicode(font, 65, otherGlyphList));
+        assertEquals("A", cache.toUnicode(font, 65, glyphList));
+        // the plain lookup isn't affected
+        assertEquals("A", cache.toUnicode(font, 65));
+    }
+
+    /**
+     * Tests that each engine has its own memo tables.
+     */
+    public void testPerEngine() throws IOException
+    {
+        PDFont font = PDType1Font.HELVETICA;
+        PDFStreamEngine engine = new PDFStreamEngine();
+        CodeCache cache = engine.getCodeCache(font);
+        assertSame(cache, engine.getCodeCache(font));
+        assertNotSame(cache, new PDFStreamEngine().getCodeCache(font));
+    }
+
+    private static PDFont createFont() throws IOException
+    {
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setItem(COSName.TYPE, COSName.FONT);
+        dictionary.setItem(COSName.SUBTYPE, COSName.TYPE1);
+        dictionary.setName(COSName.BASE_FONT, "Helvetica");
+        dictionary.setItem(COSName.ENCODING, COSName.WIN_ANSI_ENCODING);
+        return new PDType1Font(dictionary);
+    }
+}
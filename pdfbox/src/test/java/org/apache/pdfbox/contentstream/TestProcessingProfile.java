@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.contentstream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/**
+ * Tests the {@link ProcessingProfile} recorded while rendering.
+ */
+public class TestProcessingProfile extends TestCase
+{
+    private PDDocument document;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        document = new PDDocument();
+
+        PDStream form = createStream("0 1 0 rg 0 0 5 5 re f");
+        COSStream formStream = form.getStream();
+        formStream.setItem(COSName.TYPE, COSName.XOBJECT);
+        formStream.setItem(COSName.SUBTYPE, COSName.FORM);
+        formStream.setItem(COSName.BBOX, createArray(0, 0, 5, 5));
+        COSDictionary xobjects = new COSDictionary();
+        xobjects.setItem("Fm0", formStream);
+
+        COSDictionary function = new COSDictionary();
+        function.setInt(COSName.FUNCTION_TYPE, 2);
+        function.setItem(COSName.DOMAIN, createArray(0, 1));
+        function.setItem(COSName.C0, createArray(1, 0, 0));
+        function.setItem(COSName.C1, createArray(0, 0, 1));
+        function.setInt(COSName.N, 1);
+        COSDictionary shading = new COSDictionary();
+        shading.setInt(COSName.SHADING_TYPE, 2);
+        shading.setItem(COSName.COLORSPACE, COSName.DEVICERGB);
+        shading.setItem(COSName.COORDS, createArray(0, 0, 100, 0));
+        shading.setItem(COSName.FUNCTION, function);
+        COSDictionary shadings = new COSDictionary();
+        shadings.setItem("Sh0", shading);
+
+        COSDictionary resources = new COSDictionary();
+        resources.setItem(COSName.XOBJECT, xobjects);
+        resources.setItem(COSName.SHADING, shadings);
+
+        PDPage page = new PDPage();
+        page.setResources(new PDResources(resources));
+        page.setContents(createStream("0 0 1 rg 10 10 20 20 re f 40 10 20 20 re f "
+                + "q 1 0 0 1 100 100 cm /Fm0 Do Q /Fm0 Do q 0 0 100 100 re W n /Sh0 sh Q"));
+        document.addPage(page);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        document.close();
+        super.tearDown();
+    }
+
+    /**
+     * Tests that operators, XObjects and shadings are counted.
+     */
+    public void testRendering() throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(document);
+        ProcessingProfile profile = new ProcessingProfile();
+        renderer.setProfile(profile);
+        renderer.renderImage(0);
+
+        Map<String, ProcessingProfile.Entry> operators = profile.getOperators();
+        // two fills on the page and one in each form, plus the clip of the shading
+        assertEquals(5, operators.get("re").getCount());
+        assertEquals(4, operators.get("f").getCount());
+        assertEquals(2, operators.get("Do").getCount());
+        assertEquals(1, operators.get("sh").getCount());
+        assertEquals(2, profile.getXObjects().get("Fm0").getCount());
+        assertEquals(1, profile.getShadings().get("Sh0").getCount());
+        assertTrue(profile.getFonts().isEmpty());
+        assertTrue(profile.getImages().isEmpty());
+
+        // the time of Do contains the time of the form's operators
+        assertTrue(operators.get("Do").getNanos() >= profile.getXObjects().get("Fm0").getNanos());
+
+        renderer.setProfile(null);
+        renderer.renderImage(0);
+        assertEquals(5, profile.getOperators().get("re").getCount());
+    }
+
+    /**
+     * Tests the JSON export.
+     */
+    public void testJSON()
+    {
+        ProcessingProfile profile = new ProcessingProfile();
+        assertEquals("{\"operators\":{},\"xobjects\":{},\"fonts\":{},\"images\":{},"
+                + "\"shadings\":{}}", profile.toJSON());
+
+        profile.recordOperator("Tj", 10);
+        profile.recordOperator("Tj", 5);
+        profile.recordGlyphs("A\"B\\C", 7, 3);
+        assertEquals("{\"operators\":{\"Tj\":{\"count\":2,\"nanos\":15}},\"xobjects\":{},"
+                + "\"fonts\":{\"A\\\"B\\\\C\":{\"count\":7,\"nanos\":3}},\"images\":{},"
+                + "\"shadings\":{}}", profile.toJSON());
+
+        // control characters, line separators and unpaired surrogates are escaped, valid
+        // surrogate pairs are kept
+        profile.clear();
+        profile.recordXObject("a\tb\n\u0001\u007f\u2028\ud800x\udc00\ud83d\ude00", 1);
+        assertEquals("{\"operators\":{},\"xobjects\":{\"a\\tb\\n\\u0001\\u007f\\u2028"
+                + "\\ud800x\\udc00\ud83d\ude00\":{\"count\":1,\"nanos\":1}},\"fonts\":{},"
+                + "\"images\":{},\"shadings\":{}}", profile.toJSON());
+
+        profile.clear();
+        assertTrue(profile.getOperators().isEmpty());
+    }
+
+    private PDStream createStream(String content) throws IOException
+    {
+        return new PDStream(document, new ByteArrayInputStream(content.getBytes("US-ASCII")));
+    }
+
+    private static COSArray createArray(float... values)
+    {
+        COSArray array = new COSArray();
+        array.setFloatArray(values);
+        return array;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.apache.pdfbox.cos.COSDictionary;
+
+/**
+ * Compares the LZW decoder with the previous one, which kept the code table as a list of byte
+ * arrays and read the codes through a MemoryCacheImageInputStream. Both decode the same data, an
+ * 8 bit RGB image with smooth gradients and some noise, like scanned or rendered images.
+ *
+ * Usage: java org.apache.pdfbox.filter.LZWBenchmark [iterations] [kilobytes]
+ */
+public class LZWBenchmark
+{
+    private LZWBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the number of decodes per round and the size of the data in KB, optional
+     * @throws IOException if the data can't be encoded or decoded
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int kilobytes = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        byte[] original = createImageData(kilobytes * 1024);
+        LZWFilter filter = new LZWFilter();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        filter.encode(new ByteArrayInputStream(original), baos, new COSDictionary());
+        byte[] encoded = baos.toByteArray();
+
+        // both decoders must agree before their speed means anything
+        if (!Arrays.equals(original, decodeNew(filter, encoded))
+                || !Arrays.equals(original, decodeOld(encoded)))
+        {
+            throw new IOException("Decoded data differs from the original");
+        }
+
+        // warm up, then measure
+        for (int round = 0; round < 2; round++)
+        {
+            // the decoded lengths are summed up so that the work can't be optimized away
+            long sum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                sum += decodeOld(encoded).length;
+            }
+            long oldTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                sum -= decodeNew(filter, encoded).length;
+            }
+            long newTime = System.nanoTime() - start;
+
+            if (round == 1)
+            {
+                System.out.printf("%d KB decoded from %d KB: previous %.2f ms, current %.2f ms"
+                        + " per decode (%d)%n", original.length / 1024, encoded.length / 1024,
+                        oldTime / 1e6 / iterations, newTime / 1e6 / iterations, sum);
+            }
+        }
+    }
+
+    private static byte[] createImageData(int size)
+    {
+        Random random = new Random(42);
+        int width = 512;
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            int pixel = i / 3;
+            int x = pixel % width;
+            int y = pixel / width;
+            int value;
+            switch (i % 3)
+            {
+                case 0:
+                    value = x / 2;
+                    break;
+                case 1:
+                    value = y / 2;
+                    break;
+                default:
+                    value = (x + y) / 4;
+                    break;
+            }
+            if (random.nextInt(8) == 0)
+            {
+                value += random.nextInt(5) - 2;
+            }
+            data[i] = (byte) value;
+        }
+        return data;
+    }
+
+    private static byte[] decodeNew(LZWFilter filter, byte[] encoded) throws IOException
+    {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        filter.decode(new ByteArrayInputStream(encoded), decoded, new COSDictionary(), 0);
+        return decoded.toByteArray();
+    }
+
+    private static byte[] decodeOld(byte[] encoded) throws IOException
+    {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        doOldLZWDecode(new ByteArrayInputStream(encoded), decoded, 1);
+        return decoded.toByteArray();
+    }
+
+    /**
+     * The decoder as it was before the flat code table, without the logging.
+     */
+    private static void doOldLZWDecode(InputStream encoded, OutputStream decoded, int earlyChange)
+            throws IOException
+    {
+        ArrayList<byte[]> codeTable = null;
+        int chunk = 9;
+        MemoryCacheImageInputStream in = new MemoryCacheImageInputStream(encoded);
+        long nextCommand;
+        long prevCommand = -1;
+
+        try
+        {
+            while ((nextCommand = in.readBits(chunk)) != LZWFilter.EOD)
+            {
+                if (nextCommand == LZWFilter.CLEAR_TABLE)
+                {
+                    chunk = 9;
+                    codeTable = createCodeTable();
+                    prevCommand = -1;
+                }
+                else
+                {
+                    if (nextCommand < codeTable.size())
+                    {
+                        byte[] data = codeTable.get((int) nextCommand);
+                        byte firstByte = data[0];
+                        decoded.write(data);
+                        if (prevCommand != -1)
+                        {
+                            data = codeTable.get((int) prevCommand);
+                            byte[] newData = Arrays.copyOf(data, data.length + 1);
+                            newData[data.length] = firstByte;
+                            codeTable.add(newData);
+                        }
+                    }
+                    else
+                    {
+                        byte[] data = codeTable.get((int) prevCommand);
+                        byte[] newData = Arrays.copyOf(data, data.length + 1);
+                        newData[data.length] = data[0];
+                        decoded.write(newData);
+                        codeTable.add(newData);
+                    }
+
+                    chunk = calculateChunk(codeTable.size(), earlyChange);
+                    prevCommand = nextCommand;
+                }
+            }
+        }
+        catch (EOFException ex)
+        {
+            // same as a missing EOD code
+        }
+        decoded.flush();
+    }
+
+    private static ArrayList<byte[]> createCodeTable()
+    {
+        ArrayList<byte[]> codeTable = new ArrayList<byte[]>(4096);
+        for (int i = 0; i < 256; ++i)
+        {
+            codeTable.add(new byte[]
+            {
+                (byte) (i & 0xFF)
+            });
+        }
+        codeTable.add(null); // 256 EOD
+        codeTable.add(null); // 257 CLEAR_TABLE
+        return codeTable;
+    }
+
+    private static int calculateChunk(int tabSize, int earlyChange)
+    {
+        if (tabSize >= 2048 - earlyChange)
+        {
+            return 12;
+        }
+        if (tabSize >= 1024 - earlyChange)
+        {
+            return 11;
+        }
+        if (tabSize >= 512 - earlyChange)
+        {
+            return 10;
+        }
+        return 9;
+    }
+}
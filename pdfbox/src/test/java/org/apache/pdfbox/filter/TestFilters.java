@@ -138,6 +138,32 @@ public class TestFilters extends TestCase
         checkEncodeDecode(lzwFilter, baos.toByteArray());
     }
 
+    /**
+     * This will test that an LZW stream which lacks the EOD code and some of its data is decoded
+     * as far as possible.
+     *
+     * @throws IOException 
+     */
+    public void testLZWTruncated() throws IOException
+    {
+        Random random = new Random(4711);
+        byte[] original = new byte[50000];
+        for (int i = 0; i < original.length; i++)
+        {
+            original[i] = (byte) (i % 11 == 0 ? random.nextInt() : i / 100);
+        }
+        Filter lzwFilter = FilterFactory.INSTANCE.getFilter(COSName.LZW_DECODE);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        lzwFilter.encode(new ByteArrayInputStream(original), encoded, new COSDictionary());
+        byte[] truncated = Arrays.copyOf(encoded.toByteArray(), encoded.size() - 100);
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        lzwFilter.decode(new ByteArrayInputStream(truncated), decoded, new COSDictionary(), 0);
+        byte[] result = decoded.toByteArray();
+        assertTrue(result.length > 0 && result.length < original.length);
+        assertTrue(Arrays.equals(Arrays.copyOf(original, result.length), result));
+    }
+
     private void checkEncodeDecode(Filter filter, byte[] original) throws IOException
     {
         ByteArrayOutputStream encoded = new ByteArrayOutputStream();
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+
+/**
+ * Tests the row by row predictor decoding of {@link PredictorOutputStream}.
+ */
+public class TestPredictor extends TestCase
+{
+    private static final int ROWS = 17;
+
+    /**
+     * Tests all PNG predictors, with the data written in chunks of random size.
+     */
+    public void testPNGPredictors() throws IOException
+    {
+        Random random = new Random(4711);
+        for (int colors = 1; colors <= 4; colors++)
+        {
+            for (int bpc : new int[] { 1, 2, 4, 8, 16 })
+            {
+                int columns = 1 + random.nextInt(40);
+                int rowLength = (columns * colors * bpc + 7) / 8;
+                byte[] original = randomImage(random, rowLength);
+                for (int type = 0; type <= 4; type++)
+                {
+                    byte[] encoded = encodePNG(original, rowLength, (colors * bpc + 7) / 8, type);
+                    assertTrue(Arrays.equals(original,
+                            decode(encoded, random, 15, colors, bpc, columns)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests the TIFF predictor for all supported bit depths.
+     */
+    public void testTIFFPredictor() throws IOException
+    {
+        Random random = new Random(4712);
+        for (int colors = 1; colors <= 4; colors++)
+        {
+            for (int bpc : new int[] { 1, 2, 4, 8, 16 })
+            {
+                int columns = 1 + random.nextInt(40);
+                int rowLength = (columns * colors * bpc + 7) / 8;
+                byte[] original = randomImage(random, rowLength);
+                // clear the padding bits, which aren't predicted
+                int padding = rowLength * 8 - columns * colors * bpc;
+                for (int row = 0; row < ROWS; row++)
+                {
+                    original[row * rowLength + rowLength - 1] &= (byte) (0xff << padding);
+                }
+                byte[] encoded = encodeTIFF(original, rowLength, colors, bpc, columns);
+                assertTrue(Arrays.equals(original,
+                        decode(encoded, random, 2, colors, bpc, columns)));
+            }
+        }
+    }
+
+    /**
+     * Tests that the predictor is applied by FlateFilter while inflating.
+     */
+    public void testFlateFilterWithPredictor() throws IOException
+    {
+        Random random = new Random(4713);
+        int columns = 300;
+        byte[] original = randomImage(random, columns * 3);
+        byte[] predicted = encodePNG(original, columns * 3, 3, 4);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflaterOutputStream deflater = new DeflaterOutputStream(compressed);
+        deflater.write(predicted);
+        deflater.close();
+
+        COSDictionary decodeParams = new COSDictionary();
+        decodeParams.setInt(COSName.PREDICTOR, 15);
+        decodeParams.setInt(COSName.COLORS, 3);
+        decodeParams.setInt(COSName.BITS_PER_COMPONENT, 8);
+        decodeParams.setInt(COSName.COLUMNS, columns);
+        COSDictionary parameters = new COSDictionary();
+        parameters.setItem(COSName.DECODE_PARMS, decodeParams);
+
+        Filter filter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        filter.decode(new ByteArrayInputStream(compressed.toByteArray()), decoded, parameters, 0);
+        assertTrue(Arrays.equals(original, decoded.toByteArray()));
+    }
+
+    private static byte[] randomImage(Random random, int rowLength)
+    {
+        byte[] data = new byte[ROWS * rowLength];
+        for (int i = 0; i < data.length; i++)
+        {
+            // mix smooth and noisy data
+            data[i] = (byte) (i % 7 == 0 ? random.nextInt() : i / 3);
+        }
+        return data;
+    }
+
+    private static byte[] decode(byte[] encoded, Random random, int predictor, int colors,
+                                 int bpc, int columns) throws IOException
+    {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        PredictorOutputStream out =
+                new PredictorOutputStream(decoded, predictor, colors, bpc, columns);
+        int offset = 0;
+        while (offset < encoded.length)
+        {
+            int length = Math.min(encoded.length - offset, random.nextInt(50));
+            if (length == 1)
+            {
+                out.write(encoded[offset]);
+            }
+            else
+            {
+                out.write(encoded, offset, length);
+            }
+            offset += length;
+        }
+        out.finish();
+        return decoded.toByteArray();
+    }
+
+    private static byte[] encodePNG(byte[] data, int rowLength, int bpp, int type)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int row = 0; row < ROWS; row++)
+        {
+            out.write(type);
+            int start = row * rowLength;
+            for (int p = 0; p < rowLength; p++)
+            {
+                int x = data[start + p] & 0xff;
+                int a = p >= bpp ? data[start + p - bpp] & 0xff : 0;
+                int b = row > 0 ? data[start + p - rowLength] & 0xff : 0;
+                int c = p >= bpp && row > 0 ? data[start + p - rowLength - bpp] & 0xff : 0;
+                int predicted;
+                switch (type)
+                {
+                    case 1:
+                        predicted = a;
+                        break;
+                    case 2:
+                        predicted = b;
+                        break;
+                    case 3:
+                        predicted = (a + b) / 2;
+                        break;
+                    case 4:
+                        int value = a + b - c;
+                        int pa = Math.abs(value - a);
+                        int pb = Math.abs(value - b);
+                        int pc = Math.abs(value - c);
+                        predicted = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+                        break;
+                    default:
+                        predicted = 0;
+                        break;
+                }
+                out.write((x - predicted) & 0xff);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeTIFF(byte[] data, int rowLength, int colors, int bpc, int columns)
+    {
+        byte[] encoded = data.clone();
+        int samples = columns * colors;
+        int mask = bpc == 16 ? 0xffff : (1 << bpc) - 1;
+        for (int row = 0; row < ROWS; row++)
+        {
+            int start = row * rowLength * 8;
+            for (int s = samples - 1; s >= colors; s--)
+            {
+                int value = getSample(data, start + s * bpc, bpc);
+                int left = getSample(data, start + (s - colors) * bpc, bpc);
+                setSample(encoded, start + s * bpc, bpc, (value - left) & mask);
+            }
+        }
+        return encoded;
+    }
+
+    private static int getSample(byte[] data, int bit, int bpc)
+    {
+        int value = 0;
+        for (int i = 0; i < bpc; i++, bit++)
+        {
+            value = (value << 1) | ((data[bit >> 3] >> (7 - (bit & 7))) & 1);
+        }
+        return value;
+    }
+
+    private static void setSample(byte[] data, int bit, int bpc, int value)
+    {
+        for (int i = bpc - 1; i >= 0; i--, bit++)
+        {
+            int mask = 1 << (7 - (bit & 7));
+            if (((value >> i) & 1) != 0)
+            {
+                data[bit >> 3] |= mask;
+            }
+            else
+            {
+                data[bit >> 3] &= ~mask;
+            }
+        }
+    }
+}
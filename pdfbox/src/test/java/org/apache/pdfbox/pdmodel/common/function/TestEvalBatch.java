@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that {@link PDFunction#evalBatch(float[], int, float[], int, int)} computes the same
+ * values as {@link PDFunction#eval(float[])}.
+ */
+public class TestEvalBatch extends TestCase
+{
+
+    private static COSArray createArray(float... values)
+    {
+        COSArray array = new COSArray();
+        array.setFloatArray(values);
+        return array;
+    }
+
+    private static COSDictionary createType2(float[] c0, float[] c1, float n)
+    {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt("FunctionType", 2);
+        dict.setItem("Domain", createArray(0, 1));
+        dict.setItem("C0", createArray(c0));
+        dict.setItem("C1", createArray(c1));
+        dict.setFloat("N", n);
+        return dict;
+    }
+
+    /**
+     * Checks exponential interpolation functions, with and without range.
+     * @throws Exception if an error occurs
+     */
+    public void testType2() throws Exception
+    {
+        COSDictionary dict = createType2(new float[] { 0, 1, 0.5f }, new float[] { 1, 0, 2 }, 2);
+        compare(new PDFunctionType2(dict), 1, 3);
+        dict.setItem("Range", createArray(0, 1, 0, 1, 0, 1));
+        compare(new PDFunctionType2(dict), 1, 3);
+    }
+
+    /**
+     * Checks a stitching function with three exponential functions.
+     * @throws Exception if an error occurs
+     */
+    public void testType3() throws Exception
+    {
+        compare(new PDFunctionType3(createType3()), 1, 3);
+    }
+
+    /**
+     * Checks that a function which is first evaluated by several threads at once gives the
+     * same values in every thread.
+     * @throws Exception if an error occurs
+     */
+    public void testSharedByThreads() throws Exception
+    {
+        assertSharedByThreads(3, 1, 3);
+        assertSharedByThreads(4, 2, 2);
+    }
+
+    // a new type 3 function or type 4 function with lazily created state
+    private static PDFunction createFunction(int type) throws IOException
+    {
+        return type == 3 ? new PDFunctionType3(createType3())
+                         : createType4("{ 2 copy mul 3 1 roll sub }");
+    }
+
+    private static void assertSharedByThreads(int type, final int numberOfInputs,
+                                              final int numberOfOutputs) throws Exception
+    {
+        final int count = 1000;
+        final float[] input = new float[count * numberOfInputs];
+        for (int i = 0; i < input.length; i++)
+        {
+            input[i] = (float) i / input.length;
+        }
+        float[] expected = new float[count * numberOfOutputs];
+        createFunction(type).evalBatch(input, numberOfInputs, expected, numberOfOutputs, count);
+
+        for (int run = 0; run < 20; run++)
+        {
+            final PDFunction function = createFunction(type);
+            final float[][] outputs = new float[4][count * numberOfOutputs];
+            final Exception[] errors = new Exception[outputs.length];
+            Thread[] threads = new Thread[outputs.length];
+            for (int t = 0; t < threads.length; t++)
+            {
+                final int index = t;
+                threads[t] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            function.evalBatch(input, numberOfInputs, outputs[index],
+                                               numberOfOutputs, count);
+                        }
+                        catch (Exception e)
+                        {
+                            errors[index] = e;
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (int t = 0; t < threads.length; t++)
+            {
+                threads[t].join();
+                if (errors[t] != null)
+                {
+                    throw errors[t];
+                }
+                assertTrue(Arrays.equals(expected, outputs[t]));
+            }
+        }
+    }
+
+    private static COSDictionary createType3()
+    {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt("FunctionType", 3);
+        dict.setItem("Domain", createArray(0, 1));
+        COSArray functions = new COSArray();
+        functions.add(createType2(new float[] { 1, 0, 0 }, new float[] { 0, 1, 0 }, 1));
+        functions.add(createType2(new float[] { 0, 1, 0 }, new float[] { 0, 0, 1 }, 2.2f));
+        functions.add(createType2(new float[] { 0, 0, 1 }, new float[] { 1, 1, 1 }, 0.5f));
+        dict.setItem("Functions", functions);
+        dict.setItem("Bounds", createArray(0.3f, 0.6f));
+        dict.setItem("Encode", createArray(0, 1, 1, 0, 0, 1));
+        return dict;
+    }
+
+    /**
+     * Checks PostScript calculator functions which can be compiled and which can't.
+     * @throws Exception if an error occurs
+     */
+    public void testType4() throws Exception
+    {
+        compare(createType4("{ 2 copy mul 3 1 roll sub }"), 2, 2);
+        // a stray proc keeps the function from being compiled
+        compare(createType4("{ 2 copy mul 3 1 roll sub { pop } pop }"), 2, 2);
+    }
+
+    /**
+     * Checks that output values which the function doesn't return are set to 0, so that no
+     * values of an earlier call are left in a reused output array.
+     * @throws Exception if an error occurs
+     */
+    public void testFewerOutputs() throws Exception
+    {
+        PDFunction function = new PDFunctionType2(
+                createType2(new float[] { 0 }, new float[] { 1 }, 1));
+        float[] output = new float[] { -1, -1, -1, -1 };
+        function.evalBatch(new float[] { 0.25f, 0.75f }, 1, output, 2, 2);
+        assertEquals(0.25f, output[0]);
+        assertEquals(0f, output[1]);
+        assertEquals(0.75f, output[2]);
+        assertEquals(0f, output[3]);
+
+        assertFewerOutputs(new PDFunctionType3(createType3()), 1, 3);
+        assertFewerOutputs(createType4("{ 2 copy mul 3 1 roll sub }"), 2, 2);
+        // not compiled, evaluated through the default implementation
+        assertFewerOutputs(createType4("{ 2 copy mul 3 1 roll sub { pop } pop }"), 2, 2);
+    }
+
+    // evaluates into a buffer with one more value per input than the function returns
+    private static void assertFewerOutputs(PDFunction function, int numberOfInputs,
+                                           int numberOfOutputs) throws IOException
+    {
+        int count = 10;
+        float[] input = new float[count * numberOfInputs];
+        for (int i = 0; i < input.length; i++)
+        {
+            input[i] = (float) i / input.length;
+        }
+        int stride = numberOfOutputs + 1;
+        float[] output = new float[count * stride];
+        Arrays.fill(output, -1);
+        function.evalBatch(input, numberOfInputs, output, stride, count);
+        float[] values = new float[numberOfInputs];
+        for (int i = 0; i < count; i++)
+        {
+            System.arraycopy(input, i * numberOfInputs, values, 0, numberOfInputs);
+            float[] expected = function.eval(values);
+            for (int j = 0; j < numberOfOutputs; j++)
+            {
+                assertEquals(expected[j], output[i * stride + j], 0);
+            }
+            assertEquals(0f, output[i * stride + numberOfOutputs]);
+        }
+    }
+
+    private static PDFunctionType4 createType4(String text) throws IOException
+    {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt("FunctionType", 4);
+        dict.setItem("Domain", createArray(-1, 1, -1, 1));
+        dict.setItem("Range", createArray(-1, 1, -1, 1));
+        COSStream functionStream = new COSStream(dict);
+        OutputStream out = functionStream.createUnfilteredStream();
+        out.write(text.getBytes("US-ASCII"));
+        out.close();
+        return new PDFunctionType4(functionStream);
+    }
+
+    private static void compare(PDFunction function, int numberOfInputs, int numberOfOutputs)
+            throws IOException
+    {
+        int count = 101;
+        float[] input = new float[count * numberOfInputs];
+        for (int i = 0; i < input.length; i++)
+        {
+            // includes values outside of the domain
+            input[i] = (i * 0.0731f) % 2.4f - 1.2f;
+        }
+        float[] output = new float[count * numberOfOutputs];
+        function.evalBatch(input, numberOfInputs, output, numberOfOutputs, count);
+        for (int i = 0; i < count; i++)
+        {
+            float[] values = new float[numberOfInputs];
+            System.arraycopy(input, i * numberOfInputs, values, 0, numberOfInputs);
+            float[] expected = function.eval(values);
+            for (int j = 0; j < numberOfOutputs; j++)
+            {
+                assertEquals(expected[j], output[i * numberOfOutputs + j]);
+            }
+        }
+    }
+}
@@ -51,6 +51,8 @@ public class TestFunctions extends TestCase
         TestSuite suite = new TestSuite(TestFunctions.class.getName());
         suite.addTestSuite(TestOperators.class);
         suite.addTestSuite(TestParser.class);
+        suite.addTestSuite(TestEvalBatch.class);
+        suite.addTestSuite(TestPDFunctionType0.class);
         suite.addTestSuite(TestPDFunctionType4.class);
         return suite;
     }
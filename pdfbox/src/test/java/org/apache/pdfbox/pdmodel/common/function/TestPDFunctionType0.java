@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link PDFunctionType0} class.
+ */
+public class TestPDFunctionType0 extends TestCase
+{
+
+    private PDFunctionType0 createFunction(int[] size, float[] domain, float[] range,
+            byte[] samples) throws IOException
+    {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt("FunctionType", 0);
+        dict.setInt("BitsPerSample", 8);
+        COSArray sizeArray = new COSArray();
+        for (int value : size)
+        {
+            sizeArray.add(COSInteger.get(value));
+        }
+        dict.setItem("Size", sizeArray);
+        COSArray domainArray = new COSArray();
+        domainArray.setFloatArray(domain);
+        dict.setItem("Domain", domainArray);
+        COSArray rangeArray = new COSArray();
+        rangeArray.setFloatArray(range);
+        dict.setItem("Range", rangeArray);
+
+        COSStream functionStream = new COSStream(dict);
+        OutputStream out = functionStream.createUnfilteredStream();
+        out.write(samples);
+        out.close();
+        return new PDFunctionType0(functionStream);
+    }
+
+    /**
+     * Checks the interpolation of a function with one input and two outputs.
+     * @throws Exception if an error occurs
+     */
+    public void testOneInput() throws Exception
+    {
+        PDFunctionType0 function = createFunction(new int[] { 3 }, new float[] { 0, 1 },
+                new float[] { 0, 1, 0, 1 }, new byte[] { 0, (byte) 255, 51, 102, (byte) 255, 0 });
+
+        assertOutput(function, new float[] { 0 }, 0, 1);
+        assertOutput(function, new float[] { 0.25f }, 0.1f, 0.7f);
+        assertOutput(function, new float[] { 0.5f }, 0.2f, 0.4f);
+        assertOutput(function, new float[] { 1 }, 1, 0);
+        // inputs are clipped to the domain
+        assertOutput(function, new float[] { 2 }, 1, 0);
+        assertOutput(function, new float[] { -1 }, 0, 1);
+    }
+
+    /**
+     * Checks the bilinear interpolation of a function with two inputs, the first of which
+     * varies fastest in the sample table.
+     * @throws Exception if an error occurs
+     */
+    public void testTwoInputs() throws Exception
+    {
+        PDFunctionType0 function = createFunction(new int[] { 2, 2 },
+                new float[] { 0, 1, 0, 1 }, new float[] { 0, 1 },
+                new byte[] { 0, 51, (byte) 204, (byte) 255 });
+
+        assertOutput(function, new float[] { 1, 0 }, 0.2f);
+        assertOutput(function, new float[] { 0, 1 }, 0.8f);
+        assertOutput(function, new float[] { 0.5f, 0.5f }, 0.5f);
+        assertOutput(function, new float[] { 0.5f, 1 }, 0.9f);
+    }
+
+    /**
+     * Checks that a batch evaluation gives the same results as single evaluations.
+     * @throws Exception if an error occurs
+     */
+    public void testEvalBatch() throws Exception
+    {
+        byte[] samples = new byte[4 * 3 * 5 * 2];
+        for (int i = 0; i < samples.length; i++)
+        {
+            samples[i] = (byte) (i * 37);
+        }
+        PDFunctionType0 function = createFunction(new int[] { 4, 3, 5 },
+                new float[] { 0, 1, 0, 1, 0, 1 }, new float[] { 0, 1, 0, 1 }, samples);
+
+        int count = 50;
+        float[] input = new float[count * 3];
+        for (int i = 0; i < input.length; i++)
+        {
+            input[i] = (i * 0.173f) % 1.2f - 0.1f;
+        }
+        float[] output = new float[count * 2];
+        function.evalBatch(input, 3, output, 2, count);
+        for (int i = 0; i < count; i++)
+        {
+            float[] single = function.eval(new float[] { input[i * 3], input[i * 3 + 1],
+                    input[i * 3 + 2] });
+            assertEquals(single[0], output[i * 2]);
+            assertEquals(single[1], output[i * 2 + 1]);
+        }
+    }
+
+    private static void assertOutput(PDFunction function, float[] input, float... expected)
+            throws IOException
+    {
+        float[] output = function.eval(input);
+        assertEquals(expected.length, output.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(expected[i], output[i], 0.0001f);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.common.function.type4.ExecutionContext;
+import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequence;
+import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequenceBuilder;
+import org.apache.pdfbox.pdmodel.common.function.type4.Operators;
+
+/**
+ * Compares the interpreted and the compiled evaluation of type 4 functions, using tint
+ * transforms as they are written by common layout applications.
+ *
+ * Usage: java org.apache.pdfbox.pdmodel.common.function.Type4Benchmark [evaluations]
+ */
+public class Type4Benchmark
+{
+    private static final String[][] FUNCTIONS = {
+        // Separation to CMYK, one spot color
+        { "spot to CMYK", "1", "4",
+          "{ dup 0.84 mul exch 0 exch dup 0.15 mul exch 0.06 mul }" },
+        // Separation to Lab, with a branch on the tint
+        { "spot to Lab", "1", "3",
+          "{ dup 0 le { pop 100 0 0 } { dup 1 ge { pop 54.29 80.81 69.89 } "
+          + "{ dup 54.29 100 sub mul 100 add exch dup 80.81 mul exch 69.89 mul } ifelse } "
+          + "ifelse }" },
+        // DeviceN with two process and one spot colorant to CMYK, overprinting the spot color
+        { "DeviceN 3 to CMYK", "3", "4",
+          "{ 2 index 1 exch sub 1 index 0.1 mul 1 exch sub mul 1 exch sub "
+          + "2 index 1 exch sub 2 index 0.9 mul 1 exch sub mul 1 exch sub "
+          + "2 index 0.6 mul 3 index 0.05 mul 7 4 roll pop pop pop }" },
+        // DeviceN with four colorants, inverting and rolling each of them
+        { "DeviceN 4 to CMYK", "4", "4",
+          "{ 1 exch sub 4 1 roll 1 exch sub 4 1 roll 1 exch sub 4 1 roll "
+          + "1 exch sub 4 1 roll }" },
+    };
+
+    private Type4Benchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args the number of evaluations per function, optional
+     * @throws IOException if a function can't be created
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        for (String[] function : FUNCTIONS)
+        {
+            int inputs = Integer.parseInt(function[1]);
+            int outputs = Integer.parseInt(function[2]);
+            String text = function[3];
+            PDFunctionType4 compiled = createFunction(text, inputs, outputs);
+            InstructionSequence interpreted = InstructionSequenceBuilder.parse(text);
+            Operators operators = new Operators();
+
+            float[] input = new float[inputs];
+            // warm up, then measure
+            for (int round = 0; round < 2; round++)
+            {
+                long start = System.nanoTime();
+                // the results are summed up so that the work can't be optimized away
+                float sum = 0;
+                for (int i = 0; i < evaluations; i++)
+                {
+                    input[i % inputs] = (i % 256) / 255f;
+                    ExecutionContext context = new ExecutionContext(operators);
+                    for (float value : input)
+                    {
+                        context.getStack().push(value);
+                    }
+                    interpreted.execute(context);
+                    sum += context.popReal();
+                }
+                long interpretedTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < evaluations; i++)
+                {
+                    input[i % inputs] = (i % 256) / 255f;
+                    float[] output = compiled.eval(input);
+                    sum -= output[output.length - 1];
+                }
+                long compiledTime = System.nanoTime() - start;
+
+                if (round == 1)
+                {
+                    System.out.printf("%-20s interpreted %6d ns, compiled %6d ns per evaluation"
+                            + " (%.0f)%n", function[0], interpretedTime / evaluations,
+                            compiledTime / evaluations, sum);
+                }
+            }
+        }
+    }
+
+    private static PDFunctionType4 createFunction(String text, int inputs, int outputs)
+            throws IOException
+    {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt("FunctionType", 4);
+        float[] domain = new float[inputs * 2];
+        for (int i = 0; i < inputs; i++)
+        {
+            domain[i * 2 + 1] = 1;
+        }
+        COSArray domainArray = new COSArray();
+        domainArray.setFloatArray(domain);
+        dict.setItem("Domain", domainArray);
+        float[] range = new float[outputs * 2];
+        for (int i = 0; i < outputs; i++)
+        {
+            range[i * 2] = -1000;
+            range[i * 2 + 1] = 1000;
+        }
+        COSArray rangeArray = new COSArray();
+        rangeArray.setFloatArray(range);
+        dict.setItem("Range", rangeArray);
+
+        COSStream functionStream = new COSStream(dict);
+        OutputStream out = functionStream.createUnfilteredStream();
+        out.write(text.getBytes("US-ASCII"));
+        out.close();
+        return new PDFunctionType4(functionStream);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that {@link CompiledProcedure} computes exactly what the interpreter computes.
+ */
+public class TestCompiledProcedure extends TestCase
+{
+    private static final String[] PROGRAMS = {
+        "5 6 add 5 0.23 add 2147483647 1 add -2147483648 -1 add",
+        "5 2 sub -7.5 1 sub -2147483648 1 sub",
+        "1 2 mul 1.5 2.1 mul 65536 65536 mul 3 0.1 mul",
+        "3 2 div 4 2 idiv -5 2 idiv 5 3 mod -5 3 mod",
+        "-3 abs 2.1 abs -7.5 abs -2147483648 abs -3 neg 4.5 neg -2147483648 neg",
+        "3.2 ceiling -4.8 ceiling 99 ceiling 3.2 floor -4.8 floor 99 floor",
+        "3.2 round -4.8 round 6.5 round -6.5 round 99 round 3.2 truncate -4.8 truncate 99 truncate",
+        "-47.8 cvi 520.9 cvi 77 cvr -47.8 cvr",
+        "4 sqrt 4.4 sqrt 0 sqrt 9 0.5 exp -9 -1 exp 10 ln 100 log",
+        "0 1 atan 1 0 atan -100 0 atan 4 4 atan 0 cos 90 cos 0 sin -90.0 sin",
+        "5 7 ge 7 5 gt 7 7 le -1 2 lt 7 7.0 eq true true eq false 0 eq 7.7 7.7 ne",
+        "99 1 and 52 7 and 17 5 or 7 3 xor true false and true false or true true xor",
+        "52 not -37 not true not 7 3 bitshift 142 -3 bitshift",
+        "1 2 3 3 0 roll 1 2 3 4 5 5 -2 roll 1 2 3 4 5 5 2 roll 1 2 3 2 5 roll 1 2 3 2 -5 roll",
+        "1 2 3 4 0 index 1 2 3 4 3 index true 1 2 3 3 copy 1 2 0 copy 1 2.5 exch true dup pop",
+        "true { 2 1 add } if false { 2 1 add } if true { 2 } { 3 } ifelse false { 2 } { 3 } ifelse",
+        "{ 1 2 lt { 3 4 gt { 5 } { 6 } ifelse } if }",
+        "{ dup 0.5 gt { 0.5 sub 2 mul } { 2 mul } ifelse 1 exch sub }",
+        "-4.1 sqrt",
+        "1 0 idiv",
+        "1.5 2 idiv",
+        "true 1 add",
+        "1 true and",
+        "pop",
+        "1 5 index",
+        "1 2 3 4 -1 roll",
+        "1 { 2 } if",
+        "{ 1 } 2",
+        "1 2 foo",
+    };
+
+    /**
+     * Compares a set of programs covering all operators and some error cases.
+     */
+    public void testPrograms()
+    {
+        for (String program : PROGRAMS)
+        {
+            compare(program, new float[0]);
+        }
+    }
+
+    /**
+     * Compares randomly generated programs operating on random input values.
+     */
+    public void testRandomPrograms()
+    {
+        String[] tokens = { "add", "sub", "mul", "div", "idiv", "mod", "abs", "neg", "ceiling",
+            "floor", "round", "truncate", "cvi", "cvr", "sqrt", "exp", "ln", "log", "sin", "cos",
+            "atan", "eq", "ne", "gt", "ge", "lt", "le", "and", "or", "xor", "not", "bitshift",
+            "true", "false", "dup", "exch", "pop", "copy", "index", "roll", "{ 1 } if",
+            "{ 0.5 mul } { 2 add } ifelse" };
+        String[] literals = { "0", "1", "2", "3", "-1", "0.5", "2.5", "-0.25" };
+        Random random = new Random(4711);
+        for (int p = 0; p < 3000; p++)
+        {
+            StringBuilder program = new StringBuilder("{");
+            int length = 1 + random.nextInt(12);
+            for (int t = 0; t < length; t++)
+            {
+                // operands are pushed more often than operators, to keep the stack filled
+                String token = random.nextInt(5) < 2 ? literals[random.nextInt(literals.length)]
+                        : tokens[random.nextInt(tokens.length)];
+                program.append(' ').append(token);
+            }
+            program.append(" }");
+            float[] input = new float[1 + random.nextInt(3)];
+            for (int i = 0; i < input.length; i++)
+            {
+                input[i] = random.nextFloat() * 4 - 2;
+            }
+            compare(program.toString(), input);
+        }
+    }
+
+    private static void compare(String program, float[] input)
+    {
+        InstructionSequence sequence = InstructionSequenceBuilder.parse(program);
+        CompiledProcedure procedure = CompiledProcedure.compile(sequence);
+        String expected = interpret(sequence, input);
+        if (procedure == null)
+        {
+            // only programs which the interpreter can't run either may fail to compile
+            assertTrue(program, expected.startsWith("error") || program.contains("{ 1 } 2"));
+            return;
+        }
+        assertEquals(program, expected, execute(procedure, input));
+    }
+
+    private static String interpret(InstructionSequence sequence, float[] input)
+    {
+        ExecutionContext context = new ExecutionContext(new Operators());
+        for (float value : input)
+        {
+            context.getStack().push(value);
+        }
+        try
+        {
+            sequence.execute(context);
+        }
+        catch (RuntimeException e)
+        {
+            return "error";
+        }
+        List<String> values = new ArrayList<String>();
+        for (Object value : context.getStack())
+        {
+            if (value instanceof Integer)
+            {
+                values.add("int " + value);
+            }
+            else if (value instanceof Float)
+            {
+                values.add("real " + Float.floatToIntBits((Float) value));
+            }
+            else
+            {
+                values.add("bool " + value);
+            }
+        }
+        return values.toString();
+    }
+
+    private static String execute(CompiledProcedure procedure, float[] input)
+    {
+        OperandStack stack = new OperandStack();
+        for (float value : input)
+        {
+            stack.push(value);
+        }
+        try
+        {
+            procedure.execute(stack);
+        }
+        catch (RuntimeException e)
+        {
+            return "error";
+        }
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < stack.size(); i++)
+        {
+            switch (stack.types[i])
+            {
+                case OperandStack.INTEGER:
+                    values.add("int " + stack.ints[i]);
+                    break;
+                case OperandStack.REAL:
+                    values.add("real " + Float.floatToIntBits(stack.reals[i]));
+                    break;
+                default:
+                    values.add("bool " + (stack.ints[i] != 0));
+                    break;
+            }
+        }
+        return values.toString();
+    }
+}
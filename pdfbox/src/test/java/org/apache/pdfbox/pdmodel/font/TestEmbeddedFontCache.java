@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * Tests the {@link EmbeddedFontCache}.
+ */
+public class TestEmbeddedFontCache extends TestCase
+{
+    private PDDocument document;
+    private PDTrueTypeFont font;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        EmbeddedFontCache.clear();
+        document = new PDDocument();
+        InputStream input = getClass().getClassLoader().getResourceAsStream(
+                "org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf");
+        font = PDTrueTypeFont.loadTTF(document, input);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        EmbeddedFontCache.setEnabled(false);
+        EmbeddedFontCache.setMaxBytes(EmbeddedFontCache.DEFAULT_MAX_BYTES);
+        EmbeddedFontCache.clear();
+        document.close();
+        super.tearDown();
+    }
+
+    /**
+     * Tests that fonts with the same program share the parsed font only while the cache is
+     * enabled.
+     */
+    public void testSharing() throws IOException
+    {
+        assertFalse(EmbeddedFontCache.isEnabled());
+        assertNotSame(new PDTrueTypeFont(font.getCOSObject()).getTrueTypeFont(),
+                      new PDTrueTypeFont(font.getCOSObject()).getTrueTypeFont());
+        assertEquals(0, EmbeddedFontCache.getMissCount());
+
+        EmbeddedFontCache.setEnabled(true);
+        PDTrueTypeFont first = new PDTrueTypeFont(font.getCOSObject());
+        PDTrueTypeFont second = new PDTrueTypeFont(font.getCOSObject());
+        assertTrue(first.isEmbedded());
+        assertSame(first.getTrueTypeFont(), second.getTrueTypeFont());
+        assertEquals(1, EmbeddedFontCache.getMissCount());
+        assertEquals(1, EmbeddedFontCache.getHitCount());
+        assertEquals(1, EmbeddedFontCache.getFontCount());
+        assertTrue(EmbeddedFontCache.getBytes() > 0);
+        assertEquals(first.getWidth('A'), second.getWidth('A'));
+    }
+}
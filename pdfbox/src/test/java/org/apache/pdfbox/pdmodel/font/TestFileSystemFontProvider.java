@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.io.IOUtils;
+
+/**
+ * Tests the font index of the {@link FileSystemFontProvider}.
+ */
+public class TestFileSystemFontProvider extends TestCase
+{
+    private final File dir = new File("target/test-output/fontindex");
+    private final File indexFile = new File(dir, "index");
+    private File ttfFile;
+    private File otfFile;
+    private final List<URI> fonts = new ArrayList<URI>();
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        dir.mkdirs();
+        indexFile.delete();
+        ttfFile = copy("org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf",
+                       "LiberationSans-Regular.ttf");
+        otfFile = copy("org/apache/pdfbox/resources/otf/AdobeBlank.otf", "AdobeBlank.otf");
+        fonts.add(ttfFile.toURI());
+        fonts.add(otfFile.toURI());
+    }
+
+    /**
+     * Tests that fonts are found through a new index.
+     */
+    public void testNewIndex()
+    {
+        FileSystemFontProvider provider = new FileSystemFontProvider(fonts, indexFile, 2);
+        assertTrue(indexFile.exists());
+        assertTrue(provider.toDebugString().contains("TTF: LiberationSans: "));
+        assertTrue(provider.toDebugString().contains("OTF: AdobeBlank: "));
+        assertNotNull(provider.getTrueTypeFont("LiberationSans"));
+        assertNull(provider.getTrueTypeFont("AdobeBlank"));
+    }
+
+    /**
+     * Tests that only files which have changed are parsed again.
+     */
+    public void testChangedFile() throws IOException
+    {
+        new FileSystemFontProvider(fonts, indexFile, 2);
+
+        // a file with the same size and time is taken from the index without parsing it
+        long lastModified = ttfFile.lastModified();
+        byte[] garbage = new byte[(int) ttfFile.length()];
+        write(garbage, ttfFile);
+        assertTrue(ttfFile.setLastModified(lastModified));
+        FileSystemFontProvider provider = new FileSystemFontProvider(fonts, indexFile, 2);
+        assertTrue(provider.toDebugString().contains("TTF: LiberationSans: "));
+
+        // once the time has changed, the file is parsed again and is no longer a font
+        assertTrue(ttfFile.setLastModified(lastModified - 10000));
+        provider = new FileSystemFontProvider(fonts, indexFile, 2);
+        assertFalse(provider.toDebugString().contains("LiberationSans"));
+        assertTrue(provider.toDebugString().contains("OTF: AdobeBlank: "));
+
+        // removed files drop out of the index
+        fonts.remove(otfFile.toURI());
+        new FileSystemFontProvider(fonts, indexFile, 2);
+        provider = new FileSystemFontProvider(new ArrayList<URI>(), indexFile, 2);
+        assertEquals("", provider.toDebugString());
+    }
+
+    /**
+     * Tests that loaded fonts are shared and that the cache of loaded fonts is bounded.
+     */
+    public void testLoadedFonts()
+    {
+        FileSystemFontProvider provider = new FileSystemFontProvider(fonts, indexFile, 2);
+        assertSame(provider.getTrueTypeFont("LiberationSans"),
+                   provider.getTrueTypeFont("LiberationSans"));
+
+        FontCache<String, Object> cache = new FontCache<String, Object>(2);
+        Object a = new Object();
+        Object b = new Object();
+        assertSame(a, cache.put("a", a));
+        assertSame(a, cache.put("a", new Object()));
+        cache.put("b", b);
+        assertSame(a, cache.get("a"));
+        // "b" is the least recently used font
+        cache.put("c", new Object());
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("size=2/2, hits=2, misses=1, evictions=1", cache.toString());
+    }
+
+    /**
+     * Tests that an unreadable index is ignored.
+     */
+    public void testInvalidIndex() throws IOException
+    {
+        write("PDFBox font index 1\nTTF\tbroken\n".getBytes("UTF-8"), indexFile);
+        FileSystemFontProvider provider = new FileSystemFontProvider(fonts, indexFile, 2);
+        assertTrue(provider.toDebugString().contains("TTF: LiberationSans: "));
+        assertTrue(new FileSystemFontProvider(fonts, indexFile, 2).toDebugString()
+                .contains("TTF: LiberationSans: "));
+    }
+
+    /**
+     * Tests that no index is kept unless a directory for it is given.
+     */
+    public void testIndexOptIn()
+    {
+        String old = System.getProperty(ExternalFonts.PROP_FONT_INDEX_DIR);
+        try
+        {
+            System.clearProperty(ExternalFonts.PROP_FONT_INDEX_DIR);
+            assertNull(FileSystemFontProvider.getIndexFile());
+            System.setProperty(ExternalFonts.PROP_FONT_INDEX_DIR, dir.getPath());
+            assertEquals(dir, FileSystemFontProvider.getIndexFile().getParentFile());
+        }
+        finally
+        {
+            if (old == null)
+            {
+                System.clearProperty(ExternalFonts.PROP_FONT_INDEX_DIR);
+            }
+            else
+            {
+                System.setProperty(ExternalFonts.PROP_FONT_INDEX_DIR, old);
+            }
+        }
+    }
+
+    /**
+     * Tests building the index of the system fonts ahead of time.
+     */
+    public void testBuildFontIndex() throws IOException
+    {
+        File buildDir = new File(dir, "build");
+        File buildIndex = FileSystemFontProvider.getIndexFile(buildDir);
+        buildIndex.delete();
+        int count = ExternalFonts.buildFontIndex(buildDir);
+        assertTrue(buildIndex.isFile());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(buildIndex), "UTF-8"));
+        try
+        {
+            assertEquals("PDFBox font index 1", reader.readLine());
+            int lines = 0;
+            while (reader.readLine() != null)
+            {
+                lines++;
+            }
+            assertEquals(count, lines);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private File copy(String resource, String name) throws IOException
+    {
+        InputStream input = getClass().getClassLoader().getResourceAsStream(resource);
+        try
+        {
+            File file = new File(dir, name);
+            write(IOUtils.toByteArray(input), file);
+            return file;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private static void write(byte[] bytes, File file) throws IOException
+    {
+        OutputStream output = new FileOutputStream(file);
+        try
+        {
+            output.write(bytes);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.Point;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.io.IOUtils;
+
+/**
+ * Tests the shared ICC conversions of {@link ICCColorConverter}.
+ */
+public class ICCColorConverterTest extends TestCase
+{
+    private static byte[] loadProfile() throws IOException
+    {
+        InputStream input = ICCColorConverterTest.class.getClassLoader().getResourceAsStream(
+                "org/apache/pdfbox/resources/icc/ISOcoated_v2_300_bas.icc");
+        try
+        {
+            return IOUtils.toByteArray(input);
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    // a color space which isn't shared with the converters
+    private static ICC_ColorSpace createColorSpace() throws IOException
+    {
+        return new ICC_ColorSpace(ICC_Profile.getInstance(loadProfile()));
+    }
+
+    /**
+     * Converters are shared by the content of the profile data.
+     */
+    public void testSharedByProfileData() throws IOException
+    {
+        ICCColorConverter converter = ICCColorConverter.getInstance(loadProfile());
+        assertSame(converter, ICCColorConverter.getInstance(loadProfile()));
+    }
+
+    /**
+     * Threads which ask for the converter of a new profile at the same time all get the same
+     * converter.
+     */
+    public void testConcurrentGetInstance() throws Exception
+    {
+        // a profile which no other test uses, the profile ID isn't checked by AWT
+        final byte[] profile = loadProfile();
+        profile[84] ^= 0x5a;
+        final ICCColorConverter[] converters = new ICCColorConverter[4];
+        Thread[] threads = new Thread[converters.length];
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    converters[index] = ICCColorConverter.getInstance(profile.clone());
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        for (ICCColorConverter converter : converters)
+        {
+            assertNotNull(converter);
+            assertSame(converters[0], converter);
+        }
+        assertSame(converters[0], ICCColorConverter.getInstance(profile));
+        assertNotSame(converters[0], ICCColorConverter.getInstance(loadProfile()));
+    }
+
+    /**
+     * The type and ranges of the profile are read without handing out the shared profile.
+     */
+    public void testProfileProperties() throws IOException
+    {
+        ICCColorConverter converter = ICCColorConverter.getInstance(loadProfile());
+        ICC_ColorSpace colorSpace = createColorSpace();
+        assertEquals(ColorSpace.TYPE_CMYK, converter.getColorSpaceType());
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(colorSpace.getMinValue(i), converter.getMinValue(i));
+            assertEquals(colorSpace.getMaxValue(i), converter.getMaxValue(i));
+        }
+    }
+
+    /**
+     * Remembered conversions return the same values as AWT, in arrays owned by the caller.
+     */
+    public void testToRGB() throws IOException
+    {
+        ICCColorConverter converter = ICCColorConverter.getInstance(loadProfile());
+        float[] cmyk = { 0.1f, 0.5f, 0.2f, 0.3f };
+        float[] expected = createColorSpace().toRGB(cmyk);
+
+        float[] rgb = converter.toRGB(cmyk);
+        assertTrue(Arrays.equals(expected, rgb));
+        rgb[0] = -1;
+        assertTrue(Arrays.equals(expected, converter.toRGB(cmyk.clone())));
+    }
+
+    /**
+     * Pooled ops convert images exactly like a new op.
+     */
+    public void testToRGBImage() throws IOException
+    {
+        ICCColorConverter converter = ICCColorConverter.getInstance(loadProfile());
+        ICC_ColorSpace colorSpace = createColorSpace();
+        Random random = new Random(4711);
+        for (int i = 0; i < 3; i++)
+        {
+            WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 20, 10, 4,
+                    new Point(0, 0));
+            for (int y = 0; y < 10; y++)
+            {
+                for (int x = 0; x < 20; x++)
+                {
+                    raster.setPixel(x, y, new int[] { random.nextInt(256), random.nextInt(256),
+                            random.nextInt(256), random.nextInt(256) });
+                }
+            }
+
+            BufferedImage src = new BufferedImage(new ComponentColorModel(
+                    colorSpace, false, false, Transparency.OPAQUE,
+                    DataBuffer.TYPE_BYTE), raster, false, null);
+            BufferedImage expected = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+            new ColorConvertOp(null).filter(src, expected);
+
+            BufferedImage actual = converter.toRGBImage(raster);
+            assertEquals(BufferedImage.TYPE_INT_RGB, actual.getType());
+            assertTrue(Arrays.equals(expected.getRGB(0, 0, 20, 10, null, 0, 20),
+                    actual.getRGB(0, 0, 20, 10, null, 0, 20)));
+        }
+    }
+}
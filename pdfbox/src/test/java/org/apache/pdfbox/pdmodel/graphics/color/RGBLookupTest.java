@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+
+/**
+ * Tests that Separation, DeviceN and Indexed images, which are converted through lookup tables,
+ * give the same pixels as converting each pixel on its own.
+ */
+public class RGBLookupTest extends TestCase
+{
+    private final Random random = new Random(4711);
+
+    /**
+     * Tests the table of all 256 tints, with an RGB and a CMYK alternate color space.
+     */
+    public void testSeparation() throws IOException
+    {
+        COSDictionary function = new COSDictionary();
+        function.setInt(COSName.FUNCTION_TYPE, 2);
+        function.setItem(COSName.DOMAIN, createArray(0, 1));
+        function.setItem(COSName.C0, createArray(0, 0, 0, 0));
+        function.setItem(COSName.C1, createArray(1, 0.5f, 0, 0.2f));
+        function.setFloat(COSName.N, 1);
+        assertSeparation(createSeparation(COSName.DEVICECMYK, function),
+                PDColorSpace.create(COSName.DEVICECMYK));
+
+        assertSeparation(createSeparation(COSName.DEVICERGB,
+                createFunction("{ dup 0.5 mul 1 }", 1, 3)), PDDeviceRGB.INSTANCE);
+    }
+
+    private void assertSeparation(PDSeparation separation, PDColorSpace alternate)
+            throws IOException
+    {
+        WritableRaster raster = createRaster(70, 30, 1, 256);
+        BufferedImage image = separation.toRGBImage(raster);
+
+        // the conversion of each pixel as it was done before the table
+        int numAltComponents = alternate.getNumberOfComponents();
+        WritableRaster altRaster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE,
+                raster.getWidth(), raster.getHeight(), numAltComponents, new Point(0, 0));
+        float[] samples = new float[1];
+        int[] alt = new int[numAltComponents];
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                raster.getPixel(x, y, samples);
+                separation.tintTransform(samples, alt);
+                altRaster.setPixel(x, y, alt);
+            }
+        }
+        assertSameRGB(alternate.toRGBImage(altRaster), image);
+    }
+
+    /**
+     * Tests the exact tables of one and two colorants, and the conversion of small images
+     * without a table.
+     */
+    public void testDeviceNLookup() throws IOException
+    {
+        PDDeviceN oneColorant = createDeviceN(1, "{ dup dup mul 1 exch sub 0.5 }");
+        assertDeviceN(oneColorant, createRaster(40, 20, 1, 256));
+        // fewer pixels than table entries
+        assertDeviceN(oneColorant, createRaster(10, 5, 1, 256));
+
+        PDDeviceN twoColorants = createDeviceN(2, "{ 2 copy mul }");
+        assertDeviceN(twoColorants, createRaster(256, 256, 2, 256));
+        assertDeviceN(twoColorants, createRaster(30, 20, 2, 256));
+    }
+
+    /**
+     * Tests the memo of distinct colors of three and four colorants, and the conversion by rows
+     * of more colorants.
+     */
+    public void testDeviceNMemo() throws IOException
+    {
+        // few distinct values, so that most pixels are found in the memo
+        assertDeviceN(createDeviceN(3, "{ mul 0.3 }"), createRaster(50, 40, 3, 4));
+        assertDeviceN(createDeviceN(4, "{ add add 3 div 0 }"), createRaster(50, 40, 4, 256));
+        assertDeviceN(createDeviceN(5, "{ add add add 4 div 0 }"), createRaster(20, 10, 5, 256));
+    }
+
+    private static void assertDeviceN(PDDeviceN deviceN, WritableRaster raster)
+            throws IOException
+    {
+        BufferedImage image = deviceN.toRGBImage(raster);
+
+        // the conversion of each pixel through the tint transform
+        float[] src = new float[raster.getNumBands()];
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                raster.getPixel(x, y, src);
+                for (int s = 0; s < src.length; s++)
+                {
+                    src[s] = src[s] / 255;
+                }
+                float[] rgb = deviceN.toRGB(src);
+                int expected = ((int) (rgb[0] * 255f) & 0xff) << 16 |
+                               ((int) (rgb[1] * 255f) & 0xff) << 8 |
+                               ((int) (rgb[2] * 255f) & 0xff);
+                assertEquals("pixel " + x + "," + y, expected, image.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    /**
+     * Tests the table of an Indexed color space, with samples beyond the highest index.
+     */
+    public void testIndexed() throws IOException
+    {
+        int hival = 199;
+        byte[] lookup = new byte[(hival + 1) * 3];
+        random.nextBytes(lookup);
+        COSArray array = new COSArray();
+        array.add(COSName.INDEXED);
+        array.add(COSName.DEVICERGB);
+        array.add(COSInteger.get(hival));
+        array.add(new COSString(lookup));
+        PDIndexed indexed = new PDIndexed(array);
+
+        WritableRaster raster = createRaster(60, 30, 1, 256);
+        BufferedImage image = indexed.toRGBImage(raster);
+        int[] index = new int[1];
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int x = 0; x < raster.getWidth(); x++)
+            {
+                raster.getPixel(x, y, index);
+                int i = Math.min(index[0], hival);
+                float[] rgb = indexed.toRGB(new float[] { i / 255f });
+                int expected = Math.round(rgb[0] * 255) << 16 | Math.round(rgb[1] * 255) << 8 |
+                               Math.round(rgb[2] * 255);
+                assertEquals("pixel " + x + "," + y, expected, image.getRGB(x, y) & 0xffffff);
+                int base = i * 3;
+                assertEquals((lookup[base] & 0xff) << 16 | (lookup[base + 1] & 0xff) << 8 |
+                             lookup[base + 2] & 0xff, expected);
+            }
+        }
+    }
+
+    private static void assertSameRGB(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    // an 8-bit raster of random samples, which are multiples of 255 / (levels - 1)
+    private WritableRaster createRaster(int width, int height, int bands, int levels)
+    {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width,
+                height, bands, new Point(0, 0));
+        int[] pixel = new int[bands];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                for (int b = 0; b < bands; b++)
+                {
+                    pixel[b] = random.nextInt(levels) * 255 / (levels - 1);
+                }
+                raster.setPixel(x, y, pixel);
+            }
+        }
+        return raster;
+    }
+
+    private static PDSeparation createSeparation(COSName alternate, COSBase function)
+            throws IOException
+    {
+        COSArray array = new COSArray();
+        array.add(COSName.SEPARATION);
+        array.add(COSName.getPDFName("Spot"));
+        array.add(alternate);
+        array.add(function);
+        return new PDSeparation(array);
+    }
+
+    private static PDDeviceN createDeviceN(int numColorants, String function) throws IOException
+    {
+        COSArray colorants = new COSArray();
+        for (int i = 0; i < numColorants; i++)
+        {
+            colorants.add(COSName.getPDFName("Spot" + i));
+        }
+        COSArray array = new COSArray();
+        array.add(COSName.DEVICEN);
+        array.add(colorants);
+        array.add(COSName.DEVICERGB);
+        array.add(createFunction(function, numColorants, 3));
+        return new PDDeviceN(array);
+    }
+
+    private static COSStream createFunction(String function, int numInputs, int numOutputs)
+            throws IOException
+    {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt(COSName.FUNCTION_TYPE, 4);
+        dict.setItem(COSName.DOMAIN, createUnitArray(numInputs));
+        dict.setItem(COSName.RANGE, createUnitArray(numOutputs));
+        COSStream stream = new COSStream(dict);
+        OutputStream out = stream.createUnfilteredStream();
+        out.write(function.getBytes("US-ASCII"));
+        out.close();
+        return stream;
+    }
+
+    private static COSArray createUnitArray(int count)
+    {
+        float[] values = new float[count * 2];
+        for (int i = 0; i < count; i++)
+        {
+            values[i * 2 + 1] = 1;
+        }
+        return createArray(values);
+    }
+
+    private static COSArray createArray(float... values)
+    {
+        COSArray array = new COSArray();
+        array.setFloatArray(values);
+        return array;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/**
+ * Tests reading the images of Image XObjects.
+ */
+public class PDImageXObjectTest extends TestCase
+{
+    /**
+     * Tests that an image whose stream can't be decoded fails every time it is read, instead of
+     * being read from the data left by the failed decoding.
+     */
+    public void testDecodeFailure() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            // the first filter succeeds, the second one fails
+            COSArray filters = new COSArray();
+            filters.add(COSName.ASCII_HEX_DECODE);
+            filters.add(COSName.DCT_DECODE);
+            byte[] data = "00112233445566778899>".getBytes("US-ASCII");
+            PDImageXObject image = new PDImageXObject(document, new ByteArrayInputStream(data),
+                    filters, 4, 4, 8, PDDeviceRGB.INSTANCE);
+
+            assertDecodeFails(image, 1);
+            assertDecodeFails(image, 1);
+            assertDecodeFails(image, 2);
+
+            // a new XObject for the same stream, as created when page resources are reloaded
+            PDImageXObject sameStream = new PDImageXObject(new PDStream(image.getCOSStream()),
+                                                           null);
+            assertDecodeFails(sameStream, 1);
+            assertDecodeFails(sameStream, 2);
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private static void assertDecodeFails(PDImageXObject image, int subsampling)
+    {
+        try
+        {
+            image.getImage(subsampling);
+            fail("the image stream can't be decoded");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that rendering a page twice with the same renderer gives the same image. The JBIG2
+     * image of this page can only be decoded if a JBIG2 plugin is installed, otherwise it must be
+     * skipped both times.
+     */
+    public void testRenderTwice() throws IOException
+    {
+        PDDocument document = PDDocument.load(
+                new File("src/test/resources/input/ImageIOUtil/JBIG2Image.pdf"));
+        try
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage first = renderer.renderImage(0);
+            BufferedImage second = renderer.renderImage(0);
+            assertEquals(first.getWidth(), second.getWidth());
+            assertEquals(first.getHeight(), second.getHeight());
+            for (int y = 0; y < first.getHeight(); y++)
+            {
+                for (int x = 0; x < first.getWidth(); x++)
+                {
+                    assertEquals(first.getRGB(x, y), second.getRGB(x, y));
+                }
+            }
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+}
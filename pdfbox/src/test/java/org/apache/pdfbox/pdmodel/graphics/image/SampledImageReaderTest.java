@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+
+/**
+ * Unit tests for the row unpacking and sample decoding of SampledImageReader.
+ */
+public class SampledImageReaderTest extends TestCase
+{
+    /**
+     * Compares the row unpacking of every depth with a bit by bit reading of the row.
+     */
+    public void testUnpackRow()
+    {
+        Random random = new Random(4711);
+        for (int bpc : new int[] { 1, 2, 4, 8, 12, 16 })
+        {
+            int count = 1 + random.nextInt(100);
+            byte[] row = new byte[(count * bpc + 7) / 8];
+            random.nextBytes(row);
+            int[] samples = new int[count];
+            SampledImageReader.unpackRow(row, bpc, samples, count);
+            for (int i = 0; i < count; i++)
+            {
+                int expected = 0;
+                for (int bit = i * bpc; bit < (i + 1) * bpc; bit++)
+                {
+                    expected = (expected << 1) | ((row[bit >> 3] >> (7 - (bit & 7))) & 1);
+                }
+                assertEquals(expected, samples[i]);
+            }
+        }
+    }
+
+    /**
+     * Tests the decode tables for a default, an inverted and an indexed decode array.
+     */
+    public void testDecodeTable()
+    {
+        byte[] lut = SampledImageReader.createDecodeTable(new float[] { 0, 1 }, 0, 4, false);
+        assertEquals(16, lut.length);
+        assertEquals(0, lut[0] & 0xff);
+        assertEquals(17, lut[1] & 0xff);
+        assertEquals(255, lut[15] & 0xff);
+
+        lut = SampledImageReader.createDecodeTable(new float[] { 0, 1, 1, 0 }, 1, 16, false);
+        assertEquals(65536, lut.length);
+        assertEquals(255, lut[0] & 0xff);
+        assertEquals(0, lut[65535] & 0xff);
+
+        lut = SampledImageReader.createDecodeTable(new float[] { 3, 0 }, 0, 2, true);
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(3 - i, lut[i]);
+        }
+    }
+
+    /**
+     * Tests that a subsampled image contains every n-th pixel of the full image.
+     */
+    public void testSubsampling() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        Random random = new Random(4712);
+        for (int bpc : new int[] { 1, 4, 8, 16 })
+        {
+            for (int components : new int[] { 1, 3 })
+            {
+                int width = 37;
+                int height = 23;
+                byte[] data = new byte[(width * components * bpc + 7) / 8 * height];
+                random.nextBytes(data);
+                PDImageXObject image = new PDImageXObject(document,
+                        new ByteArrayInputStream(data), null, width, height, bpc,
+                        components == 1 ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE);
+
+                BufferedImage full = image.getOpaqueImage();
+                BufferedImage subsampled = image.getOpaqueImage(3);
+                assertEquals(13, subsampled.getWidth());
+                assertEquals(8, subsampled.getHeight());
+                for (int y = 0; y < subsampled.getHeight(); y++)
+                {
+                    for (int x = 0; x < subsampled.getWidth(); x++)
+                    {
+                        assertEquals(full.getRGB(x * 3, y * 3), subsampled.getRGB(x, y));
+                    }
+                }
+            }
+        }
+        document.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import java.awt.PaintContext;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * Tests the {@link ShadingCache}.
+ */
+public class TestShadingCache extends TestCase
+{
+    private static final Rectangle BOUNDS = new Rectangle(0, 0, 100, 50);
+
+    /**
+     * Tests that an axial shading reuses its color table and paints the same as without cache.
+     */
+    public void testAxialColorTable() throws IOException
+    {
+        ShadingCache cache = new ShadingCache();
+        COSDictionary dictionary = createAxialShading();
+        int[] expected = paint(PDShading.create(dictionary), new Matrix(), null);
+
+        assertTrue(Arrays.equals(expected, paint(PDShading.create(dictionary), new Matrix(), cache)));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEntryCount());
+
+        // a new shading object for the same dictionary, as created for each page
+        assertTrue(Arrays.equals(expected, paint(PDShading.create(dictionary), new Matrix(), cache)));
+        assertEquals(1, cache.getHitCount());
+
+        // another transformation needs another color table
+        paint(PDShading.create(dictionary), Matrix.getScaleInstance(2, 2), cache);
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    private static COSDictionary createAxialShading()
+    {
+        COSDictionary function = new COSDictionary();
+        function.setInt(COSName.FUNCTION_TYPE, 2);
+        function.setItem(COSName.DOMAIN, createArray(0, 1));
+        function.setItem(COSName.C0, createArray(1, 0, 0));
+        function.setItem(COSName.C1, createArray(0, 0, 1));
+        function.setFloat(COSName.N, 1);
+
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setInt(COSName.SHADING_TYPE, PDShading.SHADING_TYPE2);
+        dictionary.setItem(COSName.COLORSPACE, COSName.DEVICERGB);
+        dictionary.setItem(COSName.FUNCTION, function);
+        dictionary.setItem(COSName.COORDS, createArray(0, 0, 100, 50));
+        return dictionary;
+    }
+
+    private static COSArray createArray(float... values)
+    {
+        COSArray array = new COSArray();
+        array.setFloatArray(values);
+        return array;
+    }
+
+    private static int[] paint(PDShading shading, Matrix matrix, ShadingCache cache)
+    {
+        PaintContext context = shading.toPaint(matrix, cache).createContext(
+                ColorModel.getRGBdefault(), BOUNDS, BOUNDS, new AffineTransform(), null);
+        Raster raster = context.getRaster(0, 0, BOUNDS.width, BOUNDS.height);
+        context.dispose();
+        return raster.getPixels(0, 0, BOUNDS.width, BOUNDS.height, (int[]) null);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+
+/**
+ * Tests rendering black and white images on the bitonal fast path.
+ */
+public class TestBitonalRendering extends TestCase
+{
+    /**
+     * Tests that the fast path thresholds fills into black and white.
+     */
+    public void testFastPath() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDPage page = new PDPage();
+            // dark gray, light gray and black fills, the last one is 13 pixels wide
+            String content = "0.3 g 10 10 50 50 re f 0.7 g 100 10 50 50 re f "
+                    + "0 g 200 10 13 50 re f";
+            page.setContents(new PDStream(document,
+                    new ByteArrayInputStream(content.getBytes("US-ASCII"))));
+            document.addPage(page);
+
+            PDFRenderer renderer = new PDFRenderer(document);
+            assertFalse(renderer.isBitonalFastPathAllowed());
+            renderer.setBitonalFastPathAllowed(true);
+            BufferedImage image = renderer.renderImage(0, 1, ImageType.BINARY);
+            assertEquals(BufferedImage.TYPE_BYTE_BINARY, image.getType());
+            assertEquals(612, image.getWidth());
+
+            assertEquals(0xff000000, getRGB(image, 30, 30));
+            assertEquals(0xffffffff, getRGB(image, 120, 30));
+            assertEquals(0xffffffff, getRGB(image, 199, 30));
+            assertEquals(0xff000000, getRGB(image, 200, 30));
+            assertEquals(0xff000000, getRGB(image, 212, 30));
+            assertEquals(0xffffffff, getRGB(image, 213, 30));
+            assertEquals(0xffffffff, getRGB(image, 611, 30));
+
+            // other image types are not affected
+            assertEquals(0xff4d4d4d, getRGB(renderer.renderImage(0), 30, 30));
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    // returns the color at the given position in PDF coordinates
+    private static int getRGB(BufferedImage image, int x, int y)
+    {
+        return image.getRGB(x, image.getHeight() - 1 - y);
+    }
+}
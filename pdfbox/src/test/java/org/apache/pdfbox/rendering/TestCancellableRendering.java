@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.contentstream.CancellationToken;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Tests rendering with a {@link CancellationToken} and in two passes.
+ */
+public class TestCancellableRendering extends TestCase
+{
+    private PDDocument document;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        document = new PDDocument();
+
+        // a red image
+        byte[] data = new byte[4 * 4 * 3];
+        for (int i = 0; i < data.length; i += 3)
+        {
+            data[i] = (byte) 255;
+        }
+        PDImageXObject image = new PDImageXObject(document, new ByteArrayInputStream(data),
+                null, 4, 4, 8, PDDeviceRGB.INSTANCE);
+        COSDictionary xobjects = new COSDictionary();
+        xobjects.setItem("Im0", image.getCOSStream());
+        COSDictionary resources = new COSDictionary();
+        resources.setItem(COSName.XOBJECT, xobjects);
+
+        PDPage page = new PDPage();
+        page.setResources(new PDResources(resources));
+        String content = "0 0 1 rg 10 10 100 100 re f q 40 0 0 40 20 20 cm /Im0 Do Q "
+                + "0 1 0 rg 200 10 50 50 re f";
+        page.setContents(new PDStream(document,
+                new ByteArrayInputStream(content.getBytes("US-ASCII"))));
+        document.addPage(page);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        document.close();
+        super.tearDown();
+    }
+
+    /**
+     * Tests that nothing is drawn once the token has been cancelled.
+     */
+    public void testCancelled() throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(document);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        RenderingResult result = renderer.renderImage(0, 1, ImageType.RGB, token, false);
+        assertTrue(result.isCancelled());
+        assertTrue(result.isTruncated());
+        assertFalse(result.isComplete());
+        assertEquals(0, result.getProcessedOperatorCount());
+        assertEquals(0xffffffff, getRGB(result.getImage(), 50, 50));
+
+        // a deadline which has already passed
+        result = renderer.renderImage(0, 1, ImageType.RGB, new CancellationToken(0), true);
+        assertTrue(result.isTruncated());
+        assertEquals(0, result.getProcessedOperatorCount());
+    }
+
+    /**
+     * Tests that two-pass rendering gives the same image as rendering in one pass.
+     */
+    public void testTwoPass() throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(document);
+        RenderingResult result = renderer.renderImage(0, 1, ImageType.RGB,
+                new CancellationToken(), true);
+        assertTrue(result.isComplete());
+        assertFalse(result.isCancelled());
+        assertEquals(0, result.getOmittedImageCount());
+
+        BufferedImage expected = renderer.renderImage(0);
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals(expected.getRGB(x, y), result.getImage().getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Tests that a draft leaves out the image, but nothing else.
+     */
+    public void testDraft() throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(document);
+        PDPage page = document.getPage(0);
+        BufferedImage image = new BufferedImage((int) page.findCropBox().getWidth(),
+                (int) page.findCropBox().getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        PageDrawer drawer = new PageDrawer(renderer, page);
+        drawer.setDraft(true);
+        drawer.drawPage(graphics, page.findCropBox());
+        graphics.dispose();
+
+        assertEquals(1, drawer.getOmittedImageCount());
+        assertEquals(10, drawer.getProcessedOperatorCount());
+        // the blue fill instead of the red image, and the green fill after it
+        assertEquals(0xff0000ff, getRGB(image, 40, 40));
+        assertEquals(0xff00ff00, getRGB(image, 225, 35));
+        assertEquals(0xffff0000, getRGB(renderer.renderImage(0), 40, 40));
+    }
+
+    // returns the color at the given position in PDF coordinates
+    private static int getRGB(BufferedImage image, int x, int y)
+    {
+        return image.getRGB(x, image.getHeight() - 1 - y);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Tests the document-wide {@link ImageCache}.
+ */
+public class TestImageCache extends TestCase
+{
+    private PDDocument document;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        document = new PDDocument();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        document.close();
+        super.tearDown();
+    }
+
+    /**
+     * Tests that the same image stream is only decoded once, even through different XObjects.
+     */
+    public void testHitsByStreamIdentity() throws IOException
+    {
+        ImageCache cache = new ImageCache();
+        PDImageXObject image = createImage(20, 10);
+        BufferedImage first = cache.getImage(image, 1);
+        assertEquals(1, cache.getMissCount());
+
+        // a new XObject for the same stream, as created when page resources are reloaded
+        PDImageXObject sameStream = new PDImageXObject(new PDStream(image.getCOSStream()), null);
+        assertSame(first, cache.getImage(sameStream, 1));
+        assertEquals(1, cache.getHitCount());
+
+        // another resolution is another entry
+        BufferedImage subsampled = cache.getImage(sameStream, 2);
+        assertEquals(10, subsampled.getWidth());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getImageCount());
+        assertEquals(ImageCache.getByteCount(first) + ImageCache.getByteCount(subsampled),
+                cache.getByteCount());
+    }
+
+    /**
+     * Tests that images which are evicted from the budget are still found while they are softly
+     * reachable. The eviction policy itself is tested by TestBoundedLRUCache.
+     */
+    public void testSoftlyReachable() throws IOException
+    {
+        PDImageXObject image1 = createImage(10, 10);
+        PDImageXObject image2 = createImage(10, 10);
+        ImageCache cache = new ImageCache(ImageCache.getByteCount(image1.getImage()));
+        BufferedImage decoded1 = cache.getImage(image1, 1);
+        cache.getImage(image2, 1);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1, cache.getImageCount());
+
+        // unless the garbage collector has cleared it, image1 is revived from the soft cache
+        BufferedImage again = cache.getImage(image1, 1);
+        assertEquals(cache.getSoftHitCount(), cache.getHitCount());
+        assertEquals(3, cache.getHitCount() + cache.getMissCount());
+        if (cache.getSoftHitCount() == 1)
+        {
+            assertSame(decoded1, again);
+        }
+
+        // without a budget, images are only softly reachable
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.getImageCount());
+        assertEquals(0, cache.getByteCount());
+        cache.clear();
+        cache.getImage(image1, 1);
+        assertEquals(0, cache.getImageCount());
+    }
+
+    private PDImageXObject createImage(int width, int height) throws IOException
+    {
+        byte[] data = new byte[width * height * 3];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = (byte) i;
+        }
+        return new PDImageXObject(document, new ByteArrayInputStream(data), null, width, height,
+                8, PDDeviceRGB.INSTANCE);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+
+/**
+ * Tests the {@link OffscreenImagePool} of transparency groups.
+ */
+public class TestOffscreenImagePool extends TestCase
+{
+    /**
+     * Tests that a released image is handed out again, cleared.
+     */
+    public void testReuse()
+    {
+        OffscreenImagePool pool = new OffscreenImagePool();
+        BufferedImage first = pool.acquire(30, 20);
+        first.setRGB(5, 5, 0xff00ff00);
+        pool.release(first);
+        assertEquals(1, pool.getIdleImageCount());
+        assertEquals(30 * 20 * 4, pool.getIdleByteCount());
+
+        BufferedImage second = pool.acquire(30, 20);
+        assertSame(first, second);
+        assertEquals(0, second.getRGB(5, 5));
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(1, pool.getReuseCount());
+        assertEquals(0, pool.getIdleImageCount());
+    }
+
+    /**
+     * Tests that a larger idle image is handed out as a cleared subimage, and returned to the
+     * pool as a whole.
+     */
+    public void testSubimage()
+    {
+        OffscreenImagePool pool = new OffscreenImagePool();
+        BufferedImage large = pool.acquire(40, 40);
+        for (int y = 0; y < 40; y++)
+        {
+            for (int x = 0; x < 40; x++)
+            {
+                large.setRGB(x, y, 0xffff0000);
+            }
+        }
+        pool.release(large);
+
+        BufferedImage small = pool.acquire(30, 25);
+        assertEquals(30, small.getWidth());
+        assertEquals(25, small.getHeight());
+        assertEquals(0, small.getRGB(0, 0));
+        assertEquals(0, small.getRGB(29, 24));
+        assertEquals(1, pool.getAllocationCount());
+        pool.release(small);
+        assertEquals(40 * 40 * 4, pool.getIdleByteCount());
+
+        // an idle image which is far too large isn't used
+        pool.acquire(10, 10);
+        assertEquals(2, pool.getAllocationCount());
+        assertEquals(1, pool.getIdleImageCount());
+    }
+
+    /**
+     * Tests that only isolated groups are drawn in place when that is allowed, and that a
+     * non-isolated group is still rendered into an offscreen image.
+     */
+    public void testInPlaceGroups() throws IOException
+    {
+        assertEquals(0, renderGroup(true, COSName.NORMAL, true));
+        assertEquals(1, renderGroup(true, COSName.NORMAL, false));
+        assertEquals(1, renderGroup(false, COSName.NORMAL, true));
+        assertEquals(1, renderGroup(false, COSName.NORMAL, false));
+
+        // the content of the group must be multiplied with the group's transparent backdrop,
+        // which leaves it red, not with the blue page
+        assertEquals(1, renderGroup(true, COSName.MULTIPLY, true));
+        assertEquals(1, renderGroup(true, COSName.MULTIPLY, false));
+    }
+
+    // returns the number of offscreen images which were allocated to render the group, which
+    // is drawn on a blue page with the given blend mode
+    private static long renderGroup(boolean isolated, COSName blendMode,
+                                    boolean inPlaceGroupsAllowed) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            PDStream form = new PDStream(document,
+                    new ByteArrayInputStream("/GS0 gs 1 0 0 rg 10 10 80 80 re f"
+                            .getBytes("US-ASCII")));
+            COSStream stream = form.getStream();
+            stream.setItem(COSName.TYPE, COSName.XOBJECT);
+            stream.setItem(COSName.SUBTYPE, COSName.FORM);
+            COSArray bbox = new COSArray();
+            bbox.setFloatArray(new float[] { 0, 0, 100, 100 });
+            stream.setItem(COSName.BBOX, bbox);
+            COSDictionary state = new COSDictionary();
+            state.setItem(COSName.BM, blendMode);
+            COSDictionary states = new COSDictionary();
+            states.setItem("GS0", state);
+            COSDictionary formResources = new COSDictionary();
+            formResources.setItem(COSName.EXT_G_STATE, states);
+            stream.setItem(COSName.RESOURCES, formResources);
+            COSDictionary group = new COSDictionary();
+            group.setItem(COSName.S, COSName.TRANSPARENCY);
+            group.setBoolean(COSName.I, isolated);
+            stream.setItem(COSName.GROUP, group);
+
+            COSDictionary xobjects = new COSDictionary();
+            xobjects.setItem("G1", stream);
+            COSDictionary resources = new COSDictionary();
+            resources.setItem(COSName.XOBJECT, xobjects);
+            PDPage page = new PDPage();
+            page.setResources(new PDResources(resources));
+            page.setContents(new PDStream(document,
+                    new ByteArrayInputStream("0 0 1 rg 0 0 612 792 re f /G1 Do".getBytes("US-ASCII"))));
+            document.addPage(page);
+
+            PDFRenderer renderer = new PDFRenderer(document);
+            renderer.setInPlaceGroupsAllowed(inPlaceGroupsAllowed);
+            BufferedImage image = renderer.renderImage(0);
+            assertEquals(0xffff0000, image.getRGB(50, image.getHeight() - 50));
+            return renderer.getOffscreenImagePool().getAllocationCount();
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+}
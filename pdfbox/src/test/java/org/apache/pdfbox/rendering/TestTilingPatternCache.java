@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+
+/**
+ * Tests the {@link TilingPatternCache}.
+ */
+public class TestTilingPatternCache extends TestCase
+{
+    private PDDocument document;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        document = new PDDocument();
+
+        COSDictionary patterns = new COSDictionary();
+        // a colored pattern and an uncolored one
+        patterns.setItem("P1", createPattern(1, "0 0 1 rg 0 0 3 3 re f 1 0 0 RG 0 0 m 8 8 l S"));
+        patterns.setItem("P2", createPattern(2, "0 0 m 8 8 l S 4 0 m 4 8 l S"));
+        COSArray patternColorSpace = new COSArray();
+        patternColorSpace.add(COSName.PATTERN);
+        patternColorSpace.add(COSName.DEVICERGB);
+        COSDictionary colorSpaces = new COSDictionary();
+        colorSpaces.setItem("CS0", patternColorSpace);
+        COSDictionary resources = new COSDictionary();
+        resources.setItem(COSName.PATTERN, patterns);
+        resources.setItem(COSName.COLORSPACE, colorSpaces);
+
+        StringBuilder content = new StringBuilder("/Pattern cs /P1 scn\n");
+        for (int i = 0; i < 50; i++)
+        {
+            content.append(10 + i * 11).append(" 10 10 100 re f\n");
+        }
+        for (int i = 0; i < 50; i++)
+        {
+            // two colors, alternating
+            content.append("/CS0 cs ").append(i % 2).append(" 0.5 0 /P2 scn ");
+            content.append(10 + i * 11).append(" 200 10 100 re f\n");
+        }
+        PDPage page = new PDPage();
+        page.setResources(new PDResources(resources));
+        page.setContents(new PDStream(document,
+                new ByteArrayInputStream(content.toString().getBytes("US-ASCII"))));
+        document.addPage(page);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        document.close();
+        super.tearDown();
+    }
+
+    /**
+     * Tests that each cell is rendered once and that the cached cells give the same result.
+     */
+    public void testCachedCells() throws IOException
+    {
+        PDFRenderer renderer = new PDFRenderer(document);
+        TilingPatternCache cache = renderer.getTilingPatternCache();
+        BufferedImage image = renderer.renderImage(0);
+        // one cell for the colored pattern, one for each color of the uncolored pattern
+        assertEquals(3, cache.getMissCount());
+        assertEquals(97, cache.getHitCount());
+        assertEquals(3, cache.getImageCount());
+
+        renderer.renderImage(0);
+        assertEquals(3, cache.getMissCount());
+        assertEquals(197, cache.getHitCount());
+
+        PDFRenderer uncached = new PDFRenderer(document);
+        uncached.getTilingPatternCache().setMaxBytes(0);
+        BufferedImage expected = uncached.renderImage(0);
+        assertEquals(0, uncached.getTilingPatternCache().getImageCount());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals(expected.getRGB(x, y), image.getRGB(x, y));
+            }
+        }
+    }
+
+    private COSStream createPattern(int paintType, String content) throws IOException
+    {
+        PDStream stream = new PDStream(document,
+                new ByteArrayInputStream(content.getBytes("US-ASCII")));
+        COSStream pattern = stream.getStream();
+        pattern.setInt(COSName.PATTERN_TYPE, 1);
+        pattern.setInt(COSName.PAINT_TYPE, paintType);
+        pattern.setInt(COSName.TILING_TYPE, 1);
+        COSArray bbox = new COSArray();
+        bbox.setFloatArray(new float[] { 0, 0, 8, 8 });
+        pattern.setItem(COSName.BBOX, bbox);
+        pattern.setInt(COSName.X_STEP, 8);
+        pattern.setInt(COSName.Y_STEP, 8);
+        pattern.setItem(COSName.RESOURCES, new COSDictionary());
+        return pattern;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the eviction policy of the {@link BoundedLRUCache}, which is shared by the image,
+ * shading, tiling pattern and font caches.
+ */
+public class TestBoundedLRUCache extends TestCase
+{
+    /**
+     * Tests that the least recently used values are evicted when the budget is exceeded.
+     */
+    public void testEviction()
+    {
+        final List<String> evicted = new ArrayList<String>();
+        BoundedLRUCache<String, Integer> cache = new BoundedLRUCache<String, Integer>(200)
+        {
+            @Override
+            protected void evicted(String key, Integer value)
+            {
+                evicted.add(key);
+            }
+        };
+        cache.put("a", 1, 100);
+        cache.put("b", 2, 100);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.put("c", 3, 100);
+
+        // "b" was the least recently used
+        assertEquals(Arrays.asList("b"), evicted);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.getByteCount());
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // replacing a value replaces its size
+        cache.put("a", 4, 50);
+        assertEquals(150, cache.getByteCount());
+        assertEquals(2, cache.size());
+
+        // a value which exceeds the budget isn't kept, and doesn't evict anything
+        assertFalse(cache.put("d", 5, 201));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        // lowering the budget evicts from the least recently used value on
+        cache.setMaxBytes(60);
+        assertEquals(Arrays.asList("b", "c"), evicted);
+        assertEquals(50, cache.getByteCount());
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteCount());
+        assertEquals(3, cache.getEvictionCount());
+        assertFalse(cache.put("a", 1, 1));
+    }
+
+    /**
+     * Tests the operations which neither count as lookups nor change the order.
+     */
+    public void testPutIfAbsentAndRemove()
+    {
+        BoundedLRUCache<String, Integer> cache = new BoundedLRUCache<String, Integer>(300);
+        assertNull(cache.putIfAbsent("a", 1, 100));
+        assertEquals(Integer.valueOf(1), cache.putIfAbsent("a", 2, 100));
+        cache.put("b", 3, 100);
+        cache.put("c", 4, 100);
+        assertEquals(Arrays.asList(1, 3, 4), new ArrayList<Integer>(cache.values()));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+
+        assertEquals(Integer.valueOf(3), cache.remove("b"));
+        assertNull(cache.remove("b"));
+        assertEquals(200, cache.getByteCount());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(Arrays.asList(1, 4), new ArrayList<Integer>(cache.values()));
+
+        cache.get("a");
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteCount());
+        assertEquals(1, cache.getHitCount());
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+    }
+
+    /**
+     * Tests that a negative budget is rejected.
+     */
+    public void testNegativeBudget()
+    {
+        try
+        {
+            new BoundedLRUCache<String, Integer>(-1);
+            fail("a negative budget must be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+}
@@ -156,6 +156,14 @@ public class TestImageIOUtils extends TestCase
             writeImage(document, imageType, outDir + file.getName() + "-co-", ImageType.RGB, dpi);
             checkResolution(outDir + file.getName() + "-co-1." + imageType, (int) dpi);
             checkTiffCompression(outDir + file.getName() + "-co-1." + imageType, "LZW");
+
+            // testing TIFF and PNG of interleaved bytes, as written by the PDFToImage tool
+            writeImage(document, imageType, outDir + file.getName() + "-bgr-", ImageType.BGR, dpi);
+            checkResolution(outDir + file.getName() + "-bgr-1." + imageType, (int) dpi);
+            checkTiffCompression(outDir + file.getName() + "-bgr-1." + imageType, "LZW");
+            imageType = "png";
+            writeImage(document, imageType, outDir + file.getName() + "-bgr-", ImageType.BGR, dpi);
+            checkResolution(outDir + file.getName() + "-bgr-1." + imageType, (int) dpi);
         }
         finally
         {
@@ -152,6 +152,31 @@ public class TestMatrix extends TestCase
                                                11, 20, 29}, retVal);
     }
 
+    public void testTranslation() throws Exception
+    {
+        Matrix m1 = new Matrix(2, 0.5f, -1, 3, 7, 11);
+        Matrix m2 = m1.clone();
+
+        // translating in place is the same as concatenating a translating instance
+        m1.translate(4, -5);
+        m2.concatenate(Matrix.getTranslatingInstance(4, -5));
+        assertMatrixValuesEqualTo(new float[] {2,  0.5f, 0,
+                                               -1, 3,    0,
+                                               20, -2,   1}, m1);
+        for (int row = 0; row < 3; row++)
+        {
+            for (int column = 0; column < 3; column++)
+            {
+                assertEquals(m2.getValue(row, column), m1.getValue(row, column), 0);
+            }
+        }
+
+        m1.translate(new Vector(1, 1));
+        assertMatrixValuesEqualTo(new float[] {2,  0.5f, 0,
+                                               -1, 3,    0,
+                                               21, 1.5f, 1}, m1);
+    }
+
     /**
      * This method asserts that the matrix values for the given {@link Matrix} object are equal
      * to the pristine, or original, values.
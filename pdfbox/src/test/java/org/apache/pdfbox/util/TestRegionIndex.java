@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link RegionIndex} class against a linear scan of all regions.
+ */
+public class TestRegionIndex extends TestCase
+{
+    public void testEmpty()
+    {
+        RegionIndex index = new RegionIndex(new LinkedHashMap<String, Rectangle2D>());
+        List<String> result = new ArrayList<String>();
+        index.findRegions(10, 10, result);
+        assertTrue(result.isEmpty());
+    }
+
+    public void testBoundaries()
+    {
+        Map<String, Rectangle2D> regions = new LinkedHashMap<String, Rectangle2D>();
+        regions.put("a", new Rectangle2D.Float(0, 0, 10, 10));
+        regions.put("b", new Rectangle2D.Float(10, 10, 10, 10));
+        RegionIndex index = new RegionIndex(regions);
+
+        List<String> result = new ArrayList<String>();
+        index.findRegions(0, 0, result);
+        assertEquals(1, result.size());
+        assertEquals("a", result.get(0));
+
+        // the bottom right edge belongs to the next region only, as in Rectangle2D.contains()
+        result.clear();
+        index.findRegions(10, 10, result);
+        assertEquals(1, result.size());
+        assertEquals("b", result.get(0));
+    }
+
+    public void testMatchesLinearScan()
+    {
+        Random random = new Random(4711);
+        Map<String, Rectangle2D> regions = new LinkedHashMap<String, Rectangle2D>();
+        for (int i = 0; i < 250; i++)
+        {
+            regions.put("region" + i, new Rectangle2D.Float(random.nextInt(600),
+                    random.nextInt(800), 1 + random.nextInt(200), 1 + random.nextInt(100)));
+        }
+        RegionIndex index = new RegionIndex(regions);
+        assertEquals(250, index.size());
+
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++)
+        {
+            float x = random.nextFloat() * 800;
+            float y = random.nextFloat() * 900;
+            Set<String> expected = new HashSet<String>();
+            for (Map.Entry<String, Rectangle2D> entry : regions.entrySet())
+            {
+                if (entry.getValue().contains(x, y))
+                {
+                    expected.add(entry.getKey());
+                }
+            }
+            result.clear();
+            index.findRegions(x, y, result);
+            assertEquals(expected.size(), result.size());
+            assertEquals(expected, new HashSet<String>(result));
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
@@ -26,6 +27,8 @@ import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -33,7 +36,18 @@ import junit.framework.TestSuite;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
 
 
 /**
@@ -381,6 +395,170 @@ public class TestTextStripper extends TestCase
             }
     }
 
+    /**
+     * Tests that text only mode skips graphics, inline image data and text free forms, and
+     * doesn't change the extracted text.
+     *
+     * @throws IOException if there is an error creating the document or extracting its text
+     */
+    public void testTextOnly() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            COSDictionary fonts = new COSDictionary();
+            fonts.setItem("F1", PDType1Font.HELVETICA.getCOSObject());
+            COSDictionary formResources = new COSDictionary();
+            formResources.setItem(COSName.FONT, fonts);
+
+            COSDictionary xobjects = new COSDictionary();
+            xobjects.setItem("Fm0", createForm(document, "0 1 0 rg 0 0 5 5 re f",
+                                               new COSDictionary()));
+            xobjects.setItem("Fm1", createForm(document,
+                                               "BT /F1 12 Tf 10 50 Td (World) Tj ET",
+                                               formResources));
+            COSDictionary resources = new COSDictionary();
+            resources.setItem(COSName.FONT, fonts);
+            resources.setItem(COSName.XOBJECT, xobjects);
+
+            PDPage page = new PDPage();
+            page.setResources(new PDResources(resources));
+            page.setContents(createStream(document, "BT /F1 12 Tf 10 100 Td (Hello) Tj ET "
+                    + "0 0 1 rg 10 10 20 20 re f /Fm0 Do /Fm1 Do "
+                    + "BI /W 4 /H 1 /CS /G /BPC 8 ID abcd EI"));
+            document.addPage(page);
+
+            PDFTextStripper textStripper = new PDFTextStripper();
+            assertFalse(textStripper.isTextOnly());
+            textStripper.setTextOnly(true);
+            String textOnly = textStripper.getText(document);
+            assertEquals(1, textStripper.getSkippedFormCount());
+            // rg, re and f on the page and the BI operator
+            assertEquals(4, textStripper.getSkippedOperatorCount());
+            // the content of Fm0 and the image data
+            assertTrue(textStripper.getSkippedByteCount() >= 21 + 4);
+
+            textStripper = new PDFTextStripper();
+            textStripper.setTextOnly(false);
+            assertEquals(textOnly, textStripper.getText(document));
+            assertEquals(0, textStripper.getSkippedFormCount());
+            assertEquals(0, textStripper.getSkippedOperatorCount());
+            assertTrue(textOnly.contains("Hello"));
+            assertTrue(textOnly.contains("World"));
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    /**
+     * Tests that text only mode doesn't change the text of the test documents.
+     *
+     * @throws IOException if there is an error extracting the text
+     */
+    public void testTextOnlyDocuments() throws IOException
+    {
+        File[] files = new File("src/test/resources/input").listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(".pdf");
+            }
+        });
+        for (File file : files)
+        {
+            PDDocument document = PDDocument.load(file);
+            try
+            {
+                for (boolean sort : new boolean[] { false, true })
+                {
+                    PDFTextStripper textStripper = new PDFTextStripper();
+                    textStripper.setSortByPosition(sort);
+                    textStripper.setTextOnly(true);
+                    String textOnly = textStripper.getText(document);
+                    textStripper.setTextOnly(false);
+                    assertEquals(file.getName(), textOnly, textStripper.getText(document));
+                }
+            }
+            finally
+            {
+                document.close();
+            }
+        }
+    }
+
+    /**
+     * Tests that text only mode keeps the data of inline images for a subclass which processes
+     * them, and that a form with malformed resources doesn't abort the extraction.
+     *
+     * @throws IOException if there is an error creating the document or extracting its text
+     */
+    public void testTextOnlyExceptions() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        try
+        {
+            COSDictionary fonts = new COSDictionary();
+            fonts.setItem("F1", PDType1Font.HELVETICA.getCOSObject());
+            COSDictionary xobjects = new COSDictionary();
+            xobjects.setItem("Fm0", createForm(document, "0 0 5 5 re f", new COSArray()));
+            COSDictionary resources = new COSDictionary();
+            resources.setItem(COSName.FONT, fonts);
+            resources.setItem(COSName.XOBJECT, xobjects);
+
+            PDPage page = new PDPage();
+            page.setResources(new PDResources(resources));
+            page.setContents(createStream(document, "BT /F1 12 Tf 10 100 Td (Hello) Tj ET "
+                    + "/Fm0 Do BI /W 4 /H 1 /CS /G /BPC 8 ID abcd EI"));
+            document.addPage(page);
+
+            final List<byte[]> images = new ArrayList<byte[]>();
+            PDFTextStripper textStripper = new PDFTextStripper();
+            textStripper.registerOperatorProcessor("BI", new OperatorProcessor()
+            {
+                @Override
+                public void process(Operator operator, List<COSBase> operands)
+                {
+                    images.add(operator.getImageData());
+                }
+
+                @Override
+                public String getName()
+                {
+                    return "BI";
+                }
+            });
+            textStripper.setTextOnly(true);
+            assertTrue(textStripper.getText(document).contains("Hello"));
+            assertEquals(0, textStripper.getSkippedFormCount());
+            assertEquals(1, images.size());
+            assertTrue(new String(images.get(0), "US-ASCII").startsWith("abcd"));
+        }
+        finally
+        {
+            document.close();
+        }
+    }
+
+    private static COSStream createForm(PDDocument document, String content,
+                                        COSBase resources) throws IOException
+    {
+        COSStream form = createStream(document, content).getStream();
+        form.setItem(COSName.TYPE, COSName.XOBJECT);
+        form.setItem(COSName.SUBTYPE, COSName.FORM);
+        COSArray bbox = new COSArray();
+        bbox.setFloatArray(new float[] { 0, 0, 200, 200 });
+        form.setItem(COSName.BBOX, bbox);
+        form.setItem(COSName.RESOURCES, resources);
+        return form;
+    }
+
+    private static PDStream createStream(PDDocument document, String content) throws IOException
+    {
+        return new PDStream(document, new ByteArrayInputStream(content.getBytes("US-ASCII")));
+    }
+
     /**
      * Set the tests in the suite for this test class.
      *
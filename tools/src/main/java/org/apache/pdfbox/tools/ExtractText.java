@@ -246,6 +246,8 @@ public class ExtractText
                     stripper = new PDFTextStripper();
                 }
                 stripper.setForceParsing( force );
+                // graphics operators don't matter for the extracted text
+                stripper.setTextOnly( true );
                 stripper.setSortByPosition( sort );
                 stripper.setShouldSeparateByBeads( separateBeads );
                 stripper.setStartPage( startPage );
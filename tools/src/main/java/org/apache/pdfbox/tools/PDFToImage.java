@@ -223,7 +223,7 @@ public class PDFToImage
                     }
                 }
 
-                ImageType imageType = ImageType.RGB;
+                ImageType imageType = ImageType.BGR;
                 if ("bilevel".equalsIgnoreCase(color))
                 {
                     imageType = ImageType.BINARY;
@@ -234,7 +234,8 @@ public class PDFToImage
                 }
                 else if ("rgb".equalsIgnoreCase(color))
                 {
-                    imageType = ImageType.RGB;
+                    // encoded without conversion, and smaller than ImageType.RGB in memory
+                    imageType = ImageType.BGR;
                 }
                 else if ("rgba".equalsIgnoreCase(color))
                 {